@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.benchmark.mock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.unitils.mock.core.proxy.CloneUtil.createDeepClone;
+
+/**
+ * Measures the deep cloning of arguments, which is done for every observed invocation of which the arguments are
+ * not immutable.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CloneBenchmark {
+
+    /* The nr of elements in the cloned collections */
+    @Param({"10", "1000"})
+    public int nrOfElements;
+
+    private List<Order> orders;
+
+    private int[] values;
+
+
+    @Setup
+    public void createArguments() {
+        orders = new ArrayList<Order>();
+        values = new int[nrOfElements];
+        for (int i = 0; i < nrOfElements; i++) {
+            orders.add(new Order("order" + i, new Customer("customer" + i), i));
+            values[i] = i;
+        }
+    }
+
+
+    @Benchmark
+    public List<Order> cloneObjectGraph() {
+        return createDeepClone(orders);
+    }
+
+
+    @Benchmark
+    public int[] clonePrimitiveArray() {
+        return createDeepClone(values);
+    }
+
+
+    public static class Order {
+
+        private String id;
+        private Customer customer;
+        private int amount;
+
+        public Order(String id, Customer customer, int amount) {
+            this.id = id;
+            this.customer = customer;
+            this.amount = amount;
+        }
+    }
+
+    public static class Customer {
+
+        private String name;
+
+        public Customer(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.benchmark.mock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.unitils.mock.Mock;
+import org.unitils.mock.core.MockObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of mock objects, including the creation of the proxy and the first invocation on it.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MockCreationBenchmark {
+
+
+    @Benchmark
+    public Mock<BenchmarkService> createMock() {
+        return new MockObject<BenchmarkService>("serviceMock", BenchmarkService.class, this);
+    }
+
+
+    @Benchmark
+    public int createMockAndInvoke() {
+        Mock<BenchmarkService> serviceMock = new MockObject<BenchmarkService>("serviceMock", BenchmarkService.class, this);
+        return serviceMock.getMock().count();
+    }
+}
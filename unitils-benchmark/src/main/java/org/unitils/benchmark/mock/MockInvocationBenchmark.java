@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.benchmark.mock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.unitils.mock.Mock;
+import org.unitils.mock.core.MockObject;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.unitils.mock.ArgumentMatchers.anyInt;
+import static org.unitils.mock.ArgumentMatchers.notNull;
+
+/**
+ * Measures invocations on a mock object by the code under test: an invocation for which no behavior was defined,
+ * an invocation that has to be matched against a number of behaviors with fixed argument values and an invocation
+ * that has to be matched against a number of behaviors that use argument matchers.
+ * <p/>
+ * The recorded invocations are reset at the start of every iteration so that the history of the scenario does not
+ * keep growing during the measurement.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MockInvocationBenchmark {
+
+    /* The nr of behaviors that are defined for the mocks */
+    @Param({"1", "10", "100"})
+    public int nrOfBehaviors;
+
+    private Mock<BenchmarkService> unstubbedMock;
+
+    private Mock<BenchmarkService> stubbedMock;
+
+    private Mock<BenchmarkService> argumentMatcherMock;
+
+    private Mock<BenchmarkService> behaviorDefiningMock;
+
+    private int index;
+
+
+    @Setup(Level.Trial)
+    public void createMocks() {
+        unstubbedMock = new MockObject<BenchmarkService>("unstubbedMock", BenchmarkService.class, this);
+        stubbedMock = new MockObject<BenchmarkService>("stubbedMock", BenchmarkService.class, this);
+        argumentMatcherMock = new MockObject<BenchmarkService>("argumentMatcherMock", BenchmarkService.class, this);
+        behaviorDefiningMock = new MockObject<BenchmarkService>("behaviorDefiningMock", BenchmarkService.class, this);
+        for (int i = 0; i < nrOfBehaviors; i++) {
+            stubbedMock.returns("value" + i).getValue("key" + i, i);
+            argumentMatcherMock.returns("value" + i).getValue(notNull(String.class), anyInt());
+        }
+    }
+
+
+    @Setup(Level.Iteration)
+    public void resetScenario() {
+        MockObject.getCurrentScenario().reset();
+    }
+
+
+    @Benchmark
+    public String unstubbedInvocation() {
+        return unstubbedMock.getMock().getValue("key", 0);
+    }
+
+
+    @Benchmark
+    public String stubbedInvocation() {
+        int i = index++ % nrOfBehaviors;
+        return stubbedMock.getMock().getValue("key" + i, i);
+    }
+
+
+    @Benchmark
+    public String argumentMatcherInvocation() {
+        return argumentMatcherMock.getMock().getValue("key", index++);
+    }
+
+
+    @Benchmark
+    public String defineBehavior() {
+        behaviorDefiningMock.resetBehavior();
+        return behaviorDefiningMock.returns("value").getValue("key", 0);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.benchmark.mock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.unitils.mock.Mock;
+import org.unitils.mock.core.MockObject;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.unitils.mock.ArgumentMatchers.anyInt;
+
+/**
+ * Measures the verification of invocations against a large history of observed invocations. Every invocation of the
+ * benchmark methods starts from a history of the given size, because the asserts mark the matched invocations as
+ * verified.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VerificationBenchmark {
+
+    /* The nr of observed invocations in the scenario */
+    @Param({"100", "1000", "10000"})
+    public int nrOfInvocations;
+
+    private Mock<BenchmarkService> serviceMock;
+
+    private Mock<BenchmarkService> otherServiceMock;
+
+
+    @Setup(Level.Trial)
+    public void createMocks() {
+        serviceMock = new MockObject<BenchmarkService>("serviceMock", BenchmarkService.class, this);
+        otherServiceMock = new MockObject<BenchmarkService>("otherServiceMock", BenchmarkService.class, this);
+    }
+
+
+    @Setup(Level.Invocation)
+    public void recordInvocations() {
+        MockObject.getCurrentScenario().reset();
+        for (int i = 0; i < nrOfInvocations; i++) {
+            serviceMock.getMock().getValue("key", i);
+            otherServiceMock.getMock().count();
+        }
+    }
+
+
+    @Benchmark
+    public void assertInvoked() {
+        serviceMock.assertInvoked().getValue("key", nrOfInvocations - 1);
+    }
+
+
+    @Benchmark
+    public void assertInvokedWithArgumentMatcher() {
+        serviceMock.assertInvoked().getValue("key", anyInt());
+    }
+
+
+    @Benchmark
+    public void assertInvokedInSequence() {
+        serviceMock.assertInvokedInSequence().getValue("key", 0);
+        otherServiceMock.assertInvokedInSequence().count();
+    }
+
+
+    @Benchmark
+    public void assertNotInvoked() {
+        serviceMock.assertNotInvoked().process(null);
+    }
+}
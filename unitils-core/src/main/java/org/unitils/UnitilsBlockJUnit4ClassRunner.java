@@ -24,6 +24,7 @@ import org.junit.runners.model.InitializationError;
 import org.junit.runners.model.Statement;
 import org.unitils.core.TestListener;
 import org.unitils.core.Unitils;
+import org.unitils.core.junit.AfterTestClassStatement;
 import org.unitils.core.junit.AfterTestMethodStatement;
 import org.unitils.core.junit.AfterTestTearDownStatement;
 import org.unitils.core.junit.BeforeTestClassStatement;
@@ -51,7 +52,7 @@ public class UnitilsBlockJUnit4ClassRunner extends BlockJUnit4ClassRunner {
 
         Statement statement = super.classBlock(notifier);
         statement = new BeforeTestClassStatement(testClass, unitilsTestListener, statement);
-        //statement = new AfterTestClassStatement(unitilsTestListener, statement);
+        statement = new AfterTestClassStatement(testClass, unitilsTestListener, statement);
         return statement;
     }
 
@@ -64,7 +64,11 @@ public class UnitilsJUnit4TestClassRunner extends JUnit4ClassRunner implements T
         Unitils.getInstance().getTestContext().setRunner(this);
         try {
             getTestListener().beforeTestClass(getTestClass().getJavaClass());
-            classRoadie.runProtected();
+            try {
+                classRoadie.runProtected();
+            } finally {
+                getTestListener().afterTestClass(getTestClass().getJavaClass());
+            }
         } catch (Throwable t) {
             notifier.fireTestFailure(new Failure(getDescription(), t));
         }
@@ -39,6 +39,7 @@ import java.lang.reflect.Method;
  * <li>[Test]    testTearDown      - TestClass1</li>
  * <li>[Unitils] afterTestTearDown - TestClass1</li>
  * <li>[Test]    testAfterClass    - TestClass1 (not for JUnit3)</li>
+ * <li>[Unitils] afterTestClass    - TestClass1 (not for JUnit3)</li>
  * </ul>
  * <p/>
  * The after methods will always when the before counterpart has run (or begun). For example if an exception occurs during
@@ -125,6 +126,16 @@ public abstract class TestListener {
     }
     
     
+    /**
+     * Invoked after the generic class tear down (e.g. @AfterClass) is performed. This is not called for JUnit3 tests.
+     *
+     * @param testClass The class whose test methods were executed, not null
+     */
+    public void afterTestClass(Class<?> testClass) {
+        // empty
+    }
+
+
     /**
      * Method to test whether this method should be executed or not. This goes further than @Ignore, we
      * query the various listeners so they can veto the execution at this time.
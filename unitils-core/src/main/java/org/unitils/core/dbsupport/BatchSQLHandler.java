@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optional extension of {@link SQLHandler} for executing statements in batch and retrieving the results of
+ * schema-wide queries at once. {@link DbSupport} uses these methods if its sql handler implements this interface, and
+ * falls back to executing the statements one by one otherwise.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public interface BatchSQLHandler extends SQLHandler {
+
+    /**
+     * Executes the given statements as a single batch on one connection.
+     *
+     * @param sqls The sql statements, not null
+     * @return The nr of updates of each statement
+     */
+    int[] executeUpdates(List<String> sqls);
+
+
+    /**
+     * Returns the items extracted from the result of the given query. The first column of the result contains the
+     * keys, the second column the long values.
+     *
+     * @param sql The sql string for retrieving the items
+     * @return The items, not null
+     */
+    Map<String, Long> getItemsAsLongMap(String sql);
+
+
+    /**
+     * Returns the items extracted from the result of the given query. The first column of the result contains the
+     * keys, the second column the values. All values of the same key are grouped in a set.
+     *
+     * @param sql The sql string for retrieving the items
+     * @return The items, not null
+     */
+    Map<String, Set<String>> getItemsAsStringSetMap(String sql);
+
+
+    /**
+     * Returns the names of the columns of the result of the given query that are auto-increment columns according to
+     * the JDBC result set meta data. The query does not need to return any records.
+     *
+     * @param sql The sql string of the query
+     * @return The names of the auto-increment columns, not null
+     */
+    Set<String> getAutoIncrementColumnNames(String sql);
+}
@@ -0,0 +1,433 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.core.UnitilsException;
+import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SQL handler that keeps using the same connection until it is closed. This avoids getting a connection from the
+ * data source for every statement when a lot of small statements are executed, e.g. while updating or clearing a
+ * database schema. The handler should therefore always be closed when the task is finished:
+ * <pre><code>
+ * ConnectionScopedSQLHandler sqlHandler = new ConnectionScopedSQLHandler(dataSource);
+ * try {
+ *     ...
+ * } finally {
+ *     sqlHandler.close();
+ * }
+ * </code></pre>
+ * All statements are executed using a single JDBC statement on the pinned connection.
+ * <p/>
+ * The connection is only used by the thread that created the handler. Statements that are executed by other threads,
+ * e.g. by a cleaner that truncates tables in parallel, get their own connection from the data source, as in the
+ * {@link DefaultSQLHandler}. The handler should also be closed by the thread that created it.
+ * <p/>
+ * Once closed, the handler behaves as a {@link DefaultSQLHandler}. This way, objects that keep a reference to the
+ * handler after the task was finished, e.g. cached db supports, will not pin a connection again.
+ *
+ * @author Filip Neven
+ * @author Tim Ducheyne
+ */
+public class ConnectionScopedSQLHandler extends DefaultSQLHandler {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(ConnectionScopedSQLHandler.class);
+
+    /* The thread that is allowed to use the pinned connection */
+    private Thread ownerThread;
+
+    /* True if the handler was closed */
+    private boolean closed;
+
+    /* The pinned connection, null if not yet opened */
+    private Connection connection;
+
+    /* The statement that is reused for all statements, null if not yet created */
+    private Statement statement;
+
+
+    /**
+     * Constructs a new instance that connects to the given DataSource
+     *
+     * @param dataSource The data source, not null
+     */
+    public ConnectionScopedSQLHandler(DataSource dataSource) {
+        this(dataSource, true);
+    }
+
+
+    /**
+     * Constructs a new instance that connects to the given DataSource
+     *
+     * @param dataSource       The data source, not null
+     * @param doExecuteUpdates Boolean indicating whether updates should effectively be executed on the underlying
+     *                         database
+     */
+    public ConnectionScopedSQLHandler(DataSource dataSource, boolean doExecuteUpdates) {
+        super(dataSource, doExecuteUpdates);
+        this.ownerThread = Thread.currentThread();
+    }
+
+
+    @Override
+    public int executeUpdate(String sql) {
+        if (!isConnectionPinned()) {
+            return super.executeUpdate(sql);
+        }
+        logger.debug(sql);
+
+        if (!isDoExecuteUpdates()) {
+            // skip update
+            return 0;
+        }
+        try {
+            return getStatement().executeUpdate(sql);
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while performing database update: " + sql, e);
+        }
+    }
+
+
+    @Override
+    public int[] executeUpdates(List<String> sqls) {
+        if (!isConnectionPinned()) {
+            return super.executeUpdates(sqls);
+        }
+        if (sqls.isEmpty()) {
+            return new int[0];
+        }
+        for (String sql : sqls) {
+            logger.debug(sql);
+        }
+
+        if (!isDoExecuteUpdates()) {
+            // skip updates
+            return new int[sqls.size()];
+        }
+        Statement batchStatement = null;
+        try {
+            batchStatement = getStatement();
+            for (String sql : sqls) {
+                batchStatement.addBatch(sql);
+            }
+            return batchStatement.executeBatch();
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while performing database updates: " + sqls, e);
+        } finally {
+            clearBatchQuietly(batchStatement);
+        }
+    }
+
+
+    @Override
+    public void executeQuery(String sql) {
+        if (!isConnectionPinned()) {
+            super.executeQuery(sql);
+            return;
+        }
+        logger.debug(sql);
+
+        if (!isDoExecuteUpdates()) {
+            // skip query
+            return;
+        }
+        ResultSet resultSet = null;
+        try {
+            resultSet = getStatement().executeQuery(sql);
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while performing database update: " + sql, e);
+        } finally {
+            closeQuietly(resultSet);
+        }
+    }
+
+
+    @Override
+    public int executeUpdateAndCommit(String sql) {
+        if (!isConnectionPinned()) {
+            return super.executeUpdateAndCommit(sql);
+        }
+        logger.debug(sql);
+
+        if (!isDoExecuteUpdates()) {
+            // skip update
+            return 0;
+        }
+        try {
+            int nbChanges = getStatement().executeUpdate(sql);
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+            return nbChanges;
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while performing database update: " + sql, e);
+        }
+    }
+
+
+    @Override
+    public long getItemAsLong(String sql) {
+        if (!isConnectionPinned()) {
+            return super.getItemAsLong(sql);
+        }
+        logger.debug(sql);
+
+        ResultSet resultSet = null;
+        try {
+            resultSet = getStatement().executeQuery(sql);
+            if (resultSet.next()) {
+                return resultSet.getLong(1);
+            }
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(resultSet);
+        }
+
+        // in case no value was found, throw an exception
+        throw new UnitilsException("No item value found: " + sql);
+    }
+
+
+    @Override
+    public String getItemAsString(String sql) {
+        if (!isConnectionPinned()) {
+            return super.getItemAsString(sql);
+        }
+        logger.debug(sql);
+
+        ResultSet resultSet = null;
+        try {
+            resultSet = getStatement().executeQuery(sql);
+            if (resultSet.next()) {
+                return resultSet.getString(1);
+            }
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(resultSet);
+        }
+
+        // in case no value was found, throw an exception
+        throw new UnitilsException("No item value found: " + sql);
+    }
+
+
+    @Override
+    public Set<String> getItemsAsStringSet(String sql) {
+        if (!isConnectionPinned()) {
+            return super.getItemsAsStringSet(sql);
+        }
+        logger.debug(sql);
+
+        ResultSet resultSet = null;
+        try {
+            resultSet = getStatement().executeQuery(sql);
+            return getStringSet(resultSet);
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(resultSet);
+        }
+    }
+
+
+    @Override
+    public Map<String, Long> getItemsAsLongMap(String sql) {
+        if (!isConnectionPinned()) {
+            return super.getItemsAsLongMap(sql);
+        }
+        logger.debug(sql);
+
+        ResultSet resultSet = null;
+        try {
+            resultSet = getStatement().executeQuery(sql);
+            Map<String, Long> result = new HashMap<String, Long>();
+            while (resultSet.next()) {
+                result.put(resultSet.getString(1), resultSet.getLong(2));
+            }
+            return result;
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(resultSet);
+        }
+    }
+
+
+    @Override
+    public Map<String, Set<String>> getItemsAsStringSetMap(String sql) {
+        if (!isConnectionPinned()) {
+            return super.getItemsAsStringSetMap(sql);
+        }
+        logger.debug(sql);
+
+        ResultSet resultSet = null;
+        try {
+            resultSet = getStatement().executeQuery(sql);
+            Map<String, Set<String>> result = new HashMap<String, Set<String>>();
+            while (resultSet.next()) {
+                String key = resultSet.getString(1);
+                Set<String> values = result.get(key);
+                if (values == null) {
+                    values = new HashSet<String>();
+                    result.put(key, values);
+                }
+                values.add(resultSet.getString(2));
+            }
+            return result;
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(resultSet);
+        }
+    }
+
+
+    @Override
+    public Set<String> getAutoIncrementColumnNames(String sql) {
+        if (!isConnectionPinned()) {
+            return super.getAutoIncrementColumnNames(sql);
+        }
+        logger.debug(sql);
+
+        ResultSet resultSet = null;
+        try {
+            resultSet = getStatement().executeQuery(sql);
+            return getAutoIncrementColumnNames(resultSet.getMetaData());
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(resultSet);
+        }
+    }
+
+
+    @Override
+    public boolean exists(String sql) {
+        if (!isConnectionPinned()) {
+            return super.exists(sql);
+        }
+        logger.debug(sql);
+
+        ResultSet resultSet = null;
+        try {
+            resultSet = getStatement().executeQuery(sql);
+            return resultSet.next();
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(resultSet);
+        }
+    }
+
+
+    /**
+     * Closes the statement and gives the connection back to the data source. The handler can still be used
+     * afterwards, but every statement will then get its own connection. The db supports that were created for this
+     * handler are removed from the {@link DbSupportFactory}.
+     */
+    public void close() {
+        closed = true;
+        DbSupportFactory.unregisterSQLHandler(this);
+        closeQuietly(connection, statement, null);
+        statement = null;
+        connection = null;
+    }
+
+
+    /**
+     * @return The pinned connection, opened if needed, not null
+     */
+    protected Connection getConnection() throws SQLException {
+        if (connection == null) {
+            connection = getDataSource().getConnection();
+        }
+        return connection;
+    }
+
+
+    /**
+     * @return The statement that is reused for all statements, not null
+     */
+    protected Statement getStatement() throws SQLException {
+        if (statement == null) {
+            statement = getConnection().createStatement();
+        }
+        return statement;
+    }
+
+
+    /**
+     * @param resultSet The result set, not null
+     * @return The values of the first column, not null
+     */
+    protected Set<String> getStringSet(ResultSet resultSet) throws SQLException {
+        Set<String> result = new HashSet<String>();
+        while (resultSet.next()) {
+            result.add(resultSet.getString(1));
+        }
+        return result;
+    }
+
+
+    /**
+     * Clears the batch of the given statement, so that it can be reused, ignoring any exception.
+     *
+     * @param statement The statement, null if it could not be created
+     */
+    protected void clearBatchQuietly(Statement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.clearBatch();
+        } catch (SQLException e) {
+            // ignore
+        }
+    }
+
+
+    /**
+     * @return True if the handler is not closed and the current thread is the thread that created this handler
+     */
+    protected boolean isConnectionPinned() {
+        return !closed && Thread.currentThread() == ownerThread;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import static org.unitils.core.util.StoredIdentifierCase.LOWER_CASE;
+import static org.unitils.core.util.StoredIdentifierCase.MIXED_CASE;
+import static org.unitils.core.util.StoredIdentifierCase.UPPER_CASE;
+import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.core.UnitilsException;
+import org.unitils.core.util.StoredIdentifierCase;
+
+/**
+ * The properties of a database that are determined using the JDBC database meta data: the identifier quote string,
+ * the case in which identifiers are stored and the major version of the database. The meta data is retrieved the first
+ * time one of the properties is needed, using a single connection, and is kept for all {@link DbSupport} instances of
+ * the data source, see {@link DbSupportFactory#getDataSourceMetaData}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DataSourceMetaData {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(DataSourceMetaData.class);
+
+    /* The data source of the database */
+    private DataSource dataSource;
+
+    /* True if the meta data was retrieved */
+    private boolean loaded;
+
+    /* The string that is used to quote identifiers, null if quoting is not supported */
+    private String identifierQuoteString;
+
+    /* The case in which the database stores non-quoted identifiers */
+    private StoredIdentifierCase storedIdentifierCase;
+
+    /* The major version of the database, null if it could not be determined */
+    private Integer databaseMajorVersion;
+
+
+    /**
+     * Creates the meta data for the given data source, the database is not accessed yet.
+     *
+     * @param dataSource The data source, not null
+     */
+    public DataSourceMetaData(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+
+    /**
+     * @return The string that is used to quote identifiers to make them case sensitive, null if not supported
+     */
+    public synchronized String getIdentifierQuoteString() {
+        loadMetaData();
+        return identifierQuoteString;
+    }
+
+
+    /**
+     * @return The case in which the database stores non-quoted identifiers, not null
+     */
+    public synchronized StoredIdentifierCase getStoredIdentifierCase() {
+        loadMetaData();
+        return storedIdentifierCase;
+    }
+
+
+    /**
+     * @return The major version of the database (e.g. for version 9.2.0.1, 9 is returned)
+     */
+    public synchronized int getDatabaseMajorVersion() {
+        loadMetaData();
+        if (databaseMajorVersion == null) {
+            throw new UnitilsException("Unable to determine database major version.");
+        }
+        return databaseMajorVersion;
+    }
+
+
+    /**
+     * Retrieves the meta data from the database, if this was not done yet.
+     */
+    protected void loadMetaData() {
+        if (loaded) {
+            return;
+        }
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            DatabaseMetaData databaseMetaData = connection.getMetaData();
+
+            String quoteString = databaseMetaData.getIdentifierQuoteString();
+            identifierQuoteString = (quoteString == null || "".equals(quoteString.trim())) ? null : quoteString;
+
+            if (databaseMetaData.storesUpperCaseIdentifiers()) {
+                storedIdentifierCase = UPPER_CASE;
+            } else if (databaseMetaData.storesLowerCaseIdentifiers()) {
+                storedIdentifierCase = LOWER_CASE;
+            } else {
+                storedIdentifierCase = MIXED_CASE;
+            }
+
+            try {
+                databaseMajorVersion = databaseMetaData.getDatabaseMajorVersion();
+            } catch (SQLException e) {
+                // only needed by some dbms specific implementations, they will fail when the version is requested
+                logger.debug("Unable to determine database major version.", e);
+            }
+            loaded = true;
+
+        } catch (SQLException e) {
+            throw new UnitilsException("Unable to retrieve the database meta data.", e);
+        } finally {
+            closeQuietly(connection, null, null);
+        }
+    }
+}
@@ -15,6 +15,9 @@
  */
 package org.unitils.core.dbsupport;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -106,6 +109,31 @@ public class Db2DbSupport extends DbSupport {
     }
 
 
+    /**
+     * Removes all data from the table with the given name using the truncate statement.
+     * Note: the table name is surrounded with quotes, making it case-sensitive.
+     *
+     * @param tableName The table to truncate (case-sensitive), not null
+     */
+    @Override
+    public void truncateTable(String tableName) {
+        getSQLHandler().executeUpdate("truncate table " + qualified(tableName) + " immediate");
+    }
+
+
+    /**
+     * Gets the query that returns the given table name if the table contains at least one record. For this DBMS
+     * a select without a from clause is not supported, the sysibm.sysdummy1 table is used instead.
+     *
+     * @param tableName The table to check (case-sensitive), not null
+     * @return The query, not null
+     */
+    @Override
+    protected String getExistenceProbeQuery(String tableName) {
+        return "select '" + tableName.replace("'", "''") + "' from sysibm.sysdummy1 where exists (select 1 from " + qualified(tableName) + ")";
+    }
+
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all table in the schema
      */
@@ -219,6 +247,51 @@ public class Db2DbSupport extends DbSupport {
     }
 
 
+    /**
+     * Sets the next value of all sequences with the given names to the given sequence value in one batch.
+     *
+     * @param sequenceNames    The sequences, not null
+     * @param newSequenceValue The value to set
+     */
+    @Override
+    public void incrementSequencesToValue(Set<String> sequenceNames, long newSequenceValue) {
+        List<String> statements = new ArrayList<String>();
+        for (String sequenceName : sequenceNames) {
+            statements.add("alter sequence " + qualified(sequenceName) + " restart with " + newSequenceValue);
+        }
+        executeUpdates(statements);
+    }
+
+
+    /**
+     * Gets the names of all identity columns in the schema using a single query.
+     *
+     * @return The names of the identity columns, with the table names as key, not null
+     */
+    @Override
+    public Map<String, Set<String>> getIdentityColumnNames() {
+        return getItemsAsStringSetMap("select TABNAME, COLNAME from SYSCAT.COLUMNS where IDENTITY = 'Y' and TABSCHEMA = '" + getSchemaName() + "'");
+    }
+
+
+    /**
+     * Increments the identity value of all given identity columns to the given value in one batch.
+     *
+     * @param identityColumnNames The identity columns, with the table names as key, not null
+     * @param identityValue       The new value
+     */
+    @Override
+    public void incrementIdentityColumnsToValue(Map<String, Set<String>> identityColumnNames, long identityValue) {
+        List<String> statements = new ArrayList<String>();
+        for (Map.Entry<String, Set<String>> entry : identityColumnNames.entrySet()) {
+            for (String identityColumnName : entry.getValue()) {
+                statements.add("alter table " + qualified(entry.getKey()) + " alter column " + quoted(identityColumnName) + " restart with " + identityValue);
+            }
+        }
+        executeUpdates(statements);
+    }
+
+
     /**
      * Sequences are supported.
      *
@@ -262,4 +335,15 @@ public class Db2DbSupport extends DbSupport {
         return true;
     }
 
+
+    /**
+     * Truncate is supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
+
 }
\ No newline at end of file
@@ -18,14 +18,16 @@ package org.unitils.core.dbsupport;
 import org.unitils.core.UnitilsException;
 import org.unitils.core.util.StoredIdentifierCase;
 import static org.unitils.core.util.StoredIdentifierCase.*;
-import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
+import static org.unitils.util.PropertyUtils.getBoolean;
 import static org.unitils.util.PropertyUtils.getString;
 
-import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang.StringUtils;
 
 /**
@@ -49,6 +51,11 @@ abstract public class DbSupport {
      */
     public static final String PROPKEY_IDENTIFIER_QUOTE_STRING = "database.identifierQuoteString";
 
+    /**
+     * Property key that indicates whether the meta data of the schema (table names, column names...) should be cached
+     */
+    public static final String PROPKEY_METADATA_CACHE_ENABLED = "database.metaDataCache.enabled";
+
 
     /* The name of the DBMS implementation that is supported by this implementation */
     private String databaseDialect;
@@ -65,6 +72,9 @@ abstract public class DbSupport {
     /* The string that is used to quote identifiers to make them case sensitive, e.g. ", null means quoting not supported*/
     private String identifierQuoteString;
 
+    /* The cached meta data of the schema per kind of meta data, null if caching is disabled */
+    private Map<String, Object> metaDataCache;
+
 
     /**
      * Creates a new, unconfigured instance. To have a instance that can be used, the {@link #init} method must be
@@ -79,8 +89,8 @@ abstract public class DbSupport {
 
     /**
      * Initializes this DbSupport object with the given schemaName and dataSource.
-     * If the storedIdentifierCase or identifierQuoteString is set to null, the metadata of the connection will be used to determine the
-     * correct value.
+     * If the storedIdentifierCase or identifierQuoteString is set to auto, the metadata of the data source will be used to determine the
+     * correct value. This metadata is retrieved only once per data source, see {@link DbSupportFactory#getDataSourceMetaData}.
      *
      * @param configuration The config, not null
      * @param sqlHandler    The sql handler, not null
@@ -96,6 +106,7 @@ abstract public class DbSupport {
         this.storedIdentifierCase = determineStoredIdentifierCase(storedIdentifierCaseValue);
 
         this.schemaName = toCorrectCaseIdentifier(schemaName);
+        this.metaDataCache = getBoolean(PROPKEY_METADATA_CACHE_ENABLED, false, configuration) ? new ConcurrentHashMap<String, Object>() : null;
     }
 
 
@@ -149,6 +160,63 @@ abstract public class DbSupport {
     }
 
 
+    /**
+     * Executes the given statements as a single batch on one connection. If the sql handler does not support
+     * batches, the statements are executed one by one.
+     *
+     * @param sqls The sql statements, not null
+     * @return The nr of updates of each statement, not null
+     */
+    protected int[] executeUpdates(List<String> sqls) {
+        SQLHandler sqlHandler = getSQLHandler();
+        if (sqlHandler instanceof BatchSQLHandler) {
+            return ((BatchSQLHandler) sqlHandler).executeUpdates(sqls);
+        }
+        int[] result = new int[sqls.size()];
+        for (int i = 0; i < sqls.size(); i++) {
+            result[i] = sqlHandler.executeUpdate(sqls.get(i));
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the items extracted from the result of the given query. The first column of the result contains the
+     * keys, the second column the long values.
+     *
+     * @param sql The sql string for retrieving the items
+     * @return The items, not null
+     */
+    protected Map<String, Long> getItemsAsLongMap(String sql) {
+        return getBatchSQLHandler().getItemsAsLongMap(sql);
+    }
+
+
+    /**
+     * Returns the items extracted from the result of the given query. The first column of the result contains the
+     * keys, the second column the values. All values of the same key are grouped in a set.
+     *
+     * @param sql The sql string for retrieving the items
+     * @return The items, not null
+     */
+    protected Map<String, Set<String>> getItemsAsStringSetMap(String sql) {
+        return getBatchSQLHandler().getItemsAsStringSetMap(sql);
+    }
+
+
+    /**
+     * @return The sql handler if it is a {@link BatchSQLHandler}, else a {@link DefaultSQLHandler} on the same data
+     *         source for executing queries, not null
+     */
+    protected BatchSQLHandler getBatchSQLHandler() {
+        SQLHandler sqlHandler = getSQLHandler();
+        if (sqlHandler instanceof BatchSQLHandler) {
+            return (BatchSQLHandler) sqlHandler;
+        }
+        return new DefaultSQLHandler(sqlHandler.getDataSource(), sqlHandler.isDoExecuteUpdates());
+    }
+
+
     /**
      * Returns the names of all tables in the database.
      *
@@ -301,6 +369,53 @@ abstract public class DbSupport {
     }
 
 
+    /**
+     * Removes all data from the table with the given name using the fast, non-logged truncate statement of the DBMS.
+     * Note: the table name is surrounded with quotes, making it case-sensitive.
+     *
+     * @param tableName The table to truncate (case-sensitive), not null
+     */
+    public void truncateTable(String tableName) {
+        throw new UnsupportedOperationException("Truncate not supported for " + getDatabaseDialect());
+    }
+
+
+    /**
+     * Gets the names of the given tables that contain at least one record. This is done using a single query, so that
+     * empty tables can be skipped without a round-trip per table. Every table is checked using an existence probe
+     * (see {@link #getExistenceProbeQuery}), so that the records of the tables do not have to be counted.
+     *
+     * @param tableNames The tables to check (case-sensitive), not null
+     * @return The names of the tables that are not empty, not null
+     */
+    public Set<String> getNonEmptyTableNames(Set<String> tableNames) {
+        if (tableNames.isEmpty()) {
+            return new HashSet<String>();
+        }
+        StringBuilder query = new StringBuilder();
+        for (String tableName : tableNames) {
+            if (query.length() > 0) {
+                query.append(" union all ");
+            }
+            query.append(getExistenceProbeQuery(tableName));
+        }
+        return getSQLHandler().getItemsAsStringSet(query.toString());
+    }
+
+
+    /**
+     * Gets the query that returns the given table name if the table contains at least one record. The DBMS can stop
+     * looking as soon as a record is found. By default a select without a from clause is used. Override this method
+     * for a DBMS that requires a from clause.
+     *
+     * @param tableName The table to check (case-sensitive), not null
+     * @return The query, not null
+     */
+    protected String getExistenceProbeQuery(String tableName) {
+        return "select '" + tableName.replace("'", "''") + "' where exists (select 1 from " + qualified(tableName) + ")";
+    }
+
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all table in the schema
      */
@@ -313,6 +428,107 @@ abstract public class DbSupport {
     public abstract void disableValueConstraints();
 
 
+    /**
+     * Clears all meta data of the schema that is cached by this instance and by the other registered instances for the
+     * same schema, see {@link DbSupportFactory}. Should be called when the structure of the schema was changed, e.g. after
+     * executing database update scripts.
+     */
+    public void invalidateCache() {
+        clearCache();
+        DbSupportFactory.clearCaches(getSchemaName(), getDatabaseDialect());
+    }
+
+
+    /**
+     * Clears all meta data of the schema that is cached by this instance.
+     */
+    protected void clearCache() {
+        if (metaDataCache != null) {
+            metaDataCache.clear();
+        }
+    }
+
+
+    /**
+     * @return True if the meta data of the schema is cached, see {@link #PROPKEY_METADATA_CACHE_ENABLED}
+     */
+    public boolean isMetaDataCacheEnabled() {
+        return metaDataCache != null;
+    }
+
+
+    /**
+     * @param key The key of the cached meta data, not null
+     * @return The cached meta data, null if not cached or if meta data caching is disabled
+     */
+    protected Object getCachedMetaData(String key) {
+        return metaDataCache == null ? null : metaDataCache.get(key);
+    }
+
+
+    /**
+     * Caches the given meta data until {@link #invalidateCache} is called. Nothing is done if meta data caching is
+     * disabled. Cached meta data is shared between threads, so it should not be modified after it is cached.
+     *
+     * @param key      The key of the cached meta data, not null
+     * @param metaData The meta data, not null
+     */
+    protected void putCachedMetaData(String key, Object metaData) {
+        if (metaDataCache != null) {
+            metaDataCache.put(key, metaData);
+        }
+    }
+
+
+    /**
+     * Gets the names that are returned by the given query. If meta data caching is enabled, the names are only
+     * queried the first time and cached using the given key until {@link #invalidateCache} is called.
+     *
+     * @param key   The key of the cached names, not null
+     * @param query The query that returns the names in its first column, not null
+     * @return The names, a copy if cached, not null
+     */
+    @SuppressWarnings("unchecked")
+    protected Set<String> getCachedNames(String key, String query) {
+        if (metaDataCache == null) {
+            return getSQLHandler().getItemsAsStringSet(query);
+        }
+        Set<String> names = (Set<String>) metaDataCache.get(key);
+        if (names == null) {
+            names = getSQLHandler().getItemsAsStringSet(query);
+            metaDataCache.put(key, names);
+        }
+        return new HashSet<String>(names);
+    }
+
+
+    /**
+     * Gets the names for the given table, e.g. column names. If meta data caching is disabled, the table query is
+     * used. Otherwise, the names for all tables of the schema are loaded at once using the schema query and cached
+     * using the given key until {@link #invalidateCache} is called.
+     *
+     * @param key         The key of the cached names, not null
+     * @param tableName   The table, not null
+     * @param tableQuery  The query that returns the names for the table in its first column, not null
+     * @param schemaQuery The query that returns the table names in its first column and the names in its second
+     *                    column for all tables of the schema, not null
+     * @return The names of the table, a copy if cached, not null
+     */
+    @SuppressWarnings("unchecked")
+    protected Set<String> getCachedNames(String key, String tableName, String tableQuery, String schemaQuery) {
+        if (metaDataCache == null) {
+            return getSQLHandler().getItemsAsStringSet(tableQuery);
+        }
+        Map<String, Set<String>> namesPerTable = (Map<String, Set<String>>) metaDataCache.get(key);
+        if (namesPerTable == null) {
+            namesPerTable = getItemsAsStringSetMap(schemaQuery);
+            metaDataCache.put(key, namesPerTable);
+        }
+        Set<String> names = namesPerTable.get(tableName);
+        return names == null ? new HashSet<String>() : new HashSet<String>(names);
+    }
+
+
     /**
      * Returns the value of the sequence with the given name.
      * <p/>
@@ -361,6 +577,90 @@ abstract public class DbSupport {
     }
 
 
+    /**
+     * Returns the values of all sequences in the schema. By default, the value of each sequence is retrieved
+     * separately. Subclasses can override this method to retrieve all values using a single query.
+     * <p/>
+     * Note: this can have the side-effect of increasing the sequence values.
+     *
+     * @return The values of the sequences, with the sequence names as key, not null
+     */
+    public Map<String, Long> getSequenceValues() {
+        Map<String, Long> sequenceValues = new HashMap<String, Long>();
+        for (String sequenceName : getSequenceNames()) {
+            sequenceValues.put(sequenceName, getSequenceValue(sequenceName));
+        }
+        return sequenceValues;
+    }
+
+
+    /**
+     * Sets the next value of all sequences with the given names to the given sequence value. By default, each
+     * sequence is updated separately. Subclasses can override this method to update all sequences in one batch.
+     *
+     * @param sequenceNames    The sequences, not null
+     * @param newSequenceValue The value to set
+     */
+    public void incrementSequencesToValue(Set<String> sequenceNames, long newSequenceValue) {
+        for (String sequenceName : sequenceNames) {
+            incrementSequenceToValue(sequenceName, newSequenceValue);
+        }
+    }
+
+
+    /**
+     * Gets the names of all identity columns in the schema. Only columns that really are identity columns are
+     * returned.
+     * <p/>
+     * By default, the JDBC result set meta data of every table is used to find the auto-increment columns: the sql
+     * handler executes a query that returns no records for every table. Subclasses can override this method to
+     * retrieve all identity columns with a single query on the system catalog.
+     *
+     * @return The names of the identity columns, with the table names as key, not null
+     */
+    public Map<String, Set<String>> getIdentityColumnNames() {
+        BatchSQLHandler batchSQLHandler = getBatchSQLHandler();
+        Map<String, Set<String>> identityColumnNames = new HashMap<String, Set<String>>();
+        for (String tableName : getTableNames()) {
+            Set<String> columnNames = batchSQLHandler.getAutoIncrementColumnNames("select * from " + qualified(tableName) + " where 1 = 0");
+            if (!columnNames.isEmpty()) {
+                identityColumnNames.put(tableName, columnNames);
+            }
+        }
+        return identityColumnNames;
+    }
+
+
+    /**
+     * Gets the values that the identity columns in the schema will hand out next. A table can have at most one
+     * identity column, so the values are kept per table. Tables for which the value cannot be determined are not
+     * included, by default no values are returned. Subclasses can override this method to retrieve the values with a
+     * single query on the system catalog, so that identity columns that already have a high enough value do not have
+     * to be updated.
+     *
+     * @return The next identity values, with the table names as key, not null
+     */
+    public Map<String, Long> getNextIdentityValues() {
+        return new HashMap<String, Long>();
+    }
+
+
+    /**
+     * Increments the identity value of all given identity columns to the given value. By default, each column is
+     * updated separately. Subclasses can override this method to update all columns in one batch.
+     *
+     * @param identityColumnNames The identity columns, with the table names as key, not null
+     * @param identityValue       The new value
+     */
+    public void incrementIdentityColumnsToValue(Map<String, Set<String>> identityColumnNames, long identityValue) {
+        for (Map.Entry<String, Set<String>> entry : identityColumnNames.entrySet()) {
+            for (String identityColumnName : entry.getValue()) {
+                incrementIdentityColumnToValue(entry.getKey(), identityColumnName, identityValue);
+            }
+        }
+    }
+
+
     /**
      * Gets the column type suitable to store values of the Java <code>java.lang.Long</code> type.
      *
@@ -453,6 +753,14 @@ abstract public class DbSupport {
     }
 
 
+    /**
+     * @return The meta data of the database of the sql handler, not null
+     */
+    protected DataSourceMetaData getDataSourceMetaData() {
+        return DbSupportFactory.getDataSourceMetaData(getSQLHandler().getDataSource());
+    }
+
+
     /**
      * Determines the case the database uses to store non-quoted identifiers. This will use the connections
      * database metadata to determine the correct case.
@@ -470,24 +778,7 @@ abstract public class DbSupport {
         } else if (!"auto".equals(storedIdentifierCase)) {
             throw new UnitilsException("Unknown value " + storedIdentifierCase + " for property " + PROPKEY_STORED_IDENTIFIER_CASE + ". It should be one of lower_case, upper_case, mixed_case or auto.");
         }
-
-        Connection connection = null;
-        try {
-            connection = getSQLHandler().getDataSource().getConnection();
-
-            DatabaseMetaData databaseMetaData = connection.getMetaData();
-            if (databaseMetaData.storesUpperCaseIdentifiers()) {
-                return UPPER_CASE;
-            } else if (databaseMetaData.storesLowerCaseIdentifiers()) {
-                return LOWER_CASE;
-            } else {
-                return MIXED_CASE;
-            }
-        } catch (SQLException e) {
-            throw new UnitilsException("Unable to determine stored identifier case.", e);
-        } finally {
-            closeQuietly(connection, null, null);
-        }
+        return getDataSourceMetaData().getStoredIdentifierCase();
     }
 
 
@@ -504,23 +795,7 @@ abstract public class DbSupport {
         } else if (!"auto".equals(identifierQuoteStringProperty)) {
             return identifierQuoteStringProperty;
         }
-
-        Connection connection = null;
-        try {
-            connection = getSQLHandler().getDataSource().getConnection();
-
-            DatabaseMetaData databaseMetaData = connection.getMetaData();
-            String quoteString = databaseMetaData.getIdentifierQuoteString();
-            if (quoteString == null || "".equals(quoteString.trim())) {
-                return null;
-            }
-            return quoteString;
-
-        } catch (SQLException e) {
-            throw new UnitilsException("Unable to determine identifier quote string.", e);
-        } finally {
-            closeQuietly(connection, null, null);
-        }
+        return getDataSourceMetaData().getIdentifierQuoteString();
     }
 
 
@@ -593,4 +868,14 @@ abstract public class DbSupport {
         return false;
     }
 
+
+    /**
+     * Indicates whether the underlying DBMS supports the truncate table statement.
+     *
+     * @return True if truncate is supported, false otherwise
+     */
+    public boolean supportsTruncate() {
+        return false;
+    }
+
 }
\ No newline at end of file
@@ -19,15 +19,26 @@ import static org.unitils.core.util.ConfigUtils.getInstanceOf;
 import static org.unitils.util.PropertyUtils.getStringList;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.sql.DataSource;
 
 /**
- * todo javadoc
+ * Factory and registry of the {@link DbSupport} instances. All modules share the same instance per data source, schema
+ * and dialect, so that the meta data of the schema is only determined once. Since a db support executes all its
+ * statements using the sql handler it was created with, instances are only shared between {@link DefaultSQLHandler}s,
+ * which do not keep any state besides their data source. Every other sql handler, e.g. a
+ * {@link ConnectionScopedSQLHandler}, gets its own instances. The properties that are determined using
+ * the JDBC meta data, like the identifier quote string, are kept per data source, see {@link DataSourceMetaData}.
+ * <p/>
+ * The registry can be used by tests that run in parallel.
  * <p/>
- * todo cache instances
+ * The registered instances keep their data source, and the connection pool behind it, reachable. A data source that is
+ * no longer used should therefore be removed from the registry using {@link #unregisterDataSource}. The data sources
+ * that are created by unitils itself are unregistered when they are replaced.
  */
 public class DbSupportFactory {
 
@@ -38,8 +49,11 @@ public class DbSupportFactory {
     /** Property key for the database schema names */
     public static final String PROPKEY_DATABASE_SCHEMA_NAMES = "database.schemaNames";
 
-    /* Cache of created db support instance, per schema name */
-    private static Map<String, DbSupport> dbSupportCache = new HashMap<String, DbSupport>();
+    /* Cache of created db support instances, per data source, sql handler, schema name and dialect */
+    private static ConcurrentMap<DbSupportKey, DbSupport> dbSupportCache = new ConcurrentHashMap<DbSupportKey, DbSupport>();
+
+    /* Cache of the meta data per data source */
+    private static ConcurrentMap<DataSource, DataSourceMetaData> dataSourceMetaDataCache = new ConcurrentHashMap<DataSource, DataSourceMetaData>();
 
 
     /**
@@ -58,7 +72,9 @@ public class DbSupportFactory {
 
 
     /**
-     * Returns the dbms specific {@link DbSupport} as configured in the given <code>Configuration</code>.
+     * Returns the dbms specific {@link DbSupport} as configured in the given <code>Configuration</code>. An instance is
+     * created only once for the data source of the sql handler, the schema and the dialect. Sql handlers that do not
+     * execute updates get their own instance, as do sql handlers that are not a plain {@link DefaultSQLHandler}.
      *
      * @param configuration The config, not null
      * @param sqlHandler    The sql handler, not null
@@ -66,18 +82,87 @@ public class DbSupportFactory {
      * @return The dbms specific instance of {@link DbSupport}, not null
      */
     public static DbSupport getDbSupport(Properties configuration, SQLHandler sqlHandler, String schemaName, String dialect) {
+        SQLHandler keySqlHandler = sqlHandler.getClass() == DefaultSQLHandler.class ? null : sqlHandler;
+        DbSupportKey key = new DbSupportKey(sqlHandler.getDataSource(), keySqlHandler, sqlHandler.isDoExecuteUpdates(), schemaName, dialect);
         // try to retrieve from cache
-        DbSupport dbSupport = dbSupportCache.get(schemaName);
+        DbSupport dbSupport = dbSupportCache.get(key);
         if (dbSupport != null) {
             return dbSupport;
         }
-        // create new instance
-        //String databaseDialect = getString(PROPKEY_DATABASE_DIALECT, configuration);
+        // create new instance, if another thread created one in the meantime, that one is used
         dbSupport = getInstanceOf(DbSupport.class, configuration, dialect);
         dbSupport.init(configuration, sqlHandler, schemaName);
-        // add to cache
-        dbSupportCache.put(schemaName, dbSupport);
-        return dbSupport;
+        DbSupport existingDbSupport = dbSupportCache.putIfAbsent(key, dbSupport);
+        return existingDbSupport == null ? dbSupport : existingDbSupport;
+    }
+
+
+    /**
+     * Gets the meta data of the database of the given data source. The meta data is retrieved only once per data source,
+     * the first time it is needed.
+     *
+     * @param dataSource The data source, not null
+     * @return The meta data, not null
+     */
+    public static DataSourceMetaData getDataSourceMetaData(DataSource dataSource) {
+        DataSourceMetaData dataSourceMetaData = dataSourceMetaDataCache.get(dataSource);
+        if (dataSourceMetaData == null) {
+            dataSourceMetaData = new DataSourceMetaData(dataSource);
+            DataSourceMetaData existingDataSourceMetaData = dataSourceMetaDataCache.putIfAbsent(dataSource, dataSourceMetaData);
+            if (existingDataSourceMetaData != null) {
+                return existingDataSourceMetaData;
+            }
+        }
+        return dataSourceMetaData;
+    }
+
+
+    /**
+     * Removes the {@link DbSupport} instances and the meta data of the given data source from the registry, so that
+     * the data source is no longer referenced. Instances that are still in use keep working, but are no longer shared.
+     *
+     * @param dataSource The data source, not null
+     */
+    public static void unregisterDataSource(DataSource dataSource) {
+        for (DbSupportKey key : dbSupportCache.keySet()) {
+            if (key.dataSource == dataSource) {
+                dbSupportCache.remove(key);
+            }
+        }
+        dataSourceMetaDataCache.remove(dataSource);
+    }
+
+
+    /**
+     * Removes the {@link DbSupport} instances that were created for the given sql handler from the registry. This
+     * should be called when the sql handler can no longer be used, e.g. when a {@link ConnectionScopedSQLHandler} is
+     * closed.
+     *
+     * @param sqlHandler The sql handler, not null
+     */
+    public static void unregisterSQLHandler(SQLHandler sqlHandler) {
+        for (DbSupportKey key : dbSupportCache.keySet()) {
+            if (key.sqlHandler == sqlHandler) {
+                dbSupportCache.remove(key);
+            }
+        }
+    }
+
+
+    /**
+     * Clears the cached schema meta data of all registered {@link DbSupport} instances for the given schema and dialect.
+     * The same schema can be accessed using different data sources, e.g. a data source that was wrapped by a module, so
+     * all these instances are cleared.
+     *
+     * @param schemaName The correct case schema name, not null
+     * @param dialect    The dialect, not null
+     */
+    static void clearCaches(String schemaName, String dialect) {
+        for (DbSupport dbSupport : dbSupportCache.values()) {
+            if (schemaName.equals(dbSupport.getSchemaName()) && dialect.equals(dbSupport.getDatabaseDialect())) {
+                dbSupport.clearCache();
+            }
+        }
     }
 
 
@@ -98,4 +183,57 @@ public class DbSupportFactory {
         }
         return result;
     }
+
+
+    /**
+     * Key of the db support cache.
+     */
+    private static class DbSupportKey {
+
+        private DataSource dataSource;
+
+        /* The sql handler, null if the instance can be shared by all default sql handlers of the data source */
+        private SQLHandler sqlHandler;
+
+        private boolean doExecuteUpdates;
+
+        private String schemaName;
+
+        private String dialect;
+
+
+        public DbSupportKey(DataSource dataSource, SQLHandler sqlHandler, boolean doExecuteUpdates, String schemaName, String dialect) {
+            this.dataSource = dataSource;
+            this.sqlHandler = sqlHandler;
+            this.doExecuteUpdates = doExecuteUpdates;
+            this.schemaName = schemaName;
+            this.dialect = dialect;
+        }
+
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof DbSupportKey)) {
+                return false;
+            }
+            DbSupportKey other = (DbSupportKey) object;
+            return dataSource == other.dataSource && sqlHandler == other.sqlHandler && doExecuteUpdates == other.doExecuteUpdates && equals(schemaName, other.schemaName) && equals(dialect, other.dialect);
+        }
+
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(dataSource);
+            result = 31 * result + System.identityHashCode(sqlHandler);
+            result = 31 * result + (doExecuteUpdates ? 1 : 0);
+            result = 31 * result + (schemaName == null ? 0 : schemaName.hashCode());
+            result = 31 * result + (dialect == null ? 0 : dialect.hashCode());
+            return result;
+        }
+
+
+        private boolean equals(String value1, String value2) {
+            return value1 == null ? value2 == null : value1.equals(value2);
+        }
+    }
 }
@@ -23,8 +23,13 @@ import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQui
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -35,7 +40,7 @@ import java.util.Set;
  * @author Filip Neven
  * @author Tim Ducheyne
  */
-public class DefaultSQLHandler implements SQLHandler {
+public class DefaultSQLHandler implements BatchSQLHandler {
 
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(DefaultSQLHandler.class);
@@ -98,6 +103,39 @@ public class DefaultSQLHandler implements SQLHandler {
     }
 
 
+    /* (non-Javadoc)
+    * @see org.unitils.core.dbsupport.BatchSQLHandler#executeUpdates(java.util.List)
+    */
+    public int[] executeUpdates(List<String> sqls) {
+        if (sqls.isEmpty()) {
+            return new int[0];
+        }
+        for (String sql : sqls) {
+            logger.debug(sql);
+        }
+
+        if (!doExecuteUpdates) {
+            // skip updates
+            return new int[sqls.size()];
+        }
+        Connection connection = null;
+        Statement statement = null;
+        try {
+            connection = dataSource.getConnection();
+            statement = connection.createStatement();
+            for (String sql : sqls) {
+                statement.addBatch(sql);
+            }
+            return statement.executeBatch();
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while performing database updates: " + sqls, e);
+        } finally {
+            closeQuietly(connection, statement, null);
+        }
+    }
+
+
     /* (non-Javadoc)
     * @see org.unitils.core.dbsupport.SQLHandler#executeQuery(java.lang.String)
     */
@@ -234,6 +272,89 @@ public class DefaultSQLHandler implements SQLHandler {
     }
 
 
+    /* (non-Javadoc)
+	 * @see org.unitils.core.dbsupport.BatchSQLHandler#getItemsAsLongMap(java.lang.String)
+	 */
+    public Map<String, Long> getItemsAsLongMap(String sql) {
+        logger.debug(sql);
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dataSource.getConnection();
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(sql);
+            Map<String, Long> result = new HashMap<String, Long>();
+            while (resultSet.next()) {
+                result.put(resultSet.getString(1), resultSet.getLong(2));
+            }
+            return result;
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(connection, statement, resultSet);
+        }
+    }
+
+
+    /* (non-Javadoc)
+	 * @see org.unitils.core.dbsupport.BatchSQLHandler#getItemsAsStringSetMap(java.lang.String)
+	 */
+    public Map<String, Set<String>> getItemsAsStringSetMap(String sql) {
+        logger.debug(sql);
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dataSource.getConnection();
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(sql);
+            Map<String, Set<String>> result = new HashMap<String, Set<String>>();
+            while (resultSet.next()) {
+                String key = resultSet.getString(1);
+                Set<String> values = result.get(key);
+                if (values == null) {
+                    values = new HashSet<String>();
+                    result.put(key, values);
+                }
+                values.add(resultSet.getString(2));
+            }
+            return result;
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(connection, statement, resultSet);
+        }
+    }
+
+
+    /* (non-Javadoc)
+	 * @see org.unitils.core.dbsupport.BatchSQLHandler#getAutoIncrementColumnNames(java.lang.String)
+	 */
+    public Set<String> getAutoIncrementColumnNames(String sql) {
+        logger.debug(sql);
+
+        Connection connection = null;
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = dataSource.getConnection();
+            statement = connection.createStatement();
+            resultSet = statement.executeQuery(sql);
+            return getAutoIncrementColumnNames(resultSet.getMetaData());
+
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(connection, statement, resultSet);
+        }
+    }
+
+
     /* (non-Javadoc)
       * @see org.unitils.core.dbsupport.SQLHandler#exists(java.lang.String)
       */
@@ -257,6 +378,21 @@ public class DefaultSQLHandler implements SQLHandler {
     }
 
 
+    /**
+     * @param metaData The meta data of a result set, not null
+     * @return The names of the auto-increment columns of the result set, not null
+     */
+    protected Set<String> getAutoIncrementColumnNames(ResultSetMetaData metaData) throws SQLException {
+        Set<String> result = new HashSet<String>();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (metaData.isAutoIncrement(i)) {
+                result.add(metaData.getColumnName(i));
+            }
+        }
+        return result;
+    }
+
+
     /* (non-Javadoc)
 	 * @see org.unitils.core.dbsupport.SQLHandler#getDataSource()
 	 */
@@ -22,7 +22,10 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -128,6 +131,59 @@ public class DerbyDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Gets the names of all identity columns in the schema using a single query.
+     *
+     * @return The names of the identity columns, with the table names as key, not null
+     */
+    @Override
+    public Map<String, Set<String>> getIdentityColumnNames() {
+        return getItemsAsStringSetMap("select t.TABLENAME, c.COLUMNNAME from SYS.SYSCOLUMNS c, SYS.SYSTABLES t, SYS.SYSSCHEMAS s where c.REFERENCEID = t.TABLEID and t.SCHEMAID = s.SCHEMAID and c.AUTOINCREMENTINC is not null and s.SCHEMANAME = '" + getSchemaName() + "'");
+    }
+
+
+    /**
+     * Gets the values that the identity columns in the schema will hand out next using a single query.
+     *
+     * @return The next identity values, with the table names as key, not null
+     */
+    @Override
+    public Map<String, Long> getNextIdentityValues() {
+        return getItemsAsLongMap("select t.TABLENAME, c.AUTOINCREMENTVALUE from SYS.SYSCOLUMNS c, SYS.SYSTABLES t, SYS.SYSSCHEMAS s where c.REFERENCEID = t.TABLEID and t.SCHEMAID = s.SCHEMAID and c.AUTOINCREMENTINC is not null and s.SCHEMANAME = '" + getSchemaName() + "'");
+    }
+
+
+    /**
+     * Increments the identity value of all given identity columns to the given value in one batch.
+     *
+     * @param identityColumnNames The identity columns, with the table names as key, not null
+     * @param identityValue       The new value
+     */
+    @Override
+    public void incrementIdentityColumnsToValue(Map<String, Set<String>> identityColumnNames, long identityValue) {
+        List<String> statements = new ArrayList<String>();
+        for (Map.Entry<String, Set<String>> entry : identityColumnNames.entrySet()) {
+            for (String identityColumnName : entry.getValue()) {
+                statements.add("alter table " + qualified(entry.getKey()) + " alter column " + quoted(identityColumnName) + " RESTART WITH " + identityValue);
+            }
+        }
+        executeUpdates(statements);
+    }
+
+
+    /**
+     * Gets the query that returns the given table name if the table contains at least one record. For this DBMS
+     * a select without a from clause is not supported, the sysibm.sysdummy1 table is used instead.
+     *
+     * @param tableName The table to check (case-sensitive), not null
+     * @return The query, not null
+     */
+    @Override
+    protected String getExistenceProbeQuery(String tableName) {
+        return "select '" + tableName.replace("'", "''") + "' from sysibm.sysdummy1 where exists (select 1 from " + qualified(tableName) + ")";
+    }
+
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all table in the schema
      */
@@ -18,6 +18,9 @@ package org.unitils.core.dbsupport;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.unitils.core.UnitilsException;
@@ -47,7 +50,7 @@ public class H2DbSupport extends DbSupport {
      */
     @Override
     public Set<String> getTableNames() {
-        return getSQLHandler().getItemsAsStringSet("select TABLE_NAME from "
+        return getCachedNames("tables", "select TABLE_NAME from "
           + "INFORMATION_SCHEMA.TABLES where TABLE_TYPE = 'TABLE' AND "
           + "TABLE_SCHEMA = '" + getSchemaName() + "'");
     }
@@ -60,24 +63,39 @@ public class H2DbSupport extends DbSupport {
      */
     @Override
     public Set<String> getColumnNames(String tableName) {
-        return getSQLHandler().getItemsAsStringSet("select COLUMN_NAME from "
+        return getCachedNames("columns", tableName, "select COLUMN_NAME from "
           + "INFORMATION_SCHEMA.COLUMNS where TABLE_NAME = '" + tableName
-          + "' AND TABLE_SCHEMA = '" + getSchemaName() + "'");
+          + "' AND TABLE_SCHEMA = '" + getSchemaName() + "'",
+          "select TABLE_NAME, COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS "
+          + "where TABLE_SCHEMA = '" + getSchemaName() + "'");
     }
 
     /**
-     * Gets the names of all primary columns of the given table.
+     * Gets the names of all identity columns of the given table. H2 1.x does
+     * not expose identity columns in its system tables, for these versions
+     * the primary key columns are returned.
      *
      * @param tableName The table, not null
-     * @return The names of the primary key columns of the table with the given
+     * @return The names of the identity columns of the table with the given
      * name
      */
     @Override
     public Set<String> getIdentityColumnNames(String tableName) {
-        return getSQLHandler().getItemsAsStringSet("select COLUMN_NAME from "
+        if (getH2MajorVersionNumber() >= 2) {
+            return getCachedNames("identityColumns", tableName, "select "
+              + "COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS where IS_IDENTITY "
+              + "= 'YES' AND TABLE_NAME = '" + tableName + "' AND "
+              + "TABLE_SCHEMA = '" + getSchemaName() + "'",
+              "select TABLE_NAME, COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS "
+              + "where IS_IDENTITY = 'YES' AND TABLE_SCHEMA = '"
+              + getSchemaName() + "'");
+        }
+        return getCachedNames("primaryKeys", tableName, "select COLUMN_NAME from "
           + "INFORMATION_SCHEMA.INDEXES where PRIMARY_KEY = 'TRUE' AND "
           + "TABLE_NAME = '" + tableName + "' AND TABLE_SCHEMA = '"
-          + getSchemaName() + "'");
+          + getSchemaName() + "'",
+          "select TABLE_NAME, COLUMN_NAME from INFORMATION_SCHEMA.INDEXES "
+          + "where PRIMARY_KEY = 'TRUE' AND TABLE_SCHEMA = '" + getSchemaName() + "'");
     }
 
     /**
@@ -126,6 +144,12 @@ public class H2DbSupport extends DbSupport {
      */
     @Override
     public long getSequenceValue(String sequenceName) {
+        if (getH2MajorVersionNumber() >= 2) {
+            return getSQLHandler().getItemAsLong("select BASE_VALUE from "
+              + "INFORMATION_SCHEMA.SEQUENCES where SEQUENCE_SCHEMA = '"
+              + getSchemaName() + "' and SEQUENCE_NAME = '" + sequenceName
+              + "'");
+        }
         return getSQLHandler().getItemAsLong("select CURRENT_VALUE from "
           + "INFORMATION_SCHEMA.SEQUENCES where SEQUENCE_SCHEMA = '"
           + getSchemaName() + "' and SEQUENCE_NAME = '" + sequenceName + "'");
@@ -161,6 +185,113 @@ public class H2DbSupport extends DbSupport {
           + identityValue);
     }
 
+    /**
+     * Returns the values of all sequences in the schema using a single query.
+     * H2 2.x only exposes the next value of a sequence, this value is
+     * returned for these versions.
+     *
+     * @return The values of the sequences, with the sequence names as key,
+     * not null
+     */
+    @Override
+    public Map<String, Long> getSequenceValues() {
+        if (getH2MajorVersionNumber() >= 2) {
+            return getItemsAsLongMap("select SEQUENCE_NAME, BASE_VALUE from "
+              + "INFORMATION_SCHEMA.SEQUENCES where SEQUENCE_SCHEMA = '"
+              + getSchemaName() + "'");
+        }
+        return getItemsAsLongMap("select SEQUENCE_NAME, "
+          + "CURRENT_VALUE from INFORMATION_SCHEMA.SEQUENCES where "
+          + "SEQUENCE_SCHEMA = '" + getSchemaName() + "'");
+    }
+
+    /**
+     * Sets the next value of all sequences with the given names to the given
+     * sequence value in one batch.
+     *
+     * @param sequenceNames    The sequences, not null
+     * @param newSequenceValue The value to set
+     */
+    @Override
+    public void incrementSequencesToValue(Set<String> sequenceNames,
+      long newSequenceValue) {
+        List<String> statements = new ArrayList<String>();
+        for (String sequenceName : sequenceNames) {
+            statements.add("alter sequence " + qualified(sequenceName)
+              + " restart with " + newSequenceValue);
+        }
+        executeUpdates(statements);
+    }
+
+    /**
+     * Gets the names of all identity columns in the schema. For H2 2.x and
+     * later, a single query is used. Older versions do not expose identity
+     * columns in their system tables, the JDBC meta data is used instead.
+     *
+     * @return The names of the identity columns, with the table names as key,
+     * not null
+     */
+    @Override
+    public Map<String, Set<String>> getIdentityColumnNames() {
+        if (getH2MajorVersionNumber() >= 2) {
+            return getItemsAsStringSetMap("select TABLE_NAME, "
+              + "COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS where IS_IDENTITY "
+              + "= 'YES' AND TABLE_SCHEMA = '" + getSchemaName() + "'");
+        }
+        return super.getIdentityColumnNames();
+    }
+
+    /**
+     * Gets the values that the identity columns in the schema will hand out
+     * next using a single query. Only supported for H2 2.x and later, no
+     * values are returned for older versions.
+     *
+     * @return The next identity values, with the table names as key, not null
+     */
+    @Override
+    public Map<String, Long> getNextIdentityValues() {
+        if (getH2MajorVersionNumber() >= 2) {
+            return getItemsAsLongMap("select TABLE_NAME, IDENTITY_BASE from "
+              + "INFORMATION_SCHEMA.COLUMNS where IS_IDENTITY = 'YES' AND "
+              + "TABLE_SCHEMA = '" + getSchemaName() + "'");
+        }
+        return super.getNextIdentityValues();
+    }
+
+    /**
+     * Increments the identity value of all given identity columns to the
+     * given value in one batch.
+     *
+     * @param identityColumnNames The identity columns, with the table names as
+     *                            key, not null
+     * @param identityValue       The new value
+     */
+    @Override
+    public void incrementIdentityColumnsToValue(
+      Map<String, Set<String>> identityColumnNames, long identityValue) {
+        List<String> statements = new ArrayList<String>();
+        for (Map.Entry<String, Set<String>> entry
+          : identityColumnNames.entrySet()) {
+            for (String identityColumnName : entry.getValue()) {
+                statements.add("alter table " + qualified(entry.getKey())
+                  + " alter column " + quoted(identityColumnName)
+                  + " RESTART WITH " + identityValue);
+            }
+        }
+        executeUpdates(statements);
+    }
+
+    /**
+     * Removes all data from the table with the given name using the truncate statement.
+     * Note: the table name is surrounded with quotes, making it case-sensitive.
+     *
+     * @param tableName The table to truncate (case-sensitive), not null
+     */
+    @Override
+    public void truncateTable(String tableName) {
+        getSQLHandler().executeUpdate("truncate table " + qualified(tableName));
+    }
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all tables
      * in the schema
@@ -252,6 +383,14 @@ public class H2DbSupport extends DbSupport {
         }
     }
 
+    /**
+     * @return The major version number of the H2 database that is used (e.g.
+     * for H2 version 1.4.200, 1 is returned)
+     */
+    protected int getH2MajorVersionNumber() {
+        return getDataSourceMetaData().getDatabaseMajorVersion();
+    }
+
     /**
      * Sequences are supported.
      *
@@ -291,4 +430,14 @@ public class H2DbSupport extends DbSupport {
     public boolean supportsCascade() {
         return true;
     }
+
+    /**
+     * Truncate is supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
 }
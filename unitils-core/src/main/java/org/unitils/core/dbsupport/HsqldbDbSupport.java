@@ -19,6 +19,9 @@ import org.unitils.core.UnitilsException;
 import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -29,9 +32,6 @@ import java.util.Set;
  */
 public class HsqldbDbSupport extends DbSupport {
 
-    /* The major version number of the hsql database */
-    private Integer hsqlMajorVersionNumber;
-
     /**
      * Creates support for HsqlDb databases.
      */
@@ -48,9 +48,9 @@ public class HsqldbDbSupport extends DbSupport {
     @Override
     public Set<String> getTableNames() {
         if (getHsqldbMajorVersionNumber() >= 2) {
-            return getSQLHandler().getItemsAsStringSet("select TABLE_NAME from INFORMATION_SCHEMA.TABLES where TABLE_TYPE = 'BASE TABLE' AND TABLE_SCHEMA = '" + getSchemaName() + "'");
+            return getCachedNames("tables", "select TABLE_NAME from INFORMATION_SCHEMA.TABLES where TABLE_TYPE = 'BASE TABLE' AND TABLE_SCHEMA = '" + getSchemaName() + "'");
         }
-        return getSQLHandler().getItemsAsStringSet("select TABLE_NAME from INFORMATION_SCHEMA.SYSTEM_TABLES where TABLE_TYPE = 'TABLE' AND TABLE_SCHEM = '" + getSchemaName() + "'");
+        return getCachedNames("tables", "select TABLE_NAME from INFORMATION_SCHEMA.SYSTEM_TABLES where TABLE_TYPE = 'TABLE' AND TABLE_SCHEM = '" + getSchemaName() + "'");
     }
 
 
@@ -63,9 +63,11 @@ public class HsqldbDbSupport extends DbSupport {
     @Override
     public Set<String> getColumnNames(String tableName) {
         if (getHsqldbMajorVersionNumber() >= 2) {
-            return getSQLHandler().getItemsAsStringSet("select COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS where TABLE_NAME = '" + tableName + "' AND TABLE_SCHEMA = '" + getSchemaName() + "'");
+            return getCachedNames("columns", tableName, "select COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS where TABLE_NAME = '" + tableName + "' AND TABLE_SCHEMA = '" + getSchemaName() + "'",
+                    "select TABLE_NAME, COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS where TABLE_SCHEMA = '" + getSchemaName() + "'");
         }
-        return getSQLHandler().getItemsAsStringSet("select COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_COLUMNS where TABLE_NAME = '" + tableName + "' AND TABLE_SCHEM = '" + getSchemaName() + "'");
+        return getCachedNames("columns", tableName, "select COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_COLUMNS where TABLE_NAME = '" + tableName + "' AND TABLE_SCHEM = '" + getSchemaName() + "'",
+                "select TABLE_NAME, COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_COLUMNS where TABLE_SCHEM = '" + getSchemaName() + "'");
     }
 
 
@@ -111,6 +113,20 @@ public class HsqldbDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Gets the query that returns the given table name if the table contains at least one record. For this DBMS
+     * a select without a from clause is not supported and there is no single row table. A system table is used
+     * instead: the name is returned once per user, the duplicates are removed when the names are collected.
+     *
+     * @param tableName The table to check (case-sensitive), not null
+     * @return The query, not null
+     */
+    @Override
+    protected String getExistenceProbeQuery(String tableName) {
+        return "select '" + tableName.replace("'", "''") + "' from INFORMATION_SCHEMA.SYSTEM_USERS where exists (select 1 from " + qualified(tableName) + ")";
+    }
+
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all table in the schema
      */
@@ -267,7 +283,8 @@ public class HsqldbDbSupport extends DbSupport {
      */
     @Override
     public Set<String> getIdentityColumnNames(String tableName) {
-        return getSQLHandler().getItemsAsStringSet("select COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_PRIMARYKEYS where TABLE_NAME = '" + tableName + "' AND TABLE_SCHEM = '" + getSchemaName() + "'");
+        return getCachedNames("primaryKeys", tableName, "select COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_PRIMARYKEYS where TABLE_NAME = '" + tableName + "' AND TABLE_SCHEM = '" + getSchemaName() + "'",
+                "select TABLE_NAME, COLUMN_NAME from INFORMATION_SCHEMA.SYSTEM_PRIMARYKEYS where TABLE_SCHEM = '" + getSchemaName() + "'");
     }
 
 
@@ -283,23 +300,74 @@ public class HsqldbDbSupport extends DbSupport {
         getSQLHandler().executeUpdate("alter table " + qualified(tableName) + " alter column " + quoted(identityColumnName) + " RESTART WITH " + identityValue);
     }
 
+
     /**
-     * @return The major version number of the Hsql database server that is used (e.g. for Hsql version 1.8.0, 1 is returned)
+     * Returns the values of all sequences in the schema using a single query.
+     *
+     * @return The values of the sequences, with the sequence names as key, not null
      */
-    protected Integer getHsqldbMajorVersionNumber() {
-        if (hsqlMajorVersionNumber == null) {
-            Connection connection = null;
-            try {
-                connection =  getSQLHandler().getDataSource().getConnection();
-                DatabaseMetaData metaData = connection.getMetaData();
-                hsqlMajorVersionNumber = metaData.getDatabaseMajorVersion();
-            } catch (SQLException e) {
-                throw new UnitilsException("Unable to determine database major version.", e);
-            } finally {
-                closeQuietly(connection);
+    @Override
+    public Map<String, Long> getSequenceValues() {
+        if (getHsqldbMajorVersionNumber() >= 2) {
+            return getItemsAsLongMap("select SEQUENCE_NAME, NEXT_VALUE from INFORMATION_SCHEMA.SEQUENCES where SEQUENCE_SCHEMA = '" + getSchemaName() + "'");
+        }
+        return getItemsAsLongMap("select SEQUENCE_NAME, START_WITH from INFORMATION_SCHEMA.SYSTEM_SEQUENCES where SEQUENCE_SCHEMA = '" + getSchemaName() + "'");
+    }
+
+
+    /**
+     * Sets the next value of all sequences with the given names to the given sequence value in one batch.
+     *
+     * @param sequenceNames    The sequences, not null
+     * @param newSequenceValue The value to set
+     */
+    @Override
+    public void incrementSequencesToValue(Set<String> sequenceNames, long newSequenceValue) {
+        List<String> statements = new ArrayList<String>();
+        for (String sequenceName : sequenceNames) {
+            statements.add("alter sequence " + qualified(sequenceName) + " restart with " + newSequenceValue);
+        }
+        executeUpdates(statements);
+    }
+
+
+    /**
+     * Gets the names of all identity columns in the schema. For hsqldb 2 and later, a single query is used. Older
+     * versions do not expose identity columns in their system tables, the JDBC meta data is used instead.
+     *
+     * @return The names of the identity columns, with the table names as key, not null
+     */
+    @Override
+    public Map<String, Set<String>> getIdentityColumnNames() {
+        if (getHsqldbMajorVersionNumber() >= 2) {
+            return getItemsAsStringSetMap("select TABLE_NAME, COLUMN_NAME from INFORMATION_SCHEMA.COLUMNS where IS_IDENTITY = 'YES' and TABLE_SCHEMA = '" + getSchemaName() + "'");
+        }
+        return super.getIdentityColumnNames();
+    }
+
+
+    /**
+     * Increments the identity value of all given identity columns to the given value in one batch.
+     *
+     * @param identityColumnNames The identity columns, with the table names as key, not null
+     * @param identityValue       The new value
+     */
+    @Override
+    public void incrementIdentityColumnsToValue(Map<String, Set<String>> identityColumnNames, long identityValue) {
+        List<String> statements = new ArrayList<String>();
+        for (Map.Entry<String, Set<String>> entry : identityColumnNames.entrySet()) {
+            for (String identityColumnName : entry.getValue()) {
+                statements.add("alter table " + qualified(entry.getKey()) + " alter column " + quoted(identityColumnName) + " RESTART WITH " + identityValue);
             }
         }
-        return hsqlMajorVersionNumber;
+        executeUpdates(statements);
+    }
+
+    /**
+     * @return The major version number of the Hsql database server that is used (e.g. for Hsql version 1.8.0, 1 is returned)
+     */
+    protected Integer getHsqldbMajorVersionNumber() {
+        return getDataSourceMetaData().getDatabaseMajorVersion();
     }
 
 
@@ -21,6 +21,7 @@ import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQui
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -121,6 +122,50 @@ public class MsSqlDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Gets the names of all identity columns in the schema using a single query.
+     *
+     * @return The names of the identity columns, with the table names as key, not null
+     */
+    @Override
+    public Map<String, Set<String>> getIdentityColumnNames() {
+        return getItemsAsStringSetMap("select t.name, i.name from sys.identity_columns i, sys.tables t, sys.schemas s where i.object_id = t.object_id and t.schema_id = s.schema_id and s.name = '" + getSchemaName() + "'");
+    }
+
+
+    /**
+     * Gets the values that the identity columns in the schema will hand out next using a single query. If no value
+     * was handed out yet, the seed value is returned.
+     *
+     * @return The next identity values, with the table names as key, not null
+     */
+    @Override
+    public Map<String, Long> getNextIdentityValues() {
+        return getItemsAsLongMap("select t.name, coalesce(cast(i.last_value as bigint) + cast(i.increment_value as bigint), cast(i.seed_value as bigint)) from sys.identity_columns i, sys.tables t, sys.schemas s where i.object_id = t.object_id and t.schema_id = s.schema_id and s.name = '" + getSchemaName() + "'");
+    }
+
+
+    /**
+     * Removes all data from the table with the given name using the truncate statement.
+     * Note: the table name is surrounded with quotes, making it case-sensitive.
+     * <p/>
+     * Truncating a table resets its identity seed. The next identity value is therefore reseeded after the truncate,
+     * so that no identity values are handed out that were made unavailable by the sequence updater.
+     *
+     * @param tableName The table to truncate (case-sensitive), not null
+     */
+    @Override
+    public void truncateTable(String tableName) {
+        String nextIdentityValueQuery = "select coalesce(ident_current('" + qualified(tableName) + "') + ident_incr('" + qualified(tableName) + "'), 0)";
+        long nextIdentityValue = getSQLHandler().getItemAsLong(nextIdentityValueQuery);
+        getSQLHandler().executeUpdate("truncate table " + qualified(tableName));
+        if (nextIdentityValue > 0) {
+            // the first record inserted after truncating and reseeding gets the reseed value
+            getSQLHandler().executeUpdate("DBCC CHECKIDENT ('" + qualified(tableName) + "', reseed, " + nextIdentityValue + ")");
+        }
+    }
+
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all table in the schema
      */
@@ -235,6 +280,17 @@ public class MsSqlDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Truncate is supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
+
+
     /**
      * Disables not-null constraints on the given table.
      * <p/>
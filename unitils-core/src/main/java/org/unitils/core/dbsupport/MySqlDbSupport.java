@@ -19,6 +19,9 @@ import org.unitils.core.util.StoredIdentifierCase;
 import static org.unitils.core.util.StoredIdentifierCase.LOWER_CASE;
 import static org.unitils.core.util.StoredIdentifierCase.UPPER_CASE;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -91,6 +94,38 @@ public class MySqlDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Removes all data from the table with the given name using the truncate statement.
+     * Note: the table name is surrounded with quotes, making it case-sensitive.
+     * <p/>
+     * Truncating a table resets its auto increment value. The value is therefore restored after the truncate, so that
+     * no identity values are handed out that were made unavailable by the sequence updater.
+     *
+     * @param tableName The table to truncate (case-sensitive), not null
+     */
+    @Override
+    public void truncateTable(String tableName) {
+        long autoIncrementValue = getSQLHandler().getItemAsLong("select coalesce(auto_increment, 0) from information_schema.tables where table_name = '" + tableName + "' and table_schema = '" + getSchemaName() + "'");
+        getSQLHandler().executeUpdate("truncate table " + qualified(tableName));
+        if (autoIncrementValue > 0) {
+            getSQLHandler().executeUpdate("alter table " + qualified(tableName) + " AUTO_INCREMENT = " + autoIncrementValue);
+        }
+    }
+
+
+    /**
+     * Gets the query that returns the given table name if the table contains at least one record. For this DBMS
+     * a select without a from clause is not supported, the dual table is used instead.
+     *
+     * @param tableName The table to check (case-sensitive), not null
+     * @return The query, not null
+     */
+    @Override
+    protected String getExistenceProbeQuery(String tableName) {
+        return "select '" + tableName.replace("'", "''") + "' from dual where exists (select 1 from " + qualified(tableName) + ")";
+    }
+
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all table in the schema
      */
@@ -171,6 +206,45 @@ public class MySqlDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Gets the names of all auto increment columns in the schema using a single query.
+     *
+     * @return The names of the auto increment columns, with the table names as key, not null
+     */
+    @Override
+    public Map<String, Set<String>> getIdentityColumnNames() {
+        return getItemsAsStringSetMap("select table_name, column_name from information_schema.columns where extra like '%auto_increment%' and table_schema = '" + getSchemaName() + "'");
+    }
+
+
+    /**
+     * Gets the values that the auto increment columns in the schema will hand out next using a single query.
+     *
+     * @return The next auto increment values, with the table names as key, not null
+     */
+    @Override
+    public Map<String, Long> getNextIdentityValues() {
+        return getItemsAsLongMap("select table_name, auto_increment from information_schema.tables where auto_increment is not null and table_schema = '" + getSchemaName() + "'");
+    }
+
+
+    /**
+     * Increments the auto increment value of all given tables to the given value in one batch. MySql only has one
+     * auto increment value per table.
+     *
+     * @param identityColumnNames The auto increment columns, with the table names as key, not null
+     * @param identityValue       The new value
+     */
+    @Override
+    public void incrementIdentityColumnsToValue(Map<String, Set<String>> identityColumnNames, long identityValue) {
+        List<String> statements = new ArrayList<String>();
+        for (String tableName : identityColumnNames.keySet()) {
+            statements.add("alter table " + qualified(tableName) + " AUTO_INCREMENT = " + identityValue);
+        }
+        executeUpdates(statements);
+    }
+
+
     /**
      * Converts the given identifier to uppercase/lowercase
      * <p/>
@@ -233,4 +307,15 @@ public class MySqlDbSupport extends DbSupport {
         return true;
     }
 
+
+    /**
+     * Truncate is supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
+
 }
\ No newline at end of file
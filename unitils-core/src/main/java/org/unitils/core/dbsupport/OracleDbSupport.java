@@ -19,6 +19,7 @@ import org.unitils.core.UnitilsException;
 import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
 
 import java.sql.*;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -29,10 +30,6 @@ import java.util.Set;
  */
 public class OracleDbSupport extends DbSupport {
 
-    /* The major version number of the Oracle database */
-    private Integer oracleMajorVersionNumber;
-
-
     /**
      * Creates support for Oracle databases.
      */
@@ -50,7 +47,7 @@ public class OracleDbSupport extends DbSupport {
     public Set<String> getTableNames() {
         // all_tables also contains the materialized views: don't return these
         // to be sure no recycled items are handled, all items with a name that starts with BIN$ will be filtered out.
-        return getSQLHandler().getItemsAsStringSet("select TABLE_NAME from ALL_TABLES where OWNER = '" + getSchemaName() + "' and TABLE_NAME not like 'BIN$%' minus select MVIEW_NAME from ALL_MVIEWS where OWNER = '" + getSchemaName() + "'");
+        return getCachedNames("tables", "select TABLE_NAME from ALL_TABLES where OWNER = '" + getSchemaName() + "' and TABLE_NAME not like 'BIN$%' minus select MVIEW_NAME from ALL_MVIEWS where OWNER = '" + getSchemaName() + "'");
     }
 
 
@@ -62,7 +59,8 @@ public class OracleDbSupport extends DbSupport {
      */
     @Override
     public Set<String> getColumnNames(String tableName) {
-        return getSQLHandler().getItemsAsStringSet("select COLUMN_NAME from ALL_TAB_COLUMNS where TABLE_NAME = '" + tableName + "' and OWNER = '" + getSchemaName() + "'");
+        return getCachedNames("columns", tableName, "select COLUMN_NAME from ALL_TAB_COLUMNS where TABLE_NAME = '" + tableName + "' and OWNER = '" + getSchemaName() + "'",
+                "select TABLE_NAME, COLUMN_NAME from ALL_TAB_COLUMNS where OWNER = '" + getSchemaName() + "'");
     }
 
 
@@ -183,6 +181,31 @@ public class OracleDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Removes all data from the table with the given name using the truncate statement.
+     * Note: the table name is surrounded with quotes, making it case-sensitive.
+     *
+     * @param tableName The table to truncate (case-sensitive), not null
+     */
+    @Override
+    public void truncateTable(String tableName) {
+        getSQLHandler().executeUpdate("truncate table " + qualified(tableName));
+    }
+
+
+    /**
+     * Gets the query that returns the given table name if the table contains at least one record. For this DBMS
+     * a select without a from clause is not supported, the dual table is used instead.
+     *
+     * @param tableName The table to check (case-sensitive), not null
+     * @return The query, not null
+     */
+    @Override
+    protected String getExistenceProbeQuery(String tableName) {
+        return "select '" + tableName.replace("'", "''") + "' from dual where exists (select 1 from " + qualified(tableName) + ")";
+    }
+
+
     /**
      * Disables all referential constraints (e.g. foreign keys) on all table in the schema
      */
@@ -259,6 +282,17 @@ public class OracleDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Returns the values of all sequences in the schema using a single query.
+     *
+     * @return The values of the sequences, with the sequence names as key, not null
+     */
+    @Override
+    public Map<String, Long> getSequenceValues() {
+        return getItemsAsLongMap("select SEQUENCE_NAME, LAST_NUMBER from ALL_SEQUENCES where SEQUENCE_OWNER = '" + getSchemaName() + "'");
+    }
+
+
     /**
      * Sets the next value of the sequence with the given sequence name to the given sequence value.
      *
@@ -381,6 +415,17 @@ public class OracleDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Truncate is supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
+
+
     /**
      * @return Whether or not this version of the Oracle database that is used supports the purge keyword. This is,
      *         whether or not an Oracle database of version 10 or higher is used.
@@ -394,18 +439,6 @@ public class OracleDbSupport extends DbSupport {
      * @return The major version number of the Oracle database server that is used (e.g. for Oracle version 9.2.0.1, 9 is returned
      */
     protected Integer getOracleMajorVersionNumber() {
-        if (oracleMajorVersionNumber == null) {
-            Connection connection = null;
-            try {
-                connection = getSQLHandler().getDataSource().getConnection();
-                DatabaseMetaData metaData = connection.getMetaData();
-                oracleMajorVersionNumber = metaData.getDatabaseMajorVersion();
-            } catch (SQLException e) {
-                throw new UnitilsException("Unable to determine database major version", e);
-            } finally {
-                closeQuietly(connection);
-            }
-        }
-        return oracleMajorVersionNumber;
+        return getDataSourceMetaData().getDatabaseMajorVersion();
     }
 }
\ No newline at end of file
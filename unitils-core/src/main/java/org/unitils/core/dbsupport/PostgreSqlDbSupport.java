@@ -8,7 +8,13 @@
  */
 package org.unitils.core.dbsupport;
 
+import static java.util.Collections.singleton;
+
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -20,6 +26,9 @@ import java.util.Set;
  */
 public class PostgreSqlDbSupport extends DbSupport {
 
+    /* The key of the cached constraints of the schema */
+    protected static final String CONSTRAINTS_CACHE_KEY = "constraints";
+
     /**
      * Creates support for PostgreSql databases.
      */
@@ -35,7 +44,7 @@ public class PostgreSqlDbSupport extends DbSupport {
      */
     @Override
     public Set<String> getTableNames() {
-        return getSQLHandler().getItemsAsStringSet("select table_name from information_schema.tables where table_type = 'BASE TABLE' and table_schema = '" + getSchemaName() + "'");
+        return getCachedNames("tables", "select table_name from information_schema.tables where table_type = 'BASE TABLE' and table_schema = '" + getSchemaName() + "'");
     }
 
 
@@ -47,7 +56,8 @@ public class PostgreSqlDbSupport extends DbSupport {
      */
     @Override
     public Set<String> getColumnNames(String tableName) {
-        return getSQLHandler().getItemsAsStringSet("select column_name from information_schema.columns where table_name = '" + tableName + "' and table_schema = '" + getSchemaName() + "'");
+        return getCachedNames("columns", tableName, "select column_name from information_schema.columns where table_name = '" + tableName + "' and table_schema = '" + getSchemaName() + "'",
+                "select table_name, column_name from information_schema.columns where table_schema = '" + getSchemaName() + "'");
     }
 
 
@@ -146,61 +156,204 @@ public class PostgreSqlDbSupport extends DbSupport {
 
 
     /**
-     * Disables all referential constraints (e.g. foreign keys) on all table in the schema
+     * Removes all data from the table with the given name using the truncate statement.
+     * Cascade is not used: it would also truncate the tables that reference this table, including tables of which
+     * the data should be preserved. If the table is referenced by a foreign key, the truncate fails.
+     * Note: the table name is surrounded with quotes, making it case-sensitive.
+     *
+     * @param tableName The table to truncate (case-sensitive), not null
+     */
+    @Override
+    public void truncateTable(String tableName) {
+        getSQLHandler().executeUpdate("truncate table " + qualified(tableName));
+    }
+
+
+    /**
+     * Disables all referential constraints (e.g. foreign keys) on all table in the schema. The constraints are
+     * dropped in one batch.
      */
     @Override
     public void disableReferentialConstraints() {
-        Set<String> tableNames = getTableNames();
-        for (String tableName : tableNames) {
-            disableReferentialConstraints(tableName);
-        }
+        disableReferentialConstraints(getConstraintsSnapshot().foreignKeyNames.keySet());
     }
 
 
-    // todo refactor (see oracle)
+    /**
+     * Disables the referential constraints (e.g. foreign keys) of the table with the given name.
+     *
+     * @param tableName The table, not null
+     */
     protected void disableReferentialConstraints(String tableName) {
-        SQLHandler sqlHandler = getSQLHandler();
-        Set<String> constraintNames = sqlHandler.getItemsAsStringSet("select constraint_name from information_schema.table_constraints con where con.table_name = '" + tableName + "' and constraint_type = 'FOREIGN KEY' and constraint_schema = '" + getSchemaName() + "'");
-        for (String constraintName : constraintNames) {
-            sqlHandler.executeUpdate("alter table " + qualified(tableName) + " drop constraint " + quoted(constraintName));
-        }
+        disableReferentialConstraints(singleton(tableName));
     }
 
 
     /**
-     * Disables all value constraints (e.g. not null) on all tables in the schema
+     * Disables the referential constraints (e.g. foreign keys) of the tables with the given names. The constraints are
+     * dropped in one batch and are removed from the cached constraints, the other cached constraints are kept.
+     *
+     * @param tableNames The tables, not null
+     */
+    protected void disableReferentialConstraints(Set<String> tableNames) {
+        ConstraintsSnapshot constraintsSnapshot = getConstraintsSnapshot();
+        List<String> statements = new ArrayList<String>();
+        addDropConstraintStatements(statements, constraintsSnapshot.foreignKeyNames, tableNames);
+        executeUpdates(statements);
+        putCachedMetaData(CONSTRAINTS_CACHE_KEY, constraintsSnapshot.withoutForeignKeys(tableNames));
+    }
+
+
+    /**
+     * Disables all value constraints (e.g. not null) on all tables in the schema. The check and unique constraints
+     * are dropped and the not null constraints of all columns that are not part of a primary key are removed in
+     * one batch.
      */
     @Override
     public void disableValueConstraints() {
-        Set<String> tableNames = getTableNames();
-        for (String tableName : tableNames) {
-            disableValueConstraints(tableName);
-        }
+        ConstraintsSnapshot constraintsSnapshot = getConstraintsSnapshot();
+        Set<String> tableNames = new HashSet<String>(constraintsSnapshot.valueConstraintNames.keySet());
+        tableNames.addAll(constraintsSnapshot.notNullColumnNames.keySet());
+        disableValueConstraints(tableNames);
     }
 
 
-    // todo refactor (see oracle)
+    /**
+     * Disables the value constraints (e.g. not null) of the table with the given name.
+     *
+     * @param tableName The table, not null
+     */
     protected void disableValueConstraints(String tableName) {
-        SQLHandler sqlHandler = getSQLHandler();
+        disableValueConstraints(singleton(tableName));
+    }
 
-        // disable all check and unique constraints
-        // The join wiht pg_constraints is used to filter out not null check-constraints that are implicitly created by Postgresql
-        Set<String> constraintNames = sqlHandler.getItemsAsStringSet("select constraint_name from information_schema.table_constraints con, pg_constraint pg_con where pg_con.conname = con.constraint_name and con.table_name = '" + tableName + "' and constraint_type in ('CHECK', 'UNIQUE') and constraint_schema = '" + getSchemaName() + "'");
-        for (String constraintName : constraintNames) {
-            sqlHandler.executeUpdate("alter table " + qualified(tableName) + " drop constraint " + quoted(constraintName));
+
+    /**
+     * Disables the value constraints (e.g. not null) of the tables with the given names. The check and unique
+     * constraints are dropped and the not null constraints of the columns that are not part of a primary key are
+     * removed in one batch. The disabled constraints are removed from the cached constraints, the other cached
+     * constraints are kept.
+     *
+     * @param tableNames The tables, not null
+     */
+    protected void disableValueConstraints(Set<String> tableNames) {
+        ConstraintsSnapshot constraintsSnapshot = getConstraintsSnapshot();
+        List<String> statements = new ArrayList<String>();
+        addDropConstraintStatements(statements, constraintsSnapshot.valueConstraintNames, tableNames);
+        for (String tableName : tableNames) {
+            Set<String> columnNames = constraintsSnapshot.notNullColumnNames.get(tableName);
+            if (columnNames == null) {
+                continue;
+            }
+            for (String columnName : columnNames) {
+                statements.add("alter table " + qualified(tableName) + " alter column " + quoted(columnName) + " drop not null");
+            }
         }
+        executeUpdates(statements);
+        putCachedMetaData(CONSTRAINTS_CACHE_KEY, constraintsSnapshot.withoutValueConstraints(tableNames));
+    }
 
-        // retrieve the name of the primary key, since we cannot remove the not-null constraint on this column
-        Set<String> primaryKeyColumnNames = sqlHandler.getItemsAsStringSet("select column_name from information_schema.table_constraints con, information_schema.key_column_usage key where con.table_name = '" + tableName + "' and con.table_schema = '" + getSchemaName() + "' and key.table_name = con.table_name and key.table_schema = con.table_schema and key.constraint_name = con.constraint_name and con.constraint_type = 'PRIMARY KEY'");
 
-        // disable all not null constraints
-        Set<String> notNullColumnNames = sqlHandler.getItemsAsStringSet("select column_name from information_schema.columns where is_nullable = 'NO' and table_name = '" + tableName + "' and table_schema = '" + getSchemaName() + "'");
-        for (String notNullColumnName : notNullColumnNames) {
-            if (primaryKeyColumnNames.contains(notNullColumnName)) {
-                // Do not remove PK constraints
+    /**
+     * Adds the statements for dropping the given constraints of the tables with the given names.
+     *
+     * @param statements      The statements to add to, not null
+     * @param constraintNames The constraint names, with the table names as key, not null
+     * @param tableNames      The tables, not null
+     */
+    protected void addDropConstraintStatements(List<String> statements, Map<String, Set<String>> constraintNames, Set<String> tableNames) {
+        for (String tableName : tableNames) {
+            Set<String> names = constraintNames.get(tableName);
+            if (names == null) {
                 continue;
             }
-            sqlHandler.executeUpdate("alter table " + qualified(tableName) + " alter column " + notNullColumnName + " drop not null");
+            for (String constraintName : names) {
+                statements.add("alter table " + qualified(tableName) + " drop constraint " + quoted(constraintName));
+            }
+        }
+    }
+
+
+    /**
+     * Gets the constraints of all tables in the schema. If meta data caching is enabled (see
+     * {@link #PROPKEY_METADATA_CACHE_ENABLED}), the constraints are cached until {@link #invalidateCache} is called.
+     * Constraints that are disabled are removed from the cached constraints.
+     *
+     * @return The constraints, not null
+     */
+    protected ConstraintsSnapshot getConstraintsSnapshot() {
+        ConstraintsSnapshot result = (ConstraintsSnapshot) getCachedMetaData(CONSTRAINTS_CACHE_KEY);
+        if (result == null) {
+            result = loadConstraintsSnapshot();
+            putCachedMetaData(CONSTRAINTS_CACHE_KEY, result);
+        }
+        return result;
+    }
+
+
+    /**
+     * Loads the constraints of all tables in the schema using the system catalog: one query per type of constraint.
+     * The queries are executed by the sql handler.
+     *
+     * @return The constraints, not null
+     */
+    protected ConstraintsSnapshot loadConstraintsSnapshot() {
+        // The pg_constraint table does not contain the not null check constraints that are shown in the
+        // information_schema tables. The not null constraints of primary key columns cannot be removed.
+        String schemaName = getSchemaName().replace("'", "''");
+        Map<String, Set<String>> foreignKeyNames = getItemsAsStringSetMap("select t.relname, c.conname from pg_constraint c, pg_class t, pg_namespace n where c.conrelid = t.oid and t.relnamespace = n.oid and t.relkind in ('r', 'p') and c.contype = 'f' and n.nspname = '" + schemaName + "'");
+        Map<String, Set<String>> valueConstraintNames = getItemsAsStringSetMap("select t.relname, c.conname from pg_constraint c, pg_class t, pg_namespace n where c.conrelid = t.oid and t.relnamespace = n.oid and t.relkind in ('r', 'p') and c.contype in ('c', 'u') and n.nspname = '" + schemaName + "'");
+        Map<String, Set<String>> notNullColumnNames = getItemsAsStringSetMap("select t.relname, a.attname from pg_attribute a, pg_class t, pg_namespace n where a.attrelid = t.oid and t.relnamespace = n.oid and t.relkind in ('r', 'p') and a.attnum > 0 and a.attnotnull and not a.attisdropped and n.nspname = '" + schemaName + "' " +
+                "and not exists (select 1 from pg_constraint pk where pk.conrelid = t.oid and pk.contype = 'p' and a.attnum = any(pk.conkey))");
+        return new ConstraintsSnapshot(foreignKeyNames, valueConstraintNames, notNullColumnNames);
+    }
+
+
+    /**
+     * The constraints of all tables of a schema, per table name. A snapshot is not modified once it is created, since
+     * it can be cached and shared between threads. Disabling constraints results in a new snapshot.
+     */
+    protected static class ConstraintsSnapshot {
+
+        /* The names of the foreign key constraints */
+        protected final Map<String, Set<String>> foreignKeyNames;
+
+        /* The names of the check and unique constraints */
+        protected final Map<String, Set<String>> valueConstraintNames;
+
+        /* The names of the not null columns that are not part of the primary key */
+        protected final Map<String, Set<String>> notNullColumnNames;
+
+
+        public ConstraintsSnapshot(Map<String, Set<String>> foreignKeyNames, Map<String, Set<String>> valueConstraintNames, Map<String, Set<String>> notNullColumnNames) {
+            this.foreignKeyNames = foreignKeyNames;
+            this.valueConstraintNames = valueConstraintNames;
+            this.notNullColumnNames = notNullColumnNames;
+        }
+
+
+        /**
+         * @param tableNames The tables of which the foreign keys were dropped, not null
+         * @return A copy of this snapshot without the foreign keys of the given tables, not null
+         */
+        public ConstraintsSnapshot withoutForeignKeys(Set<String> tableNames) {
+            return new ConstraintsSnapshot(without(foreignKeyNames, tableNames), valueConstraintNames, notNullColumnNames);
+        }
+
+
+        /**
+         * @param tableNames The tables of which the value constraints were disabled, not null
+         * @return A copy of this snapshot without the value constraints of the given tables, not null
+         */
+        public ConstraintsSnapshot withoutValueConstraints(Set<String> tableNames) {
+            return new ConstraintsSnapshot(foreignKeyNames, without(valueConstraintNames, tableNames), without(notNullColumnNames, tableNames));
+        }
+
+
+        protected Map<String, Set<String>> without(Map<String, Set<String>> names, Set<String> tableNames) {
+            Map<String, Set<String>> result = new HashMap<String, Set<String>>(names);
+            result.keySet().removeAll(tableNames);
+            return result;
         }
     }
 
@@ -230,6 +383,48 @@ public class PostgreSqlDbSupport extends DbSupport {
     }
 
 
+    /**
+     * Returns the values of all sequences in the schema using a single query.
+     *
+     * @return The values of the sequences, with the sequence names as key, not null
+     */
+    @Override
+    public Map<String, Long> getSequenceValues() {
+        Set<String> sequenceNames = getSequenceNames();
+        if (sequenceNames.isEmpty()) {
+            return new HashMap<String, Long>();
+        }
+        StringBuilder query = new StringBuilder();
+        for (String sequenceName : sequenceNames) {
+            if (query.length() > 0) {
+                query.append(" union all ");
+            }
+            query.append("select '").append(sequenceName.replace("'", "''")).append("', last_value from ").append(qualified(sequenceName));
+        }
+        return getItemsAsLongMap(query.toString());
+    }
+
+
+    /**
+     * Sets the next value of all sequences with the given names to the given sequence value using a single query.
+     *
+     * @param sequenceNames    The sequences, not null
+     * @param newSequenceValue The value to set
+     */
+    @Override
+    public void incrementSequencesToValue(Set<String> sequenceNames, long newSequenceValue) {
+        if (sequenceNames.isEmpty()) {
+            return;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String sequenceName : sequenceNames) {
+            query.append(query.length() == 0 ? "select " : ", ");
+            query.append("setval('").append(qualified(sequenceName).replace("'", "''")).append("', ").append(newSequenceValue).append(")");
+        }
+        getSQLHandler().getItemAsLong(query.toString());
+    }
+
+
     /**
      * Sequences are supported.
      *
@@ -271,4 +466,15 @@ public class PostgreSqlDbSupport extends DbSupport {
         return true;
     }
 
+
+    /**
+     * Truncate is supported.
+     *
+     * @return True
+     */
+    @Override
+    public boolean supportsTruncate() {
+        return true;
+    }
+
 }
@@ -2,20 +2,29 @@ package org.unitils.database;
 
 import java.sql.Connection;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.sql.DataSource;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
 import org.unitils.core.Unitils;
 import org.unitils.core.UnitilsException;
+import org.unitils.core.dbsupport.ConnectionScopedSQLHandler;
+import org.unitils.core.dbsupport.DbSupportFactory;
 import org.unitils.core.dbsupport.DefaultSQLHandler;
 import org.unitils.core.dbsupport.SQLHandler;
 import org.unitils.core.util.ConfigUtils;
 import org.unitils.database.config.DataSourceFactory;
 import org.unitils.database.config.DatabaseConfiguration;
 import org.unitils.database.transaction.UnitilsTransactionManager;
+import org.unitils.database.util.ModifiedTableTrackingDataSource;
+import org.unitils.database.util.SqlMetricsCollector;
+import org.unitils.database.util.SqlMetricsDataSource;
 import org.unitils.dbmaintainer.DBMaintainer;
 import org.unitils.dbmaintainer.clean.DBCleaner;
 import org.unitils.dbmaintainer.clean.DBClearer;
@@ -40,19 +49,24 @@ import org.unitils.util.PropertyUtils;
 public class DataSourceWrapper {
     private static final Log LOGGER = LogFactory.getLog(DataSourceWrapper.class);
 
-    private DataSource wrappedDataSource;
+    private volatile DataSource wrappedDataSource;
     protected DatabaseConfiguration databaseConfiguration;
     private DataSourceFactory dataSourceFactory;
     private boolean updateDatabaseSchemaEnabled;
     private Properties configuration;
     private String databaseName;
-    
-    protected Connection connection;
 
     private UnitilsTransactionManager transactionManager;
 
     private boolean wrapDataSourceInTransactionalProxy;
 
+    private boolean trackModifiedTablesEnabled;
+
+    private SqlMetricsCollector sqlMetricsCollector;
+
+    /* The error of the initialization in the background that was not yet reported to a test, null if there is none */
+    private RuntimeException backgroundInitializationError;
+
     public DataSourceWrapper(DatabaseConfiguration databaseConfiguration, UnitilsTransactionManager transactionManager) {
         this(databaseConfiguration, Unitils.getInstance().getConfiguration(), transactionManager);
     }
@@ -64,6 +78,7 @@ public class DataSourceWrapper {
         dataSourceFactory.init(databaseConfiguration);
         updateDatabaseSchemaEnabled = PropertyUtils.getBoolean(DatabaseModule.PROPERTY_UPDATEDATABASESCHEMA_ENABLED, configuration);
         wrapDataSourceInTransactionalProxy = PropertyUtils.getBoolean(DatabaseModule.PROPERTY_WRAP_DATASOURCE_IN_TRANSACTIONAL_PROXY, configuration);
+        trackModifiedTablesEnabled = PropertyUtils.getBoolean(DatabaseModule.PROPERTY_TRACK_MODIFIED_TABLES_ENABLED, configuration);
         databaseName = databaseConfiguration.getDatabaseName();
         this.databaseConfiguration = databaseConfiguration;
         this.transactionManager = transactionmanager;
@@ -75,8 +90,7 @@ public class DataSourceWrapper {
      */
     public Connection getConnection() {
         try {
-            connection = DataSourceUtils.getConnection(wrappedDataSource);
-            
+            Connection connection = DataSourceUtils.getConnection(wrappedDataSource);
             return DatabaseUnitils.getGoodConnection(connection, wrappedDataSource);
         } catch (Exception e) {
             throw new UnitilsException("Unable to connect to database for " + databaseConfiguration + ".", e);
@@ -103,7 +117,12 @@ public class DataSourceWrapper {
     } 
 
     /**
-     * Creates a datasource by using the factory that is defined by the dataSourceFactory.className property
+     * Creates a datasource by using the factory that is defined by the dataSourceFactory.className property.
+     * If the property {@link DatabaseModule#PROPERTY_TRACK_MODIFIED_TABLES_ENABLED} is set to true, the data source
+     * is wrapped in a {@link ModifiedTableTrackingDataSource}. If a {@link SqlMetricsCollector} was set, the data source
+     * is wrapped in a {@link SqlMetricsDataSource}, so that the executed statements are measured, including the ones of
+     * the database update. The db supports of the database update are removed from the {@link DbSupportFactory} when
+     * the data source is wrapped, since they are not used afterwards.
      *
      * @return the datasource
      */
@@ -112,15 +131,41 @@ public class DataSourceWrapper {
         DataSourceFactory dataSourceFactory = ConfigUtils.getConfiguredInstanceOf(DataSourceFactory.class, configuration);
         dataSourceFactory.init(configuration, databaseName);
         DataSource dataSource = dataSourceFactory.createDataSource();
+        if (sqlMetricsCollector != null) {
+            dataSource = new SqlMetricsDataSource(dataSource, sqlMetricsCollector);
+        }
 
-
-        // Call the database maintainer if enabled
+        // Call the database maintainer if enabled, all maintenance statements are executed on the same connection
         if (updateDatabaseSchemaEnabled) {
-            updateDatabase(new DefaultSQLHandler(dataSource));
+            ConnectionScopedSQLHandler sqlHandler = new ConnectionScopedSQLHandler(dataSource);
+            try {
+                updateDatabase(sqlHandler);
+            } finally {
+                sqlHandler.close();
+            }
+        }
+        // Keep track of the modified tables, so that only these tables need to be cleaned
+        if (trackModifiedTablesEnabled) {
+            DbSupportFactory.unregisterDataSource(dataSource);
+            return new ModifiedTableTrackingDataSource(dataSource);
         }
         return dataSource;
     }
 
+    /**
+     * Releases the data source: it is removed, together with the data sources it wraps, from the
+     * {@link DbSupportFactory}, so that it is no longer referenced by unitils. A new data source is created when it is
+     * used again.
+     */
+    public synchronized void releaseDataSource() {
+        DataSource dataSource = wrappedDataSource;
+        wrappedDataSource = null;
+        while (dataSource != null) {
+            DbSupportFactory.unregisterDataSource(dataSource);
+            dataSource = dataSource instanceof DelegatingDataSource ? ((DelegatingDataSource) dataSource).getTargetDataSource() : null;
+        }
+    }
+
     /**
      * Determines whether the test database is outdated and, if this is the case, updates the database with the
      * latest changes. See {@link DBMaintainer} for more information.
@@ -139,8 +184,13 @@ public class DataSourceWrapper {
      */
     public void updateDatabase(SQLHandler sqlHandler) {
         LOGGER.info("Checking if database has to be updated.");
-        DBMaintainer dbMaintainer = new DBMaintainer(configuration, sqlHandler, databaseConfiguration.getDialect(), databaseConfiguration.getSchemaNames());
-        dbMaintainer.updateDatabase(databaseConfiguration.getDatabaseName(), databaseConfiguration.isDefaultDatabase());
+        String previousPhase = startSqlMetricsPhase(SqlMetricsCollector.PHASE_DB_MAINTAINER);
+        try {
+            DBMaintainer dbMaintainer = new DBMaintainer(configuration, sqlHandler, databaseConfiguration.getDialect(), databaseConfiguration.getSchemaNames());
+            dbMaintainer.updateDatabase(databaseConfiguration.getDatabaseName(), databaseConfiguration.isDefaultDatabase());
+        } finally {
+            endSqlMetricsPhase(previousPhase);
+        }
     }
 
     /**
@@ -154,14 +204,18 @@ public class DataSourceWrapper {
     /**
      * Returns the <code>DataSource</code> that provides connection to the unit test database. When invoked the first
      * time, the DBMaintainer is invoked to make sure the test database is up-to-date (if database updating is enabled)
+     * <p/>
+     * The transaction of the current test is activated on every call: the data source could have been created by
+     * another thread after the transaction of the test was started, e.g. by a parallel test or by the parallel
+     * initialization of the data sources. Activating an active transaction has no effect.
      *
      * @return The <code>DataSource</code>
      */
     public DataSource getDataSourceAndActivateTransactionIfNeeded() {
         if (wrappedDataSource == null) {
-            wrappedDataSource = createDataSource();
-            activateTransactionIfNeeded();
+            initDataSource();
         }
+        activateTransactionIfNeeded();
         return wrappedDataSource;
     }
 
@@ -178,16 +232,68 @@ public class DataSourceWrapper {
 
     public DataSource getDataSource() {
         if (wrappedDataSource == null) {
-            wrappedDataSource = createDataSource();
+            initDataSource();
         }
         return wrappedDataSource;
     }
 
+    /**
+     * Creates the data source if this was not done yet. Tests that run in parallel share the data source, so it
+     * should only be created, and the database only be updated, once.
+     */
+    protected synchronized void initDataSource() {
+        if (wrappedDataSource != null) {
+            return;
+        }
+        if (backgroundInitializationError != null) {
+            RuntimeException error = backgroundInitializationError;
+            backgroundInitializationError = null;
+            throw new UnitilsException("Unable to initialize the data source of database " + databaseName + ".", error);
+        }
+        wrappedDataSource = createDataSource();
+    }
+
+    /**
+     * Starts the creation of the data source, including the update of the database, using the given executor.
+     * A test that uses the data source while it is being created waits until the creation is finished. If the data
+     * source is still waiting to be created, the test creates it itself. If the creation fails, the first test that
+     * uses the data source fails with this error, the tests after it try to create the data source again.
+     *
+     * @param executorService The executor that creates the data source, not null
+     * @return The result of the creation, not null
+     */
+    public Future<?> initDataSourceInBackground(ExecutorService executorService) {
+        return executorService.submit(new Callable<Void>() {
+            public Void call() {
+                initDataSourceAndKeepError();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Creates the data source if this was not done yet. If this fails, the error is kept until the data source is
+     * used by a test. The error is set before the lock is released, so that a waiting test cannot miss it.
+     */
+    protected synchronized void initDataSourceAndKeepError() {
+        try {
+            initDataSource();
+        } catch (RuntimeException e) {
+            backgroundInitializationError = e;
+            throw e;
+        }
+    }
+
     /**
      * Clears all configured schema's. I.e. drops all tables, views and other database objects.
      */
     public void clearSchemas() {
-        getConfiguredDatabaseTaskInstance(DBClearer.class).clearSchemas();
+        String previousPhase = startSqlMetricsPhase(SqlMetricsCollector.PHASE_DB_CLEARER);
+        try {
+            getConfiguredDatabaseTaskInstance(DBClearer.class).clearSchemas();
+        } finally {
+            endSqlMetricsPhase(previousPhase);
+        }
     }
 
 
@@ -195,7 +301,12 @@ public class DataSourceWrapper {
      * Cleans all configured schema's. I.e. removes all data from its database tables.
      */
     public void cleanSchemas() {
-        getConfiguredDatabaseTaskInstance(DBCleaner.class).cleanSchemas();
+        String previousPhase = startSqlMetricsPhase(SqlMetricsCollector.PHASE_DB_CLEANER);
+        try {
+            getConfiguredDatabaseTaskInstance(DBCleaner.class).cleanSchemas();
+        } finally {
+            endSqlMetricsPhase(previousPhase);
+        }
     }
 
 
@@ -247,6 +358,30 @@ public class DataSourceWrapper {
     }
 
 
+    /**
+     * @param sqlMetricsCollector The collector of the metrics of the executed statements, null to disable measuring
+     */
+    public void setSqlMetricsCollector(SqlMetricsCollector sqlMetricsCollector) {
+        this.sqlMetricsCollector = sqlMetricsCollector;
+    }
+
+    /**
+     * @param phase The phase of the test that is started, not null
+     * @return The previous phase, null if the statements are not measured
+     */
+    protected String startSqlMetricsPhase(String phase) {
+        return sqlMetricsCollector == null ? null : sqlMetricsCollector.startPhase(phase);
+    }
+
+    /**
+     * @param previousPhase The phase returned by {@link #startSqlMetricsPhase}
+     */
+    protected void endSqlMetricsPhase(String previousPhase) {
+        if (sqlMetricsCollector != null) {
+            sqlMetricsCollector.endPhase(previousPhase);
+        }
+    }
+
     /**
      * @param transactionManager the transactionManager to set
      */
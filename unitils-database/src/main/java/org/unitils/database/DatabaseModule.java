@@ -20,23 +20,35 @@ import static org.unitils.database.util.TransactionMode.COMMIT;
 import static org.unitils.database.util.TransactionMode.DEFAULT;
 import static org.unitils.database.util.TransactionMode.DISABLED;
 import static org.unitils.database.util.TransactionMode.ROLLBACK;
+import static org.unitils.database.util.TransactionMode.SAVEPOINT;
 import static org.unitils.util.AnnotationUtils.getFieldsAnnotatedWith;
 import static org.unitils.util.AnnotationUtils.getMethodOrClassLevelAnnotationProperty;
 import static org.unitils.util.AnnotationUtils.getMethodsAnnotatedWith;
 import static org.unitils.util.ModuleUtils.getAnnotationPropertyDefaults;
 import static org.unitils.util.ModuleUtils.getEnumValueReplaceDefault;
 
+import java.io.File;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
@@ -54,12 +66,16 @@ import org.unitils.core.config.Configuration;
 import org.unitils.core.dbsupport.SQLHandler;
 import org.unitils.database.annotations.TestDataSource;
 import org.unitils.database.annotations.Transactional;
+import org.unitils.database.config.DataSourcePoolConfiguration;
 import org.unitils.database.config.DatabaseConfiguration;
 import org.unitils.database.config.DatabaseConfigurations;
 import org.unitils.database.config.DatabaseConfigurationsFactory;
+import org.unitils.database.transaction.SavepointTransactionManager;
 import org.unitils.database.transaction.UnitilsTransactionManager;
 import org.unitils.database.transaction.impl.UnitilsTransactionManagementConfiguration;
+import org.unitils.database.util.ClassFixtureLoader;
 import org.unitils.database.util.Flushable;
+import org.unitils.database.util.SqlMetricsCollector;
 import org.unitils.database.util.TransactionMode;
 import org.unitils.dbmaintainer.DBMaintainer;
 import org.unitils.util.PropertyUtils;
@@ -90,6 +106,11 @@ import org.unitils.util.ReflectionUtils;
  * {@link TransactionMode#ROLLBACK}, or if the property
  * 'DatabaseModule.Transactional.value.default' was set to 'commit' or
  * 'rollback', every test is executed in a transaction.
+ * <p/>
+ * With transaction mode {@link TransactionMode#SAVEPOINT}, the tests of a test
+ * class share a transaction in which the class level fixtures are loaded once.
+ * Every test is executed in a savepoint of this transaction and is rolled back
+ * to this savepoint afterwards.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
@@ -113,6 +134,40 @@ public class DatabaseModule implements Module {
      */
     public static final String PROPERTY_WRAP_DATASOURCE_IN_TRANSACTIONAL_PROXY = "dataSource.wrapInTransactionalProxy";
 
+    /**
+     * Property indicating whether the tables into which data is written should
+     * be tracked, so that the DBCleaner only needs to clean these tables
+     */
+    public static final String PROPERTY_TRACK_MODIFIED_TABLES_ENABLED = "dataSource.trackModifiedTables.enabled";
+
+    /**
+     * Property indicating whether the sql statements that are executed through
+     * the datasource should be measured per test
+     */
+    public static final String PROPERTY_SQL_METRICS_ENABLED = "dataSource.sqlMetrics.enabled";
+
+    /* The maximum nr of statements a test can execute, empty for no maximum */
+    public static final String PROPERTY_SQL_METRICS_MAX_STATEMENTS_PER_TEST = "dataSource.sqlMetrics.maxStatementsPerTest";
+
+    /* The maximum nr of times a test can execute the same statement, empty for no maximum */
+    public static final String PROPERTY_SQL_METRICS_MAX_EXECUTIONS_PER_STATEMENT = "dataSource.sqlMetrics.maxExecutionsPerStatement";
+
+    /* True if a test should fail when it exceeds a maximum, false to log a warning */
+    public static final String PROPERTY_SQL_METRICS_FAIL_ON_THRESHOLD = "dataSource.sqlMetrics.failOnThresholdExceeded";
+
+    /* The file to which the metrics are written at the end of the run, empty for no report */
+    public static final String PROPERTY_SQL_METRICS_REPORT_FILE = "dataSource.sqlMetrics.reportFile";
+
+    /**
+     * Property indicating whether the data sources of all configured databases
+     * should be created, and their schemas updated, in parallel when the
+     * module is initialized
+     */
+    public static final String PROPERTY_PARALLEL_INITIALIZATION_ENABLED = "database.parallelInitialization.enabled";
+
+    /* The maximum nr of databases that are initialized at the same time, empty for all databases at once */
+    public static final String PROPERTY_PARALLEL_INITIALIZATION_MAX_THREADS = "database.parallelInitialization.maxThreads";
+
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(DatabaseModule.class);
 
@@ -145,6 +200,12 @@ public class DatabaseModule implements Module {
      */
     protected boolean wrapDataSourceInTransactionalProxy;
 
+    /**
+     * Collects the metrics of the executed sql statements, null if measuring
+     * the statements is disabled
+     */
+    protected SqlMetricsCollector sqlMetricsCollector;
+
     /**
      * The transaction manager
      */
@@ -154,7 +215,7 @@ public class DatabaseModule implements Module {
      * Set of possible providers of a spring
      * <code>PlatformTransactionManager</code>
      */
-    protected Set<UnitilsTransactionManagementConfiguration> transactionManagementConfigurations = new HashSet<UnitilsTransactionManagementConfiguration>();
+    protected Set<UnitilsTransactionManagementConfiguration> transactionManagementConfigurations = Collections.newSetFromMap(new ConcurrentHashMap<UnitilsTransactionManagementConfiguration, Boolean>());
 
     //protected String dialect;
     private DatabaseConfigurations databaseConfigurations;
@@ -162,6 +223,12 @@ public class DatabaseModule implements Module {
     //protected DataSourceWrapper wrapper;
     protected Map<String, DataSourceWrapper> wrappers = new HashMap<String, DataSourceWrapper>();
 
+    /**
+     * The initializations of the data sources that were started in parallel,
+     * with the database name as key, empty if parallel initialization is disabled
+     */
+    protected Map<String, Future<?>> dataSourceInitializations = new LinkedHashMap<String, Future<?>>();
+
     /**
      * Initializes this module using the given <code>Configuration</code>
      *
@@ -169,23 +236,199 @@ public class DatabaseModule implements Module {
      */
     @SuppressWarnings("unchecked")
     public void init(Properties configuration) {
+        releaseDataSources();
         this.configuration = configuration;
         DatabaseConfigurationsFactory configFactory = new DatabaseConfigurationsFactory(new Configuration(configuration));
         databaseConfigurations = configFactory.create();
         defaultAnnotationPropertyValues = getAnnotationPropertyDefaults(DatabaseModule.class, configuration, Transactional.class);
         updateDatabaseSchemaEnabled = PropertyUtils.getBoolean(PROPERTY_UPDATEDATABASESCHEMA_ENABLED, configuration);
         wrapDataSourceInTransactionalProxy = PropertyUtils.getBoolean(PROPERTY_WRAP_DATASOURCE_IN_TRANSACTIONAL_PROXY, configuration);
+        if (PropertyUtils.getBoolean(PROPERTY_SQL_METRICS_ENABLED, false, configuration)) {
+            sqlMetricsCollector = createSqlMetricsCollector();
+        }
         PlatformTransactionManager.class.getName();
     }
 
     /**
-     * Initializes the spring support object
+     * Releases the data sources of the databases, see {@link DataSourceWrapper#releaseDataSource()}. The wrappers are
+     * created again when the databases are used. The transactions shared by the tests of a test class that are still
+     * open are rolled back first.
+     */
+    public synchronized void releaseDataSources() {
+        if (transactionManager instanceof SavepointTransactionManager) {
+            ((SavepointTransactionManager) transactionManager).rollbackOpenClassTransactions();
+        }
+        for (DataSourceWrapper wrapper : wrappers.values()) {
+            wrapper.releaseDataSource();
+        }
+        wrappers.clear();
+    }
+
+    /**
+     * Creates the collector for the metrics of the executed sql statements. If a report file is configured, the
+     * metrics are written to this file when the JVM shuts down.
+     *
+     * @return The collector, not null
+     */
+    protected SqlMetricsCollector createSqlMetricsCollector() {
+        int maxStatementsPerTest = PropertyUtils.getInt(PROPERTY_SQL_METRICS_MAX_STATEMENTS_PER_TEST, -1, configuration);
+        int maxExecutionsPerStatement = PropertyUtils.getInt(PROPERTY_SQL_METRICS_MAX_EXECUTIONS_PER_STATEMENT, -1, configuration);
+        boolean failOnThresholdExceeded = PropertyUtils.getBoolean(PROPERTY_SQL_METRICS_FAIL_ON_THRESHOLD, false, configuration);
+        final SqlMetricsCollector result = new SqlMetricsCollector(maxStatementsPerTest, maxExecutionsPerStatement, failOnThresholdExceeded);
+
+        String reportFileName = PropertyUtils.getString(PROPERTY_SQL_METRICS_REPORT_FILE, null, configuration);
+        if (reportFileName != null) {
+            final File reportFile = new File(reportFileName);
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    result.writeReport(reportFile);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * @return The collector of the metrics of the executed sql statements, null if measuring the statements is disabled
+     */
+    public SqlMetricsCollector getSqlMetricsCollector() {
+        return sqlMetricsCollector;
+    }
+
+    /**
+     * If parallel initialization is enabled (database.parallelInitialization.enabled), starts the creation of the data
+     * sources of all databases in the background. Otherwise, creates the data sources of the databases for which
+     * pre-warming of the connection pool is enabled (database.pool.preWarm.enabled), so that their connections are
+     * opened before the first test is run.
      */
     public void afterInit() {
-        //do nothing
+        if (PropertyUtils.getBoolean(PROPERTY_PARALLEL_INITIALIZATION_ENABLED, false, configuration)) {
+            initDataSourcesInParallel();
+        } else {
+            preWarmDataSources();
+        }
+    }
+
+
+    /**
+     * Creates the data sources of all databases for which pre-warming is enabled. If a data source cannot be created,
+     * a warning is logged and the data source will be created again when it is first used by a test.
+     */
+    protected void preWarmDataSources() {
+        for (DatabaseConfiguration databaseConfiguration : getAllDatabaseConfigurations()) {
+            DataSourcePoolConfiguration poolConfiguration = databaseConfiguration.getPoolConfiguration();
+            if (poolConfiguration == null || !poolConfiguration.isPreWarmEnabled()) {
+                continue;
+            }
+            try {
+                getWrapper(databaseConfiguration.getDatabaseName()).getDataSource();
+            } catch (UnitilsException e) {
+                logger.warn("Unable to pre-warm data source for database " + databaseConfiguration + ". The data source will be created when it is first used.", e);
+            }
+        }
+    }
+
+
+    /**
+     * Starts the creation of the data sources, including the updates of the databases, of all configured databases
+     * in the background, using at most database.parallelInitialization.maxThreads threads. The threads are daemon
+     * threads, so they do not keep the JVM alive. A test only waits for the data sources that it uses.
+     * <p/>
+     * When all data sources are initialized, the errors are logged together, per database.
+     */
+    protected void initDataSourcesInParallel() {
+        List<DatabaseConfiguration> allDatabaseConfigurations = getAllDatabaseConfigurations();
+        int nrOfThreads = PropertyUtils.getInt(PROPERTY_PARALLEL_INITIALIZATION_MAX_THREADS, allDatabaseConfigurations.size(), configuration);
+        nrOfThreads = Math.max(1, Math.min(nrOfThreads, allDatabaseConfigurations.size()));
+        logger.info("Initializing the data sources of " + allDatabaseConfigurations.size() + " database(s) in parallel, using " + nrOfThreads + " thread(s).");
+
+        ExecutorService executorService = Executors.newFixedThreadPool(nrOfThreads, new ThreadFactory() {
+
+            private AtomicInteger threadNr = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "unitils-database-init-" + threadNr.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        for (DatabaseConfiguration databaseConfiguration : allDatabaseConfigurations) {
+            DataSourceWrapper wrapper = getWrapper(databaseConfiguration.getDatabaseName());
+            dataSourceInitializations.put(wrapper.getDatabaseName(), wrapper.initDataSourceInBackground(executorService));
+        }
+        // all initializations are queued before this task, so it never waits for a task that cannot start
+        executorService.submit(new Runnable() {
+            public void run() {
+                try {
+                    waitForDataSourceInitialization();
+                } catch (UnitilsException e) {
+                    logger.warn(e.getMessage() + " The data sources will be created again when they are first used.", e);
+                }
+            }
+        });
+        executorService.shutdown();
     }
 
-    public void registerTransactionManagementConfiguration() {
+
+    /**
+     * Waits until all data sources that were started in parallel (database.parallelInitialization.enabled) are
+     * initialized. Nothing is done if parallel initialization is disabled.
+     *
+     * @throws UnitilsException If the data source of one or more databases could not be initialized. The message
+     *                          contains the error of each of these databases.
+     */
+    public void waitForDataSourceInitialization() {
+        Map<String, Throwable> errors = new LinkedHashMap<String, Throwable>();
+        for (Entry<String, Future<?>> dataSourceInitialization : dataSourceInitializations.entrySet()) {
+            try {
+                dataSourceInitialization.getValue().get();
+            } catch (ExecutionException e) {
+                errors.put(dataSourceInitialization.getKey(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UnitilsException("Interrupted while waiting for the initialization of database " + dataSourceInitialization.getKey() + ".", e);
+            }
+        }
+        if (errors.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder("Unable to initialize the data sources of " + errors.size() + " database(s):");
+        for (Entry<String, Throwable> error : errors.entrySet()) {
+            message.append("\n- ").append(error.getKey()).append(": ").append(getMessages(error.getValue()));
+        }
+        throw new UnitilsException(message.toString(), errors.values().iterator().next());
+    }
+
+
+    /**
+     * @param throwable The error, not null
+     * @return The messages of the error and its causes, not null
+     */
+    protected String getMessages(Throwable throwable) {
+        StringBuilder result = new StringBuilder(String.valueOf(throwable.getMessage()));
+        for (Throwable cause = throwable.getCause(); cause != null && cause != cause.getCause(); cause = cause.getCause()) {
+            result.append(" Caused by: ").append(cause.getMessage());
+        }
+        return result.toString();
+    }
+
+
+    /**
+     * @return The configurations of all databases, only the default configuration if no database names are
+     *         configured, not null
+     */
+    protected List<DatabaseConfiguration> getAllDatabaseConfigurations() {
+        List<DatabaseConfiguration> result = new ArrayList<DatabaseConfiguration>();
+        if (databaseConfigurations.getDatabaseNames().isEmpty()) {
+            result.add(databaseConfigurations.getDatabaseConfiguration());
+        } else {
+            result.addAll(databaseConfigurations.getDatabaseConfigurations());
+        }
+        return result;
+    }
+
+    public synchronized void registerTransactionManagementConfiguration() {
         for (DataSourceWrapper wrapper : wrappers.values()) {
             registerTransactionManagementConfiguration(wrapper);
         }
@@ -202,7 +445,8 @@ public class DatabaseModule implements Module {
             }
 
             public PlatformTransactionManager getSpringPlatformTransactionManager(Object testObject) {
-                return new DataSourceTransactionManager(wrapper.getDataSourceAndActivateTransactionIfNeeded());
+                // the transaction is being activated, so the data source is retrieved without activating it again
+                return new DataSourceTransactionManager(wrapper.getDataSource());
             }
 
             public boolean isTransactionalResourceAvailable(Object testObject) {
@@ -227,7 +471,7 @@ public class DatabaseModule implements Module {
      *
      * @return The transaction manager, not null
      */
-    public UnitilsTransactionManager getTransactionManager() {
+    public synchronized UnitilsTransactionManager getTransactionManager() {
         if (transactionManager == null) {
             transactionManager = getInstanceOf(UnitilsTransactionManager.class, configuration);
 
@@ -280,6 +524,9 @@ public class DatabaseModule implements Module {
      * Assigns the <code>TestDataSource</code> to every field annotated with
      * {@link TestDataSource} and calls all methods annotated with
      * {@link TestDataSource}
+     * <p/>
+     * Only the data sources of the databases that are named by these annotations are retrieved, so that a test does not
+     * wait for the initialization of a database it does not use.
      *
      * @param testObject The test instance, not null
      * @throws InvocationTargetException
@@ -289,15 +536,34 @@ public class DatabaseModule implements Module {
     public void injectDataSource(Object testObject) {
         Set<Field> fields = getFieldsAnnotatedWith(testObject.getClass(), TestDataSource.class);
         Set<Method> methods = getMethodsAnnotatedWith(testObject.getClass(), TestDataSource.class);
+        if (fields.isEmpty() && methods.isEmpty()) {
+            return;
+        }
+        Set<String> databaseNames = new LinkedHashSet<String>();
+        for (Field field : fields) {
+            databaseNames.add(getTestDataSourceDatabaseName(field.getAnnotation(TestDataSource.class)));
+        }
+        for (Method method : methods) {
+            databaseNames.add(getTestDataSourceDatabaseName(method.getAnnotation(TestDataSource.class)));
+        }
         Map<String, DataSource> mapDatasources = new HashMap<String, DataSource>();
-        //update all databases
-        for (Entry<String, DataSourceWrapper> wrapper : wrappers.entrySet()) {
-            DataSource dataSource2 = getDataSource(wrapper.getKey(), mapDatasources, testObject);
-            //look if datasource is needed in test.
-            setFieldDataSource(wrapper.getKey(), dataSource2, testObject, fields, methods);
+        for (String databaseName : databaseNames) {
+            if (!hasWrapper(databaseName)) {
+                continue;
+            }
+            DataSource dataSource2 = getDataSource(databaseName, mapDatasources, testObject);
+            setFieldDataSource(databaseName, dataSource2, testObject, fields, methods);
         }
     }
 
+    /**
+     * @param annotation The annotation, not null
+     * @return The name of the database of the annotation, the name of the default database if no name was given
+     */
+    protected String getTestDataSourceDatabaseName(TestDataSource annotation) {
+        return StringUtils.isEmpty(annotation.value()) ? databaseConfigurations.getDatabaseConfiguration().getDatabaseName() : annotation.value();
+    }
+
     /**
      * @return
      */
@@ -308,14 +574,14 @@ public class DatabaseModule implements Module {
         }
         for (Field field : fields) {
             TestDataSource annotation = field.getAnnotation(TestDataSource.class);
-            String tempDatabaseName = StringUtils.isEmpty(annotation.value()) ? databaseConfigurations.getDatabaseConfiguration().getDatabaseName() : annotation.value();
+            String tempDatabaseName = getTestDataSourceDatabaseName(annotation);
             if (annotation != null && tempDatabaseName.equals(databaseName)) {
                 ReflectionUtils.setFieldValue(testObject, field, dataSource);
             }
         }
         for (Method method : methods) {
             TestDataSource annotation = method.getAnnotation(TestDataSource.class);
-            String tempDatabaseName = StringUtils.isEmpty(annotation.value()) ? databaseConfigurations.getDatabaseConfiguration().getDatabaseName() : annotation.value();
+            String tempDatabaseName = getTestDataSourceDatabaseName(annotation);
             
             if (annotation != null && tempDatabaseName.equals(databaseName)) {
                 try {
@@ -348,7 +614,7 @@ public class DatabaseModule implements Module {
      * @param testMethod The test method, not null
      * @return The {@link TransactionMode} for the given object
      */
-    protected TransactionMode getTransactionMode(Object testObject, Method testMethod) {
+    public TransactionMode getTransactionMode(Object testObject, Method testMethod) {
         TransactionMode transactionMode = getMethodOrClassLevelAnnotationProperty(Transactional.class, "value", DEFAULT, testMethod, testObject.getClass());
         transactionMode = getEnumValueReplaceDefault(Transactional.class, "value", transactionMode, defaultAnnotationPropertyValues);
         return transactionMode;
@@ -364,6 +630,12 @@ public class DatabaseModule implements Module {
      * @param testMethod The test method, not null
      */
     protected void startTransactionForTestMethod(Object testObject, Method testMethod) {
+        if (getTransactionMode(testObject, testMethod) == SAVEPOINT) {
+            startSavepointTransaction(testObject, testMethod);
+            return;
+        }
+        // a test that is not executed in a savepoint should not see the data of a shared class transaction
+        rollbackClassTransaction();
         if (isTransactionsEnabled(testObject, testMethod)) {
             startTransaction(testObject);
         }
@@ -380,7 +652,7 @@ public class DatabaseModule implements Module {
         if (isTransactionsEnabled(testObject, testMethod)) {
             if (getTransactionMode(testObject, testMethod) == COMMIT) {
                 commitTransaction(testObject);
-            } else if (getTransactionMode(testObject, testMethod) == ROLLBACK) {
+            } else if (getTransactionMode(testObject, testMethod) == ROLLBACK || getTransactionMode(testObject, testMethod) == SAVEPOINT) {
                 rollbackTransaction(testObject);
             }
         }
@@ -395,6 +667,55 @@ public class DatabaseModule implements Module {
         getTransactionManager().startTransaction(testObject);
     }
 
+    /**
+     * Starts a savepoint for the given test in the transaction that is shared by the tests of its test class. When
+     * the shared transaction is started, the class level fixtures are loaded by the modules that implement
+     * {@link ClassFixtureLoader}.
+     * <p/>
+     * If the configured transaction manager is not a {@link SavepointTransactionManager}, the test is executed in its
+     * own transaction instead and the class level fixtures are loaded for every test.
+     *
+     * @param testObject The test object, not null
+     * @param testMethod The test method, not null
+     */
+    public void startSavepointTransaction(Object testObject, Method testMethod) {
+        UnitilsTransactionManager unitilsTransactionManager = getTransactionManager();
+        if (!(unitilsTransactionManager instanceof SavepointTransactionManager)) {
+            logger.warn("Transaction manager " + unitilsTransactionManager.getClass().getName() + " does not support savepoints. Test is executed in its own transaction.");
+            unitilsTransactionManager.startTransaction(testObject);
+            loadClassFixtures(testObject, testMethod);
+            return;
+        }
+        SavepointTransactionManager savepointTransactionManager = (SavepointTransactionManager) unitilsTransactionManager;
+        if (savepointTransactionManager.startClassTransaction(testObject)) {
+            loadClassFixtures(testObject, testMethod);
+        }
+        savepointTransactionManager.startNestedTransaction(testObject);
+    }
+
+    /**
+     * Rolls back the transaction that is shared by the tests of a test class, if the current thread has one.
+     * Nothing is done if the transaction manager was not created yet or does not support savepoints.
+     */
+    public void rollbackClassTransaction() {
+        if (transactionManager instanceof SavepointTransactionManager) {
+            ((SavepointTransactionManager) transactionManager).rollbackClassTransaction();
+        }
+    }
+
+    /**
+     * Loads the class level fixtures of all modules that implement {@link ClassFixtureLoader}.
+     *
+     * @param testObject The test object, not null
+     * @param testMethod The test method, not null
+     */
+    protected void loadClassFixtures(Object testObject, Method testMethod) {
+        List<ClassFixtureLoader> classFixtureLoaders = Unitils.getInstance().getModulesRepository().getModulesOfType(ClassFixtureLoader.class);
+        for (ClassFixtureLoader classFixtureLoader : classFixtureLoaders) {
+            classFixtureLoader.loadClassFixture(testObject, testMethod);
+        }
+    }
+
     /**
      * Commits the current transaction.
      *
@@ -451,8 +772,23 @@ public class DatabaseModule implements Module {
      */
     protected class DatabaseTestListener extends TestListener {
 
+        @Override
+        public void beforeTestClass(Class<?> testClass) {
+            // the shared transaction of the previous test class of this thread should not outlive that class
+            rollbackClassTransaction();
+        }
+
+        @Override
+        public void afterTestClass(Class<?> testClass) {
+            // release the connection and the locks of the shared transaction as soon as the test class is done
+            rollbackClassTransaction();
+        }
+
         @Override
         public void beforeTestSetUp(Object testObject, Method testMethod) {
+            if (sqlMetricsCollector != null) {
+                sqlMetricsCollector.startTest(testObject.getClass().getName() + "." + testMethod.getName());
+            }
             List<String> databaseNames = databaseConfigurations.getDatabaseNames();
             if (!databaseNames.isEmpty()) {
                 for (String databaseName : databaseNames) {
@@ -477,6 +813,9 @@ public class DatabaseModule implements Module {
         @Override
         public void afterTestTearDown(Object testObject, Method testMethod) {
             endTransactionForTestMethod(testObject, testMethod);
+            if (sqlMetricsCollector != null) {
+                sqlMetricsCollector.endTest();
+            }
 
         }
     }
@@ -485,7 +824,7 @@ public class DatabaseModule implements Module {
      * @param databaseName
      * @return the wrapper
      */
-    public DataSourceWrapper getWrapper(String databaseName) {
+    public synchronized DataSourceWrapper getWrapper(String databaseName) {
         String tempDatabaseName = StringUtils.isEmpty(databaseName) ? databaseConfigurations.getDatabaseConfiguration().getDatabaseName() : databaseName;
 
         if (wrappers.containsKey(tempDatabaseName)) {
@@ -502,11 +841,20 @@ public class DatabaseModule implements Module {
         return wrapper;
     }
 
+    /**
+     * @param databaseName The name of the database, not null
+     * @return True if the wrapper of the database was already created, see {@link #getWrapper}
+     */
+    public synchronized boolean hasWrapper(String databaseName) {
+        return wrappers.containsKey(databaseName);
+    }
+
     /**
      * @param wrapper the wrapper to set
      */
-    public void setWrapper(DataSourceWrapper wrapper) {
+    public synchronized void setWrapper(DataSourceWrapper wrapper) {
         if (!wrappers.keySet().contains(wrapper.getDatabaseName())) {
+            wrapper.setSqlMetricsCollector(sqlMetricsCollector);
             wrappers.put(wrapper.getDatabaseName(), wrapper);
             registerTransactionManagementConfiguration(wrapper);
         }
@@ -17,13 +17,17 @@ package org.unitils.database;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.unitils.core.UnitilsException;
 import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -91,22 +95,38 @@ public class SQLUnitils {
      * @return The long item value
      */
     public static long getItemAsLong(String sql, DataSource dataSource) {
+        return getItemAsLong(sql, dataSource, new Object[0]);
+    }
+
+
+    /**
+     * Returns the long extracted from the result of the given query. If no value is found, a {@link UnitilsException}
+     * is thrown. The query is executed as a prepared statement on the connection of the current transaction, if there
+     * is one.
+     *
+     * @param sql        The sql string for retrieving the items, with a ? for every parameter
+     * @param dataSource The data source, not null
+     * @param parameters The values of the parameters, not null
+     * @return The long item value
+     */
+    public static long getItemAsLong(String sql, DataSource dataSource, Object... parameters) {
         logger.debug(sql);
 
         Connection connection = null;
-        Statement statement = null;
+        PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
         try {
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
-            resultSet = statement.executeQuery(sql);
+            connection = getConnection(dataSource);
+            preparedStatement = prepareStatement(connection, sql, parameters);
+            resultSet = preparedStatement.executeQuery();
             if (resultSet.next()) {
                 return resultSet.getLong(1);
             }
         } catch (Exception e) {
             throw new UnitilsException("Error while executing statement: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, resultSet);
+            closeQuietly(null, preparedStatement, resultSet);
+            releaseConnection(connection, dataSource);
         }
 
         // in case no value was found, throw an exception
@@ -123,22 +143,38 @@ public class SQLUnitils {
      * @return The string item value
      */
     public static String getItemAsString(String sql, DataSource dataSource) {
+        return getItemAsString(sql, dataSource, new Object[0]);
+    }
+
+
+    /**
+     * Returns the value extracted from the result of the given query. If no value is found, a {@link UnitilsException}
+     * is thrown. The query is executed as a prepared statement on the connection of the current transaction, if there
+     * is one.
+     *
+     * @param sql        The sql string for retrieving the items, with a ? for every parameter
+     * @param dataSource The data source, not null
+     * @param parameters The values of the parameters, not null
+     * @return The string item value
+     */
+    public static String getItemAsString(String sql, DataSource dataSource, Object... parameters) {
         logger.debug(sql);
 
         Connection connection = null;
-        Statement statement = null;
+        PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
         try {
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
-            resultSet = statement.executeQuery(sql);
+            connection = getConnection(dataSource);
+            preparedStatement = prepareStatement(connection, sql, parameters);
+            resultSet = preparedStatement.executeQuery();
             if (resultSet.next()) {
                 return resultSet.getString(1);
             }
         } catch (Exception e) {
             throw new UnitilsException("Error while executing statement: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, resultSet);
+            closeQuietly(null, preparedStatement, resultSet);
+            releaseConnection(connection, dataSource);
         }
 
         // in case no value was found, throw an exception
@@ -154,15 +190,29 @@ public class SQLUnitils {
      * @return The items, not null
      */
     public static Set<String> getItemsAsStringSet(String sql, DataSource dataSource) {
+        return getItemsAsStringSet(sql, dataSource, new Object[0]);
+    }
+
+
+    /**
+     * Returns the items extracted from the result of the given query. The query is executed as a prepared statement on
+     * the connection of the current transaction, if there is one.
+     *
+     * @param sql        The sql string for retrieving the items, with a ? for every parameter
+     * @param dataSource The data source, not null
+     * @param parameters The values of the parameters, not null
+     * @return The items, not null
+     */
+    public static Set<String> getItemsAsStringSet(String sql, DataSource dataSource, Object... parameters) {
         logger.debug(sql);
 
         Connection connection = null;
-        Statement statement = null;
+        PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
         try {
-            connection = dataSource.getConnection();
-            statement = connection.createStatement();
-            resultSet = statement.executeQuery(sql);
+            connection = getConnection(dataSource);
+            preparedStatement = prepareStatement(connection, sql, parameters);
+            resultSet = preparedStatement.executeQuery();
             Set<String> result = new HashSet<String>();
             while (resultSet.next()) {
                 result.add(resultSet.getString(1));
@@ -172,7 +222,8 @@ public class SQLUnitils {
         } catch (Exception e) {
             throw new UnitilsException("Error while executing statement: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, resultSet);
+            closeQuietly(null, preparedStatement, resultSet);
+            releaseConnection(connection, dataSource);
         }
     }
 
@@ -188,4 +239,55 @@ public class SQLUnitils {
         return getItemAsLong("select count(1) from " + tableName, dataSource) == 0;
     }
 
+
+    /**
+     * Gets a connection for executing queries. If a transaction is active for the data source in the current thread,
+     * the connection of this transaction is returned, so that the query sees the changes of the test and no other
+     * connection needs to be checked out of the pool.
+     *
+     * @param dataSource The data source, not null
+     * @return The connection, not null
+     */
+    public static Connection getConnection(DataSource dataSource) {
+        return DataSourceUtils.getConnection(dataSource);
+    }
+
+
+    /**
+     * Releases a connection that was retrieved using {@link #getConnection}. The connection of a transaction is kept
+     * open until the end of the transaction.
+     *
+     * @param connection The connection, null if no connection was retrieved
+     * @param dataSource The data source, not null
+     */
+    public static void releaseConnection(Connection connection, DataSource dataSource) {
+        DataSourceUtils.releaseConnection(connection, dataSource);
+    }
+
+
+    /**
+     * Creates a prepared statement and sets the given parameter values.
+     *
+     * @param connection The connection, not null
+     * @param sql        The sql, with a ? for every parameter, not null
+     * @param parameters The values of the parameters, not null
+     * @return The prepared statement, not null
+     */
+    public static PreparedStatement prepareStatement(Connection connection, String sql, Object... parameters) throws SQLException {
+        PreparedStatement preparedStatement = connection.prepareStatement(sql);
+        try {
+            for (int i = 0; i < parameters.length; i++) {
+                if (parameters[i] == null) {
+                    preparedStatement.setNull(i + 1, Types.NULL);
+                } else {
+                    preparedStatement.setObject(i + 1, parameters[i]);
+                }
+            }
+        } catch (SQLException e) {
+            closeQuietly(preparedStatement);
+            throw e;
+        }
+        return preparedStatement;
+    }
+
 }
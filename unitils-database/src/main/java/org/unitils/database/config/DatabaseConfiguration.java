@@ -35,9 +35,14 @@ public class DatabaseConfiguration {
     protected List<String> schemaNames;
     protected boolean updateDisabled;
     protected boolean defaultDatabase;
+    protected DataSourcePoolConfiguration poolConfiguration;
 
 
     public DatabaseConfiguration(String databaseName, String dialect, String driverClassName, String url, String userName, String password, String defaultSchemaName, List<String> schemaNames, boolean updateDisabled, boolean defaultDatabase) {
+        this(databaseName, dialect, driverClassName, url, userName, password, defaultSchemaName, schemaNames, updateDisabled, defaultDatabase, new DataSourcePoolConfiguration());
+    }
+
+    public DatabaseConfiguration(String databaseName, String dialect, String driverClassName, String url, String userName, String password, String defaultSchemaName, List<String> schemaNames, boolean updateDisabled, boolean defaultDatabase, DataSourcePoolConfiguration poolConfiguration) {
         this.databaseName = StringUtils.isEmpty(databaseName) ? "" : databaseName;
         this.dialect = dialect;
         this.driverClassName = driverClassName;
@@ -48,6 +53,7 @@ public class DatabaseConfiguration {
         this.schemaNames = schemaNames;
         this.updateDisabled = updateDisabled;
         this.defaultDatabase = defaultDatabase;
+        this.poolConfiguration = poolConfiguration;
     }
 
 
@@ -91,6 +97,10 @@ public class DatabaseConfiguration {
         return defaultDatabase;
     }
 
+    public DataSourcePoolConfiguration getPoolConfiguration() {
+        return poolConfiguration;
+    }
+
     @Override
     public String toString() {
         StringBuilder stringBuilder = new StringBuilder();
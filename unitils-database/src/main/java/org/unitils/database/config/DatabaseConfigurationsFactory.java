@@ -71,6 +71,27 @@ public class DatabaseConfigurationsFactory implements Factory<DatabaseConfigurat
         if (updateDisabled == null) {
             updateDisabled = false;
         }
-        return new DatabaseConfiguration(databaseName, dialect, driverClassName, url, userName, password, defaultSchemaName, schemaNames, updateDisabled, defaultDatabase);
+        DataSourcePoolConfiguration poolConfiguration = createPoolConfiguration(classifiers);
+        return new DatabaseConfiguration(databaseName, dialect, driverClassName, url, userName, password, defaultSchemaName, schemaNames, updateDisabled, defaultDatabase, poolConfiguration);
+    }
+
+
+    protected DataSourcePoolConfiguration createPoolConfiguration(String[] classifiers) {
+        DataSourcePoolConfiguration poolConfiguration = new DataSourcePoolConfiguration();
+        poolConfiguration.setInitialSize(configuration.getOptionalInteger("database.pool.initialSize", classifiers));
+        poolConfiguration.setMinIdle(configuration.getOptionalInteger("database.pool.minIdle", classifiers));
+        poolConfiguration.setMaxIdle(configuration.getOptionalInteger("database.pool.maxIdle", classifiers));
+        poolConfiguration.setMaxActive(configuration.getOptionalInteger("database.pool.maxActive", classifiers));
+        poolConfiguration.setMaxWait(configuration.getOptionalLong("database.pool.maxWait", classifiers));
+        poolConfiguration.setPoolPreparedStatements(configuration.getOptionalBoolean("database.pool.poolPreparedStatements", classifiers));
+        poolConfiguration.setMaxOpenPreparedStatements(configuration.getOptionalInteger("database.pool.maxOpenPreparedStatements", classifiers));
+        poolConfiguration.setValidationQuery(configuration.getOptionalString("database.pool.validationQuery", classifiers));
+        poolConfiguration.setTestOnBorrow(configuration.getOptionalBoolean("database.pool.testOnBorrow", classifiers));
+        poolConfiguration.setTestWhileIdle(configuration.getOptionalBoolean("database.pool.testWhileIdle", classifiers));
+        poolConfiguration.setTimeBetweenEvictionRunsMillis(configuration.getOptionalLong("database.pool.timeBetweenEvictionRunsMillis", classifiers));
+        poolConfiguration.setMinEvictableIdleTimeMillis(configuration.getOptionalLong("database.pool.minEvictableIdleTimeMillis", classifiers));
+        Boolean preWarmEnabled = configuration.getOptionalBoolean("database.pool.preWarm.enabled", classifiers);
+        poolConfiguration.setPreWarmEnabled(preWarmEnabled != null && preWarmEnabled);
+        return poolConfiguration;
     }
 }
@@ -15,17 +15,36 @@
  */
 package org.unitils.database.config;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.sql.DataSource;
 
 import org.apache.commons.dbcp.BasicDataSource;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.unitils.core.UnitilsException;
 import org.unitils.core.config.Configuration;
 
 /**
  * A {@link DataSourceFactory} that loads the necessary information from a properties file.
+ * <p/>
+ * The created data source is a DBCP connection pool. The pool can be tuned per database using the database.pool.*
+ * properties, e.g. database.pool.minIdle.myDatabase=5. Settings that are not configured keep the defaults of DBCP.
+ * If pre-warming is enabled, the minimum number of idle connections (or the initial size if no minimum was configured)
+ * is opened in parallel when the data source is created, so that the first tests do not have to wait for the
+ * connections to be established. If pre-warming fails, a warning is logged and the data source is returned anyway:
+ * the connections are then opened when they are needed.
  *
  * @author Tim Ducheyne
  * @author Filip Neven
@@ -34,6 +53,9 @@ public class PropertiesDataSourceFactory implements DataSourceFactory {
 
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(PropertiesDataSourceFactory.class);
+
+    /* The maximum time to wait for the pre-warmed connections if no max wait is configured for the pool */
+    protected static final long DEFAULT_PRE_WARM_TIMEOUT_MILLIS = 60000;
     
     //Configuration
     private DatabaseConfiguration config;
@@ -73,8 +95,209 @@ public class PropertiesDataSourceFactory implements DataSourceFactory {
         dataSource.setUsername(config.getUserName());
         dataSource.setPassword(config.getPassword());
         dataSource.setUrl(config.getUrl());
+
+        DataSourcePoolConfiguration poolConfiguration = config.getPoolConfiguration();
+        if (poolConfiguration != null) {
+            configurePool(dataSource, poolConfiguration);
+            if (poolConfiguration.isPreWarmEnabled()) {
+                try {
+                    preWarm(dataSource, poolConfiguration);
+                } catch (UnitilsException e) {
+                    logger.warn("Unable to pre-warm data source for url " + config.getUrl() + ". Connections will be opened when they are needed.", e);
+                }
+            }
+        }
         return dataSource;
+    }
+
+
+    /**
+     * Applies the configured pool settings to the given data source. Settings that are not configured are left
+     * untouched.
+     *
+     * @param dataSource        The data source, not null
+     * @param poolConfiguration The pool settings, not null
+     */
+    protected void configurePool(BasicDataSource dataSource, DataSourcePoolConfiguration poolConfiguration) {
+        if (poolConfiguration.getInitialSize() != null) {
+            dataSource.setInitialSize(poolConfiguration.getInitialSize());
+        }
+        if (poolConfiguration.getMinIdle() != null) {
+            dataSource.setMinIdle(poolConfiguration.getMinIdle());
+        }
+        if (poolConfiguration.getMaxIdle() != null) {
+            dataSource.setMaxIdle(poolConfiguration.getMaxIdle());
+        }
+        if (poolConfiguration.getMaxActive() != null) {
+            dataSource.setMaxActive(poolConfiguration.getMaxActive());
+        }
+        if (poolConfiguration.getMaxWait() != null) {
+            dataSource.setMaxWait(poolConfiguration.getMaxWait());
+        }
+        if (poolConfiguration.getPoolPreparedStatements() != null) {
+            dataSource.setPoolPreparedStatements(poolConfiguration.getPoolPreparedStatements());
+        }
+        if (poolConfiguration.getMaxOpenPreparedStatements() != null) {
+            dataSource.setMaxOpenPreparedStatements(poolConfiguration.getMaxOpenPreparedStatements());
+        }
+        if (poolConfiguration.getValidationQuery() != null) {
+            dataSource.setValidationQuery(poolConfiguration.getValidationQuery());
+        }
+        if (poolConfiguration.getTestOnBorrow() != null) {
+            dataSource.setTestOnBorrow(poolConfiguration.getTestOnBorrow());
+        }
+        if (poolConfiguration.getTestWhileIdle() != null) {
+            dataSource.setTestWhileIdle(poolConfiguration.getTestWhileIdle());
+        }
+        if (poolConfiguration.getTimeBetweenEvictionRunsMillis() != null) {
+            dataSource.setTimeBetweenEvictionRunsMillis(poolConfiguration.getTimeBetweenEvictionRunsMillis());
+        }
+        if (poolConfiguration.getMinEvictableIdleTimeMillis() != null) {
+            dataSource.setMinEvictableIdleTimeMillis(poolConfiguration.getMinEvictableIdleTimeMillis());
+        }
+    }
+
+
+    /**
+     * Opens the minimum number of idle connections of the pool in parallel and returns them to the pool. The
+     * connections are only released after all of them were opened, otherwise the pool would hand out the same
+     * connection more than once. No more than the max active connections of the pool are opened, and the opening
+     * of the connections is stopped after the max wait of the pool, or {@link #DEFAULT_PRE_WARM_TIMEOUT_MILLIS} if
+     * the pool waits forever.
+     * <p/>
+     * Every connection that is opened is returned to the pool, also when pre-warming fails or is interrupted:
+     * connections that are opened after pre-warming stopped are returned by the task that opened them.
+     *
+     * @param dataSource        The data source, not null
+     * @param poolConfiguration The pool settings, not null
+     */
+    protected void preWarm(final BasicDataSource dataSource, DataSourcePoolConfiguration poolConfiguration) {
+        int nrOfConnections = getNrOfPreWarmedConnections(poolConfiguration);
+        int maxActive = dataSource.getMaxActive();
+        if (maxActive > 0 && nrOfConnections > maxActive) {
+            logger.warn("Only pre-warming " + maxActive + " instead of " + nrOfConnections + " connection(s): the max active connections of the pool is " + maxActive + ".");
+            nrOfConnections = maxActive;
+        }
+        if (nrOfConnections <= 0) {
+            return;
+        }
+        logger.info("Pre-warming data source. Opening " + nrOfConnections + " connection(s) to " + config.getUrl());
+
+        final OpenedConnections openedConnections = new OpenedConnections();
+        ExecutorService executorService = Executors.newFixedThreadPool(nrOfConnections);
+        List<Future<Connection>> futures = new ArrayList<Future<Connection>>(nrOfConnections);
+        try {
+            for (int i = 0; i < nrOfConnections; i++) {
+                futures.add(executorService.submit(new Callable<Connection>() {
+                    public Connection call() throws SQLException {
+                        return openedConnections.add(dataSource.getConnection());
+                    }
+                }));
+            }
+            long timeoutMillis = dataSource.getMaxWait() > 0 ? dataSource.getMaxWait() : DEFAULT_PRE_WARM_TIMEOUT_MILLIS;
+            waitForConnections(futures, timeoutMillis);
+        } finally {
+            executorService.shutdownNow();
+            openedConnections.closeAll();
+        }
+    }
+
+
+    /**
+     * @param poolConfiguration The pool settings, not null
+     * @return The nr of connections to open when pre-warming: the min idle, or the initial size if not configured
+     */
+    protected int getNrOfPreWarmedConnections(DataSourcePoolConfiguration poolConfiguration) {
+        Integer nrOfConnections = poolConfiguration.getMinIdle();
+        if (nrOfConnections == null) {
+            nrOfConnections = poolConfiguration.getInitialSize();
+        }
+        return nrOfConnections == null ? 0 : nrOfConnections;
+    }
+
+
+    /**
+     * Waits until all connection tasks have finished. If a connection could not be opened, the first exception is
+     * rethrown after all tasks have finished.
+     *
+     * @param futures       The futures of the connection tasks, not null
+     * @param timeoutMillis The maximum time to wait for all tasks
+     */
+    protected void waitForConnections(List<Future<Connection>> futures, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        UnitilsException exception = null;
+        for (Future<Connection> future : futures) {
+            try {
+                future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UnitilsException("Interrupted while pre-warming data source for url " + config.getUrl(), e);
+
+            } catch (TimeoutException e) {
+                throw new UnitilsException("Unable to pre-warm data source. Timed out after " + timeoutMillis + " ms while opening connections to url " + config.getUrl(), e);
+
+            } catch (ExecutionException e) {
+                if (exception == null) {
+                    exception = new UnitilsException("Unable to pre-warm data source. Could not open connection to url " + config.getUrl(), e.getCause());
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+
+    /**
+     * The connections that were opened while pre-warming. Once they are closed, connections that are still being
+     * opened are closed immediately when they are added.
+     */
+    protected static class OpenedConnections {
+
+        /* The opened connections */
+        private List<Connection> connections = new ArrayList<Connection>();
+
+        /* True if the connections were closed */
+        private boolean closed;
+
+
+        /**
+         * @param connection The opened connection, not null
+         * @return The connection, not null
+         */
+        public synchronized Connection add(Connection connection) {
+            if (closed) {
+                close(connection);
+            } else {
+                connections.add(connection);
+            }
+            return connection;
+        }
+
+
+        /**
+         * Returns all opened connections to the pool.
+         */
+        public synchronized void closeAll() {
+            closed = true;
+            for (Connection connection : connections) {
+                close(connection);
+            }
+            connections.clear();
+        }
+
 
+        /**
+         * @param connection The connection to return to the pool, not null
+         */
+        protected void close(Connection connection) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                // ignore, the connection could not be returned to the pool
+            }
+        }
     }
 
 
@@ -16,6 +16,7 @@
 
 package org.unitils.database.sqlassert;
 
+import junit.framework.AssertionFailedError;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.unitils.core.Unitils;
@@ -24,19 +25,28 @@ import org.unitils.database.DataSourceWrapper;
 import org.unitils.database.DatabaseModule;
 import org.unitils.database.SQLUnitils;
 import org.unitils.reflectionassert.ReflectionAssert;
-import org.unitils.reflectionassert.ReflectionComparatorMode;
 
 import javax.sql.DataSource;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
 
 /**
  * Assertion class to verify content in the database, by specifying your own SQL and checking the result.
+ * <p/>
+ * The queries are executed on the connection of the current transaction, if there is one, so that they see the changes
+ * made by the test.
  *
  * todo td refactor
  *
@@ -47,6 +57,20 @@ public abstract class SqlAssert {
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(SqlAssert.class);
 
+    /* The maximum nr of unexpected rows that is shown in the message of a failed assertion */
+    private static final int MAX_REPORTED_ROWS = 20;
+
+    /* Compares the values of a row, null values first */
+    private static final Comparator<String> NULL_SAFE_COMPARATOR = new Comparator<String>() {
+
+        public int compare(String value1, String value2) {
+            if (value1 == null) {
+                return value2 == null ? 0 : -1;
+            }
+            return value2 == null ? 1 : value1.compareTo(value2);
+        }
+    };
+
 
     /**
      * To be succesfull the result of the SQL should only return one row, this row should be identical to the given parameter. The sequence
@@ -144,14 +168,56 @@ public abstract class SqlAssert {
     /**
      * To be successful the result of the SQL should return as many rows as the two dimensional array has, each row should be identical to
      * the given parameter. The sequence of the values is not important nor the order of the rows.
+     * <p/>
+     * The rows of the result are matched one by one against the expected rows while they are read, so the result does
+     * not need to be kept in memory.
      *
      * @param sql
      * @param dataSource
      * @param rows
      */
     public static void assertMultipleRowSqlResult(String sql, DataSource dataSource, String[]... rows) {
-        String[][] itemAsString = getItemAsString(sql, dataSource, rows[0].length);
-        ReflectionAssert.assertReflectionEquals(rows, itemAsString, ReflectionComparatorMode.LENIENT_ORDER);
+        logger.debug(sql);
+
+        int columnCount = rows[0].length;
+        Map<List<String>, Integer> missingRows = getRowCounts(rows);
+        List<List<String>> unexpectedRows = new ArrayList<List<String>>();
+        int unexpectedRowCount = 0;
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = SQLUnitils.getConnection(dataSource);
+            preparedStatement = connection.prepareStatement(sql);
+            resultSet = preparedStatement.executeQuery();
+            while (resultSet.next()) {
+                String[] row = new String[columnCount];
+                for (int i = 1; i <= columnCount; i++) {
+                    row[i - 1] = resultSet.getString(i);
+                }
+                List<String> rowKey = getRowKey(row);
+                Integer count = missingRows.get(rowKey);
+                if (count == null) {
+                    if (unexpectedRowCount++ < MAX_REPORTED_ROWS) {
+                        unexpectedRows.add(Arrays.asList(row));
+                    }
+                } else if (count == 1) {
+                    missingRows.remove(rowKey);
+                } else {
+                    missingRows.put(rowKey, count - 1);
+                }
+            }
+        } catch (Exception e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(null, preparedStatement, resultSet);
+            SQLUnitils.releaseConnection(connection, dataSource);
+        }
+
+        if (!missingRows.isEmpty() || unexpectedRowCount > 0) {
+            throw new AssertionFailedError("Result of query does not contain the expected rows.\nQuery: " + sql + "\nMissing rows: " + getMissingRows(rows, missingRows) + "\nUnexpected rows (" + unexpectedRowCount + "): " + unexpectedRows);
+        }
     }
 
     /**
@@ -183,7 +249,7 @@ public abstract class SqlAssert {
         Statement statement = null;
         ResultSet resultSet = null;
         try {
-            connection = dataSource.getConnection();
+            connection = SQLUnitils.getConnection(dataSource);
             statement = connection.createStatement();
             resultSet = statement.executeQuery(sql);
             ArrayList<String[]> resultList = new ArrayList<String[]>();
@@ -202,8 +268,54 @@ public abstract class SqlAssert {
         } catch (Exception e) {
             throw new UnitilsException("Error while executing statement: " + sql, e);
         } finally {
-            closeQuietly(connection, statement, resultSet);
+            closeQuietly(null, statement, resultSet);
+            SQLUnitils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * @param rows The expected rows, not null
+     * @return The nr of occurrences of each expected row, with the row key (see {@link #getRowKey}) as key, not null
+     */
+    protected static Map<List<String>, Integer> getRowCounts(String[][] rows) {
+        Map<List<String>, Integer> result = new HashMap<List<String>, Integer>();
+        for (String[] row : rows) {
+            List<String> rowKey = getRowKey(row);
+            Integer count = result.get(rowKey);
+            result.put(rowKey, count == null ? 1 : count + 1);
+        }
+        return result;
+    }
+
+    /**
+     * @param rows        The expected rows, not null
+     * @param missingRows The nr of occurrences of each row that was not found, with the row key as key, not null
+     * @return The expected rows that were not found, with their values as they were given, not null
+     */
+    protected static List<List<String>> getMissingRows(String[][] rows, Map<List<String>, Integer> missingRows) {
+        Map<List<String>, Integer> remainingRows = new HashMap<List<String>, Integer>(missingRows);
+        List<List<String>> result = new ArrayList<List<String>>();
+        for (String[] row : rows) {
+            List<String> rowKey = getRowKey(row);
+            Integer count = remainingRows.get(rowKey);
+            if (count != null && count > 0) {
+                result.add(Arrays.asList(row));
+                remainingRows.put(rowKey, count - 1);
+            }
         }
+        return result;
+    }
+
+    /**
+     * The order of the values of a row is not important, so the key of a row contains its values in sorted order.
+     *
+     * @param row The values of the row, not null
+     * @return The key to compare the row with other rows, not null
+     */
+    protected static List<String> getRowKey(String[] row) {
+        List<String> result = new ArrayList<String>(Arrays.asList(row));
+        Collections.sort(result, NULL_SAFE_COMPARATOR);
+        return result;
     }
 
     /**
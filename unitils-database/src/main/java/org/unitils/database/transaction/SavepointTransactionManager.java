@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.transaction;
+
+/**
+ * Optional extension of {@link UnitilsTransactionManager} for the transaction mode
+ * {@link org.unitils.database.util.TransactionMode#SAVEPOINT}: the tests of a test class share a transaction and each
+ * test is executed in a savepoint of this transaction. If the configured transaction manager does not implement this
+ * interface, every test is executed in its own transaction instead.
+ * <p/>
+ * The shared transaction of a thread keeps its connection, and the locks of the class fixtures, until it is rolled
+ * back. It is rolled back at the latest:
+ * <ul>
+ * <li>when the thread starts a test that is not executed in a savepoint or that belongs to another test class</li>
+ * <li>when the thread has executed the test class or starts executing another test class, see
+ * {@link #rollbackClassTransaction()}</li>
+ * <li>when the module that uses the transaction manager is torn down, see {@link #rollbackOpenClassTransactions()}</li>
+ * </ul>
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public interface SavepointTransactionManager extends UnitilsTransactionManager {
+
+
+    /**
+     * Starts a transaction that is shared by all tests of the class of the given test object that are executed by the
+     * current thread. If the current thread still has a shared transaction of another test class, this transaction is
+     * rolled back first. Nothing is done if a shared transaction for the test class is already active.
+     *
+     * @param testObject The test instance, not null
+     * @return True if a new transaction was started, false if the transaction was already active
+     */
+    boolean startClassTransaction(Object testObject);
+
+
+    /**
+     * Starts a transaction for the given test that is nested in the shared transaction of its test class, i.e. a
+     * savepoint is set. A rollback of this transaction only undoes the changes made after the savepoint. The shared
+     * transaction must have been started using {@link #startClassTransaction(Object)} within the same thread.
+     *
+     * @param testObject The test instance, not null
+     */
+    void startNestedTransaction(Object testObject);
+
+
+    /**
+     * Rolls back the transaction that is shared by the tests of a test class, if the current thread has one. This is
+     * called after the thread has executed a test class and before it starts executing a new test class.
+     */
+    void rollbackClassTransaction();
+
+
+    /**
+     * Rolls back the transactions that are shared by the tests of a test class of all threads that are still open.
+     * This is called when the transaction manager is no longer used.
+     */
+    void rollbackOpenClassTransactions();
+
+
+}
@@ -24,6 +24,11 @@ import org.unitils.database.transaction.impl.UnitilsTransactionManagementConfigu
 
 /**
  * Defines the contract for implementations that enable unit tests managed by unitils to be executed in a transaction.
+ * <p/>
+ * A transaction is identified by the test object and the thread that started it: spring binds a transaction and its
+ * connection to the thread. The transaction of a test must therefore be activated, committed and rolled back by the
+ * thread that started it. Committing or rolling back from another thread results in a <code>UnitilsException</code>,
+ * as if no transaction was started.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
@@ -53,7 +58,9 @@ public interface UnitilsTransactionManager {
 
     
     /**
-     * Starts a transaction.
+     * Starts a transaction for the given test and the current thread. If the transactional resource of the test is
+     * not available yet (e.g. the data source was not created yet), the transaction is only activated by
+     * {@link #activateTransactionIfNeeded(Object)}.
      *
      * @param testObject The test instance, not null
      */
@@ -65,6 +72,7 @@ public interface UnitilsTransactionManager {
      * {@link #startTransaction(Object)} with the same testObject within the same thread.
      *
      * @param testObject The test instance, not null
+     * @throws org.unitils.core.UnitilsException If no transaction was started for the test by the current thread
      */
     void commit(Object testObject);
 
@@ -74,10 +82,18 @@ public interface UnitilsTransactionManager {
      * {@link #startTransaction(Object)} with the same testObject within the same thread.
      *
      * @param testObject The test instance, not null
+     * @throws org.unitils.core.UnitilsException If no transaction was started for the test by the current thread
      */
     void rollback(Object testObject);
 
 
+    /**
+     * Activates the transaction that was started for the given test by the current thread, if it is not active yet
+     * because the transactional resource was not available when it was started. Nothing is done if the transaction
+     * is already active or if no transaction was started. Should be called whenever the transactional resource is used.
+     *
+     * @param testObject The test instance, null if no test is running
+     */
     void activateTransactionIfNeeded(Object testObject);
 
 
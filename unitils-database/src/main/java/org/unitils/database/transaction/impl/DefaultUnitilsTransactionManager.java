@@ -17,16 +17,22 @@ package org.unitils.database.transaction.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.jdbc.datasource.ConnectionHolder;
 import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.ResourceTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.unitils.core.UnitilsException;
-import org.unitils.database.transaction.UnitilsTransactionManager;
+import org.unitils.database.transaction.SavepointTransactionManager;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implements transactions for unit tests, by delegating to a spring
@@ -40,37 +46,52 @@ import java.util.*;
  * can offer transactional behavior for such a persistence unit is used. If no
  * such configuration is found, a <code>DataSourceTransactionManager</code> is
  * used.
+ * <p/>
+ * Tests can be executed in parallel. Spring binds a transaction and its connection to the thread that started it,
+ * so the state of a transaction is kept per test object and per thread: a transaction must be started, committed
+ * and rolled back by the thread that executes the test. Tests running in parallel against the same data source
+ * each get their own connection from the pool, so the pool should be able to hand out at least as many connections
+ * as there are tests running at the same time. Tests in different transactions do not see each others uncommitted
+ * changes, but they can still conflict on the same records (locks, unique constraints), so parallel tests should
+ * only be used with test data that does not overlap.
+ * <p/>
+ * Tests can also share a transaction with the other tests of their test class, see {@link #startClassTransaction}.
+ * Each test then runs in a nested transaction, i.e. a savepoint, that is rolled back at the end of the test. The
+ * shared transaction is rolled back when the thread has executed the test class or starts another test class. The
+ * shared transactions of other threads that are still open when the transaction manager is no longer used are rolled
+ * back directly on their JDBC connection, since spring can only roll back a transaction in the thread that started it.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
  */
-public class DefaultUnitilsTransactionManager implements UnitilsTransactionManager {
+public class DefaultUnitilsTransactionManager implements SavepointTransactionManager {
 
     /**
      * The logger instance for this class
      */
     private static Log logger = LogFactory.getLog(DefaultUnitilsTransactionManager.class);
 
-    protected Map<Object, Boolean> testObjectTransactionActiveMap = new HashMap<Object, Boolean>();
+    /**
+     * The transactions that were started, per test object and thread
+     */
+    protected ConcurrentMap<TransactionKey, TransactionContext> transactionContexts = new ConcurrentHashMap<TransactionKey, TransactionContext>();
 
     /**
-     * ThreadLocal for holding the TransactionStatus that keeps track of the
-     * current test's transaction status
+     * The transaction that is shared by the tests of a test class that run in a savepoint, per thread
      */
-    protected Map<Object, TransactionStatus> testObjectTransactionStatusMap = new HashMap<Object, TransactionStatus>();
+    protected ThreadLocal<ClassTransactionContext> classTransactionContexts = new ThreadLocal<ClassTransactionContext>();
 
     /**
-     * ThreadLocal for holding the PlatformTransactionManager that is used by
-     * the current test
+     * The transactions shared by the tests of a test class that are not yet rolled back, of all threads
      */
-    protected Map<Object, PlatformTransactionManager> testObjectPlatformTransactionManagerMap = new HashMap<Object, PlatformTransactionManager>();
+    protected Set<ClassTransactionContext> openClassTransactionContexts = Collections.newSetFromMap(new ConcurrentHashMap<ClassTransactionContext, Boolean>());
 
 
     /**
      * Set of possible providers of a spring
      * <code>PlatformTransactionManager</code>, not null
      */
-    protected List<UnitilsTransactionManagementConfiguration> transactionManagementConfigurations;
+    protected volatile List<UnitilsTransactionManagementConfiguration> transactionManagementConfigurations;
 
     public void init(Set<UnitilsTransactionManagementConfiguration> transactionManagementConfigurations) {
         setTransactionManagementConfigurations(transactionManagementConfigurations);
@@ -94,30 +115,119 @@ public class DefaultUnitilsTransactionManager implements UnitilsTransactionManag
      */
     public void startTransaction(Object testObject) {
         UnitilsTransactionManagementConfiguration transactionManagementConfiguration = getTransactionManagementConfiguration(testObject);
+        TransactionContext transactionContext = new TransactionContext();
+        transactionContexts.put(new TransactionKey(testObject), transactionContext);
         if (transactionManagementConfiguration.isTransactionalResourceAvailable(testObject)) {
-            testObjectTransactionActiveMap.put(testObject, Boolean.TRUE);
-            doStartTransaction(testObject, transactionManagementConfiguration);
-        } else {
-            testObjectTransactionActiveMap.put(testObject, Boolean.FALSE);
+            doStartTransaction(testObject, transactionManagementConfiguration, transactionContext);
         }
     }
 
 
     public void activateTransactionIfNeeded(Object testObject) {
-        if (testObjectTransactionActiveMap.containsKey(testObject) && !testObjectTransactionActiveMap.get(testObject)) {
-            testObjectTransactionActiveMap.put(testObject, Boolean.TRUE);
+        TransactionContext transactionContext = transactionContexts.get(new TransactionKey(testObject));
+        if (transactionContext != null && !transactionContext.isActive()) {
             UnitilsTransactionManagementConfiguration transactionManagementConfiguration = getTransactionManagementConfiguration(testObject);
-            doStartTransaction(testObject, transactionManagementConfiguration);
+            doStartTransaction(testObject, transactionManagementConfiguration, transactionContext);
         }
     }
 
 
-    protected void doStartTransaction(Object testObject, UnitilsTransactionManagementConfiguration transactionManagementConfiguration) {
+    protected void doStartTransaction(Object testObject, UnitilsTransactionManagementConfiguration transactionManagementConfiguration, TransactionContext transactionContext) {
         logger.debug("Starting transaction");
         PlatformTransactionManager platformTransactionManager = transactionManagementConfiguration.getSpringPlatformTransactionManager(testObject);
-        testObjectPlatformTransactionManagerMap.put(testObject, platformTransactionManager);
         TransactionStatus transactionStatus = platformTransactionManager.getTransaction(createTransactionDefinition(testObject));
-        testObjectTransactionStatusMap.put(testObject, transactionStatus);
+        transactionContext.activate(platformTransactionManager, transactionStatus);
+    }
+
+
+    public boolean startClassTransaction(Object testObject) {
+        ClassTransactionContext classTransactionContext = classTransactionContexts.get();
+        if (classTransactionContext != null) {
+            if (classTransactionContext.getTestClass() == testObject.getClass()) {
+                return false;
+            }
+            rollbackClassTransaction();
+        }
+        logger.debug("Starting transaction for test class " + testObject.getClass().getName());
+        UnitilsTransactionManagementConfiguration transactionManagementConfiguration = getTransactionManagementConfiguration(testObject);
+        PlatformTransactionManager platformTransactionManager = transactionManagementConfiguration.getSpringPlatformTransactionManager(testObject);
+        TransactionStatus transactionStatus = platformTransactionManager.getTransaction(createTransactionDefinition(testObject));
+
+        classTransactionContext = new ClassTransactionContext(testObject.getClass(), getTransactionalConnection(platformTransactionManager));
+        classTransactionContext.activate(platformTransactionManager, transactionStatus);
+        classTransactionContexts.set(classTransactionContext);
+        openClassTransactionContexts.add(classTransactionContext);
+        return true;
+    }
+
+
+    public void startNestedTransaction(Object testObject) {
+        ClassTransactionContext classTransactionContext = classTransactionContexts.get();
+        if (classTransactionContext == null || classTransactionContext.getTestClass() != testObject.getClass()) {
+            throw new UnitilsException("Trying to start a nested transaction, while no transaction is currently active for test class " + testObject.getClass().getName());
+        }
+        logger.debug("Starting nested transaction");
+        PlatformTransactionManager platformTransactionManager = classTransactionContext.getPlatformTransactionManager();
+        TransactionStatus transactionStatus = platformTransactionManager.getTransaction(new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NESTED));
+
+        TransactionContext transactionContext = new TransactionContext();
+        transactionContext.activate(platformTransactionManager, transactionStatus);
+        transactionContexts.put(new TransactionKey(testObject), transactionContext);
+    }
+
+
+    public void rollbackClassTransaction() {
+        ClassTransactionContext classTransactionContext = classTransactionContexts.get();
+        if (classTransactionContext == null) {
+            return;
+        }
+        classTransactionContexts.remove();
+        openClassTransactionContexts.remove(classTransactionContext);
+        logger.debug("Rolling back transaction for test class " + classTransactionContext.getTestClass().getName());
+        classTransactionContext.getPlatformTransactionManager().rollback(classTransactionContext.getTransactionStatus());
+    }
+
+
+    /**
+     * Rolls back the class transactions of all threads that are still open. The transaction of the current thread is
+     * rolled back through spring. The transactions of the other threads can not be rolled back through spring, so the
+     * rollback is done directly on the JDBC connection of the transaction, which is then closed. Class transactions of
+     * which the connection is not known are left to the database.
+     */
+    public void rollbackOpenClassTransactions() {
+        rollbackClassTransaction();
+        for (ClassTransactionContext classTransactionContext : openClassTransactionContexts) {
+            openClassTransactionContexts.remove(classTransactionContext);
+            Connection connection = classTransactionContext.getConnection();
+            if (connection == null) {
+                continue;
+            }
+            try {
+                connection.rollback();
+                connection.close();
+            } catch (Throwable t) {
+                logger.warn("Unable to roll back transaction for test class " + classTransactionContext.getTestClass().getName(), t);
+            }
+        }
+    }
+
+
+    /**
+     * Gets the JDBC connection of the transaction that the given transaction manager just started in the current
+     * thread, if it is bound as a spring {@link ConnectionHolder}.
+     *
+     * @param platformTransactionManager The transaction manager, not null
+     * @return The connection, null if not known
+     */
+    protected Connection getTransactionalConnection(PlatformTransactionManager platformTransactionManager) {
+        if (!(platformTransactionManager instanceof ResourceTransactionManager)) {
+            return null;
+        }
+        Object resource = TransactionSynchronizationManager.getResource(((ResourceTransactionManager) platformTransactionManager).getResourceFactory());
+        if (resource instanceof ConnectionHolder) {
+            return ((ConnectionHolder) resource).getConnection();
+        }
+        return null;
     }
 
 
@@ -128,17 +238,14 @@ public class DefaultUnitilsTransactionManager implements UnitilsTransactionManag
      * @param testObject The test object, not null
      */
     public void commit(Object testObject) {
-        if (!testObjectTransactionActiveMap.containsKey(testObject)) {
-            throw new UnitilsException("Trying to commit, while no transaction is currently active");
+        TransactionContext transactionContext = transactionContexts.remove(new TransactionKey(testObject));
+        if (transactionContext == null) {
+            throw new UnitilsException("Trying to commit, while no transaction is currently active. A transaction must be committed by the thread that started it.");
         }
-        TransactionStatus transactionStatus = testObjectTransactionStatusMap.get(testObject);
-        if (testObjectTransactionActiveMap.get(testObject)) {
+        if (transactionContext.isActive()) {
             logger.debug("Committing transaction");
-            testObjectPlatformTransactionManagerMap.get(testObject).commit(transactionStatus);
+            transactionContext.getPlatformTransactionManager().commit(transactionContext.getTransactionStatus());
         }
-        testObjectTransactionActiveMap.remove(testObject);
-        testObjectTransactionStatusMap.remove(testObject);
-        testObjectPlatformTransactionManagerMap.remove(testObject);
     }
 
     /**
@@ -148,17 +255,14 @@ public class DefaultUnitilsTransactionManager implements UnitilsTransactionManag
      * @param testObject The test object, not null
      */
     public void rollback(Object testObject) {
-        if (!testObjectTransactionActiveMap.containsKey(testObject)) {
-            throw new UnitilsException("Trying to rollback, while no transaction is currently active");
+        TransactionContext transactionContext = transactionContexts.remove(new TransactionKey(testObject));
+        if (transactionContext == null) {
+            throw new UnitilsException("Trying to rollback, while no transaction is currently active. A transaction must be rolled back by the thread that started it.");
         }
-        TransactionStatus transactionStatus = testObjectTransactionStatusMap.get(testObject);
-        if (testObjectTransactionActiveMap.get(testObject)) {
+        if (transactionContext.isActive()) {
             logger.debug("Rolling back transaction");
-            testObjectPlatformTransactionManagerMap.get(testObject).rollback(transactionStatus);
+            transactionContext.getPlatformTransactionManager().rollback(transactionContext.getTransactionStatus());
         }
-        testObjectTransactionActiveMap.remove(testObject);
-        testObjectTransactionStatusMap.remove(testObject);
-        testObjectPlatformTransactionManagerMap.remove(testObject);
     }
 
     /**
@@ -199,4 +303,87 @@ public class DefaultUnitilsTransactionManager implements UnitilsTransactionManag
     }
 
 
+    /**
+     * Identifies a transaction: the test object together with the thread that executes the test. The test object is
+     * compared by identity, a test class could have its own equals implementation.
+     */
+    protected static class TransactionKey {
+
+        private Object testObject;
+
+        private Thread thread;
+
+        public TransactionKey(Object testObject) {
+            this.testObject = testObject;
+            this.thread = Thread.currentThread();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof TransactionKey)) {
+                return false;
+            }
+            TransactionKey other = (TransactionKey) object;
+            return testObject == other.testObject && thread == other.thread;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(testObject) + System.identityHashCode(thread);
+        }
+    }
+
+
+    /**
+     * The state of the transaction of a test. The transaction is only active when the transactional resource of the
+     * test was available, otherwise it is activated later by {@link #activateTransactionIfNeeded}.
+     */
+    protected static class TransactionContext {
+
+        private PlatformTransactionManager platformTransactionManager;
+
+        private TransactionStatus transactionStatus;
+
+        public boolean isActive() {
+            return transactionStatus != null;
+        }
+
+        public void activate(PlatformTransactionManager platformTransactionManager, TransactionStatus transactionStatus) {
+            this.platformTransactionManager = platformTransactionManager;
+            this.transactionStatus = transactionStatus;
+        }
+
+        public PlatformTransactionManager getPlatformTransactionManager() {
+            return platformTransactionManager;
+        }
+
+        public TransactionStatus getTransactionStatus() {
+            return transactionStatus;
+        }
+    }
+
+
+    /**
+     * The state of the transaction that is shared by the tests of a test class.
+     */
+    protected static class ClassTransactionContext extends TransactionContext {
+
+        private Class<?> testClass;
+
+        private Connection connection;
+
+        public ClassTransactionContext(Class<?> testClass, Connection connection) {
+            this.testClass = testClass;
+            this.connection = connection;
+        }
+
+        public Class<?> getTestClass() {
+            return testClass;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+    }
+
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Marks a module as loading test data that is shared by all tests of a test class. If tests are executed with
+ * transaction mode {@link TransactionMode#SAVEPOINT}, {@link #loadClassFixture(Object, Method)} will be called on the
+ * module when the DatabaseModule starts the transaction that is shared by the tests of the class, before the savepoint
+ * of the first test is set. The loaded data is visible to all tests of the class and is rollbacked together with the
+ * shared transaction.
+ * <p/>
+ * An example of such a module is the DbUnitModule, which loads the data sets that are defined at class level.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public interface ClassFixtureLoader {
+
+    /**
+     * Loads the class level test data of the given test.
+     *
+     * @param testObject The test instance, not null
+     * @param testMethod The first test method of the class that is executed, not null
+     */
+    void loadClassFixture(Object testObject, Method testMethod);
+}
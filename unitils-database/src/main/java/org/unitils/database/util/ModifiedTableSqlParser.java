@@ -0,0 +1,261 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Determines into which table a sql statement can write new records. Only statements that can add records to a table
+ * are of interest: an update or delete can never make an empty table non-empty.
+ * <p/>
+ * Following statements are recognized:
+ * <ul>
+ * <li>insert, replace, merge and upsert statements: the name of the target table is returned</li>
+ * <li>select (without into), with (without insert or merge), update, delete, truncate and transaction control
+ * statements: no table name is returned</li>
+ * </ul>
+ * For all other statements (e.g. DDL, stored procedure calls or statements that could not be parsed), null is
+ * returned, meaning that it is not known which tables are modified.
+ * <p/>
+ * The parser can also determine whether a statement only reads data, see {@link #isReadOnly}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ModifiedTableSqlParser {
+
+    /* Statements that never add records to a table */
+    private static final Set<String> READ_OR_REMOVE_STATEMENTS = new HashSet<String>(Arrays.asList(
+            "values", "show", "explain", "describe", "desc", "set", "commit", "rollback", "savepoint", "release", "lock",
+            "update", "delete", "truncate"));
+
+    /* Statements that never modify the content of the database */
+    private static final Set<String> READ_ONLY_STATEMENTS = new HashSet<String>(Arrays.asList(
+            "values", "show", "explain", "describe", "desc", "set", "commit", "rollback", "savepoint", "release", "lock"));
+
+    /* Keywords that can occur between the insert or replace keyword and the table name */
+    private static final Set<String> INSERT_MODIFIERS = new HashSet<String>(Arrays.asList(
+            "into", "ignore", "low_priority", "high_priority", "delayed"));
+
+    /* Keywords that indicate that an insert statement can write into more than one table */
+    private static final Set<String> MULTI_TABLE_INSERT_KEYWORDS = new HashSet<String>(Arrays.asList("all", "first", "overwrite"));
+
+
+    /**
+     * Gets the names of the tables to which the given statement can add records. The names are returned as they are
+     * used in the statement: they can be qualified with a schema name and can be quoted. Square brackets are
+     * replaced by double quotes.
+     *
+     * @param sql The sql statement, not null
+     * @return The table names, empty if no records are added, null if it is not known which tables are modified
+     */
+    public Set<String> getModifiedTableNames(String sql) {
+        List<String> tokens = tokenize(sql);
+        if (tokens.isEmpty()) {
+            return new HashSet<String>();
+        }
+        String statementType = tokens.get(0).toLowerCase();
+        if (READ_OR_REMOVE_STATEMENTS.contains(statementType)) {
+            return new HashSet<String>();
+        }
+        if ("select".equals(statementType)) {
+            // select into creates a new table
+            return containsKeyword(tokens, "into") ? null : new HashSet<String>();
+        }
+        if ("with".equals(statementType)) {
+            return containsKeyword(tokens, "insert") || containsKeyword(tokens, "merge") ? null : new HashSet<String>();
+        }
+        if ("insert".equals(statementType) || "replace".equals(statementType) || "merge".equals(statementType) || "upsert".equals(statementType)) {
+            return getTargetTableName(tokens, INSERT_MODIFIERS);
+        }
+        return null;
+    }
+
+
+    /**
+     * Determines whether the given statement only reads data. Contrary to {@link #getModifiedTableNames}, updates and
+     * deletes are also considered to be modifications. Statements that could not be parsed are considered to modify
+     * the database.
+     *
+     * @param sql The sql statement, not null
+     * @return True if the statement does not modify the content of the database
+     */
+    public boolean isReadOnly(String sql) {
+        List<String> tokens = tokenize(sql);
+        if (tokens.isEmpty()) {
+            return true;
+        }
+        String statementType = tokens.get(0).toLowerCase();
+        if (READ_ONLY_STATEMENTS.contains(statementType)) {
+            return true;
+        }
+        if ("select".equals(statementType)) {
+            return !containsKeyword(tokens, "into");
+        }
+        if ("with".equals(statementType)) {
+            return !containsKeyword(tokens, "insert") && !containsKeyword(tokens, "merge") && !containsKeyword(tokens, "update") && !containsKeyword(tokens, "delete");
+        }
+        return false;
+    }
+
+
+    /**
+     * Gets the name of the table that follows the first token and the given optional modifiers.
+     *
+     * @param tokens    The tokens of the statement, not null
+     * @param modifiers The keywords that can precede the table name, not null
+     * @return The table name, null if it could not be determined
+     */
+    protected Set<String> getTargetTableName(List<String> tokens, Set<String> modifiers) {
+        int index = 1;
+        while (index < tokens.size() && modifiers.contains(tokens.get(index).toLowerCase())) {
+            index++;
+        }
+        List<String> nameParts = new ArrayList<String>();
+        while (index < tokens.size() && isIdentifier(tokens.get(index))) {
+            nameParts.add(tokens.get(index++));
+            if (index >= tokens.size() || !".".equals(tokens.get(index))) {
+                break;
+            }
+            index++;
+        }
+        // multi-table inserts (e.g. Oracle insert all) are not supported
+        if (nameParts.isEmpty() || (nameParts.size() == 1 && MULTI_TABLE_INSERT_KEYWORDS.contains(nameParts.get(0).toLowerCase()))) {
+            return null;
+        }
+        // only keep schema and table name, in case the name is also qualified with a catalog name
+        String tableName = nameParts.get(nameParts.size() - 1);
+        if (nameParts.size() > 1) {
+            tableName = nameParts.get(nameParts.size() - 2) + "." + tableName;
+        }
+        Set<String> result = new HashSet<String>();
+        result.add(tableName);
+        return result;
+    }
+
+
+    /**
+     * Checks whether the given tokens contain the given keyword, ignoring case.
+     *
+     * @param tokens  The tokens, not null
+     * @param keyword The keyword in lower case, not null
+     * @return True if the keyword is found
+     */
+    protected boolean containsKeyword(List<String> tokens, String keyword) {
+        for (String token : tokens) {
+            if (keyword.equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * @param token The token, not null
+     * @return True if the token is a quoted identifier or a word that can be used as identifier
+     */
+    protected boolean isIdentifier(String token) {
+        char firstChar = token.charAt(0);
+        return firstChar == '"' || firstChar == '`' || Character.isLetter(firstChar) || firstChar == '_';
+    }
+
+
+    /**
+     * Splits the given statement in words, quoted identifiers and other characters. Whitespace and comments are
+     * skipped. String literals are returned as a single ' token.
+     *
+     * @param sql The statement, not null
+     * @return The tokens, not null
+     */
+    protected List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<String>();
+        int length = sql.length();
+        int index = 0;
+        while (index < length) {
+            char c = sql.charAt(index);
+            if (Character.isWhitespace(c)) {
+                index++;
+
+            } else if (c == '-' && sql.startsWith("--", index)) {
+                int end = sql.indexOf('\n', index);
+                index = end == -1 ? length : end + 1;
+
+            } else if (c == '/' && sql.startsWith("/*", index)) {
+                int end = sql.indexOf("*/", index + 2);
+                index = end == -1 ? length : end + 2;
+
+            } else if (c == '\'') {
+                index = skipQuoted(sql, index, '\'');
+                tokens.add("'");
+
+            } else if (c == '"' || c == '`') {
+                int end = skipQuoted(sql, index, c);
+                tokens.add(sql.substring(index, end));
+                index = end;
+
+            } else if (c == '[') {
+                int end = sql.indexOf(']', index);
+                end = end == -1 ? length : end;
+                tokens.add('"' + sql.substring(index + 1, end) + '"');
+                index = end + 1;
+
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '@') {
+                int end = index + 1;
+                while (end < length && (Character.isLetterOrDigit(sql.charAt(end)) || "_$#@".indexOf(sql.charAt(end)) != -1)) {
+                    end++;
+                }
+                tokens.add(sql.substring(index, end));
+                index = end;
+
+            } else {
+                tokens.add(String.valueOf(c));
+                index++;
+            }
+        }
+        return tokens;
+    }
+
+
+    /**
+     * Gets the index after the closing quote of the quoted text that starts at the given index. Doubled quotes
+     * are treated as escaped quotes.
+     *
+     * @param sql   The statement, not null
+     * @param index The index of the opening quote
+     * @param quote The quote character
+     * @return The index after the closing quote, the length of the statement if there is no closing quote
+     */
+    protected int skipQuoted(String sql, int index, char quote) {
+        int length = sql.length();
+        index++;
+        while (index < length) {
+            if (sql.charAt(index) == quote) {
+                if (index + 1 < length && sql.charAt(index + 1) == quote) {
+                    index += 2;
+                    continue;
+                }
+                return index + 1;
+            }
+            index++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.dbmaintainer.clean.ModifiedTableTracker;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Data source that keeps track of the tables into which records are written. The connections of the target data
+ * source are wrapped in a proxy that inspects all sql statements that are prepared or executed. This way, the
+ * {@link org.unitils.dbmaintainer.clean.DBCleaner} only needs to clean the tables that were actually used by a test.
+ * <p/>
+ * When a statement is executed of which the effect is not known, e.g. a DDL statement or a stored procedure call, all
+ * tables are considered to be modified. Records that are written by triggers, stored procedures or through
+ * connections that are not retrieved from this data source are not tracked. Tracking should therefore only be
+ * enabled if all test data is written through this data source using plain sql statements.
+ * <p/>
+ * Until the first clean, all tables are considered to be modified.
+ * <p/>
+ * The data source also counts the executed statements that modify the database, updates and deletes included. The
+ * {@link #getVersionStamp() version stamp} that is derived from this count only changes when the content of the
+ * database was modified through this data source. Statements of unitils' own bookkeeping can be executed with tracking
+ * suspended, so that they do not change the version stamp.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ModifiedTableTrackingDataSource extends StatementInterceptingDataSource implements ModifiedTableTracker {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(ModifiedTableTrackingDataSource.class);
+
+    /* Determines the tables that are modified by a statement */
+    private ModifiedTableSqlParser modifiedTableSqlParser = new ModifiedTableSqlParser();
+
+    /* The names of the tables into which records were written */
+    private Set<String> modifiedTableNames = new HashSet<String>();
+
+    /* True if it is not known which tables were modified */
+    private boolean allTablesModified = true;
+
+    /* Identifies this data source in the version stamps, the count is restarted for every data source */
+    private String dataSourceId = UUID.randomUUID().toString();
+
+    /* The nr of executed statements that modified the database */
+    private long changeCount;
+
+    /* True if the statements of the current thread should not be tracked */
+    private ThreadLocal<Boolean> trackingSuspended = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+    };
+
+
+    /**
+     * Creates a data source that tracks the modified tables of the given data source.
+     *
+     * @param targetDataSource The data source to wrap, not null
+     */
+    public ModifiedTableTrackingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+
+    public synchronized Set<String> getAndResetModifiedTableNames() {
+        Set<String> result = allTablesModified ? null : modifiedTableNames;
+        modifiedTableNames = new HashSet<String>();
+        allTablesModified = false;
+        return result;
+    }
+
+
+    public synchronized void setAllTablesModified() {
+        allTablesModified = true;
+    }
+
+
+    /**
+     * Gets a stamp that identifies the current version of the content of the database, as far as it was modified
+     * through this data source. The stamp changes every time a statement that modifies the database is executed.
+     *
+     * @return The version stamp, not null
+     */
+    public synchronized String getVersionStamp() {
+        return dataSourceId + ":" + changeCount;
+    }
+
+
+    /**
+     * Suspends the tracking of the statements that are executed by the current thread, until {@link #resumeTracking}
+     * is called.
+     */
+    public void suspendTracking() {
+        trackingSuspended.set(true);
+    }
+
+
+    /**
+     * Resumes the tracking of the statements that are executed by the current thread.
+     */
+    public void resumeTracking() {
+        trackingSuspended.remove();
+    }
+
+
+    /**
+     * Registers the tables into which the given statement can write records.
+     *
+     * @param sql The statement, not null
+     */
+    protected void registerStatement(String sql) {
+        if (trackingSuspended.get()) {
+            return;
+        }
+        Set<String> tableNames = modifiedTableSqlParser.getModifiedTableNames(sql);
+        synchronized (this) {
+            if (tableNames == null) {
+                logger.debug("Unable to determine the modified tables of statement, all tables are considered to be modified: " + sql);
+                allTablesModified = true;
+            } else {
+                modifiedTableNames.addAll(tableNames);
+            }
+        }
+    }
+
+
+    /**
+     * Registers the execution of the given statement, increasing the change count if the statement modifies the
+     * database.
+     *
+     * @param sql The statement, null if not known
+     */
+    protected void registerExecution(String sql) {
+        if (trackingSuspended.get()) {
+            return;
+        }
+        if (sql == null || !modifiedTableSqlParser.isReadOnly(sql)) {
+            synchronized (this) {
+                changeCount++;
+            }
+        }
+    }
+
+
+    /**
+     * Prepared statements are registered when they are prepared.
+     */
+    @Override
+    protected void statementPrepared(String sql) {
+        registerStatement(sql);
+    }
+
+
+    /**
+     * All statements that are executed or added to a batch are registered. The executions of a prepared statement are
+     * registered using the sql with which it was prepared.
+     */
+    @Override
+    protected Object invokeStatementMethod(Statement statement, String preparedSql, Method method, Object[] args) throws Throwable {
+        String methodName = method.getName();
+        if ((methodName.startsWith("execute") || "addBatch".equals(methodName)) && args != null && args.length > 0 && args[0] instanceof String) {
+            registerStatement((String) args[0]);
+            registerExecution((String) args[0]);
+        } else if (methodName.startsWith("execute") && preparedSql != null) {
+            registerExecution(preparedSql);
+        }
+        return invokeMethod(statement, method, args);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The sql statements that were executed during one phase of a test, e.g. the loading of the test data or the test
+ * itself. Every execution of a statement or batch is a round-trip to the database. The rows are the update counts of
+ * the statements together with the rows that were read from the result sets.
+ * <p/>
+ * While the phase is running, the nr of executions is also counted per sql statement. These counts are only needed
+ * until the test is checked, and are then dropped using {@link #dropExecutionCounts()}: only the most executed
+ * statement and its count are kept.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class SqlMetrics {
+
+    private long statementCount;
+
+    private long batchCount;
+
+    private long rowCount;
+
+    private long elapsedNanos;
+
+    /* The nr of executions per sql statement, for statements of which the sql is known, null once dropped */
+    private Map<String, Integer> executionCounts = new HashMap<String, Integer>();
+
+    /* The sql statement that was executed the most, null if none */
+    private String mostExecutedSql;
+
+    /* The nr of executions of the most executed sql statement */
+    private int maxExecutionCount;
+
+
+    /**
+     * Registers the execution of a statement.
+     *
+     * @param sql          The sql of the statement, null if not known
+     * @param rowCount     The nr of updated rows
+     * @param elapsedNanos The duration of the execution
+     */
+    public synchronized void addStatement(String sql, long rowCount, long elapsedNanos) {
+        this.statementCount++;
+        this.rowCount += rowCount;
+        this.elapsedNanos += elapsedNanos;
+        if (sql != null && executionCounts != null) {
+            Integer executionCount = executionCounts.get(sql);
+            executionCount = executionCount == null ? 1 : executionCount + 1;
+            executionCounts.put(sql, executionCount);
+            if (executionCount > maxExecutionCount) {
+                mostExecutedSql = sql;
+                maxExecutionCount = executionCount;
+            }
+        }
+    }
+
+
+    /**
+     * Drops the nr of executions per sql statement. The most executed statement and its count are kept, statements
+     * that are executed afterwards are no longer counted per sql.
+     */
+    public synchronized void dropExecutionCounts() {
+        executionCounts = null;
+    }
+
+
+    /**
+     * Registers the execution of a batch.
+     *
+     * @param statementCount The nr of statements in the batch
+     * @param rowCount       The nr of updated rows
+     * @param elapsedNanos   The duration of the execution
+     */
+    public synchronized void addBatch(int statementCount, long rowCount, long elapsedNanos) {
+        this.batchCount++;
+        this.statementCount += statementCount;
+        this.rowCount += rowCount;
+        this.elapsedNanos += elapsedNanos;
+    }
+
+
+    /**
+     * Registers a row that was read from a result set.
+     */
+    public synchronized void addRow() {
+        rowCount++;
+    }
+
+
+    public synchronized long getStatementCount() {
+        return statementCount;
+    }
+
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    public synchronized long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The sql statement that was executed the most, null if no statement was executed
+     */
+    public synchronized String getMostExecutedSql() {
+        return mostExecutedSql;
+    }
+
+    /**
+     * @return The nr of times the most executed sql statement was executed
+     */
+    public synchronized int getMaxExecutionCount() {
+        return maxExecutionCount;
+    }
+
+    /**
+     * @param sql The sql statement, not null
+     * @return The nr of times the statement was executed, 0 if the counts were dropped and it is not the most executed
+     */
+    public synchronized int getExecutionCount(String sql) {
+        if (sql.equals(mostExecutedSql)) {
+            return maxExecutionCount;
+        }
+        Integer executionCount = executionCounts == null ? null : executionCounts.get(sql);
+        return executionCount == null ? 0 : executionCount;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.core.UnitilsException;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the {@link SqlMetrics} of the statements that are executed through a {@link SqlMetricsDataSource}, per
+ * test and per phase of the test. The test and phase are kept per thread: the DatabaseModule starts and ends the
+ * tests, the unitils tasks (e.g. the DBMaintainer or the loading of DbUnit data sets) start and end their phase.
+ * Statements that are executed outside of a test are registered with an empty test name.
+ * <p/>
+ * At the end of a test, the statements of the {@link #PHASE_TEST} phase are checked against the configured maximums.
+ * A test that executes the same statement a lot of times typically suffers from an N+1 select problem. Depending on
+ * the configuration, exceeding a maximum is logged or fails the test.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class SqlMetricsCollector {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(SqlMetricsCollector.class);
+
+    /* The phases of a test */
+    public static final String PHASE_TEST = "test";
+    public static final String PHASE_DB_MAINTAINER = "dbMaintainer";
+    public static final String PHASE_DB_CLEANER = "dbCleaner";
+    public static final String PHASE_DB_CLEARER = "dbClearer";
+    public static final String PHASE_DBUNIT_LOAD = "dbUnitLoad";
+    public static final String PHASE_DBUNIT_ASSERT = "dbUnitAssert";
+
+    /* The maximum nr of statements of a test, -1 for no maximum */
+    private int maxStatementsPerTest;
+
+    /* The maximum nr of executions of the same statement by a test, -1 for no maximum */
+    private int maxExecutionsPerStatement;
+
+    /* True if a test should fail when a maximum is exceeded, false to log a warning */
+    private boolean failOnThresholdExceeded;
+
+    /* The metrics per test name and phase */
+    private Map<String, Map<String, SqlMetrics>> metrics = new LinkedHashMap<String, Map<String, SqlMetrics>>();
+
+    /* The name of the test that is executed by the current thread */
+    private ThreadLocal<String> currentTestName = new ThreadLocal<String>() {
+        @Override
+        protected String initialValue() {
+            return "";
+        }
+    };
+
+    /* The phase of the test that is executed by the current thread */
+    private ThreadLocal<String> currentPhase = new ThreadLocal<String>() {
+        @Override
+        protected String initialValue() {
+            return PHASE_TEST;
+        }
+    };
+
+
+    /**
+     * Creates a collector.
+     *
+     * @param maxStatementsPerTest      The maximum nr of statements of a test, -1 for no maximum
+     * @param maxExecutionsPerStatement The maximum nr of executions of the same statement by a test, -1 for no maximum
+     * @param failOnThresholdExceeded   True if a test should fail when a maximum is exceeded, false to log a warning
+     */
+    public SqlMetricsCollector(int maxStatementsPerTest, int maxExecutionsPerStatement, boolean failOnThresholdExceeded) {
+        this.maxStatementsPerTest = maxStatementsPerTest;
+        this.maxExecutionsPerStatement = maxExecutionsPerStatement;
+        this.failOnThresholdExceeded = failOnThresholdExceeded;
+    }
+
+
+    /**
+     * Starts the collecting of the metrics of a test by the current thread.
+     *
+     * @param testName The name of the test, not null
+     */
+    public void startTest(String testName) {
+        currentTestName.set(testName);
+        currentPhase.set(PHASE_TEST);
+    }
+
+
+    /**
+     * Ends the test of the current thread and checks the metrics of the test against the configured maximums. Only
+     * the totals of the phases of the test are kept afterwards, the nr of executions per sql statement is dropped.
+     *
+     * @throws UnitilsException If a maximum was exceeded and exceeding a maximum should fail the test
+     */
+    public void endTest() {
+        String testName = currentTestName.get();
+        currentTestName.remove();
+        currentPhase.remove();
+        try {
+            checkThresholds(testName, getMetrics(testName, PHASE_TEST));
+        } finally {
+            dropExecutionCounts(testName);
+        }
+    }
+
+
+    /**
+     * @param testName The name of the test, not null
+     */
+    protected synchronized void dropExecutionCounts(String testName) {
+        Map<String, SqlMetrics> testMetrics = metrics.get(testName);
+        if (testMetrics == null) {
+            return;
+        }
+        for (SqlMetrics sqlMetrics : testMetrics.values()) {
+            sqlMetrics.dropExecutionCounts();
+        }
+    }
+
+
+    /**
+     * Starts a phase of the test of the current thread.
+     *
+     * @param phase The phase, not null
+     * @return The previous phase, to be passed to {@link #endPhase}, not null
+     */
+    public String startPhase(String phase) {
+        String previousPhase = currentPhase.get();
+        currentPhase.set(phase);
+        return previousPhase;
+    }
+
+
+    /**
+     * Ends the current phase of the test of the current thread.
+     *
+     * @param previousPhase The phase that was returned by {@link #startPhase}, not null
+     */
+    public void endPhase(String previousPhase) {
+        currentPhase.set(previousPhase);
+    }
+
+
+    /**
+     * @return The metrics of the test and phase of the current thread, not null
+     */
+    public SqlMetrics getCurrentMetrics() {
+        return getMetrics(currentTestName.get(), currentPhase.get());
+    }
+
+
+    /**
+     * @param testName The name of the test, empty for statements that were executed outside of a test, not null
+     * @param phase    The phase, not null
+     * @return The metrics of the given test and phase, not null
+     */
+    public synchronized SqlMetrics getMetrics(String testName, String phase) {
+        Map<String, SqlMetrics> testMetrics = metrics.get(testName);
+        if (testMetrics == null) {
+            testMetrics = new LinkedHashMap<String, SqlMetrics>();
+            metrics.put(testName, testMetrics);
+        }
+        SqlMetrics result = testMetrics.get(phase);
+        if (result == null) {
+            result = new SqlMetrics();
+            testMetrics.put(phase, result);
+        }
+        return result;
+    }
+
+
+    /**
+     * Writes the metrics of all tests to the given file as comma separated values, one line per test and phase.
+     * If the file cannot be written, a warning is logged.
+     *
+     * @param reportFile The file, not null
+     */
+    public synchronized void writeReport(File reportFile) {
+        PrintWriter writer = null;
+        try {
+            File parentDir = reportFile.getParentFile();
+            if (parentDir != null) {
+                parentDir.mkdirs();
+            }
+            writer = new PrintWriter(new FileWriter(reportFile));
+            writer.println("test,phase,statements,batches,rows,elapsedMillis");
+            for (Map.Entry<String, Map<String, SqlMetrics>> testMetrics : metrics.entrySet()) {
+                for (Map.Entry<String, SqlMetrics> phaseMetrics : testMetrics.getValue().entrySet()) {
+                    SqlMetrics sqlMetrics = phaseMetrics.getValue();
+                    writer.println("\"" + testMetrics.getKey() + "\"," + phaseMetrics.getKey() + "," + sqlMetrics.getStatementCount() + "," + sqlMetrics.getBatchCount() + "," + sqlMetrics.getRowCount() + "," + sqlMetrics.getElapsedNanos() / 1000000);
+                }
+            }
+            if (writer.checkError()) {
+                throw new IOException("Error while writing to " + reportFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to write sql metrics report to file " + reportFile + ".", e);
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+
+    /**
+     * Checks the metrics of a test against the configured maximums.
+     *
+     * @param testName   The name of the test, not null
+     * @param sqlMetrics The metrics of the test phase, not null
+     */
+    protected void checkThresholds(String testName, SqlMetrics sqlMetrics) {
+        if (maxStatementsPerTest >= 0 && sqlMetrics.getStatementCount() > maxStatementsPerTest) {
+            thresholdExceeded("Test " + testName + " executed " + sqlMetrics.getStatementCount() + " sql statements, the maximum is " + maxStatementsPerTest + ".");
+        }
+        String mostExecutedSql = sqlMetrics.getMostExecutedSql();
+        if (maxExecutionsPerStatement >= 0 && mostExecutedSql != null && sqlMetrics.getMaxExecutionCount() > maxExecutionsPerStatement) {
+            thresholdExceeded("Test " + testName + " executed the same sql statement " + sqlMetrics.getMaxExecutionCount() + " times, the maximum is " + maxExecutionsPerStatement + ". This could be an N+1 select problem. Statement: " + mostExecutedSql);
+        }
+    }
+
+
+    /**
+     * @param message The description of the exceeded maximum, not null
+     */
+    protected void thresholdExceeded(String message) {
+        if (failOnThresholdExceeded) {
+            throw new UnitilsException(message);
+        }
+        logger.warn(message);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Data source that measures the sql statements that are executed through its connections. The connections of the
+ * target data source are wrapped in a proxy that registers every execution of a statement or batch, the nr of
+ * updated rows, the nr of rows that are read from the result sets and the time spent executing the statements in the
+ * {@link SqlMetrics} of the current test and phase of the {@link SqlMetricsCollector}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class SqlMetricsDataSource extends StatementInterceptingDataSource {
+
+    /* The collector in which the statements are registered */
+    private SqlMetricsCollector sqlMetricsCollector;
+
+
+    /**
+     * Creates a data source that measures the statements of the given data source.
+     *
+     * @param targetDataSource    The data source to wrap, not null
+     * @param sqlMetricsCollector The collector in which the statements are registered, not null
+     */
+    public SqlMetricsDataSource(DataSource targetDataSource, SqlMetricsCollector sqlMetricsCollector) {
+        super(targetDataSource);
+        this.sqlMetricsCollector = sqlMetricsCollector;
+    }
+
+
+    /**
+     * Registers every execution of a statement or batch, result sets are wrapped in a proxy that counts the rows that
+     * are read.
+     */
+    @Override
+    protected Object invokeStatementMethod(Statement statement, String preparedSql, Method method, Object[] args) throws Throwable {
+        String methodName = method.getName();
+        if ("getResultSet".equals(methodName)) {
+            return createResultSetProxy((ResultSet) invokeMethod(statement, method, args), sqlMetricsCollector.getCurrentMetrics());
+        }
+        if (!methodName.startsWith("execute")) {
+            return invokeMethod(statement, method, args);
+        }
+
+        SqlMetrics sqlMetrics = sqlMetricsCollector.getCurrentMetrics();
+        long startTime = System.nanoTime();
+        Object result = invokeMethod(statement, method, args);
+        long elapsedNanos = System.nanoTime() - startTime;
+
+        if ("executeBatch".equals(methodName)) {
+            int[] updateCounts = (int[]) result;
+            sqlMetrics.addBatch(updateCounts.length, getRowCount(updateCounts), elapsedNanos);
+            return result;
+        }
+        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+        if (result instanceof ResultSet) {
+            sqlMetrics.addStatement(sql, 0, elapsedNanos);
+            return createResultSetProxy((ResultSet) result, sqlMetrics);
+        }
+        sqlMetrics.addStatement(sql, result instanceof Number ? ((Number) result).longValue() : 0, elapsedNanos);
+        return result;
+    }
+
+
+    /**
+     * @param updateCounts The update counts of a batch, not null
+     * @return The total nr of updated rows, statements for which the nr is unknown are not counted
+     */
+    protected long getRowCount(int[] updateCounts) {
+        long rowCount = 0;
+        for (int updateCount : updateCounts) {
+            if (updateCount > 0) {
+                rowCount += updateCount;
+            }
+        }
+        return rowCount;
+    }
+    /**
+     * Invocation handler for result set proxies. Every row that is read is registered.
+     */
+    protected class ResultSetInvocationHandler implements InvocationHandler {
+
+        /* The wrapped result set */
+        private ResultSet resultSet;
+
+        /* The metrics of the phase in which the statement was executed */
+        private SqlMetrics sqlMetrics;
+
+
+        public ResultSetInvocationHandler(ResultSet resultSet, SqlMetrics sqlMetrics) {
+            this.resultSet = resultSet;
+            this.sqlMetrics = sqlMetrics;
+        }
+
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("equals".equals(methodName)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(methodName)) {
+                return System.identityHashCode(proxy);
+            }
+            Object result = invokeMethod(resultSet, method, args);
+            if ("next".equals(methodName) && Boolean.TRUE.equals(result)) {
+                sqlMetrics.addRow();
+            }
+            return result;
+        }
+    }
+
+
+    /**
+     * @param resultSet  The result set to wrap, null if there is no result set
+     * @param sqlMetrics The metrics of the phase in which the statement was executed, not null
+     * @return A proxy for the given result set that counts the rows that are read, null if the result set is null
+     */
+    protected ResultSet createResultSetProxy(ResultSet resultSet, SqlMetrics sqlMetrics) {
+        if (resultSet == null) {
+            return null;
+        }
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class}, new ResultSetInvocationHandler(resultSet, sqlMetrics));
+    }
+}
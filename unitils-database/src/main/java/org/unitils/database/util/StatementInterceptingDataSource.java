@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Base class for data sources that intercept the sql statements that are executed through their connections. The
+ * connections of the target data source are wrapped in a proxy, the statements that these connections create are
+ * wrapped in a proxy as well. Subclasses are notified when a statement is prepared, and handle every call on a
+ * statement in {@link #invokeStatementMethod}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public abstract class StatementInterceptingDataSource extends DelegatingDataSource {
+
+
+    /**
+     * Creates a data source that intercepts the statements of the given data source.
+     *
+     * @param targetDataSource The data source to wrap, not null
+     */
+    protected StatementInterceptingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+
+    /**
+     * Gets a connection that intercepts the executed statements.
+     *
+     * @return The connection, not null
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return createConnectionProxy(getTargetDataSource().getConnection());
+    }
+
+
+    /**
+     * Gets a connection that intercepts the executed statements.
+     *
+     * @param username The user name
+     * @param password The password
+     * @return The connection, not null
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return createConnectionProxy(getTargetDataSource().getConnection(username, password));
+    }
+
+
+    /**
+     * Called before a statement is prepared by one of the connections. Does nothing by default.
+     *
+     * @param sql The sql of the prepared statement, not null
+     */
+    protected void statementPrepared(String sql) {
+    }
+
+
+    /**
+     * Handles a call on one of the intercepted statements. Only equals, hashCode and getConnection are handled by the
+     * statement proxy itself. Implementations should use {@link #invokeMethod} to call the method on the statement.
+     *
+     * @param statement   The wrapped statement, not null
+     * @param preparedSql The sql of a prepared statement, null for a plain statement
+     * @param method      The called method, not null
+     * @param args        The arguments, null if there are none
+     * @return The result of the call
+     */
+    protected abstract Object invokeStatementMethod(Statement statement, String preparedSql, Method method, Object[] args) throws Throwable;
+
+
+    /**
+     * @param connection The connection to wrap, not null
+     * @return A proxy for the given connection that intercepts the executed statements, not null
+     */
+    protected Connection createConnectionProxy(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, new ConnectionInvocationHandler(connection));
+    }
+
+
+    /**
+     * @param statement       The statement to wrap, not null
+     * @param preparedSql     The sql of a prepared statement, null for a plain statement
+     * @param connectionProxy The connection proxy that created the statement, not null
+     * @return A proxy for the given statement that intercepts its calls, not null
+     */
+    protected Statement createStatementProxy(Statement statement, String preparedSql, Connection connectionProxy) {
+        Class<?> statementInterface = Statement.class;
+        if (statement instanceof CallableStatement) {
+            statementInterface = CallableStatement.class;
+        } else if (statement instanceof PreparedStatement) {
+            statementInterface = PreparedStatement.class;
+        }
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{statementInterface}, new StatementInvocationHandler(statement, preparedSql, connectionProxy));
+    }
+
+
+    /**
+     * Invokes the given method on the given target, unwrapping invocation target exceptions.
+     *
+     * @param target The target, not null
+     * @param method The method, not null
+     * @param args   The arguments, null if there are none
+     * @return The result of the invocation
+     */
+    protected Object invokeMethod(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+
+    /**
+     * Invocation handler for connection proxies. Statements that are created by the connection are also wrapped in a
+     * proxy, for prepared statements the sql is passed to the proxy.
+     */
+    protected class ConnectionInvocationHandler implements InvocationHandler {
+
+        /* The wrapped connection */
+        private Connection connection;
+
+
+        public ConnectionInvocationHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("equals".equals(methodName)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(methodName)) {
+                return System.identityHashCode(proxy);
+            }
+            String preparedSql = null;
+            if ("prepareStatement".equals(methodName) || "prepareCall".equals(methodName)) {
+                preparedSql = (String) args[0];
+                statementPrepared(preparedSql);
+            }
+            Object result = invokeMethod(connection, method, args);
+            if (result instanceof Statement) {
+                return createStatementProxy((Statement) result, preparedSql, (Connection) proxy);
+            }
+            return result;
+        }
+    }
+
+
+    /**
+     * Invocation handler for statement proxies, passes the calls to {@link #invokeStatementMethod}.
+     */
+    protected class StatementInvocationHandler implements InvocationHandler {
+
+        /* The wrapped statement */
+        private Statement statement;
+
+        /* The sql of the prepared statement, null for a plain statement */
+        private String preparedSql;
+
+        /* The connection proxy that created the statement */
+        private Connection connectionProxy;
+
+
+        public StatementInvocationHandler(Statement statement, String preparedSql, Connection connectionProxy) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+            this.connectionProxy = connectionProxy;
+        }
+
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("equals".equals(methodName)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(methodName)) {
+                return System.identityHashCode(proxy);
+            }
+            if ("getConnection".equals(methodName)) {
+                return connectionProxy;
+            }
+            return invokeStatementMethod(statement, preparedSql, method, args);
+        }
+    }
+}
@@ -41,6 +41,14 @@ public enum TransactionMode {
      */
     ROLLBACK,
 
+    /**
+     * Value indicating that the tests of the test class should share a transaction that is rollbacked after the last
+     * test of the class. Each test is executed in a savepoint of this transaction and is rollbacked to this savepoint
+     * at the end of the test. Class level fixtures (see {@link ClassFixtureLoader}) are loaded only once, when the
+     * shared transaction is started. The database must support savepoints.
+     */
+    SAVEPOINT,
+
     /**
      * Value indicating that the default behavior is defined by the unitils property
      * <code>DatabaseModule.Transactional.value.default</code> is in use.
@@ -18,6 +18,7 @@ package org.unitils.dbmaintainer;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.unitils.core.UnitilsException;
+import org.unitils.core.dbsupport.DbSupport;
 import org.unitils.core.dbsupport.SQLHandler;
 import org.unitils.core.util.ConfigUtils;
 import org.unitils.dbmaintainer.clean.DBCleaner;
@@ -30,12 +31,14 @@ import org.unitils.dbmaintainer.structure.ConstraintsDisabler;
 import org.unitils.dbmaintainer.structure.DataSetStructureGenerator;
 import org.unitils.dbmaintainer.structure.SequenceUpdater;
 
+import static org.unitils.core.dbsupport.DbSupportFactory.getDbSupports;
 import static org.unitils.dbmaintainer.util.DatabaseModuleConfigUtils.getConfiguredDatabaseTaskInstance;
 
 import org.unitils.dbmaintainer.version.ExecutedScriptInfoSource;
 import org.unitils.dbmaintainer.version.Version;
 import org.unitils.util.PropertyUtils;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
@@ -171,6 +174,11 @@ public class DBMaintainer {
 
     protected String dialect;
 
+    /**
+     * The db supports of all schemas, used for invalidating cached meta data after the database structure has changed
+     */
+    protected List<DbSupport> dbSupports = new ArrayList<DbSupport>();
+
     /**
      * Default constructor for testing.
      */
@@ -214,6 +222,7 @@ public class DBMaintainer {
             if (generateDtd) {
                 dataSetStructureGenerator = getConfiguredDatabaseTaskInstance(DataSetStructureGenerator.class, configuration, sqlHandler, dialect, schemaNames);
             }
+            dbSupports = getDbSupports(configuration, sqlHandler, dialect, schemaNames);
         } catch (UnitilsException e) {
             logger.error("Error while initializing DbMaintainer", e);
             throw e;
@@ -243,6 +252,7 @@ public class DBMaintainer {
             // conflicts when dropping tables
             constraintsDisabler.disableConstraints();
             dbClearer.clearSchemas();
+            invalidateDbSupportCaches();
             // reset the database version
             versionSource.clearAllExecutedScripts();
             // update database with all scripts
@@ -304,10 +314,15 @@ public class DBMaintainer {
         }
 
         // Excute all of the scripts
-        executeScripts(scripts);
+        try {
+            executeScripts(scripts);
 
-        // Execute postprocessing scripts, if any
-        executePostProcessingScripts(scriptSource.getPostProcessingScripts(dialect, schema, defaultDatabase));
+            // Execute postprocessing scripts, if any
+            executePostProcessingScripts(scriptSource.getPostProcessingScripts(dialect, schema, defaultDatabase));
+        } finally {
+            // the scripts could have changed the structure of the database
+            invalidateDbSupportCaches();
+        }
 
         // Disable FK and not null constraints, if enabled
         if (disableConstraintsEnabled) {
@@ -324,6 +339,17 @@ public class DBMaintainer {
     }
 
 
+    /**
+     * Clears the meta data that is cached by the db supports, e.g. because scripts were executed that could have
+     * changed the database structure.
+     */
+    protected void invalidateDbSupportCaches() {
+        for (DbSupport dbSupport : dbSupports) {
+            dbSupport.invalidateCache();
+        }
+    }
+
+
     /**
      * Executes the given scripts and updates the database version and state appropriatly. After
      * each successful script execution, the new version is stored in the database and marked as
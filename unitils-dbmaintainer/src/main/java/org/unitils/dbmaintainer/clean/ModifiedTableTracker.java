@@ -0,0 +1,48 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.clean;
+
+import java.util.Set;
+
+/**
+ * Defines the contract for implementations that keep track of the tables into which data was written. If the data
+ * source of a {@link DBCleaner} implements this interface, only the tracked tables need to be cleaned instead of all
+ * tables of the schemas.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public interface ModifiedTableTracker {
+
+
+    /**
+     * Gets the names of all tables into which data was written since the previous call and starts tracking again
+     * with an empty set of tables. The names are returned as they were used in the sql statements, e.g. they can
+     * be quoted or qualified with a schema name.
+     *
+     * @return The names of the modified tables, null if it is not known which tables were modified
+     */
+    Set<String> getAndResetModifiedTableNames();
+
+
+    /**
+     * Marks all tables as modified, e.g. because a statement was executed of which the effect is not known
+     * or because cleaning the tables failed. The next call to {@link #getAndResetModifiedTableNames()} will
+     * then return null.
+     */
+    void setAllTablesModified();
+
+}
@@ -20,9 +20,11 @@ import org.apache.commons.logging.LogFactory;
 import org.unitils.core.dbsupport.DbSupport;
 import static org.unitils.core.util.StoredIdentifierCase.MIXED_CASE;
 import org.unitils.dbmaintainer.clean.DBCleaner;
+import org.unitils.dbmaintainer.clean.ModifiedTableTracker;
 import static org.unitils.dbmaintainer.clean.impl.DefaultDBClearer.PROPKEY_PRESERVE_SCHEMAS;
 import static org.unitils.util.PropertyUtils.getStringList;
 
+import javax.sql.DataSource;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
@@ -92,24 +94,77 @@ public class DefaultDBCleaner extends BaseDatabaseAccessor implements DBCleaner
 
     /**
      * Deletes all data from the database, except for the tables that have been
-     * configured as <i>tablesToPreserve</i> , and the table in which the database version is stored
+     * configured as <i>tablesToPreserve</i> , and the table in which the database version is stored.
+     * <p/>
+     * If the data source keeps track of the modified tables (see {@link ModifiedTableTracker}), only the tables
+     * into which data was written since the previous clean are cleaned.
      */
     public void cleanSchemas() {
-        for (DbSupport dbSupport : dbSupports) {
-            // check whether schema needs to be preserved
-            if (isItemToPreserve(dbSupport.getSchemaName(), schemasToPreserve)) {
-                continue;
-            }
-            logger.info("Cleaning database schema " + dbSupport.getSchemaName());
-
-            Set<String> tableNames = dbSupport.getTableNames();
-            for (String tableName : tableNames) {
-                // check whether table needs to be preserved
-                if (isItemToPreserve(tableName, tablesToPreserve) || isItemToPreserve(dbSupport.getSchemaName() + "." + tableName, tablesToPreserve)) {
+        ModifiedTableTracker modifiedTableTracker = getModifiedTableTracker();
+        Set<String> modifiedTableNames = null;
+        if (modifiedTableTracker != null) {
+            modifiedTableNames = modifiedTableTracker.getAndResetModifiedTableNames();
+        }
+        try {
+            for (DbSupport dbSupport : dbSupports) {
+                // check whether schema needs to be preserved
+                if (isItemToPreserve(dbSupport.getSchemaName(), schemasToPreserve)) {
                     continue;
                 }
-                cleanTable(tableName, dbSupport);
+                logger.info("Cleaning database schema " + dbSupport.getSchemaName());
+
+                Set<String> tableNames = getTableNamesToClean(dbSupport, modifiedTableNames);
+                cleanTables(tableNames, dbSupport);
+            }
+        } catch (RuntimeException e) {
+            // make sure that the tables that were not cleaned are cleaned the next time
+            if (modifiedTableTracker != null) {
+                modifiedTableTracker.setAllTablesModified();
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Gets the names of all tables in the schema of the given db support that are not configured as tables to preserve.
+     * If modified table names are given, only tables that are in this set are returned.
+     *
+     * @param dbSupport          The database support, not null
+     * @param modifiedTableNames The names of the tables into which data was written, null if not known
+     * @return The names of the tables that need to be cleaned, not null
+     */
+    protected Set<String> getTableNamesToClean(DbSupport dbSupport, Set<String> modifiedTableNames) {
+        Set<String> qualifiedModifiedTableNames = null;
+        if (modifiedTableNames != null) {
+            qualifiedModifiedTableNames = getQualifiedTableNames(modifiedTableNames);
+        }
+        Set<String> result = new HashSet<String>();
+        Set<String> tableNames = dbSupport.getTableNames();
+        for (String tableName : tableNames) {
+            // check whether table needs to be preserved
+            if (isItemToPreserve(tableName, tablesToPreserve) || isItemToPreserve(dbSupport.getSchemaName() + "." + tableName, tablesToPreserve)) {
+                continue;
             }
+            // check whether data was written into the table
+            if (qualifiedModifiedTableNames != null && !isModifiedTable(dbSupport.getSchemaName() + "." + tableName, qualifiedModifiedTableNames)) {
+                continue;
+            }
+            result.add(tableName);
+        }
+        return result;
+    }
+
+
+    /**
+     * Deletes the data in the tables with the given names.
+     *
+     * @param tableNames The names of the tables that need to be cleared, not null
+     * @param dbSupport  The database support, not null
+     */
+    protected void cleanTables(Set<String> tableNames, DbSupport dbSupport) {
+        for (String tableName : tableNames) {
+            cleanTable(tableName, dbSupport);
         }
     }
 
@@ -128,6 +183,62 @@ public class DefaultDBCleaner extends BaseDatabaseAccessor implements DBCleaner
     }
 
 
+    /**
+     * Gets the tracker of modified tables, if the data source of the sql handler keeps track of them.
+     *
+     * @return The tracker, null if modified tables are not tracked
+     */
+    protected ModifiedTableTracker getModifiedTableTracker() {
+        DataSource dataSource = sqlHandler.getDataSource();
+        if (dataSource instanceof ModifiedTableTracker) {
+            return (ModifiedTableTracker) dataSource;
+        }
+        return null;
+    }
+
+
+    /**
+     * Converts the given table names, as used in sql statements, to the correct case and qualifies them with the
+     * default schema name if no schema name is used as prefix. Table names that are stored in mixed case are
+     * converted to upper case.
+     *
+     * @param tableNames The table names, not null
+     * @return The qualified table names, not null
+     */
+    protected Set<String> getQualifiedTableNames(Set<String> tableNames) {
+        Set<String> result = new HashSet<String>();
+        for (String tableName : tableNames) {
+            String correctCaseTableName = defaultDbSupport.toCorrectCaseIdentifier(tableName);
+            if (correctCaseTableName.indexOf('.') == -1) {
+                correctCaseTableName = defaultDbSupport.getSchemaName() + "." + correctCaseTableName;
+            }
+            // ignore case when stored in mixed casing (e.g MS-Sql), otherwise we can't compare the table names
+            if (defaultDbSupport.getStoredIdentifierCase() == MIXED_CASE) {
+                correctCaseTableName = correctCaseTableName.toUpperCase();
+            }
+            result.add(correctCaseTableName);
+        }
+        return result;
+    }
+
+
+    /**
+     * Checks whether the given qualified table name is one of the modified tables.
+     * This also handles identifiers that are stored in mixed case.
+     *
+     * @param qualifiedTableName          The schema name and table name, not null
+     * @param qualifiedModifiedTableNames The qualified names of the modified tables, not null
+     * @return True if the table was modified
+     */
+    protected boolean isModifiedTable(String qualifiedTableName, Set<String> qualifiedModifiedTableNames) {
+        // ignore case when stored in mixed casing (e.g MS-Sql), otherwise we can't compare the table names
+        if (defaultDbSupport.getStoredIdentifierCase() == MIXED_CASE) {
+            qualifiedTableName = qualifiedTableName.toUpperCase();
+        }
+        return qualifiedModifiedTableNames.contains(qualifiedTableName);
+    }
+
+
     /**
      * Checks whether the given item is one of the items to preserve.
      * This also handles identifiers that are stored in mixed case.
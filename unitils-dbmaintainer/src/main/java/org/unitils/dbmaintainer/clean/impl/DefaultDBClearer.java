@@ -152,6 +152,9 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
      * Clears the database schemas. This means, all the tables, views, constraints, triggers and sequences are dropped,
      * so that the database schema is empty. The database items that are configured as items to preserve, are left
      * untouched.
+     * <p/>
+     * The meta data that is cached by the db supports is cleared before and after clearing a schema: the schema could
+     * have been changed since the meta data was cached and will be empty afterwards.
      */
     public void clearSchemas() {
         for (DbSupport dbSupport : dbSupports) {
@@ -160,6 +163,7 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
                 continue;
             }
             logger.info("Clearing (dropping) database schema " + dbSupport.getSchemaName());
+            dbSupport.invalidateCache();
             dropSynonyms(dbSupport);
             dropViews(dbSupport);
             dropMaterializedViews(dbSupport);
@@ -169,6 +173,7 @@ public class DefaultDBClearer extends BaseDatabaseAccessor implements DBClearer
             dropTriggers(dbSupport);
             dropTypes(dbSupport);
             // todo drop functions, stored procedures.
+            dbSupport.invalidateCache();
         }
     }
 
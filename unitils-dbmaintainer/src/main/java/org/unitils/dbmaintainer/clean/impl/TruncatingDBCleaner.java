@@ -0,0 +1,220 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.clean.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.core.UnitilsException;
+import org.unitils.core.dbsupport.DbSupport;
+import static org.unitils.util.PropertyUtils.getBoolean;
+import static org.unitils.util.PropertyUtils.getInt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Implementation of {@link org.unitils.dbmaintainer.clean.DBCleaner} that removes the data using truncate statements
+ * instead of deletes. Truncating a table does not generate undo or log records per row, which makes it a lot faster
+ * for tables containing a lot of data.
+ * <p/>
+ * Tables that do not contain any data are detected using a single query and are skipped. The remaining tables are
+ * cleaned in parallel using the number of threads configured by {@link #PROPKEY_THREAD_COUNT}. Every thread gets its
+ * own connection from the data source. The threads are taken from a pool that is shared by all cleaners, so that no
+ * threads have to be started every time the database is cleaned. If only 1 thread is configured, or if there is only
+ * 1 table to clean, the tables are cleaned by the calling thread.
+ * <p/>
+ * If the DBMS does not support truncate, or if a table could not be truncated (e.g. because it is referenced by a
+ * foreign key), the data is deleted as in the {@link DefaultDBCleaner}.
+ * <p/>
+ * The same tables are preserved as for the {@link DefaultDBCleaner}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class TruncatingDBCleaner extends DefaultDBCleaner {
+
+    /**
+     * Property key for the number of threads that are used for cleaning the tables
+     */
+    public static final String PROPKEY_THREAD_COUNT = "dbMaintainer.cleanDb.threadCount";
+
+    /**
+     * Property key that indicates whether empty tables should be skipped
+     */
+    public static final String PROPKEY_SKIP_EMPTY_TABLES = "dbMaintainer.cleanDb.skipEmptyTables.enabled";
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(TruncatingDBCleaner.class);
+
+    /* The pool of threads that is shared by all cleaners. Idle threads are stopped after a while. */
+    private static final ExecutorService executorService = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+    /**
+     * The number of threads used for cleaning the tables
+     */
+    protected int threadCount;
+
+    /**
+     * True if empty tables should not be cleaned
+     */
+    protected boolean skipEmptyTables;
+
+
+    /**
+     * Configures this object.
+     *
+     * @param configuration The configuration, not null
+     */
+    @Override
+    protected void doInit(Properties configuration) {
+        super.doInit(configuration);
+        threadCount = getInt(PROPKEY_THREAD_COUNT, configuration);
+        skipEmptyTables = getBoolean(PROPKEY_SKIP_EMPTY_TABLES, configuration);
+        if (threadCount < 1) {
+            throw new UnitilsException("Invalid value " + threadCount + " for property " + PROPKEY_THREAD_COUNT + ". The thread count should be at least 1.");
+        }
+    }
+
+
+    /**
+     * Truncates the tables with the given names. Tables that do not contain data are skipped and the other tables
+     * are truncated in parallel: the configured number of tasks is started, each task cleans tables until there are
+     * no more tables left.
+     *
+     * @param tableNames The names of the tables that need to be cleared, not null
+     * @param dbSupport  The database support, not null
+     */
+    @Override
+    protected void cleanTables(Set<String> tableNames, DbSupport dbSupport) {
+        if (skipEmptyTables) {
+            tableNames = dbSupport.getNonEmptyTableNames(tableNames);
+        }
+        Queue<String> remainingTableNames = new ConcurrentLinkedQueue<String>(tableNames);
+        int taskCount = Math.min(threadCount, tableNames.size());
+        if (taskCount <= 1) {
+            new CleanTablesTask(remainingTableNames, dbSupport).run();
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < taskCount; i++) {
+            futures.add(executorService.submit(new CleanTablesTask(remainingTableNames, dbSupport)));
+        }
+        waitForCompletion(futures);
+    }
+
+
+    /**
+     * Truncates the table with the given name. If the table cannot be truncated, all records will be deleted instead.
+     *
+     * @param tableName The name of the table that need to be cleared, not null
+     * @param dbSupport The database support, not null
+     */
+    @Override
+    protected void cleanTable(String tableName, DbSupport dbSupport) {
+        if (!dbSupport.supportsTruncate()) {
+            super.cleanTable(tableName, dbSupport);
+            return;
+        }
+        try {
+            logger.debug("Truncating table " + tableName + " in database schema " + dbSupport.getSchemaName());
+            dbSupport.truncateTable(tableName);
+
+        } catch (UnitilsException e) {
+            logger.debug("Unable to truncate table " + tableName + " in database schema " + dbSupport.getSchemaName() + ". Deleting all records instead.", e);
+            super.cleanTable(tableName, dbSupport);
+        }
+    }
+
+
+    /**
+     * Waits until all given tasks have finished. If one of the tasks failed, the exception is rethrown.
+     *
+     * @param futures The futures of the submitted tasks, not null
+     */
+    protected void waitForCompletion(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UnitilsException("Interrupted while cleaning database schema.", e);
+
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UnitilsException) {
+                    throw (UnitilsException) cause;
+                }
+                throw new UnitilsException("Unable to clean database schema.", cause);
+            }
+        }
+    }
+
+
+    /**
+     * Task that cleans tables until there are no more tables left in the given queue.
+     */
+    protected class CleanTablesTask implements Runnable {
+
+        /* The names of the tables that still need to be cleaned, shared by all tasks */
+        private Queue<String> remainingTableNames;
+
+        /* The db support for the schema of the tables */
+        private DbSupport dbSupport;
+
+
+        /**
+         * Creates a task for cleaning the tables in the given queue.
+         *
+         * @param remainingTableNames The names of the tables, not null
+         * @param dbSupport           The database support, not null
+         */
+        public CleanTablesTask(Queue<String> remainingTableNames, DbSupport dbSupport) {
+            this.remainingTableNames = remainingTableNames;
+            this.dbSupport = dbSupport;
+        }
+
+
+        public void run() {
+            String tableName;
+            while ((tableName = remainingTableNames.poll()) != null) {
+                cleanTable(tableName, dbSupport);
+            }
+        }
+    }
+
+
+    /**
+     * Creates the daemon threads of the shared pool, so that the pool does not prevent the JVM from exiting.
+     */
+    protected static class DaemonThreadFactory implements ThreadFactory {
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "unitils-db-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.script;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.thirdparty.org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Persistent cache of the checksums of script files. A cached checksum is only used if the size and the last
+ * modification date of the file are still the same as when the checksum was calculated. This way, the content of a
+ * script only has to be read again when the file was changed.
+ * <p/>
+ * The cache is stored as a properties file, typically in the build directory of the project. If the file cannot be
+ * read or written, the cache is simply not used.
+ * <p/>
+ * To avoid missing a change that is made in the same tick of the file system clock as the calculation of the
+ * checksum, checksums of files that were modified very recently are not cached.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ScriptCheckSumCache {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(ScriptCheckSumCache.class);
+
+    /* Files modified less than this nr of milliseconds before calculating the checksum are not cached */
+    private static final long MODIFICATION_MARGIN_MILLIS = 2000;
+
+    /* The file in which the checksums are stored */
+    private File cacheFile;
+
+    /* The cached entries, with the absolute path as key and length,lastModified,checkSum as value, null if not loaded */
+    private Properties entries;
+
+    /* True if entries were added since the cache was loaded */
+    private boolean modified;
+
+
+    /**
+     * Creates a cache that is stored in the given file.
+     *
+     * @param cacheFile The file, not null
+     */
+    public ScriptCheckSumCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+
+    /**
+     * Gets the cached checksum of the given file.
+     *
+     * @param file The script file, not null
+     * @return The checksum, null if not cached or if the file was changed since the checksum was calculated
+     */
+    public synchronized String getCheckSum(File file) {
+        String entry = getEntries().getProperty(file.getAbsolutePath());
+        if (entry == null) {
+            return null;
+        }
+        String[] parts = entry.split(",", 3);
+        if (parts.length != 3 || !parts[0].equals(String.valueOf(file.length())) || !parts[1].equals(String.valueOf(file.lastModified()))) {
+            return null;
+        }
+        return parts[2];
+    }
+
+
+    /**
+     * Stores the checksum of the given file. The length and last modification date should be retrieved before the
+     * content of the file was read for calculating the checksum.
+     *
+     * @param file         The script file, not null
+     * @param length       The length of the file
+     * @param lastModified The last modification date of the file
+     * @param checkSum     The checksum, not null
+     */
+    public synchronized void putCheckSum(File file, long length, long lastModified, String checkSum) {
+        if (lastModified > System.currentTimeMillis() - MODIFICATION_MARGIN_MILLIS) {
+            return;
+        }
+        getEntries().setProperty(file.getAbsolutePath(), length + "," + lastModified + "," + checkSum);
+        modified = true;
+    }
+
+
+    /**
+     * Writes the cache to the cache file, if entries were added.
+     */
+    public synchronized void save() {
+        if (!modified) {
+            return;
+        }
+        OutputStream outputStream = null;
+        try {
+            File parentDir = cacheFile.getParentFile();
+            if (parentDir != null) {
+                parentDir.mkdirs();
+            }
+            outputStream = new FileOutputStream(cacheFile);
+            entries.store(outputStream, "Script checksums cached by unitils");
+            modified = false;
+
+        } catch (IOException e) {
+            logger.warn("Unable to write script checksum cache to file " + cacheFile + ".", e);
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+    }
+
+
+    /**
+     * @return The cached entries, loaded from the cache file if needed, not null
+     */
+    protected Properties getEntries() {
+        if (entries != null) {
+            return entries;
+        }
+        entries = new Properties();
+        if (!cacheFile.exists()) {
+            return entries;
+        }
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(cacheFile);
+            entries.load(inputStream);
+
+        } catch (IOException e) {
+            logger.warn("Unable to read script checksum cache from file " + cacheFile + ". Checksums will be recalculated.", e);
+            entries = new Properties();
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+        return entries;
+    }
+}
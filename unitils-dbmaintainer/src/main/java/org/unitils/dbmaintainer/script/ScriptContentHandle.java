@@ -15,6 +15,7 @@
  */
 package org.unitils.dbmaintainer.script;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -25,10 +26,11 @@ import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+import static org.unitils.util.FileUtils.getUrl;
+
 import org.hibernate.lob.ReaderInputStream;
 import org.unitils.core.UnitilsException;
 import org.unitils.thirdparty.org.apache.commons.io.IOUtils;
-import org.unitils.thirdparty.org.apache.commons.io.NullWriter;
 
 /**
  * A handle for getting the script content as a stream.
@@ -57,6 +59,7 @@ public abstract class ScriptContentHandle {
 
     protected MessageDigest getScriptDigest() {
 		try {
+			// the checksums are compared with the ones in the executed scripts table, another digest would change all of them
 			return MessageDigest.getInstance("MD5");
 		} catch (NoSuchAlgorithmException e) {
 			throw new UnitilsException(e);
@@ -67,7 +70,7 @@ public abstract class ScriptContentHandle {
 		try {
 			if (scriptDigest == null) {
 				readScript();
-			} else if (scriptReader.ready()) {
+			} else if (scriptReader != null && scriptReader.ready()) {
 				throw new UnitilsException("Cannot obtain checksum, since a script is currently being read");
 			}
 			return getHexPresentation(scriptDigest.digest());
@@ -77,10 +80,21 @@ public abstract class ScriptContentHandle {
     }
 	
 	
+	/**
+	 * Reads the complete script for calculating the checksum. The bytes are digested directly, without decoding
+	 * them into characters.
+	 */
 	protected void readScript() throws IOException {
-		Reader scriptReader = openScriptContentReader();
-		IOUtils.copy(scriptReader, new NullWriter());
-		scriptReader.close();
+		scriptDigest = getScriptDigest();
+		InputStream inputStream = new DigestInputStream(getScriptInputStream(), scriptDigest);
+		try {
+			byte[] buffer = new byte[8192];
+			while (inputStream.read(buffer) != -1) {
+				// only digest
+			}
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
 	}
 
 	
@@ -130,6 +144,53 @@ public abstract class ScriptContentHandle {
     }
 
 
+    /**
+     * A handle for getting the content of a script file as a stream. If a checksum cache is given, the checksum is
+     * only calculated if the file was changed since it was cached.
+     */
+    public static class FileScriptContentHandle extends UrlScriptContentHandle {
+
+        /* The script file */
+        private File file;
+
+        /* The cache of checksums, null if checksums should not be cached */
+        private ScriptCheckSumCache scriptCheckSumCache;
+
+        /**
+         * Creates a content handle.
+         *
+         * @param file                The script file, not null
+         * @param scriptCheckSumCache The cache of checksums, null if checksums should not be cached
+         */
+        public FileScriptContentHandle(File file, ScriptCheckSumCache scriptCheckSumCache) {
+            super(getUrl(file));
+            this.file = file;
+            this.scriptCheckSumCache = scriptCheckSumCache;
+        }
+
+
+        /**
+         * Gets the checksum of the script, using the cached checksum if the file was not changed.
+         *
+         * @return The checksum, not null
+         */
+        @Override
+        public String getCheckSum() {
+            if (scriptCheckSumCache == null) {
+                return super.getCheckSum();
+            }
+            String checkSum = scriptCheckSumCache.getCheckSum(file);
+            if (checkSum == null) {
+                long length = file.length();
+                long lastModified = file.lastModified();
+                checkSum = super.getCheckSum();
+                scriptCheckSumCache.putCheckSum(file, length, lastModified, checkSum);
+            }
+            return checkSum;
+        }
+    }
+
+
     /**
      * A handle for getting the script content as a stream.
      */
@@ -24,6 +24,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,10 +36,10 @@ import org.unitils.core.UnitilsException;
 import org.unitils.core.util.BaseConfigurable;
 import org.unitils.dbmaintainer.script.ExecutedScript;
 import org.unitils.dbmaintainer.script.Script;
+import org.unitils.dbmaintainer.script.ScriptCheckSumCache;
 import org.unitils.dbmaintainer.script.ScriptContentHandle;
 import org.unitils.dbmaintainer.script.ScriptSource;
 import org.unitils.dbmaintainer.version.Version;
-import org.unitils.util.FileUtils;
 import org.unitils.util.PropertyUtils;
 
 /**
@@ -73,9 +78,27 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
     public static final String PROPKEY_INCLUDE_QUALIFIERS = "dbMaintainer.includedQualifiers";
     
     public static final String PROPKEY_QUALIFIERS = "dbMaintainer.qualifiers";
+
+    /**
+     * Property key that indicates whether the checksums of the script files should be cached
+     */
+    public static final String PROPKEY_CHECKSUM_CACHE_ENABLED = "dbMaintainer.script.checkSumCache.enabled";
+
+    /**
+     * Property key for the file in which the checksums of the script files are cached
+     */
+    public static final String PROPKEY_CHECKSUM_CACHE_FILE = "dbMaintainer.script.checkSumCache.file";
+
+    /**
+     * Property key for the number of threads that are used for calculating the checksums of the script files
+     */
+    public static final String PROPKEY_CHECKSUM_THREAD_COUNT = "dbMaintainer.script.checkSum.threadCount";
     
     protected List<Script> allUpdateScripts, allPostProcessingScripts;
 
+    /* The cache of script checksums, null if not created yet or if caching is disabled */
+    protected ScriptCheckSumCache scriptCheckSumCache;
+
 
     /**
      * Gets a list of all available update scripts. These scripts can be used to completely recreate the
@@ -140,6 +163,17 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
         List<Script> result = new ArrayList<Script>();
 
         List<Script> allScripts = getAllUpdateScripts(dialect, databaseName, defaultDatabase);
+
+        // calculate all checksums that are needed for finding the changed repeatable scripts at once
+        List<Script> scriptsToCompare = new ArrayList<Script>();
+        for (Script script : allScripts) {
+            Script alreadyExecutedScript = alreadyExecutedScriptMap.get(script.getFileName());
+            if (!script.isIncremental() && alreadyExecutedScript != null && isCheckSumNeeded(alreadyExecutedScript, script)) {
+                scriptsToCompare.add(script);
+            }
+        }
+        calculateCheckSums(scriptsToCompare);
+
         for (Script script : allScripts) {
             Script alreadyExecutedScript = alreadyExecutedScriptMap.get(script.getFileName());
 
@@ -184,6 +218,16 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
             }
         }
 
+        // calculate all checksums that are needed for finding the changed scripts at once
+        List<Script> scriptsToCompare = new ArrayList<Script>();
+        for (Script indexedScript : incrementalScripts) {
+            Script alreadyExecutedScript = alreadyExecutedScriptMap.get(indexedScript.getFileName());
+            if (indexedScript.getVersion().compareTo(currentVersion) <= 0 && alreadyExecutedScript != null && isCheckSumNeeded(alreadyExecutedScript, indexedScript)) {
+                scriptsToCompare.add(indexedScript);
+            }
+        }
+        calculateCheckSums(scriptsToCompare);
+
         // Search for indexed scripts whose version < the current version, which are new or whose contents have changed
         for (Script indexedScript : incrementalScripts) {
             if (indexedScript.getVersion().compareTo(currentVersion) <= 0) {
@@ -207,6 +251,87 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
     }
 
 
+    /**
+     * @param alreadyExecutedScript The executed script, not null
+     * @param script                The current version of the script, not null
+     * @return True if the checksum of the script is needed to determine whether it was changed
+     */
+    protected boolean isCheckSumNeeded(Script alreadyExecutedScript, Script script) {
+        return !useScriptFileLastModificationDates() || !alreadyExecutedScript.getFileLastModifiedAt().equals(script.getFileLastModifiedAt());
+    }
+
+
+    /**
+     * Calculates the checksums of the given scripts, using the number of threads configured by
+     * {@link #PROPKEY_CHECKSUM_THREAD_COUNT}. The checksums are stored in the scripts. Afterwards, the checksum cache
+     * is saved, if enabled.
+     *
+     * @param scripts The scripts, not null
+     */
+    protected void calculateCheckSums(List<Script> scripts) {
+        int threadCount = PropertyUtils.getInt(PROPKEY_CHECKSUM_THREAD_COUNT, 1, configuration);
+        if (threadCount <= 1 || scripts.size() <= 1) {
+            for (Script script : scripts) {
+                script.getCheckSum();
+            }
+        } else {
+            ExecutorService executorService = Executors.newFixedThreadPool(Math.min(threadCount, scripts.size()));
+            try {
+                List<Future<String>> futures = new ArrayList<Future<String>>();
+                for (final Script script : scripts) {
+                    futures.add(executorService.submit(new Callable<String>() {
+                        public String call() {
+                            return script.getCheckSum();
+                        }
+                    }));
+                }
+                for (Future<String> future : futures) {
+                    waitForCheckSum(future);
+                }
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+        if (scriptCheckSumCache != null) {
+            scriptCheckSumCache.save();
+        }
+    }
+
+
+    /**
+     * Waits until the given checksum calculation has finished. If the calculation failed, the exception is rethrown.
+     *
+     * @param future The future of the calculation, not null
+     */
+    protected void waitForCheckSum(Future<String> future) {
+        try {
+            future.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnitilsException("Interrupted while calculating script checksums.", e);
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UnitilsException) {
+                throw (UnitilsException) cause;
+            }
+            throw new UnitilsException("Unable to calculate script checksum.", cause);
+        }
+    }
+
+
+    /**
+     * @return The cache for the checksums of the script files, null if caching is disabled
+     */
+    protected ScriptCheckSumCache getScriptCheckSumCache() {
+        if (scriptCheckSumCache == null && PropertyUtils.getBoolean(PROPKEY_CHECKSUM_CACHE_ENABLED, false, configuration)) {
+            scriptCheckSumCache = new ScriptCheckSumCache(new File(PropertyUtils.getString(PROPKEY_CHECKSUM_CACHE_FILE, configuration)));
+        }
+        return scriptCheckSumCache;
+    }
+
+
     /**
      * Gets the configured post-processing script files and verfies that they on the file system. If one of them
      * doesn't exist or is not a file, an exception is thrown.
@@ -385,7 +510,7 @@ public class DefaultScriptSource extends BaseConfigurable implements ScriptSourc
      * @return The script, not null
      */
     protected Script createScript(File scriptFile, String relativePath) {
-        return new Script(relativePath, scriptFile.lastModified(), new ScriptContentHandle.UrlScriptContentHandle(FileUtils.getUrl(scriptFile)));
+        return new Script(relativePath, scriptFile.lastModified(), new ScriptContentHandle.FileScriptContentHandle(scriptFile, getScriptCheckSumCache()));
     }
 
 
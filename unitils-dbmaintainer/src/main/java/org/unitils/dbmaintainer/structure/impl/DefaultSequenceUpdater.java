@@ -17,12 +17,14 @@ package org.unitils.dbmaintainer.structure.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.unitils.core.UnitilsException;
 import org.unitils.core.dbsupport.DbSupport;
 import org.unitils.dbmaintainer.structure.SequenceUpdater;
 import org.unitils.dbmaintainer.util.BaseDatabaseAccessor;
 import org.unitils.util.PropertyUtils;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -70,7 +72,8 @@ public class DefaultSequenceUpdater extends BaseDatabaseAccessor implements Sequ
 
 
     /**
-     * Increments all sequences whose value is too low.
+     * Increments all sequences whose value is too low. The values of all sequences are retrieved at once and all
+     * sequences that need to be incremented are updated in one batch.
      *
      * @param dbSupport The database support, not null
      */
@@ -78,18 +81,23 @@ public class DefaultSequenceUpdater extends BaseDatabaseAccessor implements Sequ
         if (!dbSupport.supportsSequences()) {
             return;
         }
-        Set<String> sequenceNames = dbSupport.getSequenceNames();
-        for (String sequenceName : sequenceNames) {
-            if (dbSupport.getSequenceValue(sequenceName) < lowestAcceptableSequenceValue) {
-                logger.debug("Incrementing value for sequence " + sequenceName + " in database schema " + dbSupport.getSchemaName());
-                dbSupport.incrementSequenceToValue(sequenceName, lowestAcceptableSequenceValue);
+        Set<String> sequenceNamesToIncrement = new HashSet<String>();
+        for (Map.Entry<String, Long> entry : dbSupport.getSequenceValues().entrySet()) {
+            if (entry.getValue() < lowestAcceptableSequenceValue) {
+                logger.debug("Incrementing value for sequence " + entry.getKey() + " in database schema " + dbSupport.getSchemaName());
+                sequenceNamesToIncrement.add(entry.getKey());
             }
         }
+        if (!sequenceNamesToIncrement.isEmpty()) {
+            dbSupport.incrementSequencesToValue(sequenceNamesToIncrement, lowestAcceptableSequenceValue);
+        }
     }
 
 
     /**
-     * Increments the next value for identity columns whose next value is too low
+     * Increments the next value for identity columns whose next value is too low. All identity columns of the schema
+     * and their next values are retrieved at once and the columns that need to be incremented are updated in one
+     * batch. If the next value of an identity column cannot be determined, the column is always incremented.
      *
      * @param dbSupport The database support, not null
      */
@@ -97,20 +105,18 @@ public class DefaultSequenceUpdater extends BaseDatabaseAccessor implements Sequ
         if (!dbSupport.supportsIdentityColumns()) {
             return;
         }
-        Set<String> tableNames = dbSupport.getTableNames();
-        for (String tableName : tableNames) {
-            Set<String> identityColumnNames = dbSupport.getIdentityColumnNames(tableName);
-            for (String identityColumnName : identityColumnNames) {
-                try {
-                    dbSupport.incrementIdentityColumnToValue(tableName, identityColumnName, lowestAcceptableSequenceValue);
-                    logger.debug("Incrementing value for identity column " + identityColumnName + " in database schema " + dbSupport.getSchemaName());
-
-                } catch (UnitilsException e) {
-                    // primary key is not an identity column
-                    // skip column
-                }
+        Map<String, Long> nextIdentityValues = dbSupport.getNextIdentityValues();
+        Map<String, Set<String>> identityColumnNamesToIncrement = new HashMap<String, Set<String>>();
+        for (Map.Entry<String, Set<String>> entry : dbSupport.getIdentityColumnNames().entrySet()) {
+            Long nextIdentityValue = nextIdentityValues.get(entry.getKey());
+            if (nextIdentityValue == null || nextIdentityValue < lowestAcceptableSequenceValue) {
+                logger.debug("Incrementing value for identity columns " + entry.getValue() + " of table " + entry.getKey() + " in database schema " + dbSupport.getSchemaName());
+                identityColumnNamesToIncrement.put(entry.getKey(), entry.getValue());
             }
         }
+        if (!identityColumnNamesToIncrement.isEmpty()) {
+            dbSupport.incrementIdentityColumnsToValue(identityColumnNamesToIncrement, lowestAcceptableSequenceValue);
+        }
     }
 
 }
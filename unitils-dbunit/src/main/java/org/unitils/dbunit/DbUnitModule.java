@@ -20,6 +20,8 @@ import static org.dbunit.database.DatabaseConfig.PROPERTY_DATATYPE_FACTORY;
 import static org.dbunit.database.DatabaseConfig.PROPERTY_ESCAPE_PATTERN;
 import static org.unitils.core.dbsupport.DbSupportFactory.getDbSupport;
 import static org.unitils.core.util.ConfigUtils.getInstanceOf;
+import static org.unitils.database.util.TransactionMode.SAVEPOINT;
+import static org.unitils.util.AnnotationUtils.getClassLevelAnnotation;
 import static org.unitils.util.AnnotationUtils.getMethodOrClassLevelAnnotation;
 import static org.unitils.util.AnnotationUtils.getMethodOrClassLevelAnnotationProperty;
 import static org.unitils.util.ModuleUtils.getAnnotationPropertyDefault;
@@ -36,10 +38,14 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.sql.DataSource;
 import org.apache.commons.collections.CollectionUtils;
@@ -62,6 +68,9 @@ import org.unitils.core.util.ConfigUtils;
 import org.unitils.database.DataSourceWrapper;
 import org.unitils.database.DatabaseModule;
 import org.unitils.database.config.DatabaseConfiguration;
+import org.unitils.database.util.ClassFixtureLoader;
+import org.unitils.database.util.ModifiedTableTrackingDataSource;
+import org.unitils.database.util.SqlMetricsCollector;
 import org.unitils.dbmaintainer.locator.ClassPathDataLocator;
 import org.unitils.dbmaintainer.locator.resourcepickingstrategie.ResourcePickingStrategie;
 import org.unitils.dbunit.annotation.DataSet;
@@ -76,7 +85,9 @@ import org.unitils.dbunit.datasetloadstrategy.impl.InsertLoadStrategy;
 import org.unitils.dbunit.util.DataSetAssert;
 import org.unitils.dbunit.util.DbUnitDatabaseConnection;
 import org.unitils.dbunit.util.FileHandler;
+import org.unitils.dbunit.util.FixtureFingerprintTable;
 import org.unitils.dbunit.util.MultiSchemaDataSet;
+import org.unitils.util.PropertyUtils;
 
 /**
  * Module that provides support for managing database test data using DBUnit.
@@ -90,15 +101,30 @@ import org.unitils.dbunit.util.MultiSchemaDataSet;
  * annotation. If no file name is specified it looks for a file in the same directory as the test class that has following name: 'classname
  * without packagename'.'test method name'-result.xml.
  * <p/>
+ * If the tests are executed with transaction mode {@link org.unitils.database.util.TransactionMode#SAVEPOINT}, the class level
+ * data sets are loaded only once, in the transaction that is shared by the tests of the class. Only the data sets of test methods
+ * that have their own {@link DataSet} or {@link DataSets} annotation are then loaded for each test.
+ * <p/>
+ * If fixture sharing is enabled, the last data set that was loaded is registered in a bookkeeping table, together with the version
+ * stamp of the {@link ModifiedTableTrackingDataSource}. When the same data set is requested again, e.g. by the next test class, and
+ * nothing was written into the database in the meantime, the data set is not loaded again. Since the registration is part of the
+ * transaction of the load, only committed loads are shared. Fixture sharing requires the tracking of the modified tables to be enabled.
+ * <p/>
  * This module depends on the {@link DatabaseModule} for database connection management.
  * 
  * @author Filip Neven
  * @author Tim Ducheyne
  */
-public class DbUnitModule implements Module {
+public class DbUnitModule implements Module, ClassFixtureLoader {
 
     public static final String PROPERTY_METAHANDLER = "org.dbunit.database.DatabaseConfig.metadatahandler";
 
+    /* Property key that indicates whether data sets that are still loaded in the database should not be loaded again */
+    public static final String PROPERTY_FIXTURE_SHARING_ENABLED = "dbUnit.fixtureSharing.enabled";
+
+    /* Property key of the name of the table in which the last loaded data set is registered */
+    public static final String PROPERTY_FIXTURE_SHARING_TABLE_NAME = "dbUnit.fixtureSharing.tableName";
+
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(DbUnitModule.class);
 
@@ -129,6 +155,26 @@ public class DbUnitModule implements Module {
 
     protected String scriptExtension = "xml";
 
+    /**
+     * True if data sets that are still loaded in the database should not be loaded again
+     */
+    protected boolean fixtureSharingEnabled;
+
+    /**
+     * The name of the table in which the last loaded data set is registered
+     */
+    protected String fixtureFingerprintTableName;
+
+    /**
+     * The bookkeeping tables of the loaded data sets per database name
+     */
+    protected ConcurrentMap<String, FixtureFingerprintTable> fixtureFingerprintTables = new ConcurrentHashMap<String, FixtureFingerprintTable>();
+
+    /**
+     * The names of the databases for which fixture sharing is not possible, because their modified tables are not tracked
+     */
+    protected Set<String> fixtureSharingUnsupportedDatabaseNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     private FileHandler fileHandler = new FileHandler();
 
     /**
@@ -140,6 +186,8 @@ public class DbUnitModule implements Module {
     public void init(Properties configuration) {
         this.configuration = configuration;
         defaultAnnotationPropertyValues = getAnnotationPropertyDefaults(DbUnitModule.class, configuration, DataSet.class, ExpectedDataSet.class);
+        fixtureSharingEnabled = PropertyUtils.getBoolean(PROPERTY_FIXTURE_SHARING_ENABLED, false, configuration);
+        fixtureFingerprintTableName = PropertyUtils.getString(PROPERTY_FIXTURE_SHARING_TABLE_NAME, "dbunit_fixture_fingerprint", configuration);
     }
 
 
@@ -195,6 +243,69 @@ public class DbUnitModule implements Module {
 
     }
 
+    /**
+     * Loads the data sets that are defined at class level. This is called once for all tests of the class when the tests
+     * share a transaction, see {@link ClassFixtureLoader}.
+     *
+     * @param testObject The test object, not null
+     * @param testMethod The first test method of the class that is executed, not null
+     */
+    public void loadClassFixture(Object testObject, Method testMethod) {
+        Class<?> testClass = testObject.getClass();
+        String previousPhase = startSqlMetricsPhase(SqlMetricsCollector.PHASE_DBUNIT_LOAD);
+        try {
+            DataSets dataSetsAnnotation = getClassLevelAnnotation(DataSets.class, testClass);
+            if (dataSetsAnnotation != null) {
+                insertDataSets(dataSetsAnnotation, testObject, testMethod);
+            }
+            DataSet dataSetAnnotation = getClassLevelAnnotation(DataSet.class, testClass);
+            if (dataSetAnnotation != null) {
+                insertDataSet(dataSetAnnotation, testObject, testMethod);
+            }
+        } catch (Exception e) {
+            throw new UnitilsException("Error inserting test data from DbUnit dataset for class " + testClass.getName(), e);
+        } finally {
+            closeJdbcConnection();
+            endSqlMetricsPhase(previousPhase);
+        }
+    }
+
+
+    /**
+     * Starts a phase of the test for measuring the executed sql statements, see {@link SqlMetricsCollector}.
+     *
+     * @param phase The phase, not null
+     * @return The previous phase, null if the statements are not measured
+     */
+    protected String startSqlMetricsPhase(String phase) {
+        SqlMetricsCollector sqlMetricsCollector = getDatabaseModule().getSqlMetricsCollector();
+        return sqlMetricsCollector == null ? null : sqlMetricsCollector.startPhase(phase);
+    }
+
+
+    /**
+     * @param previousPhase The phase returned by {@link #startSqlMetricsPhase}
+     */
+    protected void endSqlMetricsPhase(String previousPhase) {
+        SqlMetricsCollector sqlMetricsCollector = getDatabaseModule().getSqlMetricsCollector();
+        if (sqlMetricsCollector != null) {
+            sqlMetricsCollector.endPhase(previousPhase);
+        }
+    }
+
+
+    /**
+     * @param testObject The test object, not null
+     * @param testMethod The test method, not null
+     * @return True if the class level data sets of the test were already loaded in the transaction shared by the tests of the class
+     */
+    protected boolean isClassFixtureLoaded(Object testObject, Method testMethod) {
+        if (testMethod.getAnnotation(DataSets.class) != null || testMethod.getAnnotation(DataSet.class) != null) {
+            return false;
+        }
+        return getDatabaseModule().getTransactionMode(testObject, testMethod) == SAVEPOINT;
+    }
+
     public void insertDataSets(DataSets dataSets, Object testObject, Method testMethod) {
         Map<String, List<DataSet>> sortedDataSets = getDataSetsSorted(dataSets);
         for (List<DataSet> tempDataSets : sortedDataSets.values()) {
@@ -259,15 +370,88 @@ public class DbUnitModule implements Module {
     }
 
     public void insertDataSet(DataSet dataset, Object testObject, Method testMethod) {
+        DataSetLoadStrategy dataSetLoadStrategy = getDataSetLoadStrategy(testMethod, testObject.getClass(), dataset);
+        FixtureFingerprintTable fixtureFingerprintTable = getFixtureFingerprintTable(dataset.databaseName());
+        String dataSetDescription = null;
+        if (fixtureFingerprintTable != null) {
+            dataSetDescription = getDataSetDescription(dataset, testMethod, testObject.getClass(), dataSetLoadStrategy);
+            if (fixtureFingerprintTable.isLoaded(dataSetDescription)) {
+                logger.info("DbUnit data set is still loaded, skipping load. Data set: " + dataSetDescription);
+                return;
+            }
+        }
         MultiSchemaDataSet multiSchemaDataSet = getDataSet(dataset, testMethod, testObject.getClass());
 
         if (multiSchemaDataSet == null) {
             // no dataset specified
             return;
         }
-        DataSetLoadStrategy dataSetLoadStrategy = getDataSetLoadStrategy(testMethod, testObject.getClass(), dataset);
         insertDataSet(multiSchemaDataSet, dataSetLoadStrategy);
+        if (fixtureFingerprintTable != null) {
+            fixtureFingerprintTable.registerLoad(dataSetDescription);
+        }
+    }
+
 
+    /**
+     * Gets the bookkeeping table of the loaded data sets for the given database, see {@link FixtureFingerprintTable}.
+     * The table is created once per database, tests that run in parallel share the same table.
+     *
+     * @param databaseName The name of the database, empty for the default database
+     * @return The table, null if fixture sharing is disabled or if the modified tables of the database are not tracked
+     */
+    protected FixtureFingerprintTable getFixtureFingerprintTable(String databaseName) {
+        if (!fixtureSharingEnabled || fixtureSharingUnsupportedDatabaseNames.contains(databaseName)) {
+            return null;
+        }
+        FixtureFingerprintTable fixtureFingerprintTable = fixtureFingerprintTables.get(databaseName);
+        if (fixtureFingerprintTable == null) {
+            DataSource dataSource = getDatabaseModule().getWrapper(databaseName).getDataSourceAndActivateTransactionIfNeeded();
+            if (!(dataSource instanceof ModifiedTableTrackingDataSource)) {
+                if (fixtureSharingUnsupportedDatabaseNames.add(databaseName)) {
+                    logger.warn("Fixture sharing is enabled, but the modified tables of database " + databaseName + " are not tracked. Data sets will always be loaded. Set property " + DatabaseModule.PROPERTY_TRACK_MODIFIED_TABLES_ENABLED + " to true to enable fixture sharing.");
+                }
+                return null;
+            }
+            fixtureFingerprintTable = new FixtureFingerprintTable(fixtureFingerprintTableName, (ModifiedTableTrackingDataSource) dataSource, getDefaultDbSupport(databaseName));
+            FixtureFingerprintTable existingFixtureFingerprintTable = fixtureFingerprintTables.putIfAbsent(databaseName, fixtureFingerprintTable);
+            if (existingFixtureFingerprintTable != null) {
+                return existingFixtureFingerprintTable;
+            }
+        }
+        return fixtureFingerprintTable;
+    }
+
+
+    /**
+     * Gets the description that identifies the given data set: the database, the data set files, the factory and the load strategy.
+     * Relative file names are qualified with the package of the test class.
+     *
+     * @param dataSet             The data set annotation, not null
+     * @param testMethod          The test method, not null
+     * @param testClass           The test class, not null
+     * @param dataSetLoadStrategy The load strategy, not null
+     * @return The description, not null
+     */
+    protected String getDataSetDescription(DataSet dataSet, Method testMethod, Class<?> testClass, DataSetLoadStrategy dataSetLoadStrategy) {
+        DataSetFactory dataSetFactory = getDataSetFactory(DataSet.class, testMethod, testClass);
+        String packageName = (testClass.getPackage() != null) ? testClass.getPackage().getName() : "";
+
+        StringBuilder description = new StringBuilder();
+        description.append("database: ").append(dataSet.databaseName()).append(", files: [");
+        String[] dataSetFileNames = getDataSetFileNames(dataSet, testMethod, testClass, dataSetFactory);
+        for (int i = 0; i < dataSetFileNames.length; i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            if (!dataSetFileNames[i].startsWith("/")) {
+                description.append(packageName).append(':');
+            }
+            description.append(dataSetFileNames[i]);
+        }
+        description.append("], factory: ").append(dataSetFactory.getClass().getName());
+        description.append(", load strategy: ").append(dataSetLoadStrategy.getClass().getName());
+        return description.toString();
     }
 
 
@@ -442,14 +626,29 @@ public class DbUnitModule implements Module {
         DataSetFactory dataSetFactory = getDataSetFactory(DataSet.class, testMethod, testClass);
 
         // Get the dataset file name
+        String[] dataSetFileNames = getDataSetFileNames(dataSet, testMethod, testClass, dataSetFactory);
+        return getDataSet(testClass, dataSetFileNames, dataSetFactory);
+    }
+
+
+    /**
+     * Gets the names of the files of the given data set. If no file names are specified, the default file name is returned.
+     *
+     * @param dataSet        The data set annotation, not null
+     * @param testMethod     The test method, not null
+     * @param testClass      The test class, not null
+     * @param dataSetFactory The factory of the data set, not null
+     * @return The file names, not null, not empty
+     */
+    protected String[] getDataSetFileNames(DataSet dataSet, Method testMethod, Class<?> testClass, DataSetFactory dataSetFactory) {
         String[] dataSetFileNames = dataSet.value();
         if (dataSetFileNames.length == 0) {
             // empty means, use default file name, which is the name of the class + extension
             dataSetFileNames = new String[]{
                 getCorrectFileName(testClass, testMethod, dataSetFactory.getDataSetFileExtension())
             };
-        } 
-        return getDataSet(testClass, dataSetFileNames, dataSetFactory);
+        }
+        return dataSetFileNames;
     }
 
 
@@ -749,6 +948,15 @@ public class DbUnitModule implements Module {
      * @return The default DbSupport (the one that connects to the default database schema)
      */
     protected DbSupport getDefaultDbSupport() {
+        return getDefaultDbSupport(databaseName);
+    }
+
+
+    /**
+     * @param databaseName The name of the database, empty for the default database
+     * @return The DbSupport that connects to the default schema of the given database, not null
+     */
+    protected DbSupport getDefaultDbSupport(String databaseName) {
         DataSourceWrapper wrapper = getDatabaseModule().getWrapper(databaseName);
         DataSource dataSource = wrapper.getDataSourceAndActivateTransactionIfNeeded();
         SQLHandler sqlHandler = new DefaultSQLHandler(dataSource);
@@ -790,13 +998,25 @@ public class DbUnitModule implements Module {
 
         @Override
         public void beforeTestSetUp(Object testObject, Method testMethod) {
-            insertDataSet(testMethod, testObject);
+            if (!isClassFixtureLoaded(testObject, testMethod)) {
+                String previousPhase = startSqlMetricsPhase(SqlMetricsCollector.PHASE_DBUNIT_LOAD);
+                try {
+                    insertDataSet(testMethod, testObject);
+                } finally {
+                    endSqlMetricsPhase(previousPhase);
+                }
+            }
         }
 
         @Override
         public void afterTestMethod(Object testObject, Method testMethod, Throwable throwable) {
             if (throwable == null) {
-                assertDbContentAsExpected(testMethod, testObject);
+                String previousPhase = startSqlMetricsPhase(SqlMetricsCollector.PHASE_DBUNIT_ASSERT);
+                try {
+                    assertDbContentAsExpected(testMethod, testObject);
+                } finally {
+                    endSqlMetricsPhase(previousPhase);
+                }
             }
         }
 
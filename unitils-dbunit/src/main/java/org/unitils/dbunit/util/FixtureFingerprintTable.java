@@ -0,0 +1,199 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbunit.util;
+
+import static org.unitils.database.SQLUnitils.getConnection;
+import static org.unitils.database.SQLUnitils.prepareStatement;
+import static org.unitils.database.SQLUnitils.releaseConnection;
+import static org.unitils.thirdparty.org.apache.commons.dbutils.DbUtils.closeQuietly;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.unitils.core.UnitilsException;
+import org.unitils.core.dbsupport.DbSupport;
+import org.unitils.database.util.ModifiedTableTrackingDataSource;
+
+/**
+ * Bookkeeping table that holds the fingerprint of the last data set that was loaded into the database, together with
+ * the version stamp of the {@link ModifiedTableTrackingDataSource} right after the load. The fingerprint is an MD5 hash
+ * of a description of the data set, e.g. its file names and load strategy.
+ * <p/>
+ * The record is written in the same transaction as the data set itself, so it is only kept if the load is committed.
+ * If the same data set is requested again and the version stamp did not change, nothing was written into the database
+ * in the meantime and the data set does not need to be loaded again.
+ * <p/>
+ * The table is created automatically if it does not exist yet.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class FixtureFingerprintTable {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(FixtureFingerprintTable.class);
+
+    /* The name of the bookkeeping table */
+    private String tableName;
+
+    /* The data source that keeps track of the modifications of the database */
+    private ModifiedTableTrackingDataSource dataSource;
+
+    /* The db support for the schema that contains the bookkeeping table */
+    private DbSupport dbSupport;
+
+    /* True if the existence of the table was checked */
+    private boolean tableChecked;
+
+
+    /**
+     * Creates a bookkeeping table.
+     *
+     * @param tableName  The name of the table, not null
+     * @param dataSource The data source that keeps track of the modifications, not null
+     * @param dbSupport  The db support for the schema that contains the table, not null
+     */
+    public FixtureFingerprintTable(String tableName, ModifiedTableTrackingDataSource dataSource, DbSupport dbSupport) {
+        this.tableName = dbSupport.toCorrectCaseIdentifier(tableName);
+        this.dataSource = dataSource;
+        this.dbSupport = dbSupport;
+    }
+
+
+    /**
+     * Checks whether the database still contains the given data set, i.e. whether it was the last data set that was
+     * loaded and nothing was written into the database since.
+     *
+     * @param dataSetDescription The description that identifies the data set, not null
+     * @return True if the data set does not need to be loaded again
+     */
+    public boolean isLoaded(String dataSetDescription) {
+        checkTable();
+        String fingerprint = getFingerprint(dataSetDescription);
+        String sql = "select fingerprint, version_stamp from " + dbSupport.qualified(tableName);
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        try {
+            connection = getConnection(dataSource);
+            preparedStatement = prepareStatement(connection, sql);
+            resultSet = preparedStatement.executeQuery();
+            if (!resultSet.next()) {
+                return false;
+            }
+            return fingerprint.equals(resultSet.getString(1)) && dataSource.getVersionStamp().equals(resultSet.getString(2));
+
+        } catch (SQLException e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(null, preparedStatement, resultSet);
+            releaseConnection(connection, dataSource);
+        }
+    }
+
+
+    /**
+     * Registers the given data set as the last data set that was loaded. Should be called right after the load, in the
+     * same transaction. The statements on the bookkeeping table itself do not change the version stamp.
+     *
+     * @param dataSetDescription The description that identifies the data set, not null
+     */
+    public void registerLoad(String dataSetDescription) {
+        checkTable();
+        String fingerprint = getFingerprint(dataSetDescription);
+        String versionStamp = dataSource.getVersionStamp();
+        dataSource.suspendTracking();
+        try {
+            executeUpdate("delete from " + dbSupport.qualified(tableName));
+            executeUpdate("insert into " + dbSupport.qualified(tableName) + " (fingerprint, version_stamp) values (?, ?)", fingerprint, versionStamp);
+        } finally {
+            dataSource.resumeTracking();
+        }
+    }
+
+
+    /**
+     * Creates the table if it does not exist yet. The table is created using a separate connection, so that the
+     * transaction of the test is not affected.
+     */
+    protected synchronized void checkTable() {
+        if (tableChecked) {
+            return;
+        }
+        if (!dbSupport.getTableNames().contains(tableName)) {
+            logger.info("Fixture fingerprint table " + dbSupport.qualified(tableName) + " doesn't exist yet. A new one is created automatically.");
+            dataSource.suspendTracking();
+            try {
+                dbSupport.getSQLHandler().executeUpdateAndCommit("create table " + dbSupport.qualified(tableName) + " (fingerprint " + dbSupport.getTextDataType(100) + ", version_stamp " + dbSupport.getTextDataType(100) + ")");
+            } finally {
+                dataSource.resumeTracking();
+            }
+            dbSupport.invalidateCache();
+        }
+        tableChecked = true;
+    }
+
+
+    /**
+     * @param dataSetDescription The description that identifies the data set, not null
+     * @return The MD5 hash of the description in hexadecimal notation, not null
+     */
+    protected String getFingerprint(String dataSetDescription) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(dataSetDescription.getBytes("UTF-8"));
+            StringBuilder result = new StringBuilder();
+            for (byte digestByte : digest) {
+                result.append(Integer.toString((digestByte & 0xff) + 0x100, 16).substring(1));
+            }
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnitilsException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new UnitilsException(e);
+        }
+    }
+
+
+    /**
+     * Executes the given statement on the connection of the current transaction, if there is one.
+     *
+     * @param sql        The statement, with a ? for every parameter, not null
+     * @param parameters The values of the parameters, not null
+     */
+    protected void executeUpdate(String sql, Object... parameters) {
+        logger.debug(sql);
+
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        try {
+            connection = getConnection(dataSource);
+            preparedStatement = prepareStatement(connection, sql, parameters);
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new UnitilsException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(null, preparedStatement, null);
+            releaseConnection(connection, dataSource);
+        }
+    }
+}
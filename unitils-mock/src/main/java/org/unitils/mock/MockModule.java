@@ -23,19 +23,30 @@ import org.unitils.core.UnitilsException;
 import org.unitils.mock.annotation.AfterCreateMock;
 import org.unitils.mock.annotation.Dummy;
 import org.unitils.mock.core.MockObject;
+import org.unitils.mock.core.MockProxy;
 import org.unitils.mock.core.PartialMockObject;
+import org.unitils.mock.core.Scenario;
+import org.unitils.mock.core.Scenario.RecordingMode;
+import org.unitils.mock.core.proxy.CloneUtil;
 import org.unitils.util.AnnotationUtils;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
 import static org.unitils.mock.MockUnitils.logFullScenarioReport;
+import static org.unitils.mock.core.Scenario.RecordingMode.FULL;
 import static org.unitils.mock.dummy.DummyObjectUtil.createDummy;
 import static org.unitils.util.AnnotationUtils.getMethodsAnnotatedWith;
+import static org.unitils.util.PropertyUtils.getBoolean;
+import static org.unitils.util.PropertyUtils.getInt;
+import static org.unitils.util.PropertyUtils.getString;
+import static org.unitils.util.PropertyUtils.getStringList;
 import static org.unitils.util.ReflectionUtils.*;
 
 /**
@@ -47,8 +58,30 @@ import static org.unitils.util.ReflectionUtils.*;
  */
 public class MockModule implements Module {
 
+    /* Property key that indicates whether the location of mock invocations should be recorded */
+    public static final String PROPKEY_RECORD_INVOCATION_LOCATIONS = "mockModule.recordInvocationLocations.enabled";
+
+    /* Property key for the types of which the instances are never copied when recording mock invocations */
+    public static final String PROPKEY_SNAPSHOT_EXCLUDED_TYPES = "mockModule.snapshot.excludedTypes";
+
+    /* Property key for the recording mode of the observed mock invocations */
+    public static final String PROPKEY_RECORD_INVOCATIONS_MODE = "mockModule.recordInvocations.mode";
+
+    /* Property key for the nr of invocations that is recorded in recording mode LAST */
+    public static final String PROPKEY_RECORD_INVOCATIONS_MAX = "mockModule.recordInvocations.maxNrOfInvocations";
+
 
     public void init(Properties configuration) {
+        MockProxy.setRecordInvocationLocations(getBoolean(PROPKEY_RECORD_INVOCATION_LOCATIONS, true, configuration));
+
+        List<Class<?>> excludedTypes = new ArrayList<Class<?>>();
+        for (String className : getStringList(PROPKEY_SNAPSHOT_EXCLUDED_TYPES, configuration)) {
+            excludedTypes.add(getClassWithName(className));
+        }
+        CloneUtil.setExcludedTypes(excludedTypes);
+
+        RecordingMode recordingMode = getEnumValue(RecordingMode.class, getString(PROPKEY_RECORD_INVOCATIONS_MODE, FULL.name(), configuration));
+        Scenario.setDefaultRecordingMode(recordingMode, getInt(PROPKEY_RECORD_INVOCATIONS_MAX, 1000, configuration));
     }
 
     public void afterInit() {
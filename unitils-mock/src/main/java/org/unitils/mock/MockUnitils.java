@@ -20,8 +20,10 @@ package org.unitils.mock;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.unitils.core.Unitils;
+import org.unitils.core.UnitilsException;
 import org.unitils.mock.core.MockObject;
 import org.unitils.mock.core.Scenario;
+import org.unitils.mock.core.Scenario.RecordingMode;
 import org.unitils.mock.dummy.DummyObjectUtil;
 
 import static org.unitils.mock.core.proxy.StackTraceUtils.getInvocationStackTrace;
@@ -42,6 +44,23 @@ public class MockUnitils {
     }
 
 
+    /**
+     * Sets the recording mode of the observed mock invocations for the current test. This can be used to limit the
+     * memory that is used by tests that invoke mocks a very large nr of times. Asserts that need invocations that
+     * were not recorded will raise an exception.
+     *
+     * @param recordingMode              The mode, not null
+     * @param maxNrOfRecordedInvocations The nr of invocations that is recorded in mode LAST
+     */
+    public static void setInvocationRecordingMode(RecordingMode recordingMode, int maxNrOfRecordedInvocations) {
+        Scenario scenario = getScenario();
+        if (scenario == null) {
+            throw new UnitilsException("Unable to set invocation recording mode. No mocks were created for the current test.");
+        }
+        scenario.setRecordingMode(recordingMode, maxNrOfRecordedInvocations);
+    }
+
+
     public static <T> T createDummy(Class<T> type) {
         return DummyObjectUtil.createDummy(type);
     }
@@ -28,15 +28,27 @@ import static org.unitils.thirdparty.org.apache.commons.io.IOUtils.closeQuietly;
 import static org.unitils.util.ReflectionUtils.getClassWithName;
 
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Collections.unmodifiableList;
 
 
 /**
  * Utility class for locating argument matchers in method invocations.
+ * <p/>
+ * The result of the bytecode analysis is cached per class, method, invoked method and line nrs, so that the analysis
+ * is only performed once for every matching invocation, also when the same test is run by more than one test
+ * instance or thread. The bytecode of a class is only read once for all its methods. The read classes are softly
+ * referenced so that they can be reclaimed when memory runs low. The classes are weakly referenced, the cache does not
+ * keep the class loaders of the tests alive.
  *
  * @author Tim Ducheyne
  * @author Filip Neven
@@ -44,6 +56,9 @@ import java.util.Set;
  */
 public class ArgumentMatcherPositionFinder {
 
+    /* The cached analysis results per class containing the invocations */
+    private static Map<Class<?>, ClassCache> classCaches = new WeakHashMap<Class<?>, ClassCache>();
+
 
     /**
      * Locates the argument matchers for the given proxy method invocation.
@@ -73,23 +88,50 @@ public class ArgumentMatcherPositionFinder {
      * @param fromLineNr    The begin line-nr of the invocation
      * @param toLineNr      The end line-nr of the invocation (could be different from the begin line-nr if the invocation is written on more than 1 line)
      * @param index         The index of the matcher on that line, 1 for the first, 2 for the second etc
+     * @return The argument indexes, empty if there are no matchers, not modifiable
+     */
+    public static List<Integer> getArgumentMatcherIndexes(Class<?> clazz, String methodName, Method invokedMethod, int fromLineNr, int toLineNr, int index) {
+        Map<InvocationKey, List<Integer>> argumentMatcherIndexes = getClassCache(clazz).argumentMatcherIndexes;
+        InvocationKey invocationKey = new InvocationKey(methodName, invokedMethod, fromLineNr, toLineNr, index);
+        List<Integer> result = argumentMatcherIndexes.get(invocationKey);
+        if (result == null) {
+            result = unmodifiableList(findArgumentMatcherIndexes(clazz, methodName, invokedMethod, fromLineNr, toLineNr, index));
+            argumentMatcherIndexes.put(invocationKey, result);
+        }
+        return result;
+    }
+
+
+    /**
+     * Analyzes the bytecode of the given method to locate the argument matchers of the method invocation on the
+     * given line. An exception is raised when the given method cannot be found.
+     *
+     * @param clazz         The class containing the method invocation, not null
+     * @param methodName    The method containing the method invocation, not null
+     * @param invokedMethod The invocation to look for, not null
+     * @param fromLineNr    The begin line-nr of the invocation
+     * @param toLineNr      The end line-nr of the invocation
+     * @param index         The index of the matcher on that line, 1 for the first, 2 for the second etc
      * @return The argument indexes, empty if there are no matchers
      */
     @SuppressWarnings({"unchecked"})
-    public static List<Integer> getArgumentMatcherIndexes(Class<?> clazz, String methodName, Method invokedMethod, int fromLineNr, int toLineNr, int index) {
+    protected static List<Integer> findArgumentMatcherIndexes(Class<?> clazz, String methodName, Method invokedMethod, int fromLineNr, int toLineNr, int index) {
         // read the bytecode of the test class
-        ClassNode restClassNode = readClass(clazz);
-
-        // find the correct test method
-        List<MethodNode> testMethodNodes = restClassNode.methods;
-        for (MethodNode testMethodNode : testMethodNodes) {
-
-            // another method with the same name may exist
-            // if no result was found it could be that the line nr was for the other method, so continue with the search
-            if (methodName.equals(testMethodNode.name)) {
-                List<Integer> result = findArgumentMatcherIndexes(restClassNode, testMethodNode, clazz, methodName, invokedMethod, fromLineNr, toLineNr, index);
-                if (result != null) {
-                    return result;
+        ClassNode restClassNode = getClassNode(clazz);
+
+        // the instruction lists of a class node are not thread-safe
+        synchronized (restClassNode) {
+            // find the correct test method
+            List<MethodNode> testMethodNodes = restClassNode.methods;
+            for (MethodNode testMethodNode : testMethodNodes) {
+
+                // another method with the same name may exist
+                // if no result was found it could be that the line nr was for the other method, so continue with the search
+                if (methodName.equals(testMethodNode.name)) {
+                    List<Integer> result = findArgumentMatcherIndexes(restClassNode, testMethodNode, clazz, methodName, invokedMethod, fromLineNr, toLineNr, index);
+                    if (result != null) {
+                        return result;
+                    }
                 }
             }
         }
@@ -97,6 +139,42 @@ public class ArgumentMatcherPositionFinder {
     }
 
 
+    /**
+     * Gets the structure of the given class, reading the bytecode if the class was not read before.
+     *
+     * @param clazz The class, not null
+     * @return The structure of the class, not null
+     */
+    protected static ClassNode getClassNode(Class<?> clazz) {
+        ClassCache classCache = getClassCache(clazz);
+        SoftReference<ClassNode> classNodeReference = classCache.classNode;
+        ClassNode classNode = classNodeReference == null ? null : classNodeReference.get();
+        if (classNode == null) {
+            classNode = readClass(clazz);
+            classCache.classNode = new SoftReference<ClassNode>(classNode);
+        }
+        return classNode;
+    }
+
+
+    /**
+     * Gets the cached analysis results of the given class, creating an empty cache if there is none yet.
+     *
+     * @param clazz The class, not null
+     * @return The cache, not null
+     */
+    protected static ClassCache getClassCache(Class<?> clazz) {
+        synchronized (classCaches) {
+            ClassCache classCache = classCaches.get(clazz);
+            if (classCache == null) {
+                classCache = new ClassCache();
+                classCaches.put(clazz, classCache);
+            }
+            return classCache;
+        }
+    }
+
+
     /**
      * Uses ASM to read the byte code of the given class. This will access the class file and create some sort
      * of DOM tree for the structure of the bytecode.
@@ -155,6 +233,67 @@ public class ArgumentMatcherPositionFinder {
     }
 
 
+    /**
+     * The cached analysis results of a class. The cache does not refer to any class, otherwise the class that is
+     * used as weak key would stay reachable.
+     */
+    protected static class ClassCache {
+
+        /* The structure of the class, null if not read yet */
+        private volatile SoftReference<ClassNode> classNode;
+
+        /* The found argument matcher indexes per invocation in the class */
+        private Map<InvocationKey, List<Integer>> argumentMatcherIndexes = new ConcurrentHashMap<InvocationKey, List<Integer>>();
+    }
+
+
+    /**
+     * Key for caching the argument matcher indexes of an invocation in a class. The invoked method is identified by
+     * the name of its declaring class, its name and its descriptor.
+     */
+    protected static class InvocationKey {
+
+        private String methodName;
+
+        private String invokedMethod;
+
+        private int fromLineNr, toLineNr, index;
+
+
+        public InvocationKey(String methodName, Method invokedMethod, int fromLineNr, int toLineNr, int index) {
+            this.methodName = methodName;
+            this.invokedMethod = invokedMethod.getDeclaringClass().getName() + "." + invokedMethod.getName() + getMethodDescriptor(invokedMethod);
+            this.fromLineNr = fromLineNr;
+            this.toLineNr = toLineNr;
+            this.index = index;
+        }
+
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof InvocationKey)) {
+                return false;
+            }
+            InvocationKey other = (InvocationKey) object;
+            return methodName.equals(other.methodName) && invokedMethod.equals(other.invokedMethod) &&
+                    fromLineNr == other.fromLineNr && toLineNr == other.toLineNr && index == other.index;
+        }
+
+
+        @Override
+        public int hashCode() {
+            int result = methodName.hashCode();
+            result = 31 * result + invokedMethod.hashCode();
+            result = 31 * result + fromLineNr;
+            result = 31 * result + toLineNr;
+            return 31 * result + index;
+        }
+    }
+
+
     /**
      * Analyzer that passes the line nrs to the given interpreter.
      * By default an analyzer filters out the line number instructions. This analyzer intercepts these instructions and
@@ -54,6 +54,14 @@ public class DefaultArgumentMatcher implements ArgumentMatcher {
         this.valueAtInvocationTime = createDeepClone(value);
     }
 
+
+    /**
+     * @return The original value passed to the argument matcher
+     */
+    public Object getValue() {
+        return value;
+    }
+
     /**
      * Returns true if the given object matches the expected argument, false otherwise. If the given argument refers to
      * the same object as the original value, true is returned. If the given argument is another object than the original
@@ -44,6 +44,14 @@ public class EqualsArgumentMatcher implements ArgumentMatcher {
     }
 
 
+    /**
+     * @return The excepted value
+     */
+    public Object getValue() {
+        return value;
+    }
+
+
     /**
      * Returns true if the given object matches the expected argument, false otherwise.
      *
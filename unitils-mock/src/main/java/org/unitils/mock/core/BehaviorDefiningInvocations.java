@@ -17,13 +17,31 @@
  */
 package org.unitils.mock.core;
 
+import org.unitils.mock.argumentmatcher.ArgumentMatcher;
+import org.unitils.mock.argumentmatcher.impl.DefaultArgumentMatcher;
+import org.unitils.mock.argumentmatcher.impl.EqualsArgumentMatcher;
 import org.unitils.mock.core.proxy.ProxyInvocation;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
+ * The behavior defining invocations of a mock.
+ * <p/>
+ * To avoid having to match an invocation with all behavior defining invocations, they are indexed per method. If all
+ * arguments of a behavior defining invocation are matched by a default or equals argument matcher with a simple value
+ * (e.g. a string, number or enum), the invocation is also indexed by the values of its arguments. An actual invocation
+ * then only has to be matched with the behavior defining invocations that have the same argument values and the ones
+ * that could not be indexed by their argument values.
+ * <p/>
+ * The mock can be invoked by several threads, e.g. by executor threads of the code under test. All public methods are
+ * therefore synchronized, so that a one-time matching behavior can only be used once.
+ *
  * @author Tim Ducheyne
  * @author Filip Neven
  */
@@ -32,19 +50,36 @@ public class BehaviorDefiningInvocations {
     protected boolean removeWhenUsed;
     protected List<BehaviorDefiningInvocation> behaviorDefiningInvocations = new ArrayList<BehaviorDefiningInvocation>();
 
+    /* Per method, the behavior defining invocations that are not indexed by argument values, in order of definition */
+    protected Map<Method, List<BehaviorDefiningInvocation>> behaviorDefiningInvocationsPerMethod = new HashMap<Method, List<BehaviorDefiningInvocation>>();
+
+    /* Per method and argument values, the indexed behavior defining invocations, in order of definition */
+    protected Map<Method, Map<List<Object>, List<BehaviorDefiningInvocation>>> behaviorDefiningInvocationsPerArguments = new HashMap<Method, Map<List<Object>, List<BehaviorDefiningInvocation>>>();
+
+    /* The order in which the behavior defining invocations were defined */
+    protected Map<BehaviorDefiningInvocation, Integer> definitionIndexes = new IdentityHashMap<BehaviorDefiningInvocation, Integer>();
+
+    /* The index for the next behavior defining invocation */
+    protected int nextDefinitionIndex;
+
 
     public BehaviorDefiningInvocations(boolean removeWhenUsed) {
         this.removeWhenUsed = removeWhenUsed;
     }
 
 
-    public void addBehaviorDefiningInvocation(BehaviorDefiningInvocation behaviorDefiningInvocation) {
+    public synchronized void addBehaviorDefiningInvocation(BehaviorDefiningInvocation behaviorDefiningInvocation) {
         behaviorDefiningInvocations.add(behaviorDefiningInvocation);
+        definitionIndexes.put(behaviorDefiningInvocation, nextDefinitionIndex++);
+        getIndexedList(behaviorDefiningInvocation, true).add(behaviorDefiningInvocation);
     }
 
 
-    public void clear() {
+    public synchronized void clear() {
         behaviorDefiningInvocations.clear();
+        behaviorDefiningInvocationsPerMethod.clear();
+        behaviorDefiningInvocationsPerArguments.clear();
+        definitionIndexes.clear();
     }
 
 
@@ -62,11 +97,11 @@ public class BehaviorDefiningInvocations {
      * @param proxyInvocation The actual invocation to match with, not null
      * @return The behavior defining invocation that matches best with the actual invocation, null if none found
      */
-    public BehaviorDefiningInvocation getMatchingBehaviorDefiningInvocation(ProxyInvocation proxyInvocation) {
+    public synchronized BehaviorDefiningInvocation getMatchingBehaviorDefiningInvocation(ProxyInvocation proxyInvocation) {
         BehaviorDefiningInvocation bestMatchingBehaviorDefiningInvocation = null;
         int bestMatchingScore = -1;
 
-        for (BehaviorDefiningInvocation behaviorDefiningInvocation : behaviorDefiningInvocations) {
+        for (BehaviorDefiningInvocation behaviorDefiningInvocation : getCandidateBehaviorDefiningInvocations(proxyInvocation)) {
             int matchingScore = behaviorDefiningInvocation.matches(proxyInvocation);
             if (matchingScore == -1) {
                 // no match
@@ -94,7 +129,176 @@ public class BehaviorDefiningInvocations {
         }
         if (removeWhenUsed && bestMatchingBehaviorDefiningInvocation != null) {
             behaviorDefiningInvocations.remove(bestMatchingBehaviorDefiningInvocation);
+            definitionIndexes.remove(bestMatchingBehaviorDefiningInvocation);
+            getIndexedList(bestMatchingBehaviorDefiningInvocation, false).remove(bestMatchingBehaviorDefiningInvocation);
         }
         return bestMatchingBehaviorDefiningInvocation;
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Gets the behavior defining invocations that could match the given invocation, in the order in which they were
+     * defined. These are the invocations for the same method that are not indexed by argument values and the ones that
+     * are indexed with the argument values of the given invocation.
+     *
+     * @param proxyInvocation The actual invocation, not null
+     * @return The behavior defining invocations, not null
+     */
+    protected List<BehaviorDefiningInvocation> getCandidateBehaviorDefiningInvocations(ProxyInvocation proxyInvocation) {
+        Method method = proxyInvocation.getMethod();
+        List<BehaviorDefiningInvocation> notIndexed = behaviorDefiningInvocationsPerMethod.get(method);
+        List<BehaviorDefiningInvocation> indexed = null;
+
+        Map<List<Object>, List<BehaviorDefiningInvocation>> perArguments = behaviorDefiningInvocationsPerArguments.get(method);
+        if (perArguments != null) {
+            List<Object> argumentsKey = getArgumentsKey(proxyInvocation.getArguments());
+            if (argumentsKey != null) {
+                indexed = perArguments.get(argumentsKey);
+            }
+        }
+        if (indexed == null || indexed.isEmpty()) {
+            return notIndexed == null ? new ArrayList<BehaviorDefiningInvocation>(0) : notIndexed;
+        }
+        if (notIndexed == null || notIndexed.isEmpty()) {
+            return indexed;
+        }
+        // merge both lists, keeping the order of definition
+        List<BehaviorDefiningInvocation> result = new ArrayList<BehaviorDefiningInvocation>(notIndexed.size() + indexed.size());
+        int notIndexedPosition = 0;
+        int indexedPosition = 0;
+        while (notIndexedPosition < notIndexed.size() && indexedPosition < indexed.size()) {
+            BehaviorDefiningInvocation notIndexedInvocation = notIndexed.get(notIndexedPosition);
+            BehaviorDefiningInvocation indexedInvocation = indexed.get(indexedPosition);
+            if (definitionIndexes.get(notIndexedInvocation) < definitionIndexes.get(indexedInvocation)) {
+                result.add(notIndexedInvocation);
+                notIndexedPosition++;
+            } else {
+                result.add(indexedInvocation);
+                indexedPosition++;
+            }
+        }
+        result.addAll(notIndexed.subList(notIndexedPosition, notIndexed.size()));
+        result.addAll(indexed.subList(indexedPosition, indexed.size()));
+        return result;
+    }
+
+
+    /**
+     * Gets the list of the index to which the given behavior defining invocation belongs.
+     *
+     * @param behaviorDefiningInvocation The behavior defining invocation, not null
+     * @param create                     True if the list should be created if it does not exist yet
+     * @return The list, an empty list if it does not exist and should not be created, not null
+     */
+    protected List<BehaviorDefiningInvocation> getIndexedList(BehaviorDefiningInvocation behaviorDefiningInvocation, boolean create) {
+        Method method = behaviorDefiningInvocation.getMethod();
+        List<Object> argumentsKey = getArgumentMatchersKey(behaviorDefiningInvocation.argumentMatchers);
+        if (argumentsKey == null) {
+            return getOrCreateList(behaviorDefiningInvocationsPerMethod, method, create);
+        }
+        Map<List<Object>, List<BehaviorDefiningInvocation>> perArguments = behaviorDefiningInvocationsPerArguments.get(method);
+        if (perArguments == null) {
+            if (!create) {
+                return new ArrayList<BehaviorDefiningInvocation>(0);
+            }
+            perArguments = new HashMap<List<Object>, List<BehaviorDefiningInvocation>>();
+            behaviorDefiningInvocationsPerArguments.put(method, perArguments);
+        }
+        return getOrCreateList(perArguments, argumentsKey, create);
+    }
+
+
+    protected <K> List<BehaviorDefiningInvocation> getOrCreateList(Map<K, List<BehaviorDefiningInvocation>> map, K key, boolean create) {
+        List<BehaviorDefiningInvocation> result = map.get(key);
+        if (result == null) {
+            result = new ArrayList<BehaviorDefiningInvocation>();
+            if (create) {
+                map.put(key, result);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Gets the key by which a behavior defining invocation with the given argument matchers can be indexed. This is
+     * only possible if every matcher only matches arguments that have the same key value, see {@link #getKeyValue}.
+     * Default argument matchers compare numbers and characters by their numeric value and ignore default values
+     * (null, 0 and false), equals argument matchers are only indexed for strings and enums.
+     *
+     * @param argumentMatchers The argument matchers, not null
+     * @return The key, null if the invocation cannot be indexed by argument values
+     */
+    protected List<Object> getArgumentMatchersKey(List<ArgumentMatcher> argumentMatchers) {
+        List<Object> result = new ArrayList<Object>(argumentMatchers.size());
+        for (ArgumentMatcher argumentMatcher : argumentMatchers) {
+            Object keyValue = null;
+            if (argumentMatcher instanceof DefaultArgumentMatcher) {
+                Object value = ((DefaultArgumentMatcher) argumentMatcher).getValue();
+                if (!(Boolean.FALSE.equals(value) || isZero(value))) {
+                    keyValue = getKeyValue(value);
+                }
+            } else if (argumentMatcher instanceof EqualsArgumentMatcher) {
+                Object value = ((EqualsArgumentMatcher) argumentMatcher).getValue();
+                if (value instanceof String || value instanceof Enum) {
+                    keyValue = value;
+                }
+            }
+            if (keyValue == null) {
+                return null;
+            }
+            result.add(keyValue);
+        }
+        return result;
+    }
+
+
+    /**
+     * @param arguments The arguments of an actual invocation, null if there are none
+     * @return The key of the arguments, null if an indexed behavior defining invocation can never match them
+     */
+    protected List<Object> getArgumentsKey(List<Object> arguments) {
+        if (arguments == null) {
+            return null;
+        }
+        List<Object> result = new ArrayList<Object>(arguments.size());
+        for (Object argument : arguments) {
+            Object keyValue = getKeyValue(argument);
+            if (keyValue == null) {
+                return null;
+            }
+            result.add(keyValue);
+        }
+        return result;
+    }
+
+
+    /**
+     * @param value The value
+     * @return The double value for numbers and characters, the value itself for strings, enums and booleans, null otherwise
+     */
+    protected Object getKeyValue(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Character) {
+            return (double) (Character) value;
+        }
+        if (value instanceof String || value instanceof Enum || value instanceof Boolean) {
+            return value;
+        }
+        return null;
+    }
+
+
+    /**
+     * @param value The value
+     * @return True if the value is a number or character with value 0
+     */
+    protected boolean isZero(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue() == 0;
+        }
+        return value instanceof Character && (Character) value == 0;
+    }
+}
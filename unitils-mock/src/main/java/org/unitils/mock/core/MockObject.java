@@ -63,7 +63,8 @@ public class MockObject<T> implements Mock<T>, MockFactory, ObjectToInjectHolder
     /* Created chained mocks per mock name */
     protected Map<String, Mock<?>> chainedMocksPerName;
 
-    /* The scenario that will record all observed invocations */
+    /* The scenario that will record all observed invocations. The mock proxies keep a reference to the scenario of the
+       test thread that created them, so that invocations by other threads are recorded in the same scenario */
     protected static ThreadLocal<Scenario> scenarioThreadLocal = new ThreadLocal<Scenario>();
 
     protected static ThreadLocal<MatchingInvocationBuilder> matchingInvocationBuilderThreadLocal = new ThreadLocal<MatchingInvocationBuilder>();
@@ -429,6 +430,19 @@ public class MockObject<T> implements Mock<T>, MockFactory, ObjectToInjectHolder
     }
 
 
+    /**
+     * Disables or enables copying the arguments and result values of the invocations of this mock. By default, deep
+     * copies of these values are made so that asserts and reports use the values as they were at the time of the
+     * invocation. For mocks that get passed large object graphs, this can be disabled. Asserts and reports will
+     * then use the current values.
+     *
+     * @param snapshotInvocations False to disable the copying
+     */
+    public void setSnapshotInvocations(boolean snapshotInvocations) {
+        mockProxy.setSnapshotInvocations(snapshotInvocations);
+    }
+
+
     public String getName() {
         return name;
     }
@@ -437,7 +451,7 @@ public class MockObject<T> implements Mock<T>, MockFactory, ObjectToInjectHolder
         return getMatchingInvocationBuilder().startMatchingInvocation(name, mockedType, matchingInvocationHandler);
     }
 
-    protected synchronized MatchingInvocationBuilder getMatchingInvocationBuilder() {
+    protected MatchingInvocationBuilder getMatchingInvocationBuilder() {
         MatchingInvocationBuilder matchingInvocationBuilder = matchingInvocationBuilderThreadLocal.get();
         if (matchingInvocationBuilder == null) {
             matchingInvocationBuilder = createMatchingInvocationBuilder();
@@ -446,7 +460,7 @@ public class MockObject<T> implements Mock<T>, MockFactory, ObjectToInjectHolder
         return matchingInvocationBuilder;
     }
 
-    protected synchronized Scenario getScenario(Object testObject) {
+    protected Scenario getScenario(Object testObject) {
         Scenario scenario = scenarioThreadLocal.get();
         if (scenario == null) {
             scenario = createScenario(testObject);
@@ -29,6 +29,9 @@ import static org.unitils.mock.core.proxy.ProxyFactory.createProxy;
 
 public class MockProxy<T> {
 
+    /* True if the location of the invocations of new mocks should be recorded */
+    protected static volatile boolean recordInvocationLocations = true;
+
     /* The mock proxy instance */
     protected T proxy;
 
@@ -41,13 +44,36 @@ public class MockProxy<T> {
 
     protected MatchingInvocationBuilder matchingInvocationBuilder;
 
+    /* False if the arguments and results of the invocations should not be copied */
+    protected boolean snapshotInvocations = true;
+
 
     public MockProxy(String mockName, Class<T> mockedType, BehaviorDefiningInvocations oneTimeMatchingBehaviorDefiningInvocations, BehaviorDefiningInvocations alwaysMatchingBehaviorDefiningInvocations, Scenario scenario, MatchingInvocationBuilder matchingInvocationBuilder) {
         this.oneTimeMatchingBehaviorDefiningInvocations = oneTimeMatchingBehaviorDefiningInvocations;
         this.alwaysMatchingBehaviorDefiningInvocations = alwaysMatchingBehaviorDefiningInvocations;
         this.scenario = scenario;
         this.matchingInvocationBuilder = matchingInvocationBuilder;
-        this.proxy = createProxy(mockName, new InvocationHandler(), mockedType, Cloneable.class);
+        this.proxy = createProxy(mockName, new InvocationHandler(), recordInvocationLocations, mockedType, Cloneable.class);
+    }
+
+
+    /**
+     * @param snapshotInvocations False if the arguments and results of the invocations should not be copied
+     */
+    public void setSnapshotInvocations(boolean snapshotInvocations) {
+        this.snapshotInvocations = snapshotInvocations;
+    }
+
+
+    /**
+     * Sets whether the location of the invocations of mocks that are created afterwards should be recorded. If not
+     * recorded, the reports and error messages will not show where a mock was invoked, but invoking a mock becomes
+     * a lot cheaper. This can be useful for mocks that are invoked very often.
+     *
+     * @param recordInvocationLocations False if the locations should not be recorded
+     */
+    public static void setRecordInvocationLocations(boolean recordInvocationLocations) {
+        MockProxy.recordInvocationLocations = recordInvocationLocations;
     }
 
 
@@ -63,7 +89,9 @@ public class MockProxy<T> {
         BehaviorDefiningInvocation behaviorDefiningInvocation = getMatchingBehaviorDefiningInvocation(proxyInvocation);
         MockBehavior mockBehavior = getValidMockBehavior(proxyInvocation, behaviorDefiningInvocation);
 
-        ObservedInvocation observedInvocation = new ObservedInvocation(proxyInvocation, behaviorDefiningInvocation, mockBehavior);
+        // no need to copy the arguments and result if they will not be recorded
+        boolean snapshot = snapshotInvocations && scenario.isRecordingInvocations();
+        ObservedInvocation observedInvocation = new ObservedInvocation(proxyInvocation, behaviorDefiningInvocation, mockBehavior, snapshot);
         scenario.addObservedMockInvocation(observedInvocation);
 
         Throwable throwable = null;
@@ -33,6 +33,8 @@ public class ObservedInvocation extends ProxyInvocation {
     private Object resultAtInvocationTime;
     private BehaviorDefiningInvocation behaviorDefiningInvocation;
     private MockBehavior mockBehavior;
+    /* False if the arguments and result should not be copied */
+    private boolean snapshot;
 
 
     /**
@@ -47,9 +49,26 @@ public class ObservedInvocation extends ProxyInvocation {
      * @param mockBehavior               The executed behavior, not null
      */
     public ObservedInvocation(ProxyInvocation proxyInvocation, BehaviorDefiningInvocation behaviorDefiningInvocation, MockBehavior mockBehavior) {
-        super(proxyInvocation);
+        this(proxyInvocation, behaviorDefiningInvocation, mockBehavior, true);
+    }
+
+
+    /**
+     * Creates a observed invocation for the given prosy invocation.
+     *
+     * If snapshot is false, the arguments and result are not copied. Asserts and reports will then use the
+     * values of the arguments and result as they are at the time of the assert or report.
+     *
+     * @param proxyInvocation            The proxy invocation, not null
+     * @param behaviorDefiningInvocation The invocation that defined the behavior, null if there is no behavior
+     * @param mockBehavior               The executed behavior, not null
+     * @param snapshot                   False if the arguments and result should not be copied
+     */
+    public ObservedInvocation(ProxyInvocation proxyInvocation, BehaviorDefiningInvocation behaviorDefiningInvocation, MockBehavior mockBehavior, boolean snapshot) {
+        super(proxyInvocation, snapshot);
         this.behaviorDefiningInvocation = behaviorDefiningInvocation;
         this.mockBehavior = mockBehavior;
+        this.snapshot = snapshot;
     }
 
     /**
@@ -61,7 +80,7 @@ public class ObservedInvocation extends ProxyInvocation {
      */
     public void setResult(Object result) {
         this.result = result;
-        this.resultAtInvocationTime = createDeepClone(result);
+        this.resultAtInvocationTime = snapshot ? createDeepClone(result) : result;
     }
 
     public Object getResult() {
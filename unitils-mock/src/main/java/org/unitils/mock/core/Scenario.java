@@ -17,6 +17,7 @@
  */
 package org.unitils.mock.core;
 
+import org.unitils.core.UnitilsException;
 import org.unitils.mock.core.proxy.ProxyInvocation;
 import org.unitils.mock.report.ScenarioReport;
 import org.unitils.mock.report.impl.DefaultScenarioReport;
@@ -24,13 +25,34 @@ import org.unitils.mock.report.impl.DetailedObservedInvocationsReport;
 import org.unitils.mock.report.impl.ObservedInvocationsReport;
 import org.unitils.mock.report.impl.SuggestedAssertsReport;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.unitils.mock.core.Scenario.RecordingMode.*;
 import static org.unitils.mock.core.Scenario.VerificationStatus.*;
 import static org.unitils.util.ReflectionUtils.getSimpleMethodName;
 
 /**
+ * The observed invocations of a test. Next to the list of all observed invocations in the order in which they
+ * occurred, the invocations are also indexed per invoked method. This way, an assertion only has to look at the
+ * invocations of the asserted method. Invocations that were already verified at the start of such a list are
+ * skipped, so that verifying a lot of invocations of the same method does not become quadratic.
+ * <p/>
+ * By default all invocations are recorded. For tests that invoke mocks a very large nr of times, the
+ * {@link RecordingMode} can be used to limit the memory that is used: only the last invocations can be recorded,
+ * only the nr of invocations per method, or nothing at all. Asserts that need invocations that were not recorded
+ * will raise an exception.
+ * <p/>
+ * A scenario can be shared by several threads, e.g. when the code under test invokes mocks from executor threads.
+ * Observed invocations are added to a lock-free queue and are only indexed, in the order of the queue, when the
+ * recorded invocations are needed or when the queue becomes too large. All other operations are synchronized.
+ *
  * @author Filip Neven
  * @author Tim Ducheyne
  * @author Kenny Claes
@@ -38,24 +60,132 @@ import static org.unitils.util.ReflectionUtils.getSimpleMethodName;
 public class Scenario {
 
     protected static enum VerificationStatus {
-        UNVERIFIED, VERIFIED, VERIFIED_IN_ORDER
+        UNVERIFIED, VERIFIED, VERIFIED_IN_ORDER, DISCARDED
+    }
+
+    /**
+     * Determines which observed invocations are recorded.
+     */
+    public static enum RecordingMode {
+
+        /* All invocations are recorded */
+        FULL,
+
+        /* Only the last invocations are recorded, older invocations are discarded */
+        LAST,
+
+        /* Only the nr of invocations per method is recorded */
+        COUNT,
+
+        /* Nothing is recorded */
+        OFF
     }
 
+    /* The recording mode of new or reset scenarios */
+    protected static volatile RecordingMode defaultRecordingMode = FULL;
+
+    /* The max nr of invocations that is recorded in mode LAST by new or reset scenarios */
+    protected static volatile int defaultMaxNrOfRecordedInvocations = 1000;
+
+    /* The nr of pending invocations after which they are recorded by the observing thread */
+    protected static final int MAX_NR_OF_PENDING_INVOCATIONS = 1000;
+
+    /* The observed invocations that are not recorded yet */
+    protected ConcurrentLinkedQueue<ObservedInvocation> pendingInvocations = new ConcurrentLinkedQueue<ObservedInvocation>();
+
+    protected AtomicInteger nrOfPendingInvocations = new AtomicInteger();
+
     protected List<ObservedInvocation> observedInvocations = new ArrayList<ObservedInvocation>();
 
-    protected List<VerificationStatus> invocationVerificationStatuses = new ArrayList<VerificationStatus>();
+    /* The observed invocations with their verification status, in the order in which they occurred */
+    protected List<ObservedInvocationEntry> observedInvocationEntries = new ArrayList<ObservedInvocationEntry>();
+
+    /* The observed invocations per invoked method */
+    protected Map<Method, MethodObservedInvocationEntries> observedInvocationEntriesPerMethod = new HashMap<Method, MethodObservedInvocationEntries>();
+
+    /* The invocations that were verified in order, per sequence nr */
+    protected TreeMap<Integer, ObservedInvocationEntry> verifiedInOrderEntries = new TreeMap<Integer, ObservedInvocationEntry>();
+
+    /* The nr of observed invocations, including the ones that were not recorded */
+    protected int nrOfObservedInvocations;
+
+    /* The nr of entries at the start of the entry lists that were discarded but not yet removed */
+    protected int nrOfDiscardedEntries;
 
-    protected Object testObject;
+    /* The nr of not recorded invocations without behavior that were not verified */
+    protected int nrOfUnrecordedUnexpectedInvocations;
+
+    /* True if invocations were observed while recording was off */
+    protected volatile boolean unrecordedInvocationsNotCounted;
+
+    protected volatile RecordingMode recordingMode;
+
+    protected int maxNrOfRecordedInvocations;
+
+    protected volatile Object testObject;
 
 
     public Scenario(Object testObject) {
         this.testObject = testObject;
+        this.recordingMode = defaultRecordingMode;
+        this.maxNrOfRecordedInvocations = defaultMaxNrOfRecordedInvocations;
     }
 
 
-    public void reset() {
+    public synchronized void reset() {
+        pendingInvocations.clear();
+        nrOfPendingInvocations.set(0);
         observedInvocations.clear();
-        invocationVerificationStatuses.clear();
+        observedInvocationEntries.clear();
+        observedInvocationEntriesPerMethod.clear();
+        verifiedInOrderEntries.clear();
+        nrOfObservedInvocations = 0;
+        nrOfDiscardedEntries = 0;
+        nrOfUnrecordedUnexpectedInvocations = 0;
+        unrecordedInvocationsNotCounted = false;
+        recordingMode = defaultRecordingMode;
+        maxNrOfRecordedInvocations = defaultMaxNrOfRecordedInvocations;
+    }
+
+
+    /**
+     * Sets the recording mode of the scenarios that are created or reset afterwards.
+     *
+     * @param recordingMode              The mode, not null
+     * @param maxNrOfRecordedInvocations The nr of invocations that is recorded in mode LAST
+     */
+    public static void setDefaultRecordingMode(RecordingMode recordingMode, int maxNrOfRecordedInvocations) {
+        assertValidMaxNrOfRecordedInvocations(maxNrOfRecordedInvocations);
+        Scenario.defaultRecordingMode = recordingMode;
+        Scenario.defaultMaxNrOfRecordedInvocations = maxNrOfRecordedInvocations;
+    }
+
+
+    /**
+     * Sets the recording mode of this scenario. The mode is used for all invocations that are observed afterwards,
+     * until the scenario is reset.
+     *
+     * @param recordingMode              The mode, not null
+     * @param maxNrOfRecordedInvocations The nr of invocations that is recorded in mode LAST
+     */
+    public synchronized void setRecordingMode(RecordingMode recordingMode, int maxNrOfRecordedInvocations) {
+        assertValidMaxNrOfRecordedInvocations(maxNrOfRecordedInvocations);
+        recordPendingInvocations();
+        this.recordingMode = recordingMode;
+        this.maxNrOfRecordedInvocations = maxNrOfRecordedInvocations;
+    }
+
+
+    public RecordingMode getRecordingMode() {
+        return recordingMode;
+    }
+
+
+    /**
+     * @return True if the arguments and results of observed invocations are used afterwards
+     */
+    public boolean isRecordingInvocations() {
+        return recordingMode == FULL || recordingMode == LAST;
     }
 
 
@@ -68,23 +198,103 @@ public class Scenario {
     }
 
 
+    /**
+     * Adds an observed invocation. This method can be called by any thread. The invocation is queued without locking
+     * and will be recorded by the next synchronized operation on this scenario.
+     *
+     * @param mockInvocation The invocation, not null
+     */
     public void addObservedMockInvocation(ObservedInvocation mockInvocation) {
+        if (recordingMode == OFF) {
+            unrecordedInvocationsNotCounted = true;
+            return;
+        }
+        pendingInvocations.add(mockInvocation);
+        if (nrOfPendingInvocations.incrementAndGet() >= MAX_NR_OF_PENDING_INVOCATIONS) {
+            // keep the memory usage bounded when no asserts are performed
+            synchronized (this) {
+                recordPendingInvocations();
+            }
+        }
+    }
+
+
+    /**
+     * Records all pending invocations, in the order in which they were queued. The order of the queue is also the
+     * sequence used by the in-order asserts.
+     */
+    protected synchronized void recordPendingInvocations() {
+        ObservedInvocation pendingInvocation;
+        while ((pendingInvocation = pendingInvocations.poll()) != null) {
+            nrOfPendingInvocations.decrementAndGet();
+            recordInvocation(pendingInvocation);
+        }
+    }
+
+
+    /**
+     * Records the given invocation according to the recording mode.
+     *
+     * @param mockInvocation The invocation, not null
+     */
+    protected void recordInvocation(ObservedInvocation mockInvocation) {
+        MethodObservedInvocationEntries methodObservedInvocationEntries = observedInvocationEntriesPerMethod.get(mockInvocation.getMethod());
+        if (methodObservedInvocationEntries == null) {
+            methodObservedInvocationEntries = new MethodObservedInvocationEntries();
+            observedInvocationEntriesPerMethod.put(mockInvocation.getMethod(), methodObservedInvocationEntries);
+        }
+        int sequenceNr = nrOfObservedInvocations++;
+        methodObservedInvocationEntries.nrOfInvocations++;
+        if (recordingMode == COUNT) {
+            registerUnrecordedInvocation(mockInvocation, methodObservedInvocationEntries);
+            return;
+        }
+
+        ObservedInvocationEntry observedInvocationEntry = new ObservedInvocationEntry(mockInvocation, sequenceNr);
         observedInvocations.add(mockInvocation);
-        invocationVerificationStatuses.add(UNVERIFIED);
+        observedInvocationEntries.add(observedInvocationEntry);
+        methodObservedInvocationEntries.add(observedInvocationEntry);
+
+        if (recordingMode == LAST) {
+            while (observedInvocationEntries.size() - nrOfDiscardedEntries > maxNrOfRecordedInvocations) {
+                discardOldestEntry();
+            }
+        }
+    }
+
+
+    /**
+     * @return A copy of the recorded invocations, in the order in which they occurred, not null
+     */
+    public synchronized List<ObservedInvocation> getObservedInvocations() {
+        recordPendingInvocations();
+        return new ArrayList<ObservedInvocation>(observedInvocations.subList(nrOfDiscardedEntries, observedInvocations.size()));
     }
 
 
-    public List<ObservedInvocation> getObservedInvocations() {
-        return observedInvocations;
+    /**
+     * Gets the nr of times the given method was invoked, including the invocations that were not recorded.
+     * An exception is raised if the invocations were not counted because recording was off.
+     *
+     * @param method The method, not null
+     * @return The nr of invocations
+     */
+    public synchronized int getInvocationCount(Method method) {
+        recordPendingInvocations();
+        if (unrecordedInvocationsNotCounted) {
+            throw new UnitilsException("Unable to get the invocation count of " + getSimpleMethodName(method) + ": mock invocations were not counted because the invocation recording mode was " + OFF + ".");
+        }
+        MethodObservedInvocationEntries methodObservedInvocationEntries = observedInvocationEntriesPerMethod.get(method);
+        return methodObservedInvocationEntries == null ? 0 : methodObservedInvocationEntries.nrOfInvocations;
     }
 
 
-    public void assertNoMoreInvocations(StackTraceElement[] assertedAt) {
+    public synchronized void assertNoMoreInvocations(StackTraceElement[] assertedAt) {
+        recordPendingInvocations();
         List<ObservedInvocation> unexpectedInvocations = new ArrayList<ObservedInvocation>();
-        for (int i = 0; i < observedInvocations.size(); i++) {
-            ObservedInvocation observedInvocation = observedInvocations.get(i);
-            VerificationStatus invocationVerificationStatus = invocationVerificationStatuses.get(i);
-            if (observedInvocation.getMockBehavior() == null && invocationVerificationStatus == UNVERIFIED) {
+        for (ObservedInvocationEntry observedInvocationEntry : observedInvocationEntries) {
+            ObservedInvocation observedInvocation = observedInvocationEntry.observedInvocation;
+            if (observedInvocation.getMockBehavior() == null && observedInvocationEntry.verificationStatus == UNVERIFIED) {
                 unexpectedInvocations.add(observedInvocation);
             }
         }
@@ -93,61 +303,144 @@ public class Scenario {
             assertionError.setStackTrace(assertedAt);
             throw assertionError;
         }
+        if (unrecordedInvocationsNotCounted || nrOfUnrecordedUnexpectedInvocations != 0) {
+            throw new UnitilsException(getNotRecordedErrorMessage("assert that there are no more invocations", nrOfUnrecordedUnexpectedInvocations));
+        }
     }
 
 
-    public void assertInvoked(BehaviorDefiningInvocation assertInvocation) {
-        for (int i = 0; i < observedInvocations.size(); i++) {
-            ObservedInvocation observedInvocation = observedInvocations.get(i);
-            VerificationStatus invocationVerificationStatus = invocationVerificationStatuses.get(i);
-            if (invocationVerificationStatus == UNVERIFIED && assertInvocation.matches(observedInvocation) != -1) {
-                // Found a match that's not verified yet. Mark as verified and proceed.
-                invocationVerificationStatuses.set(i, VERIFIED);
-                return;
-            }
+    public synchronized void assertInvoked(BehaviorDefiningInvocation assertInvocation) {
+        recordPendingInvocations();
+        ObservedInvocationEntry matchingEntry = getFirstUnverifiedMatchingEntry(assertInvocation);
+        if (matchingEntry != null) {
+            // Found a match that's not verified yet. Mark as verified and proceed.
+            matchingEntry.verificationStatus = VERIFIED;
+            return;
         }
+        assertAllInvocationsRecorded(assertInvocation, "assert invocation of ");
         AssertionError assertionError = new AssertionError(getAssertInvokedErrorMessage(assertInvocation, assertInvocation.getInvokedAt()));
         assertionError.setStackTrace(assertInvocation.getInvokedAtTrace());
         throw assertionError;
     }
 
 
-    public void assertInvokedInOrder(BehaviorDefiningInvocation assertInvocation) {
-        ObservedInvocation matchingInvocation = null;
-        for (int i = 0; i < observedInvocations.size(); i++) {
-            ObservedInvocation observedInvocation = observedInvocations.get(i);
-            VerificationStatus invocationVerificationStatus = invocationVerificationStatuses.get(i);
-            if (matchingInvocation == null && invocationVerificationStatus == UNVERIFIED && assertInvocation.matches(observedInvocation) != -1) {
-                // Found a match that's not verified yet. Mark as verified in order.
-                invocationVerificationStatuses.set(i, VERIFIED_IN_ORDER);
-                matchingInvocation = observedInvocation;
-                continue;
-            }
-            // If we found a match, then check if there's no subsequent observed invocation that's already verified using assertInvokedInOrder()
-            if (matchingInvocation != null && invocationVerificationStatus == VERIFIED_IN_ORDER) {
-                AssertionError assertionError = new AssertionError(getInvokedOutOfOrderErrorMessage(matchingInvocation, observedInvocation, assertInvocation.getInvokedAt()));
-                assertionError.setStackTrace(assertInvocation.getInvokedAtTrace());
-                throw assertionError;
-            }
-        }
-        if (matchingInvocation == null) {
+    public synchronized void assertInvokedInOrder(BehaviorDefiningInvocation assertInvocation) {
+        recordPendingInvocations();
+        ObservedInvocationEntry matchingEntry = getFirstUnverifiedMatchingEntry(assertInvocation);
+        if (matchingEntry == null) {
+            assertAllInvocationsRecorded(assertInvocation, "assert invocation of ");
             AssertionError assertionError = new AssertionError(getAssertInvokedErrorMessage(assertInvocation, assertInvocation.getInvokedAt()));
             assertionError.setStackTrace(assertInvocation.getInvokedAtTrace());
             throw assertionError;
         }
+        // Found a match that's not verified yet. Mark as verified in order.
+        matchingEntry.verificationStatus = VERIFIED_IN_ORDER;
+        verifiedInOrderEntries.put(matchingEntry.sequenceNr, matchingEntry);
+
+        // Check if there's no subsequent observed invocation that's already verified using assertInvokedInOrder()
+        Map.Entry<Integer, ObservedInvocationEntry> outOfOrderEntry = verifiedInOrderEntries.higherEntry(matchingEntry.sequenceNr);
+        if (outOfOrderEntry != null) {
+            AssertionError assertionError = new AssertionError(getInvokedOutOfOrderErrorMessage(matchingEntry.observedInvocation, outOfOrderEntry.getValue().observedInvocation, assertInvocation.getInvokedAt()));
+            assertionError.setStackTrace(assertInvocation.getInvokedAtTrace());
+            throw assertionError;
+        }
     }
 
 
-    public void assertNotInvoked(BehaviorDefiningInvocation assertInvocation) {
-        for (int i = 0; i < observedInvocations.size(); i++) {
-            ObservedInvocation observedInvocation = observedInvocations.get(i);
-            VerificationStatus invocationVerificationStatus = invocationVerificationStatuses.get(i);
-            if (invocationVerificationStatus == UNVERIFIED && assertInvocation.matches(observedInvocation) != -1) {
-                AssertionError assertionError = new AssertionError(getAssertNotInvokedErrorMessage(assertInvocation, observedInvocation, assertInvocation.getInvokedAtTrace()));
-                assertionError.setStackTrace(assertInvocation.getInvokedAtTrace());
-                throw assertionError;
+    public synchronized void assertNotInvoked(BehaviorDefiningInvocation assertInvocation) {
+        recordPendingInvocations();
+        ObservedInvocationEntry matchingEntry = getFirstUnverifiedMatchingEntry(assertInvocation);
+        if (matchingEntry != null) {
+            AssertionError assertionError = new AssertionError(getAssertNotInvokedErrorMessage(assertInvocation, matchingEntry.observedInvocation, assertInvocation.getInvokedAtTrace()));
+            assertionError.setStackTrace(assertInvocation.getInvokedAtTrace());
+            throw assertionError;
+        }
+        assertAllInvocationsRecorded(assertInvocation, "assert no invocation of ");
+    }
+
+
+    /**
+     * Raises an exception if there are invocations of the asserted method that could match but were not recorded.
+     *
+     * @param assertInvocation The asserted invocation, not null
+     * @param assertion        The description of the assert, followed by the method name in the message, not null
+     */
+    protected void assertAllInvocationsRecorded(BehaviorDefiningInvocation assertInvocation, String assertion) {
+        MethodObservedInvocationEntries methodObservedInvocationEntries = observedInvocationEntriesPerMethod.get(assertInvocation.getMethod());
+        int nrOfUnrecordedInvocations = methodObservedInvocationEntries == null ? 0 : methodObservedInvocationEntries.nrOfUnrecordedInvocations;
+        if (unrecordedInvocationsNotCounted || nrOfUnrecordedInvocations != 0) {
+            throw new UnitilsException(getNotRecordedErrorMessage(assertion + getSimpleMethodName(assertInvocation.getMethod()), nrOfUnrecordedInvocations));
+        }
+    }
+
+
+    /**
+     * Marks the oldest recorded entry as discarded. The discarded entries are removed from the lists once there
+     * are as many discarded as recorded entries, so that discarding an entry does not require the lists to be shifted.
+     */
+    protected void discardOldestEntry() {
+        ObservedInvocationEntry observedInvocationEntry = observedInvocationEntries.get(nrOfDiscardedEntries++);
+        if (observedInvocationEntry.verificationStatus == UNVERIFIED) {
+            ObservedInvocation observedInvocation = observedInvocationEntry.observedInvocation;
+            registerUnrecordedInvocation(observedInvocation, observedInvocationEntriesPerMethod.get(observedInvocation.getMethod()));
+        }
+        observedInvocationEntry.verificationStatus = DISCARDED;
+
+        if (nrOfDiscardedEntries >= observedInvocationEntries.size() - nrOfDiscardedEntries) {
+            observedInvocations.subList(0, nrOfDiscardedEntries).clear();
+            observedInvocationEntries.subList(0, nrOfDiscardedEntries).clear();
+            nrOfDiscardedEntries = 0;
+            for (MethodObservedInvocationEntries methodObservedInvocationEntries : observedInvocationEntriesPerMethod.values()) {
+                methodObservedInvocationEntries.removeDiscardedEntries();
+            }
+            if (!observedInvocationEntries.isEmpty()) {
+                verifiedInOrderEntries.headMap(observedInvocationEntries.get(0).sequenceNr).clear();
+            }
+        }
+    }
+
+
+    /**
+     * Registers an unverified invocation that is not or no longer recorded.
+     *
+     * @param observedInvocation              The invocation, not null
+     * @param methodObservedInvocationEntries The entries of the invoked method, not null
+     */
+    protected void registerUnrecordedInvocation(ObservedInvocation observedInvocation, MethodObservedInvocationEntries methodObservedInvocationEntries) {
+        methodObservedInvocationEntries.nrOfUnrecordedInvocations++;
+        if (observedInvocation.getMockBehavior() == null) {
+            nrOfUnrecordedUnexpectedInvocations++;
+        }
+    }
+
+
+    protected static void assertValidMaxNrOfRecordedInvocations(int maxNrOfRecordedInvocations) {
+        if (maxNrOfRecordedInvocations < 1) {
+            throw new UnitilsException("Invalid max nr of recorded invocations " + maxNrOfRecordedInvocations + ". The max nr of recorded invocations should be at least 1.");
+        }
+    }
+
+
+    /**
+     * Finds the first observed invocation that is not yet verified and that matches the given invocation.
+     * Only the invocations of the same method are checked.
+     *
+     * @param assertInvocation The invocation to match, not null
+     * @return The entry of the observed invocation, null if not found
+     */
+    protected ObservedInvocationEntry getFirstUnverifiedMatchingEntry(BehaviorDefiningInvocation assertInvocation) {
+        MethodObservedInvocationEntries methodObservedInvocationEntries = observedInvocationEntriesPerMethod.get(assertInvocation.getMethod());
+        if (methodObservedInvocationEntries == null) {
+            return null;
+        }
+        List<ObservedInvocationEntry> entries = methodObservedInvocationEntries.entries;
+        for (int i = methodObservedInvocationEntries.getFirstUnverifiedIndex(); i < entries.size(); i++) {
+            ObservedInvocationEntry observedInvocationEntry = entries.get(i);
+            if (observedInvocationEntry.verificationStatus == UNVERIFIED && assertInvocation.matches(observedInvocationEntry.observedInvocation) != -1) {
+                return observedInvocationEntry;
             }
         }
+        return null;
     }
 
 
@@ -179,9 +472,12 @@ public class Scenario {
         StringBuilder message = new StringBuilder();
         message.append("Expected no invocation of ");
         message.append(getSimpleMethodName(proxyInvocation.getMethod()));
-        message.append(", but it did occur.\nat ");
-        message.append(unexpectedInvocation.getInvokedAt());
-        message.append("\n");
+        message.append(", but it did occur.\n");
+        if (unexpectedInvocation.getInvokedAt() != null) {
+            message.append("at ");
+            message.append(unexpectedInvocation.getInvokedAt());
+            message.append("\n");
+        }
         message.append(getAssertLocationIndication(assertedAt[0]));
         message.append("\n\n");
         message.append(createFullReport());
@@ -223,9 +519,101 @@ public class Scenario {
     }
 
 
+    protected String getNotRecordedErrorMessage(String assertion, int nrOfUnrecordedInvocations) {
+        StringBuilder message = new StringBuilder();
+        message.append("Unable to ");
+        message.append(assertion);
+        message.append(": ");
+        if (unrecordedInvocationsNotCounted) {
+            message.append("mock invocations were not recorded because the invocation recording mode was ");
+            message.append(OFF);
+        } else {
+            message.append(nrOfUnrecordedInvocations);
+            message.append(" invocation(s) that could match were not recorded. The invocation recording mode is ");
+            message.append(recordingMode);
+            if (recordingMode == LAST) {
+                message.append(" and only the last ");
+                message.append(maxNrOfRecordedInvocations);
+                message.append(" invocations are recorded");
+            }
+        }
+        message.append(". Use invocation recording mode ");
+        message.append(FULL);
+        message.append(" for this assert.");
+        return message.toString();
+    }
+
+
     protected String getAssertLocationIndication(StackTraceElement assertedAt) {
         return "asserted at " + assertedAt.toString();
     }
 
 
+    /**
+     * An observed invocation with its verification status.
+     */
+    protected static class ObservedInvocationEntry {
+
+        protected ObservedInvocation observedInvocation;
+
+        /* The index of the invocation in the list of all observed invocations */
+        protected int sequenceNr;
+
+        protected VerificationStatus verificationStatus = UNVERIFIED;
+
+
+        public ObservedInvocationEntry(ObservedInvocation observedInvocation, int sequenceNr) {
+            this.observedInvocation = observedInvocation;
+            this.sequenceNr = sequenceNr;
+        }
+    }
+
+
+    /**
+     * The observed invocations of a single method, in the order in which they occurred.
+     */
+    protected static class MethodObservedInvocationEntries {
+
+        protected List<ObservedInvocationEntry> entries = new ArrayList<ObservedInvocationEntry>();
+
+        /* All entries before this index are verified or discarded */
+        protected int firstUnverifiedIndex;
+
+        /* The nr of invocations of the method, including the ones that were not recorded */
+        protected int nrOfInvocations;
+
+        /* The nr of unverified invocations of the method that were not recorded */
+        protected int nrOfUnrecordedInvocations;
+
+
+        public void add(ObservedInvocationEntry observedInvocationEntry) {
+            entries.add(observedInvocationEntry);
+        }
+
+
+        /**
+         * @return The index of the first entry that is not verified, the nr of entries if all entries are verified
+         */
+        public int getFirstUnverifiedIndex() {
+            while (firstUnverifiedIndex < entries.size() && entries.get(firstUnverifiedIndex).verificationStatus != UNVERIFIED) {
+                firstUnverifiedIndex++;
+            }
+            return firstUnverifiedIndex;
+        }
+
+
+        /**
+         * Removes the discarded entries at the start of the list.
+         */
+        public void removeDiscardedEntries() {
+            int nrOfDiscardedEntries = 0;
+            while (nrOfDiscardedEntries < entries.size() && entries.get(nrOfDiscardedEntries).verificationStatus == DISCARDED) {
+                nrOfDiscardedEntries++;
+            }
+            entries.subList(0, nrOfDiscardedEntries).clear();
+            firstUnverifiedIndex = Math.max(0, firstUnverifiedIndex - nrOfDiscardedEntries);
+        }
+    }
+
+
 }
\ No newline at end of file
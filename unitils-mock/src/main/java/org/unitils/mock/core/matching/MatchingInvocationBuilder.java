@@ -45,12 +45,15 @@ public class MatchingInvocationBuilder {
     protected String definingMethodName;
     protected StackTraceElement[] invokedAt;
     protected MatchingInvocationHandler matchingInvocationHandler;
+    /* The thread that started the current matching invocation, null if there is none */
+    protected Thread matchingThread;
 
 
     public synchronized <T> T startMatchingInvocation(String mockName, Class<T> mockedType, MatchingInvocationHandler matchingInvocationHandler) {
         assertNotExpectingInvocation();
         this.currentMockName = mockName;
         this.matchingInvocationHandler = matchingInvocationHandler;
+        this.matchingThread = Thread.currentThread();
 
         this.invokedAt = getInvocationStackTrace(Mock.class);
         this.definingMethodName = invokedAt[0].getMethodName();
@@ -62,9 +65,14 @@ public class MatchingInvocationBuilder {
         this.currentMockName = null;
         this.invokedAt = null;
         this.definingMethodName = null;
+        this.matchingThread = null;
     }
 
     public synchronized void assertNotExpectingInvocation() {
+        if (matchingThread != null && matchingThread != Thread.currentThread()) {
+            // a mock invocation by another thread, e.g. by the code under test, cannot be part of the matching invocation
+            return;
+        }
         if (currentMockName != null && !isChainedMock()) {
             UnitilsException exception = new UnitilsException("Invalid syntax. " + currentMockName + "." + definingMethodName + "() must be followed by a method invocation on the returned proxy. E.g. " + currentMockName + "." + definingMethodName + "().myMethod();");
             exception.setStackTrace(getStackTraceStartingFrom(invokedAt, 1));
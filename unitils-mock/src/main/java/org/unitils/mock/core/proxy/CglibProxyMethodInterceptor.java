@@ -26,7 +26,6 @@ import java.util.List;
 
 import static java.lang.reflect.Modifier.isAbstract;
 import static java.util.Arrays.asList;
-import static org.unitils.mock.core.proxy.ProxyUtils.getProxiedMethodStackTrace;
 import static org.unitils.util.MethodUtils.*;
 
 /**
@@ -41,6 +40,9 @@ public class CglibProxyMethodInterceptor<T> implements MethodInterceptor {
     /* The invocation handler */
     private ProxyInvocationHandler invocationHandler;
 
+    /* True if the location of the invocations should be recorded */
+    private boolean recordInvocationLocation;
+
 
     /**
      * Creates an interceptor.
@@ -50,14 +52,30 @@ public class CglibProxyMethodInterceptor<T> implements MethodInterceptor {
      * @param invocationHandler The handler to delegate the invocations to, not null
      */
     public CglibProxyMethodInterceptor(String mockName, Class<T> proxiedType, ProxyInvocationHandler invocationHandler) {
+        this(mockName, proxiedType, invocationHandler, true);
+    }
+
+
+    /**
+     * Creates an interceptor.
+     *
+     * @param mockName                 The name of the mock, not null
+     * @param proxiedType              The proxied type, not null
+     * @param invocationHandler        The handler to delegate the invocations to, not null
+     * @param recordInvocationLocation False if the location of the invocations should not be recorded
+     */
+    public CglibProxyMethodInterceptor(String mockName, Class<T> proxiedType, ProxyInvocationHandler invocationHandler, boolean recordInvocationLocation) {
         this.mockName = mockName;
         this.proxiedType = proxiedType;
         this.invocationHandler = invocationHandler;
+        this.recordInvocationLocation = recordInvocationLocation;
     }
 
     /**
      * Intercepts the method call by wrapping the invocation in a {@link CglibProxyInvocation} and delegating the
      * handling to the invocation handler.
+     * <p/>
+     * The location of the invocation is captured as a throwable, its stack trace is only resolved when needed.
      *
      * @param proxy       The proxy, not null
      * @param method      The method that was called, not null
@@ -78,7 +96,8 @@ public class CglibProxyMethodInterceptor<T> implements MethodInterceptor {
             return getProxiedType().getSimpleName() + "@" + Integer.toHexString(super.hashCode());
         }
 
-        ProxyInvocation invocation = new CglibProxyInvocation(mockName, method, asList(arguments), getProxiedMethodStackTrace(), proxy, methodProxy);
+        Throwable invocationLocation = recordInvocationLocation ? new Throwable() : null;
+        ProxyInvocation invocation = new CglibProxyInvocation(mockName, method, asList(arguments), invocationLocation, proxy, methodProxy);
         return invocationHandler.handleInvocation(invocation);
     }
 
@@ -120,6 +139,22 @@ public class CglibProxyMethodInterceptor<T> implements MethodInterceptor {
         }
 
 
+        /**
+         * Creates an invocation of which the location is resolved when needed.
+         *
+         * @param mockName           The name of the mock, not null
+         * @param method             The method that was called, not null
+         * @param arguments          The arguments that were used, not null
+         * @param invocationLocation The call stack captured in the proxy method, null if the location is not recorded
+         * @param proxy              The proxy, not null
+         * @param methodProxy        The cglib method proxy, not null
+         */
+        public CglibProxyInvocation(String mockName, Method method, List<Object> arguments, Throwable invocationLocation, Object proxy, MethodProxy methodProxy) {
+            super(mockName, proxy, method, arguments, invocationLocation);
+            this.methodProxy = methodProxy;
+        }
+
+
         /**
          * Invokes the original behavior by calling the method proxy.
          * If there is no original behavior, e.g. an interface or abstract method, an exception is raised.
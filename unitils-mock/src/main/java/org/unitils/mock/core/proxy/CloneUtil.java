@@ -27,17 +27,29 @@ import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static java.lang.reflect.Modifier.isFinal;
 import static java.lang.reflect.Modifier.isStatic;
 import static java.lang.reflect.Modifier.isTransient;
-import static org.unitils.mock.core.proxy.ProxyUtils.isProxy;
+import static org.unitils.mock.core.proxy.ProxyUtils.isProxyClassName;
 
 /**
  * Utility class for deep cloning objects.
  * In a deep clone, not only the object itself is cloned, but also all the inner objects.
+ * <p/>
+ * Instances of immutable types are never cloned. Besides the well-known immutable types (e.g. strings and numbers),
+ * a class is also considered to be immutable if all its fields are final and of a final immutable type. Types can
+ * also explicitly be excluded from cloning, their instances will then always be used as is. Whether and how the
+ * instances of a class need to be cloned is determined only once per class.
  *
  * @author Tim Ducheyne
  * @author Filip Neven
@@ -51,6 +63,21 @@ public class CloneUtil {
     /* Objenesis instance for creating new instances of types */
     private static Objenesis objenesis = new ObjenesisStd(true);
 
+    /* The types of which the instances should not be cloned, including their sub types */
+    private static volatile Set<Class<?>> excludedTypes = new HashSet<Class<?>>();
+
+    /* Per class, true if the instances are immutable or excluded from cloning */
+    private static Map<Class<?>, Boolean> notClonedTypes = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    /* Per class, true if the instances are immutable */
+    private static Map<Class<?>, Boolean> immutableTypes = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    /* Per class, how its instances are cloned */
+    private static Map<Class<?>, ClonePlan> clonePlans = new ConcurrentHashMap<Class<?>, ClonePlan>();
+
+    /* The clone method of Object, null if not yet retrieved */
+    private static volatile Method cloneMethod;
+
 
     /**
      * Creates a deep clone of the given object. If for some reason, the clone cannot be made, a warning is logged
@@ -71,6 +98,28 @@ public class CloneUtil {
     }
 
 
+    /**
+     * Sets the types of which the instances should never be cloned. Instances of these types and their sub types are
+     * then used as is, e.g. when recording the arguments of a mock invocation.
+     *
+     * @param types The types to exclude, not null
+     */
+    public static void setExcludedTypes(Collection<Class<?>> types) {
+        excludedTypes = new HashSet<Class<?>>(types);
+        notClonedTypes.clear();
+        clonePlans.clear();
+    }
+
+
+    /**
+     * @param object The object to check
+     * @return True if cloning the given object would result in a different instance
+     */
+    public static boolean isCloneNeeded(Object object) {
+        return object != null && !isNotClonedType(object.getClass());
+    }
+
+
     /**
      * Actual implementation of the cloning.
      *
@@ -82,6 +131,8 @@ public class CloneUtil {
      * An object is cloned once. All created clones are put in a cache and if an object is to be cloned a second time,
      * the cached instance is used. This way the object graph is preserved.
      *
+     * The way to clone the instances of a class is only determined once, see {@link ClonePlan}.
+     *
      * @param instanceToClone The instance, not null
      * @param cloneCache      The cached clones, not null
      * @return The clone, the instance to clone if the clone could not be made
@@ -90,30 +141,24 @@ public class CloneUtil {
         if (instanceToClone == null) {
             return null;
         }
-        // check whether the instance was already cloned, this will preserve the object graph
-        if (cloneCache.containsKey(instanceToClone)) {
-            return cloneCache.get(instanceToClone);
-        }
-        // if the value is immutable, return the instance itself
-        if (isImmutable(instanceToClone)) {
+        ClonePlan clonePlan = getClonePlan(instanceToClone.getClass());
+        // if the value is immutable, excluded, a java class or a proxy, return the instance itself
+        if (clonePlan.cloneMode == CloneMode.NOT_CLONED) {
             return instanceToClone;
         }
+        // check whether the instance was already cloned, this will preserve the object graph
+        Object cachedClone = cloneCache.get(instanceToClone);
+        if (cachedClone != null) {
+            return cachedClone;
+        }
         // check for arrays
-        if (instanceToClone.getClass().isArray()) {
-            return cloneArray(instanceToClone, cloneCache);
+        if (clonePlan.cloneMode == CloneMode.ARRAY) {
+            return cloneArray(instanceToClone, clonePlan, cloneCache);
         }
         // if the instance is cloneable, try to clone it
-        if (instanceToClone instanceof Cloneable) {
+        if (clonePlan.cloneMode == CloneMode.CLONE_METHOD) {
             return createInstanceUsingClone(instanceToClone);
         }
-        // don't clone java classes (unless they are cloneable)
-        if (isJdkClass(instanceToClone)) {
-            return instanceToClone;
-        }
-        // don't clone proxies
-        if (isProxy(instanceToClone)) {
-            return instanceToClone;
-        }
         // try to clone it ourselves
         Object clonedInstance = createInstanceUsingObjenesis(instanceToClone);
 
@@ -126,29 +171,197 @@ public class CloneUtil {
         cloneCache.put(instanceToClone, clonedInstance);
 
         // recursively do the same for all inner fields
-        cloneFields(instanceToClone.getClass(), instanceToClone, clonedInstance, cloneCache);
+        cloneFields(clonePlan, instanceToClone, clonedInstance, cloneCache);
         return clonedInstance;
     }
 
 
+    /**
+     * @param clazz The class, not null
+     * @return The plan for cloning instances of the class, not null
+     */
+    protected static ClonePlan getClonePlan(Class<?> clazz) {
+        ClonePlan clonePlan = clonePlans.get(clazz);
+        if (clonePlan == null) {
+            clonePlan = createClonePlan(clazz);
+            clonePlans.put(clazz, clonePlan);
+        }
+        return clonePlan;
+    }
+
+
+    /**
+     * Determines how instances of the given class should be cloned.
+     *
+     * @param clazz The class, not null
+     * @return The plan, not null
+     */
+    protected static ClonePlan createClonePlan(Class<?> clazz) {
+        if (isNotClonedType(clazz)) {
+            return new ClonePlan(CloneMode.NOT_CLONED);
+        }
+        if (clazz.isArray()) {
+            ClonePlan clonePlan = new ClonePlan(CloneMode.ARRAY);
+            clonePlan.copyElementsByReference = isCopiedByReference(clazz.getComponentType());
+            return clonePlan;
+        }
+        if (Cloneable.class.isAssignableFrom(clazz)) {
+            return new ClonePlan(CloneMode.CLONE_METHOD);
+        }
+        // don't clone java classes (unless they are cloneable) and proxies
+        if (isJdkClass(clazz) || isProxyClassName(clazz.getName()) || Proxy.isProxyClass(clazz)) {
+            return new ClonePlan(CloneMode.NOT_CLONED);
+        }
+
+        List<Field> fields = new ArrayList<Field>();
+        for (Class<?> currentClass = clazz; currentClass != null && !Object.class.equals(currentClass); currentClass = currentClass.getSuperclass()) {
+            for (Field field : currentClass.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (isStatic(modifiers) || (currentClass.getName().startsWith("org.hibernate") && isTransient(modifiers))) {
+                    continue;
+                }
+                fields.add(field);
+            }
+        }
+        ClonePlan clonePlan = new ClonePlan(CloneMode.FIELDS);
+        clonePlan.fields = fields.toArray(new Field[fields.size()]);
+        AccessibleObject.setAccessible(clonePlan.fields, true);
+        clonePlan.copyFieldsByReference = new boolean[clonePlan.fields.length];
+        for (int i = 0; i < clonePlan.fields.length; i++) {
+            clonePlan.copyFieldsByReference[i] = isCopiedByReference(clonePlan.fields[i].getType());
+        }
+        return clonePlan;
+    }
+
+
+    /**
+     * @param declaredType The declared type of a field or array element, not null
+     * @return True if all values of the type can be copied without cloning them
+     */
+    protected static boolean isCopiedByReference(Class<?> declaredType) {
+        if (declaredType.isPrimitive()) {
+            return true;
+        }
+        // the value can only be of another type if the type is not final
+        return (declaredType.isEnum() || isFinal(declaredType.getModifiers())) && isNotClonedType(declaredType);
+    }
+
+
+    /**
+     * @param clazz The class, not null
+     * @return True if instances of the class are immutable or excluded from cloning
+     */
+    protected static boolean isNotClonedType(Class<?> clazz) {
+        Boolean result = notClonedTypes.get(clazz);
+        if (result == null) {
+            result = isImmutableType(clazz) || isExcludedType(clazz);
+            notClonedTypes.put(clazz, result);
+        }
+        return result;
+    }
+
+
+    /**
+     * @param clazz The class, not null
+     * @return True if the class or one of its super types was excluded from cloning
+     */
+    protected static boolean isExcludedType(Class<?> clazz) {
+        for (Class<?> excludedType : excludedTypes) {
+            if (excludedType.isAssignableFrom(clazz)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
     /**
      * @param instanceToClone The instance, not null
      * @return True if the instance is immutable, e.g. a primitive
      */
     protected static boolean isImmutable(Object instanceToClone) {
-        Class<?> clazz = instanceToClone.getClass();
+        return isImmutableType(instanceToClone.getClass());
+    }
+
+
+    /**
+     * @param clazz The class, not null
+     * @return True if instances of the class are immutable, e.g. a primitive
+     */
+    protected static boolean isImmutableType(Class<?> clazz) {
+        return isImmutableType(clazz, new HashSet<Class<?>>());
+    }
 
+
+    /**
+     * Classes that are still being checked are assumed to be immutable, so that classes that refer to themselves can
+     * also be immutable. Because of this assumption, only the result for the top-level class and negative results
+     * are cached.
+     *
+     * @param clazz             The class, not null
+     * @param classesInProgress The classes that are being checked, not null
+     * @return True if instances of the class are immutable, e.g. a primitive
+     */
+    protected static boolean isImmutableType(Class<?> clazz, Set<Class<?>> classesInProgress) {
+        Boolean result = immutableTypes.get(clazz);
+        if (result != null) {
+            return result;
+        }
+        if (classesInProgress.contains(clazz)) {
+            return true;
+        }
+        classesInProgress.add(clazz);
+        result = determineImmutableType(clazz, classesInProgress);
+        classesInProgress.remove(clazz);
+        if (!result || classesInProgress.isEmpty()) {
+            immutableTypes.put(clazz, result);
+        }
+        return result;
+    }
+
+
+    /**
+     * @param clazz             The class, not null
+     * @param classesInProgress The classes that are being checked, not null
+     * @return True if instances of the class are immutable, e.g. a primitive
+     */
+    protected static boolean determineImmutableType(Class<?> clazz, Set<Class<?>> classesInProgress) {
         if (clazz.isPrimitive() || clazz.isEnum() || clazz.isAnnotation()) {
             return true;
         }
-        if (instanceToClone instanceof Number || instanceToClone instanceof String || instanceToClone instanceof Character || instanceToClone instanceof Boolean) {
+        if (Number.class.isAssignableFrom(clazz) || String.class.equals(clazz) || Character.class.equals(clazz) || Boolean.class.equals(clazz)) {
             return true;
         }
         if (clazz.getName().startsWith("com.google.common.collect") && clazz.getName().contains("Immutable")) {
             return true;
         }
+        if (clazz.isArray() || clazz.isInterface() || clazz.getName().startsWith("java.") || isProxyClassName(clazz.getName())) {
+            return false;
+        }
+        return hasOnlyImmutableFields(clazz, classesInProgress);
+    }
 
-        return false;
+
+    /**
+     * @param clazz             The class, not null
+     * @param classesInProgress The classes that are being checked, not null
+     * @return True if all instance fields of the class and its super classes are final and of a final immutable type
+     */
+    protected static boolean hasOnlyImmutableFields(Class<?> clazz, Set<Class<?>> classesInProgress) {
+        while (clazz != null && !Object.class.equals(clazz)) {
+            for (Field field : clazz.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (isStatic(modifiers)) {
+                    continue;
+                }
+                Class<?> fieldType = field.getType();
+                if (!isFinal(modifiers) || !(fieldType.isPrimitive() || fieldType.isEnum() || isFinal(fieldType.getModifiers())) || !isImmutableType(fieldType, classesInProgress)) {
+                    return false;
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        return true;
     }
 
     /**
@@ -156,11 +369,20 @@ public class CloneUtil {
      * @return True if the instance is should not be cloned, e.g. a java lang class or a data source
      */
     protected static boolean isJdkClass(Object instanceToClone) {
-        if (instanceToClone instanceof Collection || instanceToClone instanceof Map) {
+        return isJdkClass(instanceToClone.getClass());
+    }
+
+
+    /**
+     * @param clazz The class, not null
+     * @return True if instances of the class should not be cloned, e.g. a java lang class or a data source
+     */
+    protected static boolean isJdkClass(Class<?> clazz) {
+        if (Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz)) {
             // make sure to clone collections
             return false;
         }
-        String className = instanceToClone.getClass().getName();
+        String className = clazz.getName();
         if (className.startsWith("java.")) {
             return true;
         }
@@ -176,8 +398,11 @@ public class CloneUtil {
      */
     protected static Object createInstanceUsingClone(Object instanceToClone) {
         try {
-            Method cloneMethod = Object.class.getDeclaredMethod("clone");
-            cloneMethod.setAccessible(true);
+            if (cloneMethod == null) {
+                Method method = Object.class.getDeclaredMethod("clone");
+                method.setAccessible(true);
+                cloneMethod = method;
+            }
             return cloneMethod.invoke(instanceToClone);
 
         } catch (Throwable t) {
@@ -203,37 +428,21 @@ public class CloneUtil {
 
 
     /**
-     * Clones all values in all fields of the given class and superclasses.
+     * Clones all values in all fields of the class of the given plan and its superclasses.
      *
-     * @param clazz           The current class
+     * @param clonePlan       The plan of the class of the instance, not null
      * @param instanceToClone The instance, not null
      * @param clonedInstance  The clone, not null
      * @param cloneCache      The cached clones, not null
      */
-    protected static void cloneFields(Class<?> clazz, Object instanceToClone, Object clonedInstance, Map<Object, Object> cloneCache) throws Throwable {
-        if (clazz == null || Object.class.equals(clazz)) {
-            return;
-        }
-
-
-        Field[] fields = clazz.getDeclaredFields();
-        AccessibleObject.setAccessible(fields, true);
-
-        for (Field field : fields) {
-            // skip static fields
-            if (isStatic(field.getModifiers())) {
-                continue;
-            }
-            if (field.getDeclaringClass().getName().startsWith("org.hibernate")
-                    && isTransient(field.getModifiers())) {
-                continue;
-            }
-
-            Object fieldValue = field.get(instanceToClone);
-            Object clonedFieldValue = cloneObject(fieldValue, cloneCache);
-            field.set(clonedInstance, clonedFieldValue);
+    protected static void cloneFields(ClonePlan clonePlan, Object instanceToClone, Object clonedInstance, Map<Object, Object> cloneCache) throws Throwable {
+        Field[] fields = clonePlan.fields;
+        boolean[] copyFieldsByReference = clonePlan.copyFieldsByReference;
+        for (int i = 0; i < fields.length; i++) {
+            Object fieldValue = fields[i].get(instanceToClone);
+            Object clonedFieldValue = copyFieldsByReference[i] ? fieldValue : cloneObject(fieldValue, cloneCache);
+            fields[i].set(clonedInstance, clonedFieldValue);
         }
-        cloneFields(clazz.getSuperclass(), instanceToClone, clonedInstance, cloneCache);
     }
 
 
@@ -241,16 +450,21 @@ public class CloneUtil {
      * Clones the given array and all it's elements.
      *
      * @param arrayToClone The array, not null
+     * @param clonePlan    The plan of the class of the array, not null
      * @param cloneCache   The cached clones, not null
      * @return The cloned array, not null
      */
-    protected static Object cloneArray(Object arrayToClone, Map<Object, Object> cloneCache) throws Throwable {
+    protected static Object cloneArray(Object arrayToClone, ClonePlan clonePlan, Map<Object, Object> cloneCache) throws Throwable {
         int lenght = Array.getLength(arrayToClone);
         Object clonedArray = Array.newInstance(arrayToClone.getClass().getComponentType(), lenght);
         // Make sure we put the array in the cache before we start cloning the elements, since the array itself may also
         // be one of the elements, and in this case we want to reuse the same element, to avoid infinite recursion.
         cloneCache.put(arrayToClone, clonedArray);
 
+        if (clonePlan.copyElementsByReference) {
+            System.arraycopy(arrayToClone, 0, clonedArray, 0, lenght);
+            return clonedArray;
+        }
         for (int i = 0; i < lenght; i++) {
             Object elementValue = Array.get(arrayToClone, i);
             Object clonedElementValue = cloneObject(elementValue, cloneCache);
@@ -259,4 +473,44 @@ public class CloneUtil {
         return clonedArray;
     }
 
+
+    /**
+     * The ways in which an instance can be cloned.
+     */
+    protected static enum CloneMode {
+        /* The instance itself is used */
+        NOT_CLONED,
+        /* The array and its elements are cloned */
+        ARRAY,
+        /* The clone method of the instance is used */
+        CLONE_METHOD,
+        /* A new instance is created and the values of all fields are cloned */
+        FIELDS
+    }
+
+
+    /**
+     * Describes how the instances of a class are cloned. The plan is determined once per class, so that the checks
+     * on the type and the reflective lookup of the fields do not have to be repeated for every cloned instance.
+     * Field values and array elements of which the declared type is primitive, or final and immutable, are copied
+     * as is.
+     */
+    protected static class ClonePlan {
+
+        protected CloneMode cloneMode;
+
+        /* The accessible instance fields of the class and its super classes, for clone mode FIELDS */
+        protected Field[] fields;
+
+        /* Per field, true if the value can be copied without cloning it */
+        protected boolean[] copyFieldsByReference;
+
+        /* True if the elements can be copied without cloning them, for clone mode ARRAY */
+        protected boolean copyElementsByReference;
+
+
+        public ClonePlan(CloneMode cloneMode) {
+            this.cloneMode = cloneMode;
+        }
+    }
 }
\ No newline at end of file
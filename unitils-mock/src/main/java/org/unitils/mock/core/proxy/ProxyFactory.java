@@ -28,13 +28,19 @@ import org.objenesis.ObjenesisStd;
 import org.unitils.core.UnitilsException;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static java.util.Arrays.asList;
 import static org.unitils.util.ReflectionUtils.createInstanceOfType;
 
 /**
  * Utility class to create and work with proxy objects.
+ * <p/>
+ * The generated proxy classes are cached per proxied type and set of additional interfaces. The invocation handler
+ * is set as callback on the proxy instance, so all proxies of the same type can share the same class. Instances are
+ * created using a single objenesis instance that caches its instantiators.
  *
  * @author Kenny Claes
  * @author Filip Neven
@@ -44,6 +50,12 @@ public class ProxyFactory {
 
     private static Log logger = LogFactory.getLog(ProxyFactory.class);
 
+    /* The generated proxy classes per proxied type and additional interfaces */
+    private static Map<ProxyClassKey, Class<?>> enhancedClasses = new ConcurrentHashMap<ProxyClassKey, Class<?>>();
+
+    /* Shared objenesis instance that caches the instantiators per type */
+    private static Objenesis objenesis = new ObjenesisStd(true);
+
 
     /**
      * Creates a proxy object for the given type. All method invocations will be passed to the given invocation handler.
@@ -60,6 +72,22 @@ public class ProxyFactory {
         return createProxy(mockName, true, invocationHandler, proxiedClass, implementedInterfaces);
     }
 
+    /**
+     * Creates a proxy object for the given type. All method invocations will be passed to the given invocation handler.
+     * If possible, the default constructor (can be private) will be used. If there is no default constructor,
+     * no constructor will be called.
+     *
+     * @param mockName                 The name of the mock, not null
+     * @param invocationHandler        The handler that will handle the method invocations of the proxy, not null.
+     * @param recordInvocationLocation False if the location of the invocations should not be recorded
+     * @param proxiedClass             The type to proxy, not null
+     * @param implementedInterfaces    Additional interfaces that the proxy must implement
+     * @return The proxy object, not null
+     */
+    public static <T> T createProxy(String mockName, ProxyInvocationHandler invocationHandler, boolean recordInvocationLocation, Class<T> proxiedClass, Class<?>... implementedInterfaces) {
+        return createProxy(mockName, true, recordInvocationLocation, invocationHandler, proxiedClass, implementedInterfaces);
+    }
+
     /**
      * Creates a proxy object for the given type. All method invocations will be passed to the given invocation handler.
      * No constructor or class-initialization will be called.
@@ -85,9 +113,24 @@ public class ProxyFactory {
      * @param invocationHandler     The handler that will handle the method invocations of the proxy, not null.
      * @return The proxy object, not null
      */
+    protected static <T> T createProxy(String mockName, boolean initialize, ProxyInvocationHandler invocationHandler, Class<T> proxiedClass, Class<?>... implementedInterfaces) {
+        return createProxy(mockName, initialize, true, invocationHandler, proxiedClass, implementedInterfaces);
+    }
+
 
+    /**
+     * Creates a proxy object for the given type. All method invocations will be passed to the given invocation handler.
+     *
+     * @param mockName                 The name of the mock, not null
+     * @param initialize               If possible, use the default constructor and initialize all fields
+     * @param recordInvocationLocation False if the location of the invocations should not be recorded
+     * @param invocationHandler        The handler that will handle the method invocations of the proxy, not null.
+     * @param proxiedClass             The type to proxy, not null
+     * @param implementedInterfaces    Additional interfaces that the proxy must implement
+     * @return The proxy object, not null
+     */
     @SuppressWarnings({"unchecked"})
-    protected static <T> T createProxy(String mockName, boolean initialize, ProxyInvocationHandler invocationHandler, Class<T> proxiedClass, Class<?>... implementedInterfaces) {
+    protected static <T> T createProxy(String mockName, boolean initialize, boolean recordInvocationLocation, ProxyInvocationHandler invocationHandler, Class<T> proxiedClass, Class<?>... implementedInterfaces) {
         Class<T> enhancedClass = createEnhancedClass(proxiedClass, implementedInterfaces);
 
         Factory proxy;
@@ -96,7 +139,7 @@ public class ProxyFactory {
         } else {
             proxy = (Factory) createUninitializedInstanceOfType(enhancedClass);
         }
-        proxy.setCallbacks(new Callback[]{new CglibProxyMethodInterceptor(mockName, proxiedClass, invocationHandler)});
+        proxy.setCallbacks(new Callback[]{new CglibProxyMethodInterceptor<T>(mockName, proxiedClass, invocationHandler, recordInvocationLocation)});
         return (T) proxy;
     }
 
@@ -130,25 +173,51 @@ public class ProxyFactory {
      */
     @SuppressWarnings("unchecked")
     public static <T> T createUninitializedInstanceOfType(Class<T> clazz) {
-        Objenesis objenesis = new ObjenesisStd();
         return (T) objenesis.newInstance(clazz);
     }
 
 
+    /**
+     * Gets the proxy class for the given type and interfaces. The class is only generated the first time it is
+     * requested, afterwards the cached class is returned.
+     *
+     * @param proxiedClass          The type to proxy, not null
+     * @param implementedInterfaces Additional interfaces that the proxy must implement
+     * @return The proxy class, not null
+     */
     @SuppressWarnings("unchecked")
     protected static <T> Class<T> createEnhancedClass(Class<T> proxiedClass, Class<?>... implementedInterfaces) {
+        Set<Class<?>> interfaces = new HashSet<Class<?>>();
+        if (implementedInterfaces != null && implementedInterfaces.length > 0) {
+            interfaces.addAll(asList(implementedInterfaces));
+        }
+        ProxyClassKey proxyClassKey = new ProxyClassKey(proxiedClass, interfaces);
+        Class<?> enhancedClass = enhancedClasses.get(proxyClassKey);
+        if (enhancedClass == null) {
+            enhancedClass = generateEnhancedClass(proxiedClass, interfaces);
+            enhancedClasses.put(proxyClassKey, enhancedClass);
+        }
+        return (Class<T>) enhancedClass;
+    }
+
+
+    /**
+     * Generates a new proxy class for the given type and interfaces.
+     *
+     * @param proxiedClass          The type to proxy, not null
+     * @param implementedInterfaces Additional interfaces that the proxy must implement, not null
+     * @return The proxy class, not null
+     */
+    protected static Class<?> generateEnhancedClass(Class<?> proxiedClass, Set<Class<?>> implementedInterfaces) {
         Enhancer enhancer = new Enhancer();
 
-        Set<Class<?>> interfaces = new HashSet<Class<?>>();
+        Set<Class<?>> interfaces = new HashSet<Class<?>>(implementedInterfaces);
         if (proxiedClass.isInterface()) {
             enhancer.setSuperclass(Object.class);
             interfaces.add(proxiedClass);
         } else {
             enhancer.setSuperclass(proxiedClass);
         }
-        if (implementedInterfaces != null && implementedInterfaces.length > 0) {
-            interfaces.addAll(asList(implementedInterfaces));
-        }
         if (!interfaces.isEmpty()) {
             enhancer.setInterfaces(interfaces.toArray(new Class<?>[interfaces.size()]));
         }
@@ -157,4 +226,42 @@ public class ProxyFactory {
         return enhancer.createClass();
     }
 
+
+    /**
+     * Key for the cache of proxy classes. The class of a proxy does not depend on whether the instance is initialized,
+     * so initialized and uninitialized proxies of the same type share the same class.
+     */
+    protected static class ProxyClassKey {
+
+        /* The proxied type */
+        private Class<?> proxiedClass;
+
+        /* The additional interfaces */
+        private Set<Class<?>> implementedInterfaces;
+
+
+        public ProxyClassKey(Class<?> proxiedClass, Set<Class<?>> implementedInterfaces) {
+            this.proxiedClass = proxiedClass;
+            this.implementedInterfaces = implementedInterfaces;
+        }
+
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            }
+            if (!(object instanceof ProxyClassKey)) {
+                return false;
+            }
+            ProxyClassKey other = (ProxyClassKey) object;
+            return proxiedClass.equals(other.proxiedClass) && implementedInterfaces.equals(other.implementedInterfaces);
+        }
+
+
+        @Override
+        public int hashCode() {
+            return 31 * proxiedClass.hashCode() + implementedInterfaces.hashCode();
+        }
+    }
 }
\ No newline at end of file
@@ -21,9 +21,14 @@ import java.lang.reflect.Method;
 import java.util.List;
 
 import static org.unitils.mock.core.proxy.CloneUtil.createDeepClone;
+import static org.unitils.mock.core.proxy.CloneUtil.isCloneNeeded;
+import static org.unitils.mock.core.proxy.ProxyUtils.getProxiedMethodStackTrace;
 
 /**
  * An invocation of a proxy method.
+ * <p/>
+ * The location of the invocation can be captured as a throwable. The stack trace of the throwable is only resolved
+ * when the location is actually needed, e.g. for a report or an assertion error.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
@@ -41,8 +46,10 @@ public class ProxyInvocation {
     private List<Object> arguments;
     /* The arguments at the time that they were used */
     private List<Object> argumentsAtInvocationTime;
-    /* The trace of the invocation */
+    /* The trace of the invocation, null if not resolved yet */
     private StackTraceElement[] invokedAtTrace;
+    /* The captured call stack of the invocation, null if already resolved or if the location was not recorded */
+    private Throwable invocationLocation;
 
 
     /**
@@ -64,6 +71,25 @@ public class ProxyInvocation {
     }
 
 
+    /**
+     * Creates an invocation of which the trace is resolved from the given captured call stack when it is needed.
+     *
+     * @param mockName           The name of the mock, e.g. the field name, not null
+     * @param proxy              The proxy on which the method was called, not null
+     * @param method             The method that was called, not null
+     * @param arguments          The arguments that were used, not null
+     * @param invocationLocation The call stack captured in the proxy method, null if the location is not recorded
+     */
+    protected ProxyInvocation(String mockName, Object proxy, Method method, List<Object> arguments, Throwable invocationLocation) {
+        this.mockName = mockName;
+        this.proxy = proxy;
+        this.method = method;
+        this.arguments = arguments;
+        this.argumentsAtInvocationTime = arguments;
+        this.invocationLocation = invocationLocation;
+    }
+
+
     /**
      * Creates a copy of the given proxy invocation.
      *
@@ -75,12 +101,30 @@ public class ProxyInvocation {
      * @param proxyInvocation The proxy invocation to copy, not null
      */
     public ProxyInvocation(ProxyInvocation proxyInvocation) {
+        this(proxyInvocation, true);
+    }
+
+
+    /**
+     * Creates a copy of the given proxy invocation.
+     *
+     * If snapshot is true, the argumentsAtInvocationTime will be set as copies (deep clones) of the arguments. If
+     * none of the arguments needs to be cloned, e.g. because they are all immutable, the same list is used. If
+     * snapshot is false, the argumentsAtInvocationTime will be the same as the arguments.
+     *
+     * @param proxyInvocation The proxy invocation to copy, not null
+     * @param snapshot        False if the arguments at invocation time should not be copied
+     */
+    protected ProxyInvocation(ProxyInvocation proxyInvocation, boolean snapshot) {
         this.mockName = proxyInvocation.getMockName();
         this.proxy = proxyInvocation.getProxy();
         this.method = proxyInvocation.getMethod();
         this.arguments = proxyInvocation.getArguments();
-        this.argumentsAtInvocationTime = createDeepClone(arguments);
-        this.invokedAtTrace = proxyInvocation.getInvokedAtTrace();
+        this.argumentsAtInvocationTime = snapshot ? createArgumentsSnapshot(arguments) : arguments;
+        synchronized (proxyInvocation) {
+            this.invokedAtTrace = proxyInvocation.invokedAtTrace;
+            this.invocationLocation = proxyInvocation.invocationLocation;
+        }
     }
 
 
@@ -94,6 +138,23 @@ public class ProxyInvocation {
     }
 
 
+    /**
+     * @param arguments The arguments, null if there are none
+     * @return A deep clone of the arguments, the arguments themselves if none of them needs to be cloned
+     */
+    protected List<Object> createArgumentsSnapshot(List<Object> arguments) {
+        if (arguments == null) {
+            return null;
+        }
+        for (Object argument : arguments) {
+            if (isCloneNeeded(argument)) {
+                return createDeepClone(arguments);
+            }
+        }
+        return arguments;
+    }
+
+
     /**
      * @return The nr of arguments at invocation time that were not null
      */
@@ -156,26 +217,35 @@ public class ProxyInvocation {
 
 
     /**
-     * @return The trace of the invocation, not null
+     * Synchronized since the trace is resolved lazily and the invocation can be reported by another thread than
+     * the one that invoked the proxy.
+     *
+     * @return The trace of the invocation, empty if the location was not recorded, not null
      */
-    public StackTraceElement[] getInvokedAtTrace() {
+    public synchronized StackTraceElement[] getInvokedAtTrace() {
+        if (invokedAtTrace == null) {
+            invokedAtTrace = invocationLocation == null ? new StackTraceElement[0] : getProxiedMethodStackTrace(invocationLocation.getStackTrace());
+            invocationLocation = null;
+        }
         return invokedAtTrace;
     }
 
 
     /**
-     * @return The location of the invocation, not null
+     * @return The location of the invocation, null if the location was not recorded
      */
     public StackTraceElement getInvokedAt() {
-        return invokedAtTrace[0];
+        StackTraceElement[] trace = getInvokedAtTrace();
+        return trace.length == 0 ? null : trace[0];
     }
 
 
     /**
-     * @return The line nr of the invocation
+     * @return The line nr of the invocation, -1 if the location was not recorded
      */
     public int getLineNumber() {
-        return getInvokedAt().getLineNumber();
+        StackTraceElement invokedAt = getInvokedAt();
+        return invokedAt == null ? -1 : invokedAt.getLineNumber();
     }
 
 }
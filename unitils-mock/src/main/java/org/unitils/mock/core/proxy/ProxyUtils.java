@@ -23,9 +23,9 @@ import org.unitils.core.UnitilsException;
 import org.unitils.mock.core.MockObject;
 
 import java.lang.reflect.Proxy;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+
+import static org.unitils.mock.core.proxy.StackTraceUtils.getStackTraceStartingFrom;
 
 /**
  * Utility class to create and work with proxy objects.
@@ -109,22 +109,23 @@ public class ProxyUtils {
      * @return The proxied method trace, not null
      */
     public static StackTraceElement[] getProxiedMethodStackTrace() {
-        List<StackTraceElement> stackTrace = new ArrayList<StackTraceElement>();
+        return getProxiedMethodStackTrace(Thread.currentThread().getStackTrace());
+    }
 
-        boolean foundProxyMethod = false;
-        StackTraceElement[] stackTraceElements = Thread.currentThread().getStackTrace();
-        for (StackTraceElement stackTraceElement : stackTraceElements) {
-            if (foundProxyMethod) {
-                stackTrace.add(stackTraceElement);
 
-            } else if (isProxyClassName(stackTraceElement.getClassName())) {
+    /**
+     * Same as {@link #getProxiedMethodStackTrace()} but using the given stack trace instead of the current one.
+     *
+     * @param stackTraceElements The stack trace, not null
+     * @return The proxied method trace, not null
+     */
+    public static StackTraceElement[] getProxiedMethodStackTrace(StackTraceElement[] stackTraceElements) {
+        for (int i = 0; i < stackTraceElements.length - 1; i++) {
+            if (isProxyClassName(stackTraceElements[i].getClassName())) {
                 // found the proxy method element, the next element is the proxied method element
-                foundProxyMethod = true;
+                return getStackTraceStartingFrom(stackTraceElements, i + 1);
             }
         }
-        if (stackTrace.isEmpty()) {
-            throw new UnitilsException("No invocation of a cglib proxy method found in stacktrace: " + Arrays.toString(stackTraceElements));
-        }
-        return stackTrace.toArray(new StackTraceElement[stackTrace.size()]);
+        throw new UnitilsException("No invocation of a cglib proxy method found in stacktrace: " + Arrays.toString(stackTraceElements));
     }
 }
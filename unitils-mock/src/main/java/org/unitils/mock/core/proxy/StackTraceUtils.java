@@ -19,18 +19,27 @@ package org.unitils.mock.core.proxy;
 
 import org.unitils.core.UnitilsException;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import static java.lang.System.arraycopy;
 import static org.unitils.mock.core.proxy.ProxyUtils.isProxyClassName;
 import static org.unitils.util.ReflectionUtils.getClassWithName;
 
 /**
  * Class offering utilities involving the call stack
+ * <p/>
+ * Whether the class of a stack trace element is the class that is looked for is only determined once per class name.
+ * Loading the class for every element of every stack trace would otherwise make each mock invocation expensive.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
  */
 public class StackTraceUtils {
 
+    /* Per invoked class or interface, whether the class with a given name is assignable to it */
+    private static Map<Class<?>, Map<String, Boolean>> invokedClassNames = new ConcurrentHashMap<Class<?>, Map<String, Boolean>>();
+
 
     /**
      * @param invokedClass The class for which an invocation can be found in the current call stack
@@ -57,15 +66,7 @@ public class StackTraceUtils {
     public static StackTraceElement[] getInvocationStackTrace(Class<?> invokedInterface, boolean included) {
         StackTraceElement[] currentStackTrace = Thread.currentThread().getStackTrace();
         for (int i = currentStackTrace.length - 1; i >= 0; i--) {
-            String className = currentStackTrace[i].getClassName();
-            Class<?> clazz;
-            try {
-                clazz = getClassWithName(className);
-            } catch (UnitilsException e) {
-                // unable to load class, this should never happen for the class we are looking for
-                continue;
-            }
-            if (invokedInterface.isAssignableFrom(clazz) || isProxyClassName(className)) {
+            if (isInvokedClassName(currentStackTrace[i].getClassName(), invokedInterface)) {
                 int index = included ? i : i + 1;
                 return getStackTraceStartingFrom(currentStackTrace, index);
             }
@@ -74,6 +75,44 @@ public class StackTraceUtils {
     }
 
 
+    /**
+     * @param className        The name of the class of a stack trace element, not null
+     * @param invokedInterface The class/interface that is looked for, not null
+     * @return True if the class is a proxy or is assignable to the given class/interface
+     */
+    protected static boolean isInvokedClassName(String className, Class<?> invokedInterface) {
+        if (isProxyClassName(className)) {
+            return true;
+        }
+        Map<String, Boolean> classNames = invokedClassNames.get(invokedInterface);
+        if (classNames == null) {
+            classNames = new ConcurrentHashMap<String, Boolean>();
+            invokedClassNames.put(invokedInterface, classNames);
+        }
+        Boolean result = classNames.get(className);
+        if (result == null) {
+            result = isAssignableClassName(className, invokedInterface);
+            classNames.put(className, result);
+        }
+        return result;
+    }
+
+
+    /**
+     * @param className        The name of the class, not null
+     * @param invokedInterface The class/interface, not null
+     * @return True if the class with the given name could be loaded and is assignable to the given class/interface
+     */
+    protected static boolean isAssignableClassName(String className, Class<?> invokedInterface) {
+        try {
+            return invokedInterface.isAssignableFrom(getClassWithName(className));
+        } catch (UnitilsException e) {
+            // unable to load class, this should never happen for the class we are looking for
+            return false;
+        }
+    }
+
+
     public static StackTraceElement[] getStackTraceStartingFrom(StackTraceElement[] stackTraceElements, int index) {
         StackTraceElement[] result = new StackTraceElement[stackTraceElements.length - index];
         arraycopy(stackTraceElements, index, result, 0, stackTraceElements.length - index);
@@ -97,6 +97,9 @@ public class DetailedObservedInvocationsReport extends ObservedInvocationsReport
      * @return The string representation, not null
      */
     protected String formatInvokedAt(ProxyInvocation proxyInvocation) {
+        if (proxyInvocation.getInvokedAt() == null) {
+            return "";
+        }
         StringBuilder result = new StringBuilder();
         result.append("- Observed at ");
         result.append(proxyInvocation.getInvokedAt());
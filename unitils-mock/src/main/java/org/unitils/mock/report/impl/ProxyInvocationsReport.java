@@ -72,7 +72,11 @@ public abstract class ProxyInvocationsReport {
      * @return The string representation, not null
      */
     protected String formatInvokedAt(ProxyInvocation proxyInvocation) {
-        return "  .....  at " + proxyInvocation.getInvokedAt();
+        StackTraceElement invokedAt = proxyInvocation.getInvokedAt();
+        if (invokedAt == null) {
+            return "";
+        }
+        return "  .....  at " + invokedAt;
     }
 
 
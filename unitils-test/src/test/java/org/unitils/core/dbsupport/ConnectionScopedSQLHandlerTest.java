@@ -0,0 +1,142 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.reflectionassert.ReflectionAssert.assertLenientEquals;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Tests the SQL handler that pins a connection.
+ *
+ * @author Filip Neven
+ * @author Tim Ducheyne
+ */
+public class ConnectionScopedSQLHandlerTest {
+
+    /* Tested object */
+    private ConnectionScopedSQLHandler sqlHandler;
+
+    private CountingDataSource dataSource;
+
+
+    @Before
+    public void setUp() throws Exception {
+        dataSource = new CountingDataSource();
+        sqlHandler = new ConnectionScopedSQLHandler(dataSource);
+        sqlHandler.executeUpdate("create table test_scoped (id integer, name varchar(10))");
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        sqlHandler.close();
+        new DefaultSQLHandler(dataSource).executeUpdate("drop table test_scoped");
+    }
+
+
+    @Test
+    public void sameConnectionForAllStatements() {
+        sqlHandler.executeUpdate("insert into test_scoped values (1, 'a')");
+        sqlHandler.executeUpdate("insert into test_scoped values (2, 'b')");
+        sqlHandler.executeUpdate("insert into test_scoped values (3, null)");
+
+        assertEquals(3, sqlHandler.getItemAsLong("select count(*) from test_scoped"));
+        assertEquals("b", sqlHandler.getItemAsString("select name from test_scoped where id = 2"));
+        assertTrue(sqlHandler.exists("select 1 from test_scoped where name is null and id = 3"));
+        assertFalse(sqlHandler.exists("select 1 from test_scoped where id = 4"));
+        assertEquals(1, dataSource.nrOfConnections);
+    }
+
+
+    @Test
+    public void executeUpdates() {
+        int[] result = sqlHandler.executeUpdates(asList("insert into test_scoped values (1, 'a')", "insert into test_scoped values (2, 'b')"));
+
+        assertEquals(2, result.length);
+        assertLenientEquals(asList("a", "b"), sqlHandler.getItemsAsStringSet("select name from test_scoped"));
+        assertEquals(1, dataSource.nrOfConnections);
+    }
+
+
+    @Test
+    public void noUpdatesWhenDisabled() {
+        sqlHandler = new ConnectionScopedSQLHandler(dataSource, false);
+
+        sqlHandler.executeUpdate("insert into test_scoped values (1, 'a')");
+        sqlHandler.executeUpdates(asList("insert into test_scoped values (2, 'b')"));
+
+        assertEquals(0, sqlHandler.getItemAsLong("select count(*) from test_scoped"));
+    }
+
+
+    @Test
+    public void otherThreadsGetOwnConnection() throws Exception {
+        sqlHandler.executeUpdate("insert into test_scoped values (1, 'a')");
+
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                sqlHandler.executeUpdate("insert into test_scoped values (2, 'b')");
+                sqlHandler.executeUpdate("insert into test_scoped values (3, 'c')");
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertEquals(3, sqlHandler.getItemAsLong("select count(*) from test_scoped"));
+        assertEquals(3, dataSource.nrOfConnections);
+    }
+
+
+    @Test
+    public void connectionIsNotPinnedAfterClose() {
+        sqlHandler.close();
+
+        sqlHandler.executeUpdate("insert into test_scoped values (1, 'a')");
+        sqlHandler.executeUpdate("insert into test_scoped values (2, 'b')");
+
+        assertEquals(2, sqlHandler.getItemAsLong("select count(*) from test_scoped"));
+        assertEquals(4, dataSource.nrOfConnections);
+    }
+
+
+    private static class CountingDataSource extends DelegatingDataSource {
+
+        private int nrOfConnections;
+
+        public CountingDataSource() {
+            super(new DriverManagerDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:connectionscoped", "sa", ""));
+        }
+
+        @Override
+        public synchronized Connection getConnection() throws SQLException {
+            nrOfConnections++;
+            return super.getConnection();
+        }
+    }
+}
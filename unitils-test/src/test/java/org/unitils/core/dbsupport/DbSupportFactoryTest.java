@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.unitils.core.dbsupport.DbSupport.PROPKEY_METADATA_CACHE_ENABLED;
+import static org.unitils.core.dbsupport.DbSupportFactory.getDbSupport;
+import static org.unitils.core.dbsupport.DbSupportFactory.getDataSourceMetaData;
+import static org.unitils.core.dbsupport.DbSupportFactory.unregisterDataSource;
+import static org.unitils.reflectionassert.ReflectionAssert.assertLenientEquals;
+
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.unitils.core.ConfigurationLoader;
+
+/**
+ * Tests the registry of db support instances.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DbSupportFactoryTest {
+
+    private Properties configuration;
+
+    private DataSource dataSource1;
+
+    private DataSource dataSource2;
+
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = (Properties) new ConfigurationLoader().loadConfiguration().clone();
+        configuration.setProperty(PROPKEY_METADATA_CACHE_ENABLED, "true");
+        dataSource1 = new DriverManagerDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:dbsupportfactory", "sa", "");
+        dataSource2 = new DriverManagerDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:dbsupportfactory", "sa", "");
+
+        new DefaultSQLHandler(dataSource1).executeUpdate("create table table_a (col1 integer)");
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        new DefaultSQLHandler(dataSource1).executeUpdate("drop table table_a");
+        new DefaultSQLHandler(dataSource1).executeUpdate("drop table table_b if exists");
+    }
+
+
+    @Test
+    public void sameInstanceForSameDataSourceSchemaAndDialect() {
+        DbSupport dbSupport = getDbSupport(configuration, new DefaultSQLHandler(dataSource1), "PUBLIC", "hsqldb");
+
+        assertSame(dbSupport, getDbSupport(configuration, new DefaultSQLHandler(dataSource1), "PUBLIC", "hsqldb"));
+        assertNotSame(dbSupport, getDbSupport(configuration, new DefaultSQLHandler(dataSource2), "PUBLIC", "hsqldb"));
+        assertNotSame(dbSupport, getDbSupport(configuration, new DefaultSQLHandler(dataSource1, false), "PUBLIC", "hsqldb"));
+    }
+
+
+    /**
+     * A db support executes its statements using the sql handler it was created with, so an instance that is bound
+     * to a connection scoped sql handler should not be returned for another sql handler.
+     */
+    @Test
+    public void ownInstanceForConnectionScopedSQLHandler() {
+        DbSupport dbSupport = getDbSupport(configuration, new DefaultSQLHandler(dataSource1), "PUBLIC", "hsqldb");
+        ConnectionScopedSQLHandler sqlHandler = new ConnectionScopedSQLHandler(dataSource1);
+        DbSupport connectionScopedDbSupport = getDbSupport(configuration, sqlHandler, "PUBLIC", "hsqldb");
+
+        assertNotSame(dbSupport, connectionScopedDbSupport);
+        assertSame(sqlHandler, connectionScopedDbSupport.getSQLHandler());
+        assertSame(connectionScopedDbSupport, getDbSupport(configuration, sqlHandler, "PUBLIC", "hsqldb"));
+        assertNotSame(connectionScopedDbSupport, getDbSupport(configuration, new ConnectionScopedSQLHandler(dataSource1), "PUBLIC", "hsqldb"));
+        assertSame(dbSupport, getDbSupport(configuration, new DefaultSQLHandler(dataSource1), "PUBLIC", "hsqldb"));
+    }
+
+
+    @Test
+    public void closeConnectionScopedSQLHandler_unregistered() {
+        ConnectionScopedSQLHandler sqlHandler = new ConnectionScopedSQLHandler(dataSource1);
+        DbSupport dbSupport = getDbSupport(configuration, sqlHandler, "PUBLIC", "hsqldb");
+
+        sqlHandler.close();
+
+        assertNotSame(dbSupport, getDbSupport(configuration, sqlHandler, "PUBLIC", "hsqldb"));
+    }
+
+
+    @Test
+    public void metaDataRetrievedOncePerDataSource() {
+        assertSame(getDataSourceMetaData(dataSource1), getDataSourceMetaData(dataSource1));
+        assertNotSame(getDataSourceMetaData(dataSource1), getDataSourceMetaData(dataSource2));
+    }
+
+
+    @Test
+    public void unregisterDataSource_newInstances() {
+        DbSupport dbSupport1 = getDbSupport(configuration, new DefaultSQLHandler(dataSource1), "PUBLIC", "hsqldb");
+        DbSupport dbSupport2 = getDbSupport(configuration, new DefaultSQLHandler(dataSource2), "PUBLIC", "hsqldb");
+        DataSourceMetaData dataSourceMetaData1 = getDataSourceMetaData(dataSource1);
+
+        unregisterDataSource(dataSource1);
+
+        assertNotSame(dbSupport1, getDbSupport(configuration, new DefaultSQLHandler(dataSource1), "PUBLIC", "hsqldb"));
+        assertNotSame(dataSourceMetaData1, getDataSourceMetaData(dataSource1));
+        assertSame(dbSupport2, getDbSupport(configuration, new DefaultSQLHandler(dataSource2), "PUBLIC", "hsqldb"));
+    }
+
+
+    /**
+     * Both data sources access the same schema, so invalidating the cached meta data of one instance should also
+     * invalidate the other.
+     */
+    @Test
+    public void invalidateCacheOfAllInstancesForSchema() {
+        DbSupport dbSupport1 = getDbSupport(configuration, new DefaultSQLHandler(dataSource1), "PUBLIC", "hsqldb");
+        DbSupport dbSupport2 = getDbSupport(configuration, new DefaultSQLHandler(dataSource2), "PUBLIC", "hsqldb");
+        assertLenientEquals(asList("TABLE_A"), dbSupport2.getTableNames());
+
+        new DefaultSQLHandler(dataSource1).executeUpdate("create table table_b (col1 integer)");
+        dbSupport1.invalidateCache();
+
+        assertLenientEquals(asList("TABLE_A", "TABLE_B"), dbSupport2.getTableNames());
+    }
+}
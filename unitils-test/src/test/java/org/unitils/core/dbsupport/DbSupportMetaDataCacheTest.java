@@ -0,0 +1,118 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.core.dbsupport.DbSupport.PROPKEY_METADATA_CACHE_ENABLED;
+import static org.unitils.reflectionassert.ReflectionAssert.assertLenientEquals;
+
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.unitils.core.ConfigurationLoader;
+
+/**
+ * Tests the caching of the meta data of a schema by the db support.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DbSupportMetaDataCacheTest {
+
+    /* Tested object */
+    private DbSupport dbSupport;
+
+    private SQLHandler sqlHandler;
+
+    private Properties configuration;
+
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = (Properties) new ConfigurationLoader().loadConfiguration().clone();
+        configuration.setProperty(PROPKEY_METADATA_CACHE_ENABLED, "true");
+        sqlHandler = new DefaultSQLHandler(new DriverManagerDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:metadatacache", "sa", ""));
+        dbSupport = new HsqldbDbSupport();
+        dbSupport.init(configuration, sqlHandler, "PUBLIC");
+
+        sqlHandler.executeUpdate("create table table_a (col1 integer primary key, col2 varchar(10))");
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        sqlHandler.executeUpdate("drop table table_a");
+        sqlHandler.executeUpdate("drop table table_b if exists");
+    }
+
+
+    @Test
+    public void tableNamesAreCachedUntilInvalidated() {
+        assertLenientEquals(asList("TABLE_A"), dbSupport.getTableNames());
+
+        sqlHandler.executeUpdate("create table table_b (col1 integer)");
+        assertLenientEquals(asList("TABLE_A"), dbSupport.getTableNames());
+
+        dbSupport.invalidateCache();
+        assertLenientEquals(asList("TABLE_A", "TABLE_B"), dbSupport.getTableNames());
+    }
+
+
+    @Test
+    public void columnNamesOfAllTablesAreLoadedAtOnce() {
+        assertLenientEquals(asList("COL1", "COL2"), dbSupport.getColumnNames("TABLE_A"));
+
+        sqlHandler.executeUpdate("create table table_b (col1 integer)");
+        assertTrue(dbSupport.getColumnNames("TABLE_B").isEmpty());
+
+        dbSupport.invalidateCache();
+        assertLenientEquals(asList("COL1"), dbSupport.getColumnNames("TABLE_B"));
+    }
+
+
+    @Test
+    public void primaryKeyColumnNames() {
+        assertLenientEquals(asList("COL1"), dbSupport.getIdentityColumnNames("TABLE_A"));
+    }
+
+
+    @Test
+    public void cachedNamesCannotBeModified() {
+        Set<String> tableNames = dbSupport.getTableNames();
+        tableNames.clear();
+
+        assertLenientEquals(asList("TABLE_A"), dbSupport.getTableNames());
+    }
+
+
+    @Test
+    public void cacheDisabledByDefault() {
+        configuration.remove(PROPKEY_METADATA_CACHE_ENABLED);
+        dbSupport = new HsqldbDbSupport();
+        dbSupport.init(configuration, sqlHandler, "PUBLIC");
+        assertFalse(dbSupport.isMetaDataCacheEnabled());
+        dbSupport.getTableNames();
+
+        sqlHandler.executeUpdate("create table table_b (col1 integer)");
+        assertLenientEquals(asList("TABLE_A", "TABLE_B"), dbSupport.getTableNames());
+    }
+}
@@ -30,6 +30,11 @@ import static org.unitils.database.SQLUnitils.executeUpdate;
 import static org.unitils.database.SQLUnitils.getItemAsLong;
 import static org.unitils.reflectionassert.ReflectionAssert.assertLenientEquals;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -336,6 +341,90 @@ public class DbSupportTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Tests getting all identity columns of the schema. Columns that are not an identity column should not be returned.
+     */
+    @Test
+    public void testGetIdentityColumnNames_allTables() throws Exception {
+        if (!dbSupport.supportsIdentityColumns()) {
+            logger.warn("Test is not for current dialect. Skipping test.");
+            return;
+        }
+        Map<String, Set<String>> result = dbSupport.getIdentityColumnNames();
+        assertEquals(1, result.size());
+        assertLenientEquals(asList(dbSupport.toCorrectCaseIdentifier("col1")), result.get(dbSupport.toCorrectCaseIdentifier("test_table")));
+    }
+
+
+    /**
+     * Tests incrementing all identity columns in one batch.
+     */
+    @Test
+    public void testIncrementIdentityColumnsToValue() throws Exception {
+        if (!dbSupport.supportsIdentityColumns()) {
+            logger.warn("Test is not for current dialect. Skipping test.");
+            return;
+        }
+
+        dbSupport.incrementIdentityColumnsToValue(dbSupport.getIdentityColumnNames(), 30);
+        executeUpdate("insert into test_table (col2) values ('xxxx')", dataSource);
+
+        long result = getItemAsLong("select col1 from test_table", dataSource);
+        assertEquals(30, result);
+    }
+
+
+    /**
+     * Tests getting the values of all sequences and incrementing them in one batch.
+     */
+    @Test
+    public void testIncrementSequencesToValue() throws Exception {
+        if (!dbSupport.supportsSequences()) {
+            logger.warn("Test is not for current dialect. Skipping test.");
+            return;
+        }
+
+        Map<String, Long> sequenceValues = dbSupport.getSequenceValues();
+        assertLenientEquals(asList(dbSupport.toCorrectCaseIdentifier("TEST_SEQUENCE"), "Test_CASE_Sequence"), sequenceValues.keySet());
+
+        dbSupport.incrementSequencesToValue(sequenceValues.keySet(), 30);
+        Map<String, Long> result = dbSupport.getSequenceValues();
+        assertEquals(30, (long) result.get(dbSupport.toCorrectCaseIdentifier("TEST_SEQUENCE")));
+        assertEquals(30, (long) result.get("Test_CASE_Sequence"));
+    }
+
+
+    /**
+     * Tests incrementing all sequences using a sql handler that does not implement {@link BatchSQLHandler}. The
+     * statements should be executed one by one.
+     */
+    @Test
+    public void testIncrementSequencesToValue_noBatchSQLHandler() throws Exception {
+        if (!dbSupport.supportsSequences()) {
+            logger.warn("Test is not for current dialect. Skipping test.");
+            return;
+        }
+        final SQLHandler defaultSqlHandler = new DefaultSQLHandler(dataSource);
+        SQLHandler sqlHandler = (SQLHandler) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{SQLHandler.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                try {
+                    return method.invoke(defaultSqlHandler, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getTargetException();
+                }
+            }
+        });
+        DbSupport plainDbSupport = dbSupport.getClass().newInstance();
+        plainDbSupport.init(new ConfigurationLoader().loadConfiguration(), sqlHandler, "public");
+
+        Map<String, Long> sequenceValues = plainDbSupport.getSequenceValues();
+        plainDbSupport.incrementSequencesToValue(sequenceValues.keySet(), 30);
+        Map<String, Long> result = plainDbSupport.getSequenceValues();
+        assertEquals(30, (long) result.get(dbSupport.toCorrectCaseIdentifier("TEST_SEQUENCE")));
+        assertEquals(30, (long) result.get("Test_CASE_Sequence"));
+    }
+
+
     /**
      * Tests dropping a table.
      */
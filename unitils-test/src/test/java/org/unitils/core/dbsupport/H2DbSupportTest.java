@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.reflectionassert.ReflectionAssert.assertLenientEquals;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.unitils.core.ConfigurationLoader;
+
+/**
+ * Tests the catalog queries of the H2 db support that are used for updating the sequences and identity columns. The
+ * queries are executed on an in-memory H2 database, using the H2 version that is on the test class path.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class H2DbSupportTest {
+
+    /* Tested object */
+    private H2DbSupport dbSupport;
+
+    private DataSource dataSource;
+
+
+    @Before
+    public void setUp() throws Exception {
+        Properties configuration = (Properties) new ConfigurationLoader().loadConfiguration().clone();
+        dataSource = new DriverManagerDataSource("org.h2.Driver", "jdbc:h2:mem:h2DbSupportTest;DB_CLOSE_DELAY=-1", "sa", "");
+        dbSupport = new H2DbSupport();
+        dbSupport.init(configuration, new DefaultSQLHandler(dataSource), "PUBLIC");
+
+        executeUpdate("create table TEST_TABLE (ID bigint generated by default as identity primary key, NAME varchar(10))", dataSource);
+        executeUpdate("create table OTHER_TABLE (ID bigint primary key)", dataSource);
+        executeUpdate("create sequence TEST_SEQUENCE start with 5", dataSource);
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        DbSupportFactory.unregisterDataSource(dataSource);
+        executeUpdate("drop all objects", dataSource);
+    }
+
+
+    @Test
+    public void getIdentityColumnNames() {
+        Map<String, Set<String>> result = dbSupport.getIdentityColumnNames();
+
+        assertEquals(1, result.size());
+        assertLenientEquals(asList("ID"), result.get("TEST_TABLE"));
+    }
+
+
+    @Test
+    public void getIdentityColumnNames_forTable() {
+        assertLenientEquals(asList("ID"), dbSupport.getIdentityColumnNames("TEST_TABLE"));
+        assertLenientEquals(asList(), dbSupport.getIdentityColumnNames("OTHER_TABLE"));
+    }
+
+
+    @Test
+    public void incrementIdentityColumnsToValue() {
+        assertEquals(1L, (long) dbSupport.getNextIdentityValues().get("TEST_TABLE"));
+
+        dbSupport.incrementIdentityColumnsToValue(dbSupport.getIdentityColumnNames(), 1000);
+        assertEquals(1000L, (long) dbSupport.getNextIdentityValues().get("TEST_TABLE"));
+    }
+
+
+    @Test
+    public void incrementSequencesToValue() {
+        assertEquals(5L, (long) dbSupport.getSequenceValues().get("TEST_SEQUENCE"));
+
+        dbSupport.incrementSequencesToValue(dbSupport.getSequenceNames(), 1000);
+        assertEquals(1000L, (long) dbSupport.getSequenceValues().get("TEST_SEQUENCE"));
+        assertEquals(1000L, dbSupport.getSequenceValue("TEST_SEQUENCE"));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.core.dbsupport;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.core.dbsupport.DbSupport.PROPKEY_METADATA_CACHE_ENABLED;
+import static org.unitils.reflectionassert.ReflectionAssert.assertLenientEquals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.unitils.core.ConfigurationLoader;
+
+/**
+ * Tests the caching of the constraints of a schema by the PostgreSQL db support. The constraints are not loaded from
+ * a real PostgreSQL database: the sql handler returns fixed results for the catalog queries and records the
+ * statements that are executed.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class PostgreSqlDbSupportConstraintsCacheTest {
+
+    /* Tested object */
+    private PostgreSqlDbSupport dbSupport;
+
+    private CatalogSQLHandler sqlHandler;
+
+    private Properties configuration;
+
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = (Properties) new ConfigurationLoader().loadConfiguration().clone();
+        sqlHandler = new CatalogSQLHandler();
+        dbSupport = new PostgreSqlDbSupport();
+    }
+
+
+    @Test
+    public void constraintsNotCachedByDefault() {
+        dbSupport.init(configuration, sqlHandler, "public");
+
+        dbSupport.getConstraintsSnapshot();
+        dbSupport.getConstraintsSnapshot();
+        assertEquals(2, sqlHandler.loadCount);
+    }
+
+
+    @Test
+    public void constraintsCachedUntilInvalidated() {
+        configuration.setProperty(PROPKEY_METADATA_CACHE_ENABLED, "true");
+        dbSupport.init(configuration, sqlHandler, "public");
+
+        PostgreSqlDbSupport.ConstraintsSnapshot constraintsSnapshot = dbSupport.getConstraintsSnapshot();
+        assertSame(constraintsSnapshot, dbSupport.getConstraintsSnapshot());
+        assertEquals(1, sqlHandler.loadCount);
+
+        dbSupport.invalidateCache();
+        dbSupport.getConstraintsSnapshot();
+        assertEquals(2, sqlHandler.loadCount);
+    }
+
+
+    @Test
+    public void loadConstraintsSnapshot() {
+        dbSupport.init(configuration, sqlHandler, "public");
+
+        PostgreSqlDbSupport.ConstraintsSnapshot constraintsSnapshot = dbSupport.loadConstraintsSnapshot();
+        assertLenientEquals(asList("fk_a"), constraintsSnapshot.foreignKeyNames.get("table_a"));
+        assertLenientEquals(asList("fk_b"), constraintsSnapshot.foreignKeyNames.get("table_b"));
+        assertLenientEquals(asList("check_a"), constraintsSnapshot.valueConstraintNames.get("table_a"));
+        assertLenientEquals(asList("col_b"), constraintsSnapshot.notNullColumnNames.get("table_b"));
+    }
+
+
+    /**
+     * Only the disabled constraints are removed from the cached constraints, the snapshot is not loaded again.
+     */
+    @Test
+    public void disabledConstraintsRemovedFromCache() {
+        configuration.setProperty(PROPKEY_METADATA_CACHE_ENABLED, "true");
+        dbSupport.init(configuration, sqlHandler, "public");
+
+        dbSupport.disableReferentialConstraints();
+        dbSupport.disableValueConstraints();
+        PostgreSqlDbSupport.ConstraintsSnapshot constraintsSnapshot = dbSupport.getConstraintsSnapshot();
+
+        assertEquals(1, sqlHandler.loadCount);
+        assertTrue(constraintsSnapshot.foreignKeyNames.isEmpty());
+        assertTrue(constraintsSnapshot.valueConstraintNames.isEmpty());
+        assertTrue(constraintsSnapshot.notNullColumnNames.isEmpty());
+        assertLenientEquals(asList("alter table \"PUBLIC\".\"table_a\" drop constraint \"fk_a\"", "alter table \"PUBLIC\".\"table_b\" drop constraint \"fk_b\"",
+                "alter table \"PUBLIC\".\"table_a\" drop constraint \"check_a\"", "alter table \"PUBLIC\".\"table_b\" alter column \"col_b\" drop not null"), sqlHandler.executedStatements);
+    }
+
+
+    @Test
+    public void disableReferentialConstraintsOfTable() {
+        configuration.setProperty(PROPKEY_METADATA_CACHE_ENABLED, "true");
+        dbSupport.init(configuration, sqlHandler, "public");
+
+        dbSupport.disableReferentialConstraints("table_a");
+        dbSupport.disableValueConstraints("table_b");
+        PostgreSqlDbSupport.ConstraintsSnapshot constraintsSnapshot = dbSupport.getConstraintsSnapshot();
+
+        assertEquals(1, sqlHandler.loadCount);
+        assertEquals(asList("table_b"), new ArrayList<String>(constraintsSnapshot.foreignKeyNames.keySet()));
+        assertEquals(asList("table_a"), new ArrayList<String>(constraintsSnapshot.valueConstraintNames.keySet()));
+        assertTrue(constraintsSnapshot.notNullColumnNames.isEmpty());
+        assertLenientEquals(asList("alter table \"PUBLIC\".\"table_a\" drop constraint \"fk_a\"", "alter table \"PUBLIC\".\"table_b\" alter column \"col_b\" drop not null"), sqlHandler.executedStatements);
+    }
+
+
+    /**
+     * Sql handler that returns fixed results for the catalog queries of the PostgreSQL db support, counts the nr of
+     * times the foreign keys are loaded and records the executed statements instead of executing them.
+     */
+    private static class CatalogSQLHandler extends DefaultSQLHandler {
+
+        private int loadCount;
+
+        private List<String> executedStatements = new ArrayList<String>();
+
+        public CatalogSQLHandler() {
+            super(new DriverManagerDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:constraintscache", "sa", ""));
+        }
+
+        @Override
+        public synchronized Map<String, Set<String>> getItemsAsStringSetMap(String sql) {
+            Map<String, Set<String>> result = new HashMap<String, Set<String>>();
+            if (sql.contains("c.contype = 'f'")) {
+                loadCount++;
+                result.put("table_a", new HashSet<String>(asList("fk_a")));
+                result.put("table_b", new HashSet<String>(asList("fk_b")));
+            } else if (sql.contains("c.contype in ('c', 'u')")) {
+                result.put("table_a", new HashSet<String>(asList("check_a")));
+            } else if (sql.contains("from pg_attribute")) {
+                result.put("table_b", new HashSet<String>(asList("col_b")));
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized int[] executeUpdates(List<String> sqls) {
+            executedStatements.addAll(sqls);
+            return new int[sqls.size()];
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.unitils.core.Unitils;
+import org.unitils.core.config.Configuration;
+import org.unitils.core.dbsupport.DbSupport;
+import org.unitils.core.dbsupport.DbSupportFactory;
+import org.unitils.core.dbsupport.DefaultSQLHandler;
+import org.unitils.database.config.DatabaseConfigurationsFactory;
+
+/**
+ * Tests the activation of the transaction of a test by the {@link DataSourceWrapper}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DataSourceWrapperTest {
+
+    /* Tested object */
+    private DataSourceWrapper dataSourceWrapper;
+
+    private DatabaseModule databaseModule;
+
+    private ExecutorService executorService;
+
+    private Object testObject = new Object();
+
+
+    @Before
+    public void setUp() throws Exception {
+        Properties configuration = (Properties) Unitils.getInstance().getConfiguration().clone();
+        configuration.setProperty(DatabaseModule.PROPERTY_UPDATEDATABASESCHEMA_ENABLED, "false");
+        databaseModule = new DatabaseModule();
+        databaseModule.init(configuration);
+
+        dataSourceWrapper = new DataSourceWrapper(new DatabaseConfigurationsFactory(new Configuration(configuration)).create().getDatabaseConfiguration(), configuration, databaseModule.getTransactionManager()) {
+            @Override
+            protected Object getTestObject() {
+                return testObject;
+            }
+        };
+        databaseModule.setWrapper(dataSourceWrapper);
+        executorService = Executors.newSingleThreadExecutor();
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+
+    /**
+     * A released data source is no longer registered in the {@link DbSupportFactory}, a new data source is created
+     * when the wrapper is used again.
+     */
+    @Test
+    public void testReleaseDataSource() throws Exception {
+        Properties configuration = Unitils.getInstance().getConfiguration();
+        DataSource dataSource = dataSourceWrapper.getDataSource();
+        DbSupport dbSupport = DbSupportFactory.getDbSupport(configuration, new DefaultSQLHandler(dataSource), "PUBLIC", "hsqldb");
+        assertSame(dbSupport, DbSupportFactory.getDbSupport(configuration, new DefaultSQLHandler(dataSource), "PUBLIC", "hsqldb"));
+
+        dataSourceWrapper.releaseDataSource();
+
+        assertFalse(dataSourceWrapper.isDataSourceLoaded());
+        assertNotSame(dbSupport, DbSupportFactory.getDbSupport(configuration, new DefaultSQLHandler(dataSource), "PUBLIC", "hsqldb"));
+        assertNotSame(dataSource, dataSourceWrapper.getDataSource());
+    }
+
+
+    /**
+     * The transaction of the test is started before the data source is created. The data source is then created by
+     * another thread, e.g. by a parallel test. The transaction should still be activated when the test uses the data
+     * source.
+     */
+    @Test
+    public void testGetDataSourceAndActivateTransactionIfNeeded_createdByOtherThread() throws Exception {
+        databaseModule.startTransaction(testObject);
+        executorService.submit(new Callable<DataSource>() {
+            public DataSource call() {
+                return dataSourceWrapper.getDataSource();
+            }
+        }).get();
+        assertTrue(dataSourceWrapper.isDataSourceLoaded());
+
+        DataSource dataSource = dataSourceWrapper.getDataSourceAndActivateTransactionIfNeeded();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            assertFalse(connection.getAutoCommit());
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            databaseModule.getTransactionManager().rollback(testObject);
+        }
+    }
+}
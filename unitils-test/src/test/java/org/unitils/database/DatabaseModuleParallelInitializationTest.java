@@ -0,0 +1,217 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.unitils.core.Unitils;
+import org.unitils.core.UnitilsException;
+import org.unitils.database.annotations.TestDataSource;
+import org.unitils.database.config.DataSourceFactory;
+import org.unitils.database.config.DatabaseConfiguration;
+
+/**
+ * Test for the parallel initialization of the data sources of the {@link DatabaseModule}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DatabaseModuleParallelInitializationTest {
+
+    /* Tested object */
+    private DatabaseModule databaseModule;
+
+    /* The names of the threads that created the data sources, per database name */
+    private static Map<String, String> creatingThreadNames = new ConcurrentHashMap<String, String>();
+
+    /* Blocks the creation of the data sources of the slow databases until it is released */
+    private static CountDownLatch slowDatabaseLatch;
+
+
+    @Before
+    public void setUp() throws Exception {
+        creatingThreadNames.clear();
+        slowDatabaseLatch = new CountDownLatch(1);
+        databaseModule = new DatabaseModule();
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        slowDatabaseLatch.countDown();
+    }
+
+
+    @Test
+    public void testInitDataSourcesInParallel() throws Exception {
+        databaseModule.init(getProperties("database1, database2", true));
+        databaseModule.afterInit();
+        databaseModule.waitForDataSourceInitialization();
+
+        assertEquals(2, databaseModule.dataSourceInitializations.size());
+        assertTrue(databaseModule.getWrapper("database1").isDataSourceLoaded());
+        assertTrue(databaseModule.getWrapper("database2").isDataSourceLoaded());
+        assertTrue(creatingThreadNames.get("database1").startsWith("unitils-database-init-"));
+        assertTrue(creatingThreadNames.get("database2").startsWith("unitils-database-init-"));
+    }
+
+
+    @Test
+    public void testInitDataSourcesInParallel_errorsPerDatabase() throws Exception {
+        databaseModule.init(getProperties("database1, broken1, broken2", true));
+        databaseModule.afterInit();
+        try {
+            databaseModule.waitForDataSourceInitialization();
+            fail("UnitilsException expected");
+        } catch (UnitilsException e) {
+            assertTrue(e.getMessage().contains("of 2 database(s)"));
+            assertTrue(e.getMessage().contains("- broken1: Database broken1 is down."));
+            assertTrue(e.getMessage().contains("- broken2: Database broken2 is down."));
+        }
+        assertNotNull(databaseModule.getWrapper("database1").getDataSource());
+    }
+
+
+    /**
+     * The first test that uses a database for which the initialization failed gets the error of the initialization,
+     * the next tests try to initialize the data source again.
+     */
+    @Test
+    public void testInitDataSourcesInParallel_errorReportedOnFirstUse() throws Exception {
+        databaseModule.init(getProperties("broken1", true));
+        databaseModule.afterInit();
+        Exception backgroundError = null;
+        try {
+            databaseModule.waitForDataSourceInitialization();
+        } catch (UnitilsException e) {
+            backgroundError = (Exception) e.getCause();
+        }
+        try {
+            databaseModule.getWrapper("broken1").getDataSource();
+            fail("UnitilsException expected");
+        } catch (UnitilsException e) {
+            assertSame(backgroundError, e.getCause());
+        }
+        try {
+            databaseModule.getWrapper("broken1").getDataSource();
+            fail("UnitilsException expected");
+        } catch (UnitilsException e) {
+            assertEquals("Database broken1 is down.", e.getMessage());
+        }
+    }
+
+
+    /**
+     * A test that only uses database1 should not wait for the initialization of the slow database.
+     */
+    @Test(timeout = 10000)
+    public void testInjectDataSource_onlyUsedDatabases() throws Exception {
+        databaseModule.init(getProperties("database1, slow1", true));
+        databaseModule.afterInit();
+        databaseModule.getWrapper("database1");
+        databaseModule.getWrapper("slow1");
+
+        Database1Test database1Test = new Database1Test();
+        databaseModule.injectDataSource(database1Test);
+
+        assertNotNull(database1Test.dataSource);
+        assertFalse(databaseModule.getWrapper("slow1").isDataSourceLoaded());
+    }
+
+
+    @Test
+    public void testParallelInitializationDisabled() throws Exception {
+        databaseModule.init(getProperties("database1, database2", false));
+        databaseModule.afterInit();
+        databaseModule.waitForDataSourceInitialization();
+
+        assertTrue(databaseModule.dataSourceInitializations.isEmpty());
+        assertTrue(databaseModule.wrappers.isEmpty());
+    }
+
+
+    private Properties getProperties(String databaseNames, boolean parallelInitializationEnabled) {
+        Properties configuration = (Properties) Unitils.getInstance().getConfiguration().clone();
+        configuration.setProperty("database.names", databaseNames);
+        configuration.setProperty("database.dialect", "hsqldb");
+        configuration.setProperty("database.schemaNames", "public");
+        configuration.setProperty(DatabaseModule.PROPERTY_UPDATEDATABASESCHEMA_ENABLED, "false");
+        configuration.setProperty(DatabaseModule.PROPERTY_PARALLEL_INITIALIZATION_ENABLED, String.valueOf(parallelInitializationEnabled));
+        configuration.setProperty(DataSourceFactory.class.getName() + ".implClassName", TestDataSourceFactory.class.getName());
+        return configuration;
+    }
+
+
+    /**
+     * Test that only uses database1
+     */
+    public static class Database1Test {
+
+        @TestDataSource("database1")
+        private DataSource dataSource;
+    }
+
+
+    /**
+     * Data source factory that creates in-memory databases, or fails for database names that start with broken. The
+     * creation of the databases of which the name starts with slow blocks until the slow database latch is released.
+     */
+    public static class TestDataSourceFactory implements DataSourceFactory {
+
+        private String databaseName;
+
+        public void init(Properties configuration) {
+        }
+
+        public void init(DatabaseConfiguration databaseConfiguration) {
+        }
+
+        public void init(Properties configuration, String databaseName) {
+            this.databaseName = databaseName;
+        }
+
+        public DataSource createDataSource() {
+            if (databaseName.startsWith("broken")) {
+                throw new UnitilsException("Database " + databaseName + " is down.");
+            }
+            if (databaseName.startsWith("slow")) {
+                try {
+                    slowDatabaseLatch.await();
+                } catch (InterruptedException e) {
+                    throw new UnitilsException(e);
+                }
+            }
+            creatingThreadNames.put(databaseName, Thread.currentThread().getName());
+            return new DriverManagerDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:" + databaseName, "sa", "");
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.unitils.database;
 
+import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
@@ -23,6 +24,7 @@ import static org.junit.Assert.assertSame;
 import static org.unitils.database.util.TransactionMode.COMMIT;
 import static org.unitils.database.util.TransactionMode.DISABLED;
 import static org.unitils.database.util.TransactionMode.ROLLBACK;
+import static org.unitils.database.util.TransactionMode.SAVEPOINT;
 
 import java.lang.reflect.Method;
 import java.sql.Connection;
@@ -38,6 +40,8 @@ import org.springframework.jdbc.datasource.ConnectionProxy;
 import org.unitils.core.ConfigurationLoader;
 import org.unitils.core.Unitils;
 import org.unitils.database.annotations.Transactional;
+import org.unitils.database.transaction.SavepointTransactionManager;
+import org.unitils.database.transaction.UnitilsTransactionManager;
 
 /**
  * Tests verifying whether the SimpleTransactionManager functions correctly.
@@ -156,6 +160,73 @@ public class DatabaseModuleTransactionManagerTest extends DatabaseModuleTransact
     }
 
 
+    /**
+     * Tests that the shared transaction of the previous test class is rolled back before the next test class starts.
+     */
+    @Test
+    public void testBeforeTestClass_rollbackClassTransaction() throws Exception {
+        SavepointTransactionManager savepointTransactionManager = createMock(SavepointTransactionManager.class);
+        savepointTransactionManager.rollbackClassTransaction();
+        replay(savepointTransactionManager);
+        databaseModule.transactionManager = savepointTransactionManager;
+
+        databaseModule.getTestListener().beforeTestClass(SavepointTest.class);
+
+        verify(savepointTransactionManager);
+    }
+
+
+    /**
+     * Tests that the shared transaction of a test class is rolled back when the test class is done.
+     */
+    @Test
+    public void testAfterTestClass_rollbackClassTransaction() throws Exception {
+        SavepointTransactionManager savepointTransactionManager = createMock(SavepointTransactionManager.class);
+        savepointTransactionManager.rollbackClassTransaction();
+        replay(savepointTransactionManager);
+        databaseModule.transactionManager = savepointTransactionManager;
+
+        databaseModule.getTestListener().afterTestClass(SavepointTest.class);
+
+        verify(savepointTransactionManager);
+    }
+
+
+    /**
+     * Tests that the shared transactions of all threads are rolled back when the data sources are released.
+     */
+    @Test
+    public void testReleaseDataSources_rollbackOpenClassTransactions() throws Exception {
+        SavepointTransactionManager savepointTransactionManager = createMock(SavepointTransactionManager.class);
+        savepointTransactionManager.rollbackOpenClassTransactions();
+        replay(savepointTransactionManager);
+        databaseModule.transactionManager = savepointTransactionManager;
+
+        databaseModule.releaseDataSources();
+
+        verify(savepointTransactionManager);
+    }
+
+
+    /**
+     * Tests that a savepoint test is executed in its own transaction if the transaction manager does not support
+     * savepoints.
+     */
+    @Test
+    public void testSavepoint_noSavepointTransactionManager() throws Exception {
+        SavepointTest savepointTest = new SavepointTest();
+        UnitilsTransactionManager unitilsTransactionManager = createMock(UnitilsTransactionManager.class);
+        unitilsTransactionManager.init(databaseModule.transactionManagementConfigurations);
+        unitilsTransactionManager.startTransaction(savepointTest);
+        replay(unitilsTransactionManager);
+        databaseModule.transactionManager = unitilsTransactionManager;
+
+        databaseModule.startTransactionForTestMethod(savepointTest, SavepointTest.class.getMethod("test"));
+
+        verify(unitilsTransactionManager);
+    }
+
+
     /**
      * Class that plays the role of a unit test, with transactions disabled
      */
@@ -190,6 +261,16 @@ public class DatabaseModuleTransactionManagerTest extends DatabaseModuleTransact
         }
     }
 
+    /**
+     * Class that plays the role of a unit test, that is executed in a savepoint
+     */
+    @Transactional(SAVEPOINT)
+    public static class SavepointTest {
+
+        public void test() {
+        }
+    }
+
     private void initializeDatabaseModule() {
         Unitils.getInstance().init();
         configuration = (Properties) new ConfigurationLoader().loadConfiguration().clone();
@@ -15,6 +15,7 @@
  */
 package org.unitils.database.config;
 
+import static org.junit.Assert.assertEquals;
 import static org.unitils.easymock.EasyMockUnitils.replay;
 
 import java.util.Properties;
@@ -33,6 +34,9 @@ public class PropertiesDataSourceFactoryTest extends UnitilsJUnit4 {
 	/* Object under test */
 	private PropertiesDataSourceFactory propertiesFileDataSource;
 
+	/* The test configuration */
+	private Properties configuration;
+
 	/* Mocked data source */
 	@Mock
 	private BasicDataSource mockBasicDataSource;
@@ -43,7 +47,7 @@ public class PropertiesDataSourceFactoryTest extends UnitilsJUnit4 {
 	 */
 	@Before
 	public void setUp() throws Exception {
-		Properties configuration = new Properties();
+		configuration = new Properties();
 		configuration.setProperty("database.driverClassName", "testdriver");
 		configuration.setProperty("database.url", "testurl");
 		configuration.setProperty("database.userName", "testusername");
@@ -74,4 +78,107 @@ public class PropertiesDataSourceFactoryTest extends UnitilsJUnit4 {
 		propertiesFileDataSource.createDataSource();
 	}
 
+
+	/**
+	 * Test creating a data source with pool settings. The pool settings for the database override the general ones.
+	 */
+	@Test
+	public void testCreateDataSource_poolConfiguration() {
+		configuration.setProperty("database.names", "database1");
+		configuration.setProperty("database.pool.minIdle", "2");
+		configuration.setProperty("database.pool.minIdle.database1", "3");
+		configuration.setProperty("database.pool.poolPreparedStatements.database1", "true");
+		configuration.setProperty("database.pool.validationQuery", "select 1");
+		configuration.setProperty("database.pool.timeBetweenEvictionRunsMillis", "60000");
+		propertiesFileDataSource.init(configuration, "database1");
+
+		// expectations
+		mockBasicDataSource.setDriverClassName("testdriver");
+		mockBasicDataSource.setUrl("testurl");
+		mockBasicDataSource.setUsername("testusername");
+		mockBasicDataSource.setPassword("testpassword");
+		mockBasicDataSource.setMinIdle(3);
+		mockBasicDataSource.setPoolPreparedStatements(true);
+		mockBasicDataSource.setValidationQuery("select 1");
+		mockBasicDataSource.setTimeBetweenEvictionRunsMillis(60000);
+		replay();
+
+		propertiesFileDataSource.createDataSource();
+	}
+
+
+	/**
+	 * Test pre-warming a data source: the minimum number of idle connections should be open after creation.
+	 */
+	@Test
+	public void testCreateDataSource_preWarm() throws Exception {
+		configuration.setProperty("database.driverClassName", "org.hsqldb.jdbcDriver");
+		configuration.setProperty("database.url", "jdbc:hsqldb:mem:prewarm");
+		configuration.setProperty("database.userName", "sa");
+		configuration.setProperty("database.password", "");
+		configuration.setProperty("database.pool.minIdle", "3");
+		configuration.setProperty("database.pool.preWarm.enabled", "true");
+		PropertiesDataSourceFactory dataSourceFactory = new PropertiesDataSourceFactory();
+		dataSourceFactory.init(configuration);
+
+		BasicDataSource dataSource = (BasicDataSource) dataSourceFactory.createDataSource();
+		try {
+			assertEquals(3, dataSource.getNumIdle());
+			assertEquals(0, dataSource.getNumActive());
+		} finally {
+			dataSource.close();
+		}
+	}
+
+
+	/**
+	 * Test pre-warming a data source with a minimum number of idle connections that is larger than the maximum number
+	 * of active connections. The pool waits forever by default, so only max active connections should be opened.
+	 */
+	@Test(timeout = 30000)
+	public void testCreateDataSource_preWarmMoreThanMaxActive() throws Exception {
+		configuration.setProperty("database.driverClassName", "org.hsqldb.jdbcDriver");
+		configuration.setProperty("database.url", "jdbc:hsqldb:mem:prewarm");
+		configuration.setProperty("database.userName", "sa");
+		configuration.setProperty("database.password", "");
+		configuration.setProperty("database.pool.minIdle", "5");
+		configuration.setProperty("database.pool.maxActive", "2");
+		configuration.setProperty("database.pool.preWarm.enabled", "true");
+		PropertiesDataSourceFactory dataSourceFactory = new PropertiesDataSourceFactory();
+		dataSourceFactory.init(configuration);
+
+		BasicDataSource dataSource = (BasicDataSource) dataSourceFactory.createDataSource();
+		try {
+			assertEquals(2, dataSource.getNumIdle());
+			assertEquals(0, dataSource.getNumActive());
+		} finally {
+			dataSource.close();
+		}
+	}
+
+
+	/**
+	 * Test pre-warming a data source for a database that cannot be reached. The data source should still be returned,
+	 * so that it can be used, or closed, by the caller.
+	 */
+	@Test
+	public void testCreateDataSource_preWarmFailed() throws Exception {
+		configuration.setProperty("database.driverClassName", "org.hsqldb.jdbcDriver");
+		configuration.setProperty("database.url", "jdbc:unknown:prewarm");
+		configuration.setProperty("database.userName", "sa");
+		configuration.setProperty("database.password", "");
+		configuration.setProperty("database.pool.minIdle", "2");
+		configuration.setProperty("database.pool.preWarm.enabled", "true");
+		PropertiesDataSourceFactory dataSourceFactory = new PropertiesDataSourceFactory();
+		dataSourceFactory.init(configuration);
+
+		BasicDataSource dataSource = (BasicDataSource) dataSourceFactory.createDataSource();
+		try {
+			assertEquals(0, dataSource.getNumIdle());
+			assertEquals(0, dataSource.getNumActive());
+		} finally {
+			dataSource.close();
+		}
+	}
+
 }
@@ -23,12 +23,21 @@ import org.junit.Test;
 import org.unitils.UnitilsJUnit4;
 import org.unitils.core.UnitilsException;
 import org.unitils.database.annotations.TestDataSource;
+import org.unitils.database.annotations.Transactional;
 
 import javax.sql.DataSource;
 
+import java.sql.Connection;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.database.SQLUnitils.getItemAsLong;
 import static org.unitils.database.SQLUnitils.executeUpdateQuietly;
 import static org.unitils.database.sqlassert.SqlAssert.*;
+import static org.unitils.database.util.TransactionMode.ROLLBACK;
 
 /**
  * @author Jeroen Horemans
@@ -114,6 +123,54 @@ public class SqlAssertTest extends UnitilsJUnit4 {
         assertMultipleRowSqlResult(SQL_SELECT_STATEMENT, dataSource, expected);
     }
 
+    @Test(expected = AssertionFailedError.class)
+    public void assertMultipleRowSqlResultTestDuplicateRow() {
+        String[][] expected = new String[][]{{"one", "1"}, {"one", "1"}};
+        assertMultipleRowSqlResult(SQL_SELECT_STATEMENT, dataSource, expected);
+    }
+
+    @Test
+    public void assertMultipleRowSqlResultTestNullValue() {
+        executeUpdate("insert into test values ('3', null)", dataSource);
+        assertMultipleRowSqlResult(SQL_SELECT_STATEMENT, dataSource, new String[]{"one", "1"}, new String[]{"two", "2"}, new String[]{null, "3"});
+    }
+
+    /**
+     * The missing rows are reported with their values in the given order.
+     */
+    @Test
+    public void assertMultipleRowSqlResultTestMissingRowsMessage() {
+        try {
+            assertMultipleRowSqlResult(SQL_SELECT_STATEMENT, dataSource, new String[]{"one", "1"}, new String[]{"two", "2"}, new String[]{"three", "3"});
+        } catch (AssertionFailedError e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Missing rows: [[three, 3]]"));
+            return;
+        }
+        throw new AssertionFailedError("Expected AssertionFailedError");
+    }
+
+    /**
+     * A record that is inserted in the transaction of the test, and not committed yet, is seen by the queries.
+     */
+    @Test
+    @Transactional(ROLLBACK)
+    public void assertInTransaction() throws Exception {
+        Connection connection = dataSource.getConnection();
+        assertFalse(connection.getAutoCommit());
+        Statement statement = connection.createStatement();
+        statement.executeUpdate("insert into test values ('3', 'three')");
+        statement.close();
+        connection.close();
+
+        assertEquals(3, getItemAsLong(SQL_COUNT_STATEMENT, dataSource));
+        assertMultipleRowSqlResult(SQL_SELECT_STATEMENT, dataSource, new String[]{"one", "1"}, new String[]{"two", "2"}, new String[]{"three", "3"});
+    }
+
+    @Test
+    public void getItemAsLongWithParameters() {
+        assertEquals(1, getItemAsLong("select count(*) from test where col1 = ? and col2 = ?", dataSource, "1", "one"));
+    }
+
     @Test
     public void assertCountSqlResultMainSucces() {
         assertCountSqlResult(SQL_COUNT_STATEMENT, dataSource, 2L);
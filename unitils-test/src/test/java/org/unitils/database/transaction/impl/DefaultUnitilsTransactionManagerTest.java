@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.transaction.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.unitils.core.UnitilsException;
+
+/**
+ * Tests the transaction manager when tests are executed in parallel.
+ *
+ * @author Tim Ducheyne
+ */
+public class DefaultUnitilsTransactionManagerTest {
+
+    /* Tested object */
+    private DefaultUnitilsTransactionManager defaultUnitilsTransactionManager;
+
+    private DataSource dataSource;
+
+    private ExecutorService executorService;
+
+    private Object testObject = new Object();
+
+
+    @Before
+    public void setUp() throws Exception {
+        dataSource = new DriverManagerDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:unitils", "sa", "");
+        executorService = Executors.newFixedThreadPool(2);
+
+        defaultUnitilsTransactionManager = new DefaultUnitilsTransactionManager();
+        defaultUnitilsTransactionManager.init(Collections.<UnitilsTransactionManagementConfiguration>singleton(new TestTransactionManagementConfiguration(dataSource)));
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+        defaultUnitilsTransactionManager.rollbackClassTransaction();
+        new JdbcTemplate(dataSource).execute("drop table savepoint_test if exists");
+    }
+
+
+    /**
+     * The same test object is executed by 2 threads at the same time, each thread should get its own transaction.
+     */
+    @Test
+    public void testParallelTransactionsForSameTestObject() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        Callable<Connection> test = new Callable<Connection>() {
+            public Connection call() throws Exception {
+                defaultUnitilsTransactionManager.startTransaction(testObject);
+                Connection connection = DataSourceUtils.getConnection(dataSource);
+                assertFalse(connection.getAutoCommit());
+                barrier.await();
+                defaultUnitilsTransactionManager.rollback(testObject);
+                return connection;
+            }
+        };
+        Future<Connection> result1 = executorService.submit(test);
+        Future<Connection> result2 = executorService.submit(test);
+
+        Connection connection1 = result1.get();
+        Connection connection2 = result2.get();
+        assertNotSame(connection1, connection2);
+        assertTrue(connection1.isClosed());
+        assertTrue(connection2.isClosed());
+        assertEquals(0, defaultUnitilsTransactionManager.transactionContexts.size());
+    }
+
+
+    /**
+     * A transaction is bound to the thread that started it, another thread cannot commit it.
+     */
+    @Test
+    public void testCommitFromOtherThread() throws Exception {
+        defaultUnitilsTransactionManager.startTransaction(testObject);
+
+        Future<?> result = executorService.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+                defaultUnitilsTransactionManager.commit(testObject);
+                return null;
+            }
+        });
+        try {
+            result.get();
+            fail("Expected UnitilsException");
+        } catch (Exception e) {
+            assertTrue(e.getCause() instanceof UnitilsException);
+        }
+        defaultUnitilsTransactionManager.commit(testObject);
+    }
+
+
+    /**
+     * Each test is rolled back to its savepoint, the data of the shared class transaction is kept until the class
+     * transaction is rolled back.
+     */
+    @Test
+    public void testSavepoints() throws Exception {
+        new JdbcTemplate(dataSource).execute("create table savepoint_test (id integer)");
+
+        assertTrue(defaultUnitilsTransactionManager.startClassTransaction(testObject));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("insert into savepoint_test values (1)");
+
+        assertFalse(defaultUnitilsTransactionManager.startClassTransaction(testObject));
+        defaultUnitilsTransactionManager.startNestedTransaction(testObject);
+        jdbcTemplate.update("insert into savepoint_test values (2)");
+        assertEquals(2, jdbcTemplate.queryForInt("select count(*) from savepoint_test"));
+        defaultUnitilsTransactionManager.rollback(testObject);
+        assertEquals(1, jdbcTemplate.queryForInt("select count(*) from savepoint_test"));
+
+        defaultUnitilsTransactionManager.rollbackClassTransaction();
+        assertEquals(0, jdbcTemplate.queryForInt("select count(*) from savepoint_test"));
+    }
+
+
+    /**
+     * Starting the class transaction for another test class should roll back the class transaction of the previous
+     * test class.
+     */
+    @Test
+    public void testStartClassTransaction_otherTestClass() throws Exception {
+        new JdbcTemplate(dataSource).execute("create table savepoint_test (id integer)");
+
+        defaultUnitilsTransactionManager.startClassTransaction(testObject);
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        new JdbcTemplate(dataSource).update("insert into savepoint_test values (1)");
+
+        assertTrue(defaultUnitilsTransactionManager.startClassTransaction("other test object"));
+        assertNotSame(connection, DataSourceUtils.getConnection(dataSource));
+        assertEquals(0, new JdbcTemplate(dataSource).queryForInt("select count(*) from savepoint_test"));
+    }
+
+
+    /**
+     * The class transaction that a thread left open cannot be rolled back through spring by another thread. It is
+     * rolled back on its connection when the transaction manager is no longer used.
+     */
+    @Test
+    public void testRollbackOpenClassTransactions() throws Exception {
+        new JdbcTemplate(dataSource).execute("create table savepoint_test (id integer)");
+
+        Connection connection = executorService.submit(new Callable<Connection>() {
+            public Connection call() throws Exception {
+                defaultUnitilsTransactionManager.startClassTransaction(testObject);
+                new JdbcTemplate(dataSource).update("insert into savepoint_test values (1)");
+                return DataSourceUtils.getConnection(dataSource);
+            }
+        }).get();
+        assertEquals(1, defaultUnitilsTransactionManager.openClassTransactionContexts.size());
+
+        defaultUnitilsTransactionManager.rollbackOpenClassTransactions();
+        assertTrue(connection.isClosed());
+        assertTrue(defaultUnitilsTransactionManager.openClassTransactionContexts.isEmpty());
+        assertEquals(0, new JdbcTemplate(dataSource).queryForInt("select count(*) from savepoint_test"));
+    }
+
+
+    @Test
+    public void testRollbackClassTransaction_noLongerOpen() throws Exception {
+        defaultUnitilsTransactionManager.startClassTransaction(testObject);
+        defaultUnitilsTransactionManager.rollbackClassTransaction();
+
+        assertTrue(defaultUnitilsTransactionManager.openClassTransactionContexts.isEmpty());
+    }
+
+
+    @Test(expected = UnitilsException.class)
+    public void testStartNestedTransaction_noClassTransaction() {
+        defaultUnitilsTransactionManager.startNestedTransaction(testObject);
+    }
+
+
+    private static class TestTransactionManagementConfiguration implements UnitilsTransactionManagementConfiguration {
+
+        private PlatformTransactionManager platformTransactionManager;
+
+        public TestTransactionManagementConfiguration(DataSource dataSource) {
+            platformTransactionManager = new DataSourceTransactionManager(dataSource);
+        }
+
+        public boolean isApplicableFor(Object testObject) {
+            return true;
+        }
+
+        public PlatformTransactionManager getSpringPlatformTransactionManager(Object testObject) {
+            return platformTransactionManager;
+        }
+
+        public boolean isTransactionalResourceAvailable(Object testObject) {
+            return true;
+        }
+
+        public Integer getPreference() {
+            return 1;
+        }
+    }
+}
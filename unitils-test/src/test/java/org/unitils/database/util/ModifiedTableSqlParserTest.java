@@ -0,0 +1,114 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.reflectionassert.ReflectionAssert.assertLenientEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link ModifiedTableSqlParser}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ModifiedTableSqlParserTest {
+
+    /* Tested object */
+    private ModifiedTableSqlParser modifiedTableSqlParser;
+
+
+    @Before
+    public void setUp() {
+        modifiedTableSqlParser = new ModifiedTableSqlParser();
+    }
+
+
+    @Test
+    public void insert() {
+        assertLenientEquals(asList("TEST_TABLE"), modifiedTableSqlParser.getModifiedTableNames("insert into TEST_TABLE values('a')"));
+    }
+
+
+    @Test
+    public void insertQualifiedAndQuoted() {
+        assertLenientEquals(asList("schema.\"Test_Table\""), modifiedTableSqlParser.getModifiedTableNames("INSERT INTO schema.\"Test_Table\"(col1) values (?)"));
+    }
+
+
+    @Test
+    public void insertWithCommentsAndCatalog() {
+        assertLenientEquals(asList("schema.table1"), modifiedTableSqlParser.getModifiedTableNames("/* comment */ -- other comment\n insert into catalog.schema.table1 select * from table2"));
+    }
+
+
+    @Test
+    public void insertSquareBrackets() {
+        assertLenientEquals(asList("\"Test Table\""), modifiedTableSqlParser.getModifiedTableNames("insert into [Test Table] values (1)"));
+    }
+
+
+    @Test
+    public void mergeAndReplace() {
+        assertLenientEquals(asList("table1"), modifiedTableSqlParser.getModifiedTableNames("merge into table1 using table2 on (1 = 1)"));
+        assertLenientEquals(asList("table1"), modifiedTableSqlParser.getModifiedTableNames("replace low_priority into table1 values (1)"));
+    }
+
+
+    @Test
+    public void statementsThatDoNotAddRecords() {
+        assertTrue(modifiedTableSqlParser.getModifiedTableNames("select * from table1 where col1 = 'insert into x'").isEmpty());
+        assertTrue(modifiedTableSqlParser.getModifiedTableNames("update table1 set col1 = 2").isEmpty());
+        assertTrue(modifiedTableSqlParser.getModifiedTableNames("delete from table1").isEmpty());
+        assertTrue(modifiedTableSqlParser.getModifiedTableNames("with x as (select 1 from table1) select * from x").isEmpty());
+        assertTrue(modifiedTableSqlParser.getModifiedTableNames("  ").isEmpty());
+    }
+
+
+    @Test
+    public void unknownStatements() {
+        assertNull(modifiedTableSqlParser.getModifiedTableNames("create table table1 (col1 varchar(10))"));
+        assertNull(modifiedTableSqlParser.getModifiedTableNames("{call my_procedure(?)}"));
+        assertNull(modifiedTableSqlParser.getModifiedTableNames("select * into table2 from table1"));
+        assertNull(modifiedTableSqlParser.getModifiedTableNames("insert all into table1 values (1) into table2 values (2) select * from dual"));
+        assertNull(modifiedTableSqlParser.getModifiedTableNames("with x as (insert into table1 values (1) returning *) select * from x"));
+    }
+
+
+    @Test
+    public void readOnlyStatements() {
+        assertTrue(modifiedTableSqlParser.isReadOnly("select * from table1 where col1 = 'delete'"));
+        assertTrue(modifiedTableSqlParser.isReadOnly("with x as (select 1 from table1) select * from x"));
+        assertTrue(modifiedTableSqlParser.isReadOnly("commit"));
+        assertTrue(modifiedTableSqlParser.isReadOnly("  "));
+    }
+
+
+    @Test
+    public void modifyingStatements() {
+        assertFalse(modifiedTableSqlParser.isReadOnly("insert into table1 values (1)"));
+        assertFalse(modifiedTableSqlParser.isReadOnly("update table1 set col1 = 2"));
+        assertFalse(modifiedTableSqlParser.isReadOnly("delete from table1"));
+        assertFalse(modifiedTableSqlParser.isReadOnly("select * into table2 from table1"));
+        assertFalse(modifiedTableSqlParser.isReadOnly("with x as (delete from table1 returning *) select * from x"));
+        assertFalse(modifiedTableSqlParser.isReadOnly("{call my_procedure(?)}"));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.core.dbsupport.DbSupportFactory.getDefaultDbSupport;
+import static org.unitils.core.util.SQLTestUtils.dropTestTables;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.database.SQLUnitils.isEmpty;
+import static org.unitils.reflectionassert.ReflectionAssert.assertLenientEquals;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.UnitilsJUnit4;
+import org.unitils.core.ConfigurationLoader;
+import org.unitils.core.dbsupport.DbSupport;
+import org.unitils.core.dbsupport.DefaultSQLHandler;
+import org.unitils.database.annotations.TestDataSource;
+import org.unitils.dbmaintainer.clean.impl.DefaultDBCleaner;
+import org.unitils.util.PropertyUtils;
+
+/**
+ * Test for {@link ModifiedTableTrackingDataSource} in combination with the {@link DefaultDBCleaner}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ModifiedTableTrackingDataSourceTest extends UnitilsJUnit4 {
+
+    /* DataSource for the test database, is injected */
+    @TestDataSource
+    private DataSource dataSource = null;
+
+    /* Tested object */
+    private ModifiedTableTrackingDataSource modifiedTableTrackingDataSource;
+
+    private DefaultDBCleaner defaultDbCleaner;
+
+    private DbSupport dbSupport;
+
+
+    @Before
+    public void setUp() throws Exception {
+        Properties configuration = new ConfigurationLoader().loadConfiguration();
+        List<String> schemas = PropertyUtils.getStringList("database.schemaNames", configuration);
+        modifiedTableTrackingDataSource = new ModifiedTableTrackingDataSource(dataSource);
+        dbSupport = getDefaultDbSupport(configuration, new DefaultSQLHandler(dataSource), "hsqldb", schemas.get(0));
+
+        defaultDbCleaner = new DefaultDBCleaner();
+        defaultDbCleaner.init(configuration, new DefaultSQLHandler(modifiedTableTrackingDataSource), "hsqldb", schemas);
+
+        cleanupTestDatabase();
+        executeUpdate("create table TEST_TABLE_1(col1 varchar(10))", dataSource);
+        executeUpdate("create table TEST_TABLE_2(col1 varchar(10))", dataSource);
+        executeUpdate("insert into TEST_TABLE_1 values('test')", dataSource);
+        executeUpdate("insert into TEST_TABLE_2 values('test')", dataSource);
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        cleanupTestDatabase();
+    }
+
+
+    @Test
+    public void allTablesModifiedBeforeFirstClean() {
+        assertNull(modifiedTableTrackingDataSource.getAndResetModifiedTableNames());
+        assertTrue(modifiedTableTrackingDataSource.getAndResetModifiedTableNames().isEmpty());
+    }
+
+
+    @Test
+    public void trackInsertsOfStatementsAndPreparedStatements() throws Exception {
+        modifiedTableTrackingDataSource.getAndResetModifiedTableNames();
+
+        executeUpdate("insert into TEST_TABLE_1 values('a')", modifiedTableTrackingDataSource);
+        Connection connection = modifiedTableTrackingDataSource.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement("insert into TEST_TABLE_2 values(?)");
+        preparedStatement.close();
+        connection.close();
+
+        assertLenientEquals(asList("TEST_TABLE_1", "TEST_TABLE_2"), modifiedTableTrackingDataSource.getAndResetModifiedTableNames());
+    }
+
+
+    @Test
+    public void unknownStatement() throws Exception {
+        modifiedTableTrackingDataSource.getAndResetModifiedTableNames();
+        executeUpdate("create table TEST_TABLE_3(col1 varchar(10))", modifiedTableTrackingDataSource);
+        executeUpdate("drop table TEST_TABLE_3", modifiedTableTrackingDataSource);
+
+        assertNull(modifiedTableTrackingDataSource.getAndResetModifiedTableNames());
+    }
+
+
+    @Test
+    public void versionStampChangesOnModification() throws Exception {
+        String versionStamp = modifiedTableTrackingDataSource.getVersionStamp();
+        executeUpdate("update TEST_TABLE_1 set col1 = 'a'", modifiedTableTrackingDataSource);
+        assertFalse(versionStamp.equals(modifiedTableTrackingDataSource.getVersionStamp()));
+
+        versionStamp = modifiedTableTrackingDataSource.getVersionStamp();
+        Connection connection = modifiedTableTrackingDataSource.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement("delete from TEST_TABLE_2 where col1 = ?");
+        assertEquals(versionStamp, modifiedTableTrackingDataSource.getVersionStamp());
+        preparedStatement.setString(1, "test");
+        preparedStatement.executeUpdate();
+        preparedStatement.close();
+        connection.close();
+        assertFalse(versionStamp.equals(modifiedTableTrackingDataSource.getVersionStamp()));
+    }
+
+
+    @Test
+    public void versionStampNotChangedByQueriesAndSuspendedTracking() throws Exception {
+        String versionStamp = modifiedTableTrackingDataSource.getVersionStamp();
+        isEmpty("TEST_TABLE_1", modifiedTableTrackingDataSource);
+
+        modifiedTableTrackingDataSource.suspendTracking();
+        executeUpdate("insert into TEST_TABLE_1 values('a')", modifiedTableTrackingDataSource);
+        modifiedTableTrackingDataSource.resumeTracking();
+
+        assertEquals(versionStamp, modifiedTableTrackingDataSource.getVersionStamp());
+    }
+
+
+    @Test
+    public void cleanOnlyModifiedTables() throws Exception {
+        defaultDbCleaner.cleanSchemas();
+        assertTrue(isEmpty("TEST_TABLE_1", dataSource));
+        assertTrue(isEmpty("TEST_TABLE_2", dataSource));
+
+        executeUpdate("insert into TEST_TABLE_1 values('test')", modifiedTableTrackingDataSource);
+        // not tracked, so should not be cleaned
+        executeUpdate("insert into TEST_TABLE_2 values('test')", dataSource);
+        defaultDbCleaner.cleanSchemas();
+        assertTrue(isEmpty("TEST_TABLE_1", dataSource));
+        assertFalse(isEmpty("TEST_TABLE_2", dataSource));
+    }
+
+
+    private void cleanupTestDatabase() {
+        dropTestTables(dbSupport, "TEST_TABLE_1", "TEST_TABLE_2", "TEST_TABLE_3");
+    }
+}
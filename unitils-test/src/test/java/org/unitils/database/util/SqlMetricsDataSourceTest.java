@@ -0,0 +1,175 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.database.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.database.util.SqlMetricsCollector.PHASE_DBUNIT_LOAD;
+import static org.unitils.database.util.SqlMetricsCollector.PHASE_TEST;
+import static org.unitils.thirdparty.org.apache.commons.io.FileUtils.readFileToString;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.unitils.core.UnitilsException;
+
+/**
+ * Test for {@link SqlMetricsDataSource} and {@link SqlMetricsCollector}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class SqlMetricsDataSourceTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /* Tested object */
+    private SqlMetricsDataSource sqlMetricsDataSource;
+
+    private SqlMetricsCollector sqlMetricsCollector;
+
+    private DataSource dataSource;
+
+
+    @Before
+    public void setUp() throws Exception {
+        dataSource = new DriverManagerDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:unitils", "sa", "");
+        executeUpdate("create table sql_metrics_test (col1 varchar(10))", dataSource);
+
+        sqlMetricsCollector = new SqlMetricsCollector(-1, 1, true);
+        sqlMetricsDataSource = new SqlMetricsDataSource(dataSource, sqlMetricsCollector);
+        sqlMetricsCollector.startTest("test1");
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        executeUpdate("drop table sql_metrics_test if exists", dataSource);
+    }
+
+
+    @Test
+    public void testStatementsAndRows() throws Exception {
+        Connection connection = sqlMetricsDataSource.getConnection();
+        Statement statement = connection.createStatement();
+        statement.executeUpdate("insert into sql_metrics_test values ('a')");
+        statement.executeUpdate("insert into sql_metrics_test values ('b')");
+        ResultSet resultSet = statement.executeQuery("select * from sql_metrics_test");
+        while (resultSet.next()) {
+        }
+        connection.close();
+
+        SqlMetrics sqlMetrics = sqlMetricsCollector.getMetrics("test1", PHASE_TEST);
+        assertEquals(3, sqlMetrics.getStatementCount());
+        assertEquals(0, sqlMetrics.getBatchCount());
+        assertEquals(4, sqlMetrics.getRowCount());
+    }
+
+
+    @Test
+    public void testBatch() throws Exception {
+        Connection connection = sqlMetricsDataSource.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement("insert into sql_metrics_test values (?)");
+        for (String value : new String[]{"a", "b", "c"}) {
+            preparedStatement.setString(1, value);
+            preparedStatement.addBatch();
+        }
+        preparedStatement.executeBatch();
+        connection.close();
+
+        SqlMetrics sqlMetrics = sqlMetricsCollector.getMetrics("test1", PHASE_TEST);
+        assertEquals(3, sqlMetrics.getStatementCount());
+        assertEquals(1, sqlMetrics.getBatchCount());
+        assertEquals(3, sqlMetrics.getRowCount());
+    }
+
+
+    @Test
+    public void testPhase() throws Exception {
+        String previousPhase = sqlMetricsCollector.startPhase(PHASE_DBUNIT_LOAD);
+        executeUpdate("insert into sql_metrics_test values ('a')", sqlMetricsDataSource);
+        sqlMetricsCollector.endPhase(previousPhase);
+        executeUpdate("insert into sql_metrics_test values ('b')", sqlMetricsDataSource);
+
+        assertEquals(1, sqlMetricsCollector.getMetrics("test1", PHASE_DBUNIT_LOAD).getStatementCount());
+        assertEquals(1, sqlMetricsCollector.getMetrics("test1", PHASE_TEST).getStatementCount());
+    }
+
+
+    /**
+     * The same prepared statement is executed more than the maximum nr of times, which is typical for N+1 selects.
+     */
+    @Test(expected = UnitilsException.class)
+    public void testEndTest_maxExecutionsPerStatementExceeded() throws Exception {
+        Connection connection = sqlMetricsDataSource.getConnection();
+        PreparedStatement preparedStatement = connection.prepareStatement("select * from sql_metrics_test where col1 = ?");
+        for (String value : new String[]{"a", "b"}) {
+            preparedStatement.setString(1, value);
+            preparedStatement.executeQuery().close();
+        }
+        connection.close();
+
+        sqlMetricsCollector.endTest();
+    }
+
+
+    /**
+     * After the test, only the most executed statement is kept, the counts of the other statements are dropped.
+     */
+    @Test
+    public void testEndTest_executionCountsDropped() throws Exception {
+        sqlMetricsCollector = new SqlMetricsCollector(-1, -1, true);
+        sqlMetricsDataSource = new SqlMetricsDataSource(dataSource, sqlMetricsCollector);
+        sqlMetricsCollector.startTest("test1");
+        executeUpdate("insert into sql_metrics_test values ('a')", sqlMetricsDataSource);
+        executeUpdate("insert into sql_metrics_test values ('a')", sqlMetricsDataSource);
+        executeUpdate("insert into sql_metrics_test values ('b')", sqlMetricsDataSource);
+        sqlMetricsCollector.endTest();
+
+        SqlMetrics sqlMetrics = sqlMetricsCollector.getMetrics("test1", PHASE_TEST);
+        assertEquals(3, sqlMetrics.getStatementCount());
+        assertEquals("insert into sql_metrics_test values ('a')", sqlMetrics.getMostExecutedSql());
+        assertEquals(2, sqlMetrics.getMaxExecutionCount());
+        assertEquals(0, sqlMetrics.getExecutionCount("insert into sql_metrics_test values ('b')"));
+    }
+
+
+    @Test
+    public void testWriteReport() throws Exception {
+        executeUpdate("insert into sql_metrics_test values ('a')", sqlMetricsDataSource);
+        sqlMetricsCollector.endTest();
+
+        File reportFile = new File(tempFolder.getRoot(), "report/sql-metrics.csv");
+        sqlMetricsCollector.writeReport(reportFile);
+
+        String report = readFileToString(reportFile, null);
+        assertTrue(report.startsWith("test,phase,statements,batches,rows,elapsedMillis"));
+        assertTrue(report.contains("\"test1\",test,1,0,1,"));
+    }
+}
@@ -20,6 +20,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.unitils.UnitilsJUnit4;
 import org.unitils.core.UnitilsException;
+import org.unitils.core.dbsupport.DbSupport;
 import org.unitils.dbmaintainer.clean.DBClearer;
 import org.unitils.dbmaintainer.script.ExecutedScript;
 import org.unitils.dbmaintainer.script.Script;
@@ -71,6 +72,8 @@ public class DBMaintainerTest extends UnitilsJUnit4 {
     @InjectIntoByType
     private Mock<DataSetStructureGenerator> mockDataSetStructureGenerator;
 
+    private Mock<DbSupport> mockDbSupport;
+
     @TestedObject
     private DBMaintainer dbMaintainer;
 
@@ -147,6 +150,21 @@ public class DBMaintainerTest extends UnitilsJUnit4 {
     }
 
 
+    /**
+     * Tests that the meta data cached by the db supports is invalidated after executing the scripts.
+     */
+    @Test
+    public void testUpdateDatabase_invalidateDbSupportCaches() throws Exception {
+        dbMaintainer.dbSupports.add(mockDbSupport.getMock());
+        expectNewScriptsAdded();
+        expectPostProcessingScripts(postProcessingScripts);
+
+        dbMaintainer.updateDatabase(schema, true);
+
+        mockDbSupport.assertInvoked().invalidateCache();
+    }
+
+
     /**
      * Tests updating the database from scratch: Existing scripts have been modified. The database is cleared first
      * and all scripts are executed.
@@ -72,7 +72,7 @@ public class DefaultDBClearerTest extends UnitilsJUnit4 {
     /* The name of the version tabel */
     private String versionTableName;
 
-    private static String dialect = "h2";
+    private static String dialect = "hsqldb";
     
     private List<String> schemas;
 
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.clean.impl;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.core.dbsupport.DbSupportFactory.getDefaultDbSupport;
+import static org.unitils.core.util.SQLTestUtils.dropTestTables;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.database.SQLUnitils.isEmpty;
+import static org.unitils.dbmaintainer.clean.impl.DefaultDBCleaner.PROPKEY_PRESERVE_DATA_TABLES;
+import static org.unitils.dbmaintainer.clean.impl.DefaultDBCleaner.PROPKEY_VERSION_TABLE_NAME;
+import static org.unitils.dbmaintainer.clean.impl.TruncatingDBCleaner.PROPKEY_THREAD_COUNT;
+import static org.unitils.reflectionassert.ReflectionAssert.assertLenientEquals;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.UnitilsJUnit4;
+import org.unitils.core.ConfigurationLoader;
+import org.unitils.core.dbsupport.DbSupport;
+import org.unitils.core.dbsupport.DefaultSQLHandler;
+import org.unitils.core.dbsupport.SQLHandler;
+import org.unitils.database.annotations.TestDataSource;
+import org.unitils.util.PropertyUtils;
+
+/**
+ * Test class for the TruncatingDBCleaner.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class TruncatingDBCleanerTest extends UnitilsJUnit4 {
+
+    /* DataSource for the test database, is injected */
+    @TestDataSource
+    private DataSource dataSource = null;
+
+    /* Tested object */
+    private TruncatingDBCleaner truncatingDbCleaner;
+
+    /* The DbSupport object */
+    private DbSupport dbSupport;
+
+    /* The name of the version tabel */
+    private String versionTableName;
+
+    private static String dialect = "hsqldb";
+
+
+    /**
+     * Test fixture. The TruncatingDBCleaner is instantiated and configured. Test tables are created and filled with test
+     * data. One of these tables is configured as 'tabletopreserve'.
+     */
+    @Before
+    public void setUp() throws Exception {
+        Properties configuration = new ConfigurationLoader().loadConfiguration();
+        List<String> schemas = PropertyUtils.getStringList("database.schemaNames", configuration);
+        SQLHandler sqlHandler = new DefaultSQLHandler(dataSource);
+        dbSupport = getDefaultDbSupport(configuration, sqlHandler, dialect, schemas.get(0));
+
+        configuration.setProperty(PROPKEY_PRESERVE_DATA_TABLES, "Test_table_Preserve, TEST_TABLE_PRESERVE_CHILD");
+        configuration.setProperty(PROPKEY_THREAD_COUNT, "2");
+        truncatingDbCleaner = new TruncatingDBCleaner();
+        truncatingDbCleaner.init(configuration, sqlHandler, dialect, schemas);
+        versionTableName = configuration.getProperty(PROPKEY_VERSION_TABLE_NAME);
+
+        cleanupTestDatabase();
+        createTestDatabase();
+        insertTestData();
+    }
+
+
+    /**
+     * Removes the test database tables from the test database, to avoid inference with other tests
+     */
+    @After
+    public void tearDown() throws Exception {
+        cleanupTestDatabase();
+    }
+
+
+    /**
+     * Tests if the tables that are not configured as tables to preserve are correctly cleaned
+     */
+    @Test
+    public void testCleanDatabase() throws Exception {
+        assertFalse(isEmpty("TEST_TABLE", dataSource));
+        assertFalse(isEmpty(dbSupport.quoted("Test_CASE_Table"), dataSource));
+        truncatingDbCleaner.cleanSchemas();
+        assertTrue(isEmpty("TEST_TABLE", dataSource));
+        assertTrue(isEmpty(dbSupport.quoted("Test_CASE_Table"), dataSource));
+    }
+
+
+    /**
+     * Tests if the tables to preserve and the version table are left untouched
+     */
+    @Test
+    public void testCleanDatabase_preserveTables() throws Exception {
+        truncatingDbCleaner.cleanSchemas();
+        assertFalse(isEmpty(versionTableName, dataSource));
+        assertFalse(isEmpty("TEST_TABLE_PRESERVE", dataSource));
+    }
+
+
+    /**
+     * Tests cleaning a table that cannot be truncated because it is referenced by a foreign key. The records should
+     * be deleted instead.
+     */
+    @Test
+    public void testCleanDatabase_referencedTable() throws Exception {
+        assertFalse(isEmpty("TEST_TABLE_PARENT", dataSource));
+        truncatingDbCleaner.cleanSchemas();
+        assertTrue(isEmpty("TEST_TABLE_PARENT", dataSource));
+    }
+
+
+    /**
+     * Tests cleaning a table that is referenced by a table of which the data should be preserved. Truncating the
+     * referenced table should not cascade to the preserved table.
+     */
+    @Test
+    public void testCleanDatabase_referencedByPreservedTable() throws Exception {
+        truncatingDbCleaner.cleanSchemas();
+        assertTrue(isEmpty("TEST_TABLE_PARENT", dataSource));
+        assertFalse(isEmpty("TEST_TABLE_PRESERVE_CHILD", dataSource));
+    }
+
+
+    /**
+     * Tests getting the tables that contain data: the empty tables should not be returned.
+     */
+    @Test
+    public void testGetNonEmptyTableNames() throws Exception {
+        Set<String> tableNames = new HashSet<String>(asList("TEST_TABLE", "TEST_TABLE_CHILD", "Test_CASE_Table"));
+        Set<String> result = dbSupport.getNonEmptyTableNames(tableNames);
+        assertLenientEquals(asList("TEST_TABLE", "Test_CASE_Table"), result);
+    }
+
+
+    /**
+     * Creates the test tables
+     */
+    private void createTestDatabase() throws Exception {
+        executeUpdate("create table " + versionTableName + "(testcolumn varchar(10))", dataSource);
+        executeUpdate("create table TEST_TABLE(testcolumn varchar(10))", dataSource);
+        executeUpdate("create table TEST_TABLE_PRESERVE(testcolumn varchar(10))", dataSource);
+        executeUpdate("create table " + dbSupport.quoted("Test_CASE_Table") + " (col1 varchar(10))", dataSource);
+        executeUpdate("create table TEST_TABLE_PARENT(id int primary key)", dataSource);
+        executeUpdate("create table TEST_TABLE_CHILD(parent_id int, foreign key (parent_id) references TEST_TABLE_PARENT(id))", dataSource);
+        executeUpdate("create table TEST_TABLE_PRESERVE_CHILD(parent_id int, foreign key (parent_id) references TEST_TABLE_PARENT(id))", dataSource);
+    }
+
+
+    /**
+     * Removes the test database tables
+     */
+    private void cleanupTestDatabase() {
+        dropTestTables(dbSupport, "TEST_TABLE_PRESERVE_CHILD", "TEST_TABLE_CHILD", "TEST_TABLE_PARENT", "TEST_TABLE", "TEST_TABLE_PRESERVE", dbSupport.quoted("Test_CASE_Table"), versionTableName);
+    }
+
+
+    /**
+     * Inserts a test record in each test table, except for the child table. The record of the preserved child table
+     * does not reference a parent record, so that the parent table can be cleaned.
+     */
+    private void insertTestData() throws Exception {
+        executeUpdate("insert into " + versionTableName + " values('test')", dataSource);
+        executeUpdate("insert into TEST_TABLE values('test')", dataSource);
+        executeUpdate("insert into TEST_TABLE_PRESERVE values('test')", dataSource);
+        executeUpdate("insert into " + dbSupport.quoted("Test_CASE_Table") + " values('test')", dataSource);
+        executeUpdate("insert into TEST_TABLE_PARENT values(1)", dataSource);
+        executeUpdate("insert into TEST_TABLE_PRESERVE_CHILD values(null)", dataSource);
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbmaintainer.script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.unitils.thirdparty.org.apache.commons.io.FileUtils.writeStringToFile;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.unitils.dbmaintainer.script.ScriptContentHandle.FileScriptContentHandle;
+import org.unitils.dbmaintainer.script.ScriptContentHandle.StringScriptContentHandle;
+
+/**
+ * Tests the persistent cache of script checksums.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ScriptCheckSumCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /* Tested object */
+    private ScriptCheckSumCache scriptCheckSumCache;
+
+    private File cacheFile;
+
+    private File scriptFile;
+
+    private long lastModified;
+
+
+    @Before
+    public void setUp() throws Exception {
+        cacheFile = new File(tempFolder.getRoot(), "cache/checksums.properties");
+        scriptCheckSumCache = new ScriptCheckSumCache(cacheFile);
+
+        scriptFile = tempFolder.newFile("001_script.sql");
+        writeStringToFile(scriptFile, "create table test (col1 varchar(10));", null);
+        lastModified = scriptFile.lastModified() - 60000;
+        scriptFile.setLastModified(lastModified);
+    }
+
+
+    @Test
+    public void testGetCheckSum() {
+        scriptCheckSumCache.putCheckSum(scriptFile, scriptFile.length(), lastModified, "checksum");
+
+        assertEquals("checksum", scriptCheckSumCache.getCheckSum(scriptFile));
+    }
+
+
+    @Test
+    public void testGetCheckSum_notCached() {
+        assertNull(scriptCheckSumCache.getCheckSum(scriptFile));
+    }
+
+
+    @Test
+    public void testGetCheckSum_fileModified() throws Exception {
+        scriptCheckSumCache.putCheckSum(scriptFile, scriptFile.length(), lastModified, "checksum");
+        writeStringToFile(scriptFile, "create table test (col1 varchar(20));", null);
+        scriptFile.setLastModified(lastModified + 1000);
+
+        assertNull(scriptCheckSumCache.getCheckSum(scriptFile));
+    }
+
+
+    @Test
+    public void testGetCheckSum_sizeChanged() throws Exception {
+        scriptCheckSumCache.putCheckSum(scriptFile, scriptFile.length(), lastModified, "checksum");
+        writeStringToFile(scriptFile, "create table test (col1 varchar(10), col2 varchar(10));", null);
+        scriptFile.setLastModified(lastModified);
+
+        assertNull(scriptCheckSumCache.getCheckSum(scriptFile));
+    }
+
+
+    /**
+     * A change in the same tick of the file system clock could go unnoticed, so recently modified files are not cached.
+     */
+    @Test
+    public void testPutCheckSum_recentlyModified() {
+        scriptFile.setLastModified(System.currentTimeMillis());
+        scriptCheckSumCache.putCheckSum(scriptFile, scriptFile.length(), scriptFile.lastModified(), "checksum");
+
+        assertNull(scriptCheckSumCache.getCheckSum(scriptFile));
+    }
+
+
+    @Test
+    public void testSave() {
+        scriptCheckSumCache.putCheckSum(scriptFile, scriptFile.length(), lastModified, "checksum");
+        scriptCheckSumCache.save();
+
+        ScriptCheckSumCache result = new ScriptCheckSumCache(cacheFile);
+        assertEquals("checksum", result.getCheckSum(scriptFile));
+    }
+
+
+    /**
+     * The checksum of a cached file handle should be the same as the checksum calculated from the content.
+     */
+    @Test
+    public void testFileScriptContentHandle() {
+        String expectedCheckSum = new StringScriptContentHandle("create table test (col1 varchar(10));").getCheckSum();
+
+        String checkSum = new FileScriptContentHandle(scriptFile, scriptCheckSumCache).getCheckSum();
+        String cachedCheckSum = scriptCheckSumCache.getCheckSum(scriptFile);
+
+        assertEquals(expectedCheckSum, checkSum);
+        assertEquals(expectedCheckSum, cachedCheckSum);
+    }
+}
@@ -59,7 +59,7 @@ public class DefaultScriptRunnerTest extends UnitilsJUnit4 {
     /* A test script that will create 1 table: table3 */
     private Script script2;
     
-    private static String dialect = "h2";
+    private static String dialect = "hsqldb";
     
     private List<String> schemas;
 
@@ -63,7 +63,7 @@ public class ConstraintsDisablerTest extends UnitilsJUnit4 {
     @TestDataSource
     protected DataSource dataSource = null;
 
-    private static String dialect = "h2";
+    private static String dialect = "hsqldb";
     
     private List<String> schemas;
 
@@ -76,7 +76,7 @@ public class SequenceUpdaterTest extends UnitilsJUnit4 {
     /* DbSupport instance */
     private DbSupport dbSupport;
 
-    private static String dialect = "h2";
+    private static String dialect = "hsqldb";
     private List<String> schemas;
 
     /**
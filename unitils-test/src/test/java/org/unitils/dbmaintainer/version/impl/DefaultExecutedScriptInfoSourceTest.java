@@ -76,7 +76,7 @@ public class DefaultExecutedScriptInfoSourceTest extends UnitilsJUnit4 {
 
     ExecutedScript executedScript1, executedScript2;
 
-    private static String dialect = "h2";
+    private static String dialect = "hsqldb";
     
     private List<String> schemas;
     /**
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbunit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+import static org.unitils.database.SQLUnitils.executeUpdateQuietly;
+import static org.unitils.database.SQLUnitils.getItemAsLong;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.core.ConfigurationLoader;
+import org.unitils.core.Unitils;
+import org.unitils.database.DatabaseModule;
+import org.unitils.database.util.ModifiedTableTrackingDataSource;
+import org.unitils.dbunit.annotation.DataSet;
+
+/**
+ * Test for the sharing of loaded data sets between tests by the {@link DbUnitModule}: a data set that is still in the
+ * database is not loaded again.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class DbUnitModuleFixtureSharingTest {
+
+    /* Tested object */
+    private DbUnitModule dbUnitModule;
+
+    private DatabaseModule databaseModule;
+
+    /* The data source that tracks the modifications */
+    private DataSource trackingDataSource;
+
+    /* The target data source, modifications made through it are not tracked */
+    private DataSource untrackedDataSource;
+
+    private Method testMethod;
+
+    private DataSetTest testObject = new DataSetTest();
+
+
+    @Before
+    public void setUp() throws Exception {
+        Unitils.getInstance().init();
+        Properties configuration = (Properties) new ConfigurationLoader().loadConfiguration().clone();
+        configuration.setProperty(DatabaseModule.PROPERTY_TRACK_MODIFIED_TABLES_ENABLED, "true");
+        configuration.setProperty(DbUnitModule.PROPERTY_FIXTURE_SHARING_ENABLED, "true");
+        configuration.setProperty(DbUnitModule.PROPERTY_FIXTURE_SHARING_TABLE_NAME, "test_fixture_fingerprint");
+        configuration.setProperty("updateDataBaseSchema.enabled", "false");
+
+        databaseModule = Unitils.getInstance().getModulesRepository().getModuleOfType(DatabaseModule.class);
+        databaseModule.init(configuration);
+        databaseModule.afterInit();
+        dbUnitModule = Unitils.getInstance().getModulesRepository().getModuleOfType(DbUnitModule.class);
+        dbUnitModule.init(configuration);
+        dbUnitModule.databaseName = "";
+
+        trackingDataSource = databaseModule.getWrapper("").getDataSource();
+        assertTrue(trackingDataSource instanceof ModifiedTableTrackingDataSource);
+        untrackedDataSource = ((ModifiedTableTrackingDataSource) trackingDataSource).getTargetDataSource();
+        testMethod = DataSetTest.class.getMethod("testMethod");
+        Unitils.getInstance().getTestContext().setTestObject(testObject);
+
+        dropTestTables();
+        executeUpdate("create table test (dataset varchar(100), anotherColumn varchar(100))", untrackedDataSource);
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        dropTestTables();
+        Unitils.getInstance().init();
+    }
+
+
+    /**
+     * The second load of the same data set is skipped: the record that was deleted without being tracked stays deleted.
+     */
+    @Test
+    public void testSecondLoadSkipped() throws Exception {
+        dbUnitModule.insertDataSet(testMethod, testObject);
+        assertEquals(1, getItemAsLong("select count(*) from test", untrackedDataSource));
+        executeUpdate("delete from test", untrackedDataSource);
+
+        dbUnitModule.insertDataSet(testMethod, testObject);
+        assertEquals(0, getItemAsLong("select count(*) from test", untrackedDataSource));
+    }
+
+
+    /**
+     * The data set is loaded again if something was written into the database after the load.
+     */
+    @Test
+    public void testReloadAfterWrite() throws Exception {
+        dbUnitModule.insertDataSet(testMethod, testObject);
+        executeUpdate("delete from test", trackingDataSource);
+
+        dbUnitModule.insertDataSet(testMethod, testObject);
+        assertEquals(1, getItemAsLong("select count(*) from test", untrackedDataSource));
+    }
+
+
+    /**
+     * The data set is loaded again if it was loaded by a test that was rolled back.
+     */
+    @Test
+    public void testReloadAfterRollback() throws Exception {
+        databaseModule.startTransaction(testObject);
+        dbUnitModule.insertDataSet(testMethod, testObject);
+        databaseModule.rollbackTransaction(testObject);
+        assertEquals(0, getItemAsLong("select count(*) from test", untrackedDataSource));
+
+        dbUnitModule.insertDataSet(testMethod, testObject);
+        assertEquals(1, getItemAsLong("select count(*) from test", untrackedDataSource));
+    }
+
+
+    private void dropTestTables() {
+        executeUpdateQuietly("drop table test", untrackedDataSource);
+        executeUpdateQuietly("drop table test_fixture_fingerprint", untrackedDataSource);
+    }
+
+
+    /**
+     * Test class that loads a data set
+     */
+    public static class DataSetTest {
+
+        @DataSet("CustomDataSet.xml")
+        public void testMethod() {
+        }
+    }
+}
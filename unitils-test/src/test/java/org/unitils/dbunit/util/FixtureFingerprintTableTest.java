@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.dbunit.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.unitils.core.dbsupport.DbSupportFactory.getDefaultDbSupport;
+import static org.unitils.core.util.SQLTestUtils.dropTestTables;
+import static org.unitils.database.SQLUnitils.executeUpdate;
+
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.UnitilsJUnit4;
+import org.unitils.core.ConfigurationLoader;
+import org.unitils.core.dbsupport.DbSupport;
+import org.unitils.core.dbsupport.DefaultSQLHandler;
+import org.unitils.database.annotations.TestDataSource;
+import org.unitils.database.util.ModifiedTableTrackingDataSource;
+import org.unitils.util.PropertyUtils;
+
+/**
+ * Test for {@link FixtureFingerprintTable}.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class FixtureFingerprintTableTest extends UnitilsJUnit4 {
+
+    /* DataSource for the test database, is injected */
+    @TestDataSource
+    private DataSource dataSource = null;
+
+    /* Tested object */
+    private FixtureFingerprintTable fixtureFingerprintTable;
+
+    private ModifiedTableTrackingDataSource modifiedTableTrackingDataSource;
+
+    private DbSupport dbSupport;
+
+
+    @Before
+    public void setUp() throws Exception {
+        Properties configuration = new ConfigurationLoader().loadConfiguration();
+        String dialect = PropertyUtils.getString("database.dialect", configuration);
+        String schemaName = PropertyUtils.getStringList("database.schemaNames", configuration).get(0);
+        modifiedTableTrackingDataSource = new ModifiedTableTrackingDataSource(dataSource);
+        dbSupport = getDefaultDbSupport(configuration, new DefaultSQLHandler(modifiedTableTrackingDataSource), dialect, schemaName);
+        fixtureFingerprintTable = new FixtureFingerprintTable("TEST_FINGERPRINT", modifiedTableTrackingDataSource, dbSupport);
+
+        cleanupTestDatabase();
+        executeUpdate("create table TEST_TABLE(col1 varchar(10))", dataSource);
+    }
+
+
+    @After
+    public void tearDown() throws Exception {
+        cleanupTestDatabase();
+    }
+
+
+    @Test
+    public void notLoaded() {
+        assertFalse(fixtureFingerprintTable.isLoaded("data set 1"));
+    }
+
+
+    @Test
+    public void loaded() {
+        fixtureFingerprintTable.registerLoad("data set 1");
+
+        assertTrue(fixtureFingerprintTable.isLoaded("data set 1"));
+        assertFalse(fixtureFingerprintTable.isLoaded("data set 2"));
+    }
+
+
+    @Test
+    public void notLoadedAfterModification() {
+        fixtureFingerprintTable.registerLoad("data set 1");
+        executeUpdate("insert into TEST_TABLE values('a')", modifiedTableTrackingDataSource);
+
+        assertFalse(fixtureFingerprintTable.isLoaded("data set 1"));
+    }
+
+
+    /**
+     * A load that was registered by another data source, e.g. in another test run, cannot be trusted.
+     */
+    @Test
+    public void notLoadedForOtherDataSource() {
+        fixtureFingerprintTable.registerLoad("data set 1");
+
+        ModifiedTableTrackingDataSource otherDataSource = new ModifiedTableTrackingDataSource(dataSource);
+        assertFalse(new FixtureFingerprintTable("TEST_FINGERPRINT", otherDataSource, dbSupport).isLoaded("data set 1"));
+    }
+
+
+    private void cleanupTestDatabase() {
+        dropTestTables(dbSupport, "TEST_FINGERPRINT", "TEST_TABLE");
+    }
+}
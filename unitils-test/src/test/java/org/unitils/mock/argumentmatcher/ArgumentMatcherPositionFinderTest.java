@@ -187,6 +187,21 @@ public class ArgumentMatcherPositionFinderTest {
     }
 
 
+    /**
+     * The analysis should only be performed once for the same invocation.
+     */
+    @Test
+    public void resultIsCached() {
+        List<Integer> result1 = getArgumentMatcherIndexes(TestClass.class, "test", proxyMethod, twoSameInvocationsOnSameLineLineNr, twoSameInvocationsOnSameLineLineNr, 1);
+        List<Integer> result2 = getArgumentMatcherIndexes(TestClass.class, "test", proxyMethod, twoSameInvocationsOnSameLineLineNr, twoSameInvocationsOnSameLineLineNr, 2);
+        List<Integer> result3 = getArgumentMatcherIndexes(TestClass.class, "test", proxyMethod, twoSameInvocationsOnSameLineLineNr, twoSameInvocationsOnSameLineLineNr, 1);
+
+        assertReflectionEquals(asList(0), result1);
+        assertReflectionEquals(asList(2), result2);
+        assertTrue(result1 == result3);
+    }
+
+
     /**
      * Simulates a proxy
      */
@@ -16,11 +16,17 @@
 package org.unitils.mock.core;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.Test;
 import static org.unitils.mock.MockUnitils.assertNoMoreInvocations;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+
 /**
  * Tests the mock object functionality.
  *
@@ -100,6 +106,75 @@ public class MockObjectAssertTest {
     }
 
 
+    @Test
+    public void assertInvokedInSequenceWithOtherInvocationsInBetween() {
+        mockObject.getMock().testMethod1();
+        mockObject.getMock().testMethod2();
+        mockObject.getMock().testMethod1();
+        mockObject.getMock().testMethod2();
+
+        mockObject.assertInvokedInSequence().testMethod1();
+        mockObject.assertInvokedInSequence().testMethod2();
+        mockObject.assertInvokedInSequence().testMethod1();
+        mockObject.assertInvokedInSequence().testMethod2();
+    }
+
+
+    @Test
+    public void assertInvokedInSequenceButOutOfSequenceMessage() {
+        mockObject.getMock().testMethod1();
+        mockObject.getMock().testMethod2();
+        mockObject.getMock().testMethod3(null);
+
+        mockObject.assertInvokedInSequence().testMethod2();
+        mockObject.assertInvokedInSequence().testMethod3(null);
+        try {
+            mockObject.assertInvokedInSequence().testMethod1();
+            fail();
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage().startsWith("Invocation of TestClass.testMethod1() was expected to be performed after TestClass.testMethod2() but actually occurred before it."));
+        }
+    }
+
+
+    @Test
+    public void assertInvokedManyInvocations() {
+        for (int i = 0; i < 1000; i++) {
+            mockObject.getMock().testMethod3(asList("" + i));
+            mockObject.getMock().testMethod1();
+        }
+        for (int i = 999; i >= 0; i--) {
+            mockObject.assertInvoked().testMethod3(asList("" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            mockObject.assertInvoked().testMethod1();
+        }
+        mockObject.assertNotInvoked().testMethod3(asList("0"));
+        assertNoMoreInvocations();
+    }
+
+
+    @Test
+    public void assertInvokedUsesArgumentValueAtInvocationTime() {
+        List<String> list = new ArrayList<String>(asList("a"));
+        mockObject.getMock().testMethod3(list);
+        list.add("b");
+
+        mockObject.assertInvoked().testMethod3(asList("a"));
+    }
+
+
+    @Test
+    public void assertInvokedWithoutSnapshot() {
+        mockObject.setSnapshotInvocations(false);
+        List<String> list = new ArrayList<String>(asList("a"));
+        mockObject.getMock().testMethod3(list);
+        list.add("b");
+
+        mockObject.assertInvoked().testMethod3(asList("a", "b"));
+    }
+
+
     @Test
     public void testNoMoreInvocations() {
         mockObject.getMock().testMethod1();
@@ -140,6 +215,8 @@ public class MockObjectAssertTest {
 
         public void testMethod2();
 
+        public void testMethod3(List<String> list);
+
     }
 
 }
\ No newline at end of file
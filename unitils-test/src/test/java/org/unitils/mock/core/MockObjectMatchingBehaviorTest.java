@@ -21,6 +21,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.unitils.mock.ArgumentMatchers.anyLong;
+import static org.unitils.mock.ArgumentMatchers.eq;
 
 /**
  * Tests the mock object functionality.
@@ -108,12 +110,85 @@ public class MockObjectMatchingBehaviorTest {
     }
 
 
+    @Test
+    public void manyDefinedBehaviors() {
+        for (int i = 0; i < 500; i++) {
+            mockObject.returns(i).testMethod1("arg" + i, "x", null);
+        }
+        mockObject.returns(-1).testMethod1(null, "x", null);
+
+        assertEquals(250, mockObject.getMock().testMethod1("arg250", "x", "y"));
+        assertEquals(-1, mockObject.getMock().testMethod1("other", "x", "y"));
+        assertEquals(0, mockObject.getMock().testMethod1("arg250", "other", "y"));
+    }
+
+    @Test
+    public void firstMatchWhenMultipleBestMatches_indexedAndNotIndexed() {
+        mockObject.returns(1).testMethod1("arg1", "arg2", null);
+        mockObject.returns(2).testMethod1("arg1", null, "arg3");
+        mockObject.returns(3).testMethod1("arg1", "arg2", "arg3");
+        mockObject.returns(4).testMethod1("arg1", "arg2", "arg3");
+
+        int result = mockObject.getMock().testMethod1("arg1", "arg2", "arg3");
+        assertEquals(3, result);
+    }
+
+    @Test
+    public void firstMatchWhenMultipleBestMatches_notIndexedDefinedFirst() {
+        mockObject.returns(1).testMethod4("arg1", anyLong());
+        mockObject.returns(2).testMethod4("arg1", 5000L);
+
+        int result = mockObject.getMock().testMethod4("arg1", 5000L);
+        assertEquals(1, result);
+    }
+
+    @Test
+    public void firstMatchWhenMultipleBestMatches_indexedDefinedFirst() {
+        mockObject.returns(1).testMethod4("arg1", 5000L);
+        mockObject.returns(2).testMethod4("arg1", anyLong());
+
+        int result = mockObject.getMock().testMethod4("arg1", 5000L);
+        assertEquals(1, result);
+    }
+
+    @Test
+    public void numbersMatchedByValue() {
+        mockObject.returns(1).testMethod3("arg1", 5L);
+
+        int result = mockObject.getMock().testMethod3("arg1", 5.0);
+        assertEquals(1, result);
+    }
+
+    @Test
+    public void equalsArgumentMatcher() {
+        mockObject.returns(1).testMethod1(eq("arg1"), eq("arg2"), eq("arg3"));
+        mockObject.returns(2).testMethod1(eq("arg1"), eq("arg2"), eq("other"));
+
+        assertEquals(2, mockObject.getMock().testMethod1("arg1", "arg2", "other"));
+        assertEquals(0, mockObject.getMock().testMethod1("arg1", "arg2", null));
+    }
+
+    @Test
+    public void oneTimeMatchingRemovedAfterUse() {
+        mockObject.onceReturns(1).testMethod1("arg1", "arg2", "arg3");
+        mockObject.onceReturns(2).testMethod1("arg1", "arg2", "arg3");
+
+        assertEquals(1, mockObject.getMock().testMethod1("arg1", "arg2", "arg3"));
+        assertEquals(2, mockObject.getMock().testMethod1("arg1", "arg2", "arg3"));
+        assertEquals(0, mockObject.getMock().testMethod1("arg1", "arg2", "arg3"));
+    }
+
+
     private static interface TestClass {
 
         int testMethod1(String arg1, String arg2, String arg3);
 
         int testMethod2(Value value);
 
+        int testMethod3(String arg1, Object arg2);
+
+        int testMethod4(String arg1, long arg2);
+
     }
 
     private static class Value {
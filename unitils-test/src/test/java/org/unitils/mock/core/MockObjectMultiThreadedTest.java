@@ -0,0 +1,171 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.mock.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.unitils.mock.MockUnitils.assertNoMoreInvocations;
+
+/**
+ * Tests mocks that are invoked by other threads than the test thread.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class MockObjectMultiThreadedTest {
+
+    private static final int NR_OF_THREADS = 4;
+
+    private static final int NR_OF_INVOCATIONS = 2500;
+
+    /* Class under test */
+    private MockObject<TestClass> mockObject;
+
+    private ExecutorService executorService;
+
+
+    @Before
+    public void setUp() {
+        mockObject = new MockObject<TestClass>("testMock", TestClass.class, this);
+        executorService = Executors.newFixedThreadPool(NR_OF_THREADS);
+    }
+
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+
+    @Test
+    public void invocationsByOtherThreads() throws Exception {
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int thread = 0; thread < NR_OF_THREADS; thread++) {
+            futures.add(executorService.submit(new InvokeMockTask(thread)));
+        }
+        waitForCompletion(futures);
+
+        assertEquals(NR_OF_THREADS * NR_OF_INVOCATIONS, mockObject.getScenario(this).getObservedInvocations().size());
+        for (int thread = 0; thread < NR_OF_THREADS; thread++) {
+            for (int i = NR_OF_INVOCATIONS - 1; i >= 0; i--) {
+                mockObject.assertInvoked().testMethod(thread, i);
+            }
+        }
+        assertNoMoreInvocations();
+    }
+
+
+    @Test
+    public void invocationsOfOneThreadAreInSequence() throws Exception {
+        waitForCompletion(asList(executorService.submit(new InvokeMockTask(0)), executorService.submit(new InvokeMockTask(1))));
+
+        for (int i = 0; i < NR_OF_INVOCATIONS; i++) {
+            mockObject.assertInvokedInSequence().testMethod(0, i);
+        }
+    }
+
+
+    @Test
+    public void oneTimeBehaviorIsOnlyUsedOnce() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            mockObject.onceReturns("value").getValue();
+        }
+        List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(executorService.submit(new Callable<Object>() {
+                public Object call() {
+                    return mockObject.getMock().getValue();
+                }
+            }));
+        }
+        int nrOfValues = 0;
+        for (Future<Object> future : futures) {
+            if ("value".equals(future.get())) {
+                nrOfValues++;
+            }
+        }
+        assertEquals(100, nrOfValues);
+    }
+
+
+    @Test
+    public void invocationByOtherThreadWhileDefiningBehavior() throws Exception {
+        TestClass behaviorDefiningProxy = mockObject.returns("value");
+        waitForCompletion(asList(executorService.submit(new InvokeMockTask(0))));
+        behaviorDefiningProxy.getValue();
+
+        assertEquals("value", mockObject.getMock().getValue());
+    }
+
+
+    private List<Future<Object>> asList(Future<Object>... futures) {
+        List<Future<Object>> result = new ArrayList<Future<Object>>();
+        for (Future<Object> future : futures) {
+            result.add(future);
+        }
+        return result;
+    }
+
+
+    private void waitForCompletion(List<Future<Object>> futures) throws Exception {
+        for (Future<Object> future : futures) {
+            future.get();
+        }
+    }
+
+
+    /**
+     * Task that invokes the mock a number of times with the given thread nr
+     */
+    private class InvokeMockTask implements Callable<Object> {
+
+        private int thread;
+
+        public InvokeMockTask(int thread) {
+            this.thread = thread;
+        }
+
+        public Object call() {
+            for (int i = 0; i < NR_OF_INVOCATIONS; i++) {
+                mockObject.getMock().testMethod(thread, i);
+            }
+            return null;
+        }
+    }
+
+
+    /**
+     * Interface that is mocked during the tests
+     */
+    public static interface TestClass {
+
+        public void testMethod(int thread, int value);
+
+        public String getValue();
+
+    }
+
+}
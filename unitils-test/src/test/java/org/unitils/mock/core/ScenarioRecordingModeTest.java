@@ -0,0 +1,174 @@
+/*
+ * Copyright 2008,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.mock.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.unitils.core.UnitilsException;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.unitils.mock.MockUnitils.assertNoMoreInvocations;
+import static org.unitils.mock.MockUnitils.setInvocationRecordingMode;
+import static org.unitils.mock.core.Scenario.RecordingMode.*;
+
+/**
+ * Tests the recording modes of the observed mock invocations.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ScenarioRecordingModeTest {
+
+    /* Class under test */
+    private MockObject<TestClass> mockObject;
+
+    private Method testMethod1;
+
+
+    @Before
+    public void setUp() throws Exception {
+        mockObject = new MockObject<TestClass>("testMock", TestClass.class, this);
+        testMethod1 = TestClass.class.getMethod("testMethod1", Integer.TYPE);
+    }
+
+
+    @Test
+    public void defaultRecordingMode() {
+        assertEquals(FULL, MockObject.getCurrentScenario().getRecordingMode());
+    }
+
+
+    @Test
+    public void last() {
+        setInvocationRecordingMode(LAST, 10);
+        invokeTestMethod1(100);
+
+        mockObject.assertInvoked().testMethod1(95);
+        mockObject.assertNotInvoked().testMethod2();
+        assertEquals(10, MockObject.getCurrentScenario().getObservedInvocations().size());
+        assertEquals(100, MockObject.getCurrentScenario().getInvocationCount(testMethod1));
+    }
+
+
+    @Test
+    public void last_assertInvokedOfDiscardedInvocation() {
+        setInvocationRecordingMode(LAST, 10);
+        invokeTestMethod1(100);
+        try {
+            mockObject.assertInvoked().testMethod1(5);
+            fail();
+        } catch (UnitilsException e) {
+            assertTrue(e.getMessage().startsWith("Unable to assert invocation of TestClass.testMethod1(): 90 invocation(s) that could match were not recorded."));
+        }
+    }
+
+
+    @Test(expected = UnitilsException.class)
+    public void last_assertNotInvokedOfDiscardedInvocation() {
+        setInvocationRecordingMode(LAST, 10);
+        invokeTestMethod1(100);
+        mockObject.assertNotInvoked().testMethod1(5);
+    }
+
+
+    @Test
+    public void last_assertInvokedInSequence() {
+        setInvocationRecordingMode(LAST, 10);
+        for (int i = 0; i < 100; i++) {
+            mockObject.getMock().testMethod1(i);
+            mockObject.getMock().testMethod2();
+            mockObject.assertInvokedInSequence().testMethod1(i);
+            mockObject.assertInvokedInSequence().testMethod2();
+        }
+        assertNoMoreInvocations();
+    }
+
+
+    @Test(expected = UnitilsException.class)
+    public void last_assertNoMoreInvocationsWithDiscardedInvocations() {
+        setInvocationRecordingMode(LAST, 10);
+        invokeTestMethod1(100);
+        for (int i = 90; i < 100; i++) {
+            mockObject.assertInvoked().testMethod1(i);
+        }
+        assertNoMoreInvocations();
+    }
+
+
+    @Test
+    public void count() {
+        setInvocationRecordingMode(COUNT, 1);
+        invokeTestMethod1(100);
+
+        mockObject.assertNotInvoked().testMethod2();
+        assertTrue(MockObject.getCurrentScenario().getObservedInvocations().isEmpty());
+        assertEquals(100, MockObject.getCurrentScenario().getInvocationCount(testMethod1));
+    }
+
+
+    @Test(expected = UnitilsException.class)
+    public void count_assertInvoked() {
+        setInvocationRecordingMode(COUNT, 1);
+        invokeTestMethod1(100);
+        mockObject.assertInvoked().testMethod1(5);
+    }
+
+
+    @Test(expected = UnitilsException.class)
+    public void off_assertNoMoreInvocations() {
+        setInvocationRecordingMode(OFF, 1);
+        invokeTestMethod1(100);
+        assertNoMoreInvocations();
+    }
+
+
+    @Test(expected = UnitilsException.class)
+    public void off_getInvocationCount() {
+        setInvocationRecordingMode(OFF, 1);
+        invokeTestMethod1(100);
+        MockObject.getCurrentScenario().getInvocationCount(testMethod1);
+    }
+
+
+    @Test(expected = UnitilsException.class)
+    public void invalidMaxNrOfRecordedInvocations() {
+        setInvocationRecordingMode(LAST, 0);
+    }
+
+
+    private void invokeTestMethod1(int nrOfInvocations) {
+        for (int i = 0; i < nrOfInvocations; i++) {
+            mockObject.getMock().testMethod1(i);
+        }
+    }
+
+
+    /**
+     * Interface that is mocked during the tests
+     */
+    private static interface TestClass {
+
+        public void testMethod1(int value);
+
+        public void testMethod2();
+
+    }
+
+}
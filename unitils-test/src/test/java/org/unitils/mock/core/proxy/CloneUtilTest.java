@@ -17,11 +17,14 @@ package org.unitils.mock.core.proxy;
 
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import static org.unitils.mock.core.proxy.CloneUtil.createDeepClone;
+import static org.unitils.mock.core.proxy.CloneUtil.setExcludedTypes;
 import static org.unitils.reflectionassert.ReflectionAssert.assertReflectionEquals;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import static java.util.Arrays.asList;
 import java.util.HashMap;
@@ -60,6 +63,12 @@ public class CloneUtilTest {
     }
 
 
+    @After
+    public void tearDown() {
+        setExcludedTypes(new ArrayList<Class<?>>());
+    }
+
+
     @Test
     public void testCreateDeepClone() {
         SimpleValues result = createDeepClone(simpleValues1);
@@ -131,6 +140,55 @@ public class CloneUtilTest {
         assertSame(references.references, references);
     }
 
+    @Test
+    public void testCreateDeepClone_immutable() {
+        ImmutableValues immutableValues = new ImmutableValues("testString", 1L, new ImmutableValues(null, 2L, null));
+        ImmutableValues result = createDeepClone(immutableValues);
+        assertSame(immutableValues, result);
+    }
+
+
+    @Test
+    public void testCreateDeepClone_excludedType() {
+        setExcludedTypes(Arrays.<Class<?>>asList(SimpleValues.class));
+
+        SimpleValues result = createDeepClone(simpleValues1);
+        assertSame(simpleValues1, result);
+    }
+
+
+    @Test
+    public void testCreateDeepClone_excludedTypeInCollection() {
+        setExcludedTypes(Arrays.<Class<?>>asList(SimpleValues.class));
+
+        Collections result = createDeepClone(collections);
+        assertNotSame(collections.listValue, result.listValue);
+        assertSame(simpleValues1, result.listValue.get(0));
+    }
+
+
+    @Test
+    public void testCreateDeepClone_excludedTypeAfterCloning() {
+        assertNotSame(simpleValues1, createDeepClone(simpleValues1));
+        setExcludedTypes(Arrays.<Class<?>>asList(SimpleValues.class));
+
+        SimpleValues result = createDeepClone(simpleValues1);
+        assertSame(simpleValues1, result);
+    }
+
+
+    @Test
+    public void testCloneArrayOfImmutableValues() {
+        String[] array = new String[]{"a", "b"};
+        Object[] arrays = new Object[]{array, array};
+
+        Object[] result = createDeepClone(arrays);
+        assertNotSame(array, result[0]);
+        assertSame(result[0], result[1]);
+        assertReflectionEquals(array, result[0]);
+    }
+
+
     @Test
     public void testCloneNestedArray() {
         Object[] array = new Object[2];
@@ -157,6 +215,20 @@ public class CloneUtilTest {
     }
 
 
+    protected static final class ImmutableValues {
+
+        private final String stringValue;
+        private final long longValue;
+        private final ImmutableValues immutableValues;
+
+        public ImmutableValues(String stringValue, long longValue, ImmutableValues immutableValues) {
+            this.stringValue = stringValue;
+            this.longValue = longValue;
+            this.immutableValues = immutableValues;
+        }
+    }
+
+
     protected static class Collections {
 
         private List<SimpleValues> listValue;
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2006-2009,  Unitils.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.unitils.mock.core.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import static org.unitils.mock.core.proxy.ProxyFactory.createProxy;
+import static org.unitils.mock.core.proxy.ProxyFactory.createUninitializedProxy;
+
+import java.io.Serializable;
+
+/**
+ * Tests the caching of proxy classes and the recording of invocation locations by the proxy factory.
+ *
+ * @author Tim Ducheyne
+ * @author Filip Neven
+ */
+public class ProxyFactoryTest {
+
+
+    @Test
+    public void sameClassForSameType() {
+        TestInterface proxy1 = createProxy("mock1", new ValueProxyInvocationHandler("1"), TestInterface.class);
+        TestInterface proxy2 = createProxy("mock2", new ValueProxyInvocationHandler("2"), TestInterface.class);
+
+        assertSame(proxy1.getClass(), proxy2.getClass());
+        assertEquals("1", proxy1.getValue());
+        assertEquals("2", proxy2.getValue());
+    }
+
+
+    @Test
+    public void sameClassForInitializedAndUninitializedProxy() {
+        TestClass proxy1 = createProxy("mock1", new ValueProxyInvocationHandler("1"), TestClass.class);
+        TestClass proxy2 = createUninitializedProxy("mock2", new ValueProxyInvocationHandler("2"), TestClass.class);
+
+        assertSame(proxy1.getClass(), proxy2.getClass());
+        assertEquals("1", proxy1.getValue());
+        assertEquals("2", proxy2.getValue());
+    }
+
+
+    @Test
+    public void differentClassForDifferentInterfaces() {
+        TestInterface proxy1 = createProxy("mock1", new ValueProxyInvocationHandler("1"), TestInterface.class);
+        TestInterface proxy2 = createProxy("mock2", new ValueProxyInvocationHandler("2"), TestInterface.class, Serializable.class);
+
+        assertNotSame(proxy1.getClass(), proxy2.getClass());
+        assertTrue(proxy2 instanceof Serializable);
+    }
+
+
+    @Test
+    public void invocationLocation() {
+        ValueProxyInvocationHandler invocationHandler = new ValueProxyInvocationHandler("1");
+        TestInterface proxy = createProxy("mock", invocationHandler, TestInterface.class);
+        proxy.getValue();
+
+        StackTraceElement result = invocationHandler.invocation.getInvokedAt();
+        assertEquals(ProxyFactoryTest.class.getName(), result.getClassName());
+        assertEquals("invocationLocation", result.getMethodName());
+    }
+
+
+    @Test
+    public void invocationLocationNotRecorded() {
+        ValueProxyInvocationHandler invocationHandler = new ValueProxyInvocationHandler("1");
+        TestInterface proxy = createProxy("mock", invocationHandler, false, TestInterface.class);
+        proxy.getValue();
+
+        assertNull(invocationHandler.invocation.getInvokedAt());
+        assertEquals(0, invocationHandler.invocation.getInvokedAtTrace().length);
+        assertEquals(-1, invocationHandler.invocation.getLineNumber());
+    }
+
+
+    protected static interface TestInterface {
+
+        String getValue();
+    }
+
+
+    protected static class TestClass {
+
+        public String getValue() {
+            return "original";
+        }
+    }
+
+
+    private static class ValueProxyInvocationHandler implements ProxyInvocationHandler {
+
+        private String value;
+
+        private ProxyInvocation invocation;
+
+        public ValueProxyInvocationHandler(String value) {
+            this.value = value;
+        }
+
+        public Object handleInvocation(ProxyInvocation invocation) throws Throwable {
+            this.invocation = invocation;
+            return value;
+        }
+    }
+
+}
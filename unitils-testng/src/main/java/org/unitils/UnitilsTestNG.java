@@ -18,6 +18,7 @@ package org.unitils;
 import org.testng.IHookCallBack;
 import org.testng.IHookable;
 import org.testng.ITestResult;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
@@ -51,6 +52,15 @@ public abstract class UnitilsTestNG implements IHookable {
     }
 
 
+    /**
+     * Called after all tests of a test class were run. This is where {@link TestListener#afterTestClass(Class)} is called.
+     */
+    @AfterClass(alwaysRun = true)
+    protected void unitilsAfterClass() {
+        getTestListener().afterTestClass(this.getClass());
+    }
+
+
     /**
      * Called before all test setup. This is where {@link TestListener#beforeTestSetUp} is called.
      *